@@ -38,6 +38,7 @@ import org.opends.server.core.AuthenticatedUsers;
 import org.opends.server.core.CoreConfigManager;
 import org.opends.server.core.DirectoryServer;
 import org.opends.server.core.PersistentSearch;
+import org.opends.server.core.PersistentSearchNotifier;
 import org.opends.server.core.PluginConfigManager;
 import org.opends.server.core.SearchOperation;
 import org.opends.server.types.Attribute;
@@ -130,6 +131,9 @@ public abstract class ClientConnection
   /** A set of persistent searches registered for this client. */
   private final CopyOnWriteArrayList<PersistentSearch> persistentSearches = new CopyOnWriteArrayList<>();
 
+  /** The change notifications waiting to be sent to the persistent searches of this client. */
+  private final PersistentSearchNotifier persistentSearchNotifier = new PersistentSearchNotifier();
+
   /** Performs the appropriate initialization generic to all client connections. */
   protected ClientConnection()
   {
@@ -659,6 +663,20 @@ public abstract class ClientConnection
 
 
 
+  /**
+   * Retrieves the notifier sending the change notifications to the
+   * persistent searches registered for this client.
+   *
+   * @return  The notifier sending the change notifications to the
+   *          persistent searches registered for this client.
+   */
+  public final PersistentSearchNotifier getPersistentSearchNotifier()
+  {
+    return persistentSearchNotifier;
+  }
+
+
+
   /**
    * Registers the provided persistent search for this client.
    * Note that this should only be called by
@@ -16,12 +16,14 @@
  */
 package org.opends.server.api;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.DN;
 import org.forgerock.opendj.ldap.SearchScope;
 import org.forgerock.opendj.server.config.server.GroupImplementationCfg;
@@ -355,6 +357,28 @@ public abstract class Group<T extends GroupImplementationCfg>
   public abstract boolean isMember(Entry userEntry, AtomicReference<Set<DN>> examinedGroups)
          throws DirectoryException;
 
+  /**
+   * Retrieves the normalized DNs of the entries explicitly listed as
+   * members of this group, which the group manager uses to index the
+   * groups by member.  This group must then only contain the listed
+   * entries and the members of the listed nested groups.  Note that
+   * this is a point-in-time determination, and the caller must not
+   * modify the result.
+   * <p>
+   * The default implementation returns {@code null}, meaning that the
+   * membership of an entry must be determined by calling
+   * {@link #isMember(Entry)}, for instance because the members of this
+   * group are defined by a search filter.
+   *
+   * @return  The normalized DNs of the entries listed as members of
+   *          this group, or {@code null} if the members of this group
+   *          cannot be indexed by DN.
+   */
+  public Collection<ByteString> getNormalizedMemberDNs()
+  {
+    return null;
+  }
+
   /**
    * Retrieves an iterator that may be used to cursor through the
    * entries of the members contained in this group.  Note that this
@@ -40,6 +40,7 @@ import org.opends.server.core.ModifyDNOperation;
 import org.opends.server.core.ModifyOperation;
 import org.opends.server.core.PersistentSearch;
 import org.opends.server.core.PersistentSearch.CancellationCallback;
+import org.opends.server.core.PersistentSearchIndex;
 import org.opends.server.core.SearchOperation;
 import org.opends.server.core.ServerContext;
 import org.opends.server.monitors.LocalBackendMonitor;
@@ -80,6 +81,9 @@ public abstract class LocalBackend<C extends Configuration> extends Backend<C>
   /** The set of persistent searches registered with this backend. */
   private final ConcurrentLinkedQueue<PersistentSearch> persistentSearches = new ConcurrentLinkedQueue<>();
 
+  /** The persistent searches registered with this backend, indexed for finding the ones matching a change. */
+  private final PersistentSearchIndex persistentSearchIndex = new PersistentSearchIndex();
+
   /** The backend monitor associated with this backend. */
   private LocalBackendMonitor backendMonitor;
 
@@ -105,6 +109,7 @@ public abstract class LocalBackend<C extends Configuration> extends Backend<C>
       psearch.cancel();
     }
     persistentSearches.clear();
+    persistentSearchIndex.clear();
     closeBackend();
   }
 
@@ -668,6 +673,7 @@ public abstract class LocalBackend<C extends Configuration> extends Backend<C>
   public void registerPersistentSearch(PersistentSearch persistentSearch) throws DirectoryException
   {
     persistentSearches.add(persistentSearch);
+    persistentSearchIndex.add(persistentSearch);
 
     persistentSearch.registerCancellationCallback(new CancellationCallback()
     {
@@ -675,6 +681,7 @@ public abstract class LocalBackend<C extends Configuration> extends Backend<C>
       public void persistentSearchCancelled(PersistentSearch psearch)
       {
         persistentSearches.remove(psearch);
+        persistentSearchIndex.remove(psearch);
       }
     });
   }
@@ -691,6 +698,21 @@ public abstract class LocalBackend<C extends Configuration> extends Backend<C>
     return persistentSearches;
   }
 
+  /**
+   * Returns the persistent searches registered with this local backend which
+   * may need to be notified of a change. The returned persistent searches
+   * still check whether the change matches their scope and filter.
+   *
+   * @param entries
+   *          the entries affected by the change, for instance the entry before
+   *          and after a modification
+   * @return the persistent searches which may need to be notified of the change
+   */
+  public Collection<PersistentSearch> getPersistentSearchesToNotify(Entry... entries)
+  {
+    return persistentSearchIndex.getCandidates(entries);
+  }
+
   /**
    * Retrieves the total number of entries contained in this backend,
    * if that information is available.
@@ -332,13 +332,28 @@ public class Aci implements Comparable<Aci>
      * @return  True if this ACI targets are applicable or match.
      */
     public static boolean isApplicable(Aci aci, AciTargetMatchContext matchCtx) {
+      return isApplicable(aci, matchCtx, false);
+    }
+
+    /**
+     * Check if the ACI is applicable using the specified target match
+     * context, possibly skipping the target and targetscope keywords match.
+     *
+     * @param aci The ACI to test.
+     * @param matchCtx The target matching context containing all the info
+     * needed to match ACI targets.
+     * @param targetMatched True if the target and targetscope keywords are
+     * already known to match the DN of the resource entry.
+     * @return  True if this ACI targets are applicable or match.
+     */
+    static boolean isApplicable(Aci aci, AciTargetMatchContext matchCtx, boolean targetMatched) {
       if(matchCtx.hasRights(ACI_EXT_OP)) {
         //Extended operation is being evaluated.
-         return AciTargets.isTargetApplicable(aci, matchCtx) &&
+         return (targetMatched || AciTargets.isTargetApplicable(aci, matchCtx)) &&
                  AciTargets.isExtOpApplicable(aci, matchCtx);
       } else if(matchCtx.hasRights(ACI_CONTROL)) {
         //Control is being evaluated.
-         return AciTargets.isTargetApplicable(aci, matchCtx) &&
+         return (targetMatched || AciTargets.isTargetApplicable(aci, matchCtx)) &&
                 AciTargets.isTargetControlApplicable(aci, matchCtx);
       } else {
         //If an ACI has extOp or targetControl targets skip it because the
@@ -346,7 +361,7 @@ public class Aci implements Comparable<Aci>
         //this point.
         return hasNoExtOpOrTargetControl(aci.getTargets())
             && haveSimilarRights(aci, matchCtx)
-            && AciTargets.isTargetApplicable(aci, matchCtx)
+            && (targetMatched || AciTargets.isTargetApplicable(aci, matchCtx))
             && AciTargets.isTargetFilterApplicable(aci, matchCtx)
             && AciTargets.isTargAttrFiltersApplicable(aci, matchCtx)
             && AciTargets.isTargetAttrApplicable(aci, matchCtx);
@@ -93,6 +93,12 @@ public final class AciHandler extends
    */
   static final String ORIG_AUTH_ENTRY = "origAuthorizationEntry";
 
+  /**
+   * String used to save the ACIs targeting the entries returned by a search
+   * in an operation attachment.
+   */
+  private static final String ACI_SEARCH_CACHE = "aciSearchCache";
+
   /** Attribute type corresponding to "aci" attribute. */
   static AttributeType aciType;
 
@@ -512,13 +518,22 @@ public final class AciHandler extends
       }
     }
 
-    // First get all allowed candidate ACIs.
-    List<Aci> candidates = aciList.getCandidateAcis(dn);
     /*
      * Create an applicable list of ACIs by target matching each
      * candidate ACI against the container's target match view.
      */
-    createApplicableList(candidates, container);
+    final Operation operation = container.getOperation();
+    if (operation instanceof SearchOperation)
+    {
+      // The ACIs targeting the returned entries are memoized for the search.
+      createApplicableList(getTargetedAcis(operation, dn), container, true);
+    }
+    else
+    {
+      // First get all allowed candidate ACIs.
+      List<Aci> candidates = aciList.getCandidateAcis(dn);
+      createApplicableList(candidates, container, false);
+    }
     // Evaluate the applicable list.
     final boolean ret = testApplicableLists(container);
     // Build summary string if doing geteffectiverights eval.
@@ -860,6 +875,27 @@ public final class AciHandler extends
     return true;
   }
 
+  /**
+   * Returns the candidate ACIs whose target matches an entry returned by a
+   * search operation, using the ACIs memoized for the search operation.
+   *
+   * @param operation
+   *          The search operation.
+   * @param entryDN
+   *          The DN of the entry whose access is checked.
+   * @return The candidate ACIs whose target matches the entry.
+   */
+  private List<Aci> getTargetedAcis(Operation operation, DN entryDN)
+  {
+    AciSearchCache cache = operation.getAttachment(ACI_SEARCH_CACHE);
+    if (cache == null)
+    {
+      cache = new AciSearchCache();
+      operation.setAttachment(ACI_SEARCH_CACHE, cache);
+    }
+    return cache.getTargetedAcis(aciList.getSnapshot(), entryDN);
+  }
+
   /**
    * Creates the allow and deny ACI lists based on the provided target
    * match context. These lists are stored in the evaluation context.
@@ -868,15 +904,17 @@ public final class AciHandler extends
    *          List of all possible ACI candidates.
    * @param targetMatchCtx
    *          Target matching context to use for testing each ACI.
+   * @param targetMatched
+   *          Whether the target of the candidates is already known to match.
    */
   private void createApplicableList(List<Aci> candidates,
-      AciTargetMatchContext targetMatchCtx)
+      AciTargetMatchContext targetMatchCtx, boolean targetMatched)
   {
     List<Aci> denys = new LinkedList<>();
     List<Aci> allows = new LinkedList<>();
     for (Aci aci : candidates)
     {
-      if (Aci.isApplicable(aci, targetMatchCtx))
+      if (Aci.isApplicable(aci, targetMatchCtx, targetMatched))
       {
         if (aci.hasAccessType(EnumAccessType.DENY))
         {
@@ -20,6 +20,7 @@ import static org.opends.messages.AccessControlMessages.*;
 import static org.opends.server.authorization.dseecompat.AciHandler.*;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -46,11 +47,14 @@ public class AciList {
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
 
+  /** A map containing all the ACIs, guarded by the write lock. */
+  private final DITCacheMap<List<Aci>> aciList = new DITCacheMap<>();
+
   /**
-   * A map containing all the ACIs.
+   * An immutable copy of the ACIs, published each time they are modified.
    * We use the copy-on-write technique to avoid locking when reading.
    */
-  private volatile DITCacheMap<List<Aci>> aciList = new DITCacheMap<>();
+  private volatile Snapshot snapshot = new Snapshot(aciList);
 
   /**
    * Lock to protect internal data structures.
@@ -69,6 +73,45 @@ public class AciList {
      this.configDN=configDN;
   }
 
+  /**
+   * An immutable snapshot of the ACIs, where the ACIs of each entry are
+   * stored in an array.
+   */
+  static final class Snapshot {
+    private static final Aci[] NO_ACIS = new Aci[0];
+
+    /** The ACIs of each entry, global ACIs using the NULL DN as the key. */
+    private final Map<DN, Aci[]> acis;
+
+    private Snapshot(Map<DN, List<Aci>> aciList) {
+      acis = new HashMap<>();
+      for (Map.Entry<DN, List<Aci>> mapEntry : aciList.entrySet()) {
+        acis.put(mapEntry.getKey(), mapEntry.getValue().toArray(NO_ACIS));
+      }
+    }
+
+    /**
+     * Returns the ACIs held by an entry, or the global ACIs for the NULL DN.
+     *
+     * @param dn The DN of the entry.
+     * @return The ACIs held by the entry, which must not be modified.
+     */
+    Aci[] getAcis(DN dn) {
+      final Aci[] entryAcis = acis.get(dn);
+      return entryAcis != null ? entryAcis : NO_ACIS;
+    }
+  }
+
+  /**
+   * Returns the current snapshot of the ACIs. A new snapshot is returned
+   * each time the ACIs are modified.
+   *
+   * @return The current snapshot of the ACIs.
+   */
+  Snapshot getSnapshot() {
+    return snapshot;
+  }
+
   /**
    * Using the base DN, return a list of ACIs that are candidates for
    * evaluation by walking up from the base DN towards the root of the
@@ -81,52 +124,36 @@ public class AciList {
    * @return A list of candidate ACIs that might be applicable.
    */
   public List<Aci> getCandidateAcis(DN baseDN) {
-    List<Aci> candidates = new LinkedList<>();
+    List<Aci> candidates = new ArrayList<>();
     if(baseDN == null)
     {
       return candidates;
     }
 
-    lock.readLock().lock();
-    try
-    {
-      //Save the baseDN in case we need to evaluate a global ACI.
-      DN entryDN=baseDN;
-      while (baseDN != null) {
-        List<Aci> acis = aciList.get(baseDN);
-        if (acis != null) {
-          //Check if there are global ACIs. Global ACI has a NULL DN.
-          if (baseDN.isRootDN()) {
-            for (Aci aci : acis) {
-              AciTargets targets = aci.getTargets();
-              //If there is a target, evaluate it to see if this ACI should
-              //be included in the candidate set.
-              if (targets != null
-                  && AciTargets.isTargetApplicable(aci, targets, entryDN))
-              {
-                  candidates.add(aci);  //Add this ACI to the candidates.
-              }
-            }
-          } else {
-            candidates.addAll(acis);
-          }
-        }
-        if(baseDN.isRootDN()) {
-          break;
-        }
-        DN parentDN=baseDN.parent();
-        if(parentDN == null) {
-          baseDN=DN.rootDN();
-        } else {
-          baseDN=parentDN;
-        }
+    final Snapshot acis = snapshot;
+    //Save the baseDN in case we need to evaluate a global ACI.
+    DN entryDN=baseDN;
+    while (!baseDN.isRootDN()) {
+      Collections.addAll(candidates, acis.getAcis(baseDN));
+      DN parentDN=baseDN.parent();
+      if(parentDN == null) {
+        baseDN=DN.rootDN();
+      } else {
+        baseDN=parentDN;
       }
-      return candidates;
     }
-    finally
-    {
-      lock.readLock().unlock();
+    //Check if there are global ACIs. Global ACI has a NULL DN.
+    for (Aci aci : acis.getAcis(baseDN)) {
+      AciTargets targets = aci.getTargets();
+      //If there is a target, evaluate it to see if this ACI should
+      //be included in the candidate set.
+      if (targets != null
+          && AciTargets.isTargetApplicable(aci, targets, entryDN))
+      {
+          candidates.add(aci);  //Add this ACI to the candidates.
+      }
     }
+    return candidates;
   }
 
   /**
@@ -156,7 +183,7 @@ public class AciList {
     }
     finally
     {
-      lock.writeLock().unlock();
+      publishSnapshotAndUnlock();
     }
   }
 
@@ -177,7 +204,7 @@ public class AciList {
     }
     finally
     {
-      lock.writeLock().unlock();
+      publishSnapshotAndUnlock();
     }
   }
 
@@ -217,7 +244,7 @@ public class AciList {
     }
     finally
     {
-      lock.writeLock().unlock();
+      publishSnapshotAndUnlock();
     }
   }
 
@@ -306,7 +333,7 @@ public class AciList {
     }
     finally
     {
-      lock.writeLock().unlock();
+      publishSnapshotAndUnlock();
     }
   }
 
@@ -360,7 +387,7 @@ public class AciList {
     }
     finally
     {
-      lock.writeLock().unlock();
+      publishSnapshotAndUnlock();
     }
   }
 
@@ -387,7 +414,7 @@ public class AciList {
     }
     finally
     {
-      lock.writeLock().unlock();
+      publishSnapshotAndUnlock();
     }
   }
 
@@ -430,6 +457,21 @@ public class AciList {
       aciList.putAll(tempAciList);
     }
     finally
+    {
+      publishSnapshotAndUnlock();
+    }
+  }
+
+  /**
+   * Publishes a snapshot of the ACIs modified while holding the write lock,
+   * then releases the write lock.
+   */
+  private void publishSnapshotAndUnlock() {
+    try
+    {
+      snapshot = new Snapshot(aciList);
+    }
+    finally
     {
       lock.writeLock().unlock();
     }
@@ -0,0 +1,128 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.authorization.dseecompat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.forgerock.opendj.ldap.DN;
+
+/**
+ * Memoizes, for the duration of a search operation, the ACIs whose target
+ * matches the entries returned by the search.
+ * <p>
+ * The access to each returned entry is checked once per attribute, and each
+ * check needs the candidate ACIs held by the entry and its superiors. The
+ * entries of a subtree search mostly share the same superiors, so the ACIs
+ * inherited from the superiors are memoized for each parent DN, and the ACIs
+ * whose target and targetscope keywords match the entry are memoized for the
+ * last entry. The other keywords, such as targetattr or targetfilter, depend
+ * on the attribute or on the content of the entry and are still matched for
+ * each access check.
+ * <p>
+ * The cache is bound to a snapshot of the ACIs, and is cleared when the ACIs
+ * are modified during the search.
+ */
+final class AciSearchCache
+{
+  /** The maximum number of parent DNs whose inherited ACIs are memoized. */
+  private static final int MAX_CACHED_PARENTS = 1024;
+  private static final Aci[] NO_ACIS = new Aci[0];
+
+  /** The snapshot of the ACIs the memoized ACIs were read from. */
+  private AciList.Snapshot snapshot;
+  /** The ACIs held by the superiors of the children of each parent DN, excluding the global ACIs. */
+  private final Map<DN, Aci[]> inheritedAcis = new HashMap<>();
+  /** The DN of the last entry whose targeted ACIs were requested. */
+  private DN lastEntryDN;
+  /** The ACIs whose target matches the last entry. */
+  private List<Aci> lastTargetedAcis;
+
+  /**
+   * Returns the candidate ACIs whose target and targetscope keywords match
+   * the provided entry DN.
+   *
+   * @param aciSnapshot
+   *          the current snapshot of the ACIs
+   * @param entryDN
+   *          the DN of the entry whose access is checked
+   * @return the ACIs whose target matches the entry, which must not be modified
+   */
+  synchronized List<Aci> getTargetedAcis(AciList.Snapshot aciSnapshot, DN entryDN)
+  {
+    if (snapshot != aciSnapshot)
+    {
+      snapshot = aciSnapshot;
+      inheritedAcis.clear();
+      lastEntryDN = null;
+    }
+    else if (entryDN.equals(lastEntryDN))
+    {
+      return lastTargetedAcis;
+    }
+
+    final List<Aci> targetedAcis = new ArrayList<>();
+    if (!entryDN.isRootDN())
+    {
+      addTargetedAcis(targetedAcis, snapshot.getAcis(entryDN), entryDN);
+      addTargetedAcis(targetedAcis, getInheritedAcis(entryDN.parent()), entryDN);
+    }
+    addTargetedAcis(targetedAcis, snapshot.getAcis(DN.rootDN()), entryDN);
+
+    lastEntryDN = entryDN;
+    lastTargetedAcis = Collections.unmodifiableList(targetedAcis);
+    return lastTargetedAcis;
+  }
+
+  private Aci[] getInheritedAcis(DN parentDN)
+  {
+    if (parentDN == null || parentDN.isRootDN())
+    {
+      return NO_ACIS;
+    }
+
+    Aci[] acis = inheritedAcis.get(parentDN);
+    if (acis == null)
+    {
+      final List<Aci> superiorAcis = new ArrayList<>();
+      for (DN dn = parentDN; dn != null && !dn.isRootDN(); dn = dn.parent())
+      {
+        Collections.addAll(superiorAcis, snapshot.getAcis(dn));
+      }
+      acis = superiorAcis.toArray(NO_ACIS);
+      if (inheritedAcis.size() >= MAX_CACHED_PARENTS)
+      {
+        inheritedAcis.clear();
+      }
+      inheritedAcis.put(parentDN, acis);
+    }
+    return acis;
+  }
+
+  private static void addTargetedAcis(List<Aci> targetedAcis, Aci[] acis, DN entryDN)
+  {
+    for (Aci aci : acis)
+    {
+      if (AciTargets.isTargetApplicable(aci, aci.getTargets(), entryDN))
+      {
+        targetedAcis.add(aci);
+      }
+    }
+  }
+}
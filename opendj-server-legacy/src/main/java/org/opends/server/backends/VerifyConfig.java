@@ -33,6 +33,12 @@ public class VerifyConfig
   private ArrayList<String> completeList = new ArrayList<>();
   /** The names of indexes to be verified for cleanliness. */
   private ArrayList<String> cleanList = new ArrayList<>();
+  /** The number of threads verifying the backend, or 0 for one thread per CPU. */
+  private int threadCount;
+  /** The maximum number of records verified per second, or 0 for no limit. */
+  private int maxRecordsPerSecond;
+  /** The path of the file where the verify progress is saved, or {@code null} if not saved. */
+  private String checkpointFile;
 
   /**
    * Get the base DN to be verified.
@@ -89,4 +95,63 @@ public class VerifyConfig
     Reject.ifNull(index);
     cleanList.add(index);
   }
+
+  /**
+   * Get the number of threads verifying the backend.
+   * @return The number of threads verifying the backend, or 0 for one thread per CPU.
+   */
+  public int getThreadCount()
+  {
+    return threadCount;
+  }
+
+  /**
+   * Set the number of threads verifying the backend.
+   * @param threadCount The number of threads verifying the backend, or 0 for one thread per CPU.
+   */
+  public void setThreadCount(int threadCount)
+  {
+    Reject.ifFalse(threadCount >= 0, "threadCount must be a non-negative integer");
+    this.threadCount = threadCount;
+  }
+
+  /**
+   * Get the maximum number of records verified per second.
+   * @return The maximum number of records verified per second, or 0 for no limit.
+   */
+  public int getMaxRecordsPerSecond()
+  {
+    return maxRecordsPerSecond;
+  }
+
+  /**
+   * Set the maximum number of records verified per second. Limiting the throughput of the
+   * verification allows to run it on a server processing client requests.
+   * @param maxRecordsPerSecond The maximum number of records verified per second, or 0 for no limit.
+   */
+  public void setMaxRecordsPerSecond(int maxRecordsPerSecond)
+  {
+    Reject.ifFalse(maxRecordsPerSecond >= 0, "maxRecordsPerSecond must be a non-negative integer");
+    this.maxRecordsPerSecond = maxRecordsPerSecond;
+  }
+
+  /**
+   * Get the path of the file where the verify progress is saved.
+   * @return The path of the file where the verify progress is saved, or {@code null} if not saved.
+   */
+  public String getCheckpointFile()
+  {
+    return checkpointFile;
+  }
+
+  /**
+   * Set the path of the file where the verify progress is saved. If the file already exists
+   * and was written by an interrupted verification of the same indexes, the verification
+   * resumes from the saved progress. The file is removed once the verification completes.
+   * @param checkpointFile The path of the file where the verify progress is saved, or {@code null}.
+   */
+  public void setCheckpointFile(String checkpointFile)
+  {
+    this.checkpointFile = checkpointFile;
+  }
 }
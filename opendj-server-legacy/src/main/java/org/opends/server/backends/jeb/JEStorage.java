@@ -454,6 +454,28 @@ public final class JEStorage implements Storage, Backupable, ConfigurationChange
       }
     }
 
+    @Override
+    public List<ByteString> multiRead(final TreeName treeName, final List<? extends ByteSequence> keys)
+    {
+      // A single cursor avoids walking the B-tree from its root for each key
+      try (com.sleepycat.je.Cursor cursor = getOrOpenTree(treeName).openCursor(txn, CursorConfig.READ_COMMITTED))
+      {
+        final List<ByteString> values = new ArrayList<>(keys.size());
+        final DatabaseEntry dbKey = new DatabaseEntry();
+        for (ByteSequence key : keys)
+        {
+          final DatabaseEntry dbValue = new DatabaseEntry();
+          setData(dbKey, key);
+          values.add(valueToBytes(dbValue, cursor.getSearchKey(dbKey, dbValue, null) == SUCCESS));
+        }
+        return values;
+      }
+      catch (DatabaseException e)
+      {
+        throw new StorageRuntimeException(e);
+      }
+    }
+
     @Override
     public boolean update(final TreeName treeName, final ByteSequence key, final UpdateFunction f)
     {
@@ -537,6 +559,12 @@ public final class JEStorage implements Storage, Backupable, ConfigurationChange
       return delegate.read(treeName, key);
     }
 
+    @Override
+    public List<ByteString> multiRead(TreeName treeName, List<? extends ByteSequence> keys)
+    {
+      return delegate.multiRead(treeName, keys);
+    }
+
     @Override
     public Cursor<ByteString, ByteString> openCursor(TreeName treeName)
     {
@@ -626,6 +654,12 @@ public final class JEStorage implements Storage, Backupable, ConfigurationChange
       return null;
     }
 
+    @Override
+    public List<ByteString> multiRead(TreeName treeName, List<? extends ByteSequence> keys)
+    {
+      return Collections.nCopies(keys.size(), (ByteString) null);
+    }
+
     @Override
     public Cursor<ByteString, ByteString> openCursor(TreeName treeName)
     {
@@ -0,0 +1,123 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.lsm;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of the most recently read segment blocks, bounded by the size of the cached blocks.
+ * <p>
+ * The cached blocks are decoded, so that a block is searched without decoding it again.
+ */
+final class BlockCache
+{
+  /** Identifies a block of a segment. */
+  private static final class BlockKey
+  {
+    private final long segmentNumber;
+    private final int blockIndex;
+
+    private BlockKey(long segmentNumber, int blockIndex)
+    {
+      this.segmentNumber = segmentNumber;
+      this.blockIndex = blockIndex;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+      if (this == obj)
+      {
+        return true;
+      }
+      if (!(obj instanceof BlockKey))
+      {
+        return false;
+      }
+      final BlockKey other = (BlockKey) obj;
+      return segmentNumber == other.segmentNumber && blockIndex == other.blockIndex;
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return (int) (segmentNumber ^ (segmentNumber >>> 32)) * 31 + blockIndex;
+    }
+  }
+
+  private final Map<BlockKey, Segment.Block> blocks = new LinkedHashMap<>(16, 0.75f, true);
+  private long maxSize;
+  private long size;
+
+  /**
+   * Creates a new block cache.
+   *
+   * @param maxSize
+   *          the maximum size in bytes of the cached blocks
+   */
+  BlockCache(long maxSize)
+  {
+    this.maxSize = maxSize;
+  }
+
+  synchronized Segment.Block get(long segmentNumber, int blockIndex)
+  {
+    return blocks.get(new BlockKey(segmentNumber, blockIndex));
+  }
+
+  synchronized void put(long segmentNumber, int blockIndex, Segment.Block block)
+  {
+    final Segment.Block previous = blocks.put(new BlockKey(segmentNumber, blockIndex), block);
+    size += block.size() - (previous != null ? previous.size() : 0);
+    evict();
+  }
+
+  synchronized void setMaxSize(long maxSize)
+  {
+    this.maxSize = maxSize;
+    evict();
+  }
+
+  /**
+   * Removes the blocks of a segment from this cache.
+   *
+   * @param segmentNumber
+   *          the number of the segment whose blocks must be removed
+   */
+  synchronized void invalidate(long segmentNumber)
+  {
+    for (final Iterator<Map.Entry<BlockKey, Segment.Block>> it = blocks.entrySet().iterator(); it.hasNext();)
+    {
+      final Map.Entry<BlockKey, Segment.Block> entry = it.next();
+      if (entry.getKey().segmentNumber == segmentNumber)
+      {
+        size -= entry.getValue().size();
+        it.remove();
+      }
+    }
+  }
+
+  private void evict()
+  {
+    for (final Iterator<Segment.Block> it = blocks.values().iterator(); size > maxSize && it.hasNext();)
+    {
+      size -= it.next().size();
+      it.remove();
+    }
+  }
+}
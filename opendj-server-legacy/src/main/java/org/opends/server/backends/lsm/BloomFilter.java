@@ -0,0 +1,139 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.lsm;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteSequenceReader;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+
+/**
+ * A bloom filter over the keys of a segment, avoiding to read the segment blocks when looking up keys which are not in
+ * the segment.
+ */
+final class BloomFilter
+{
+  /** Number of bits per key, giving a false positive rate of about 1%. */
+  private static final int BITS_PER_KEY = 10;
+  private static final int NB_HASHES = 7;
+
+  private final long[] bits;
+  private final long nbBits;
+
+  /**
+   * Creates an empty bloom filter.
+   *
+   * @param expectedNbKeys
+   *          the number of keys which will be added to this filter
+   */
+  BloomFilter(long expectedNbKeys)
+  {
+    this(new long[(int) Math.min(Integer.MAX_VALUE - 8, (Math.max(expectedNbKeys, 1) * BITS_PER_KEY + 63) / 64)]);
+  }
+
+  private BloomFilter(long[] bits)
+  {
+    this.bits = bits;
+    this.nbBits = bits.length * 64L;
+  }
+
+  /**
+   * Adds a key to this filter.
+   *
+   * @param key
+   *          the key to add
+   */
+  void add(ByteSequence key)
+  {
+    final long hash = hash(key);
+    final int hash1 = (int) hash;
+    final int hash2 = (int) (hash >>> 32);
+    for (int i = 1; i <= NB_HASHES; i++)
+    {
+      final long bit = ((hash1 + i * hash2) & 0xFFFFFFFFL) % nbBits;
+      bits[(int) (bit >>> 6)] |= 1L << bit;
+    }
+  }
+
+  /**
+   * Returns whether the provided key may have been added to this filter.
+   *
+   * @param key
+   *          the key to look up
+   * @return {@code false} if the key has definitely not been added to this filter
+   */
+  boolean mightContain(ByteSequence key)
+  {
+    final long hash = hash(key);
+    final int hash1 = (int) hash;
+    final int hash2 = (int) (hash >>> 32);
+    for (int i = 1; i <= NB_HASHES; i++)
+    {
+      final long bit = ((hash1 + i * hash2) & 0xFFFFFFFFL) % nbBits;
+      if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** 64 bits FNV-1a hash, with a final avalanche so that both halves are usable as independent hashes. */
+  private static long hash(ByteSequence key)
+  {
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < key.length(); i++)
+    {
+      hash ^= key.byteAt(i) & 0xFF;
+      hash *= 0x100000001b3L;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  /**
+   * Appends the encoding of this filter to the provided builder.
+   *
+   * @param builder
+   *          the builder
+   */
+  void encode(ByteStringBuilder builder)
+  {
+    builder.appendCompactUnsigned(bits.length);
+    for (long word : bits)
+    {
+      builder.appendLong(word);
+    }
+  }
+
+  /**
+   * Decodes a bloom filter encoded by {@link #encode(ByteStringBuilder)}.
+   *
+   * @param reader
+   *          the reader positioned on the encoded filter
+   * @return the decoded filter
+   */
+  static BloomFilter decode(ByteSequenceReader reader)
+  {
+    final long[] bits = new long[(int) reader.readCompactUnsignedLong()];
+    for (int i = 0; i < bits.length; i++)
+    {
+      bits[i] = reader.readLong();
+    }
+    return new BloomFilter(bits);
+  }
+}
@@ -0,0 +1,1225 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.lsm;
+
+import static org.forgerock.util.Utils.*;
+import static org.opends.messages.BackendMessages.*;
+import static org.opends.messages.UtilityMessages.*;
+import static org.opends.server.backends.pluggable.spi.StorageUtils.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.forgerock.opendj.server.config.server.LSMBackendCfg;
+import org.forgerock.util.Reject;
+import org.opends.server.api.Backupable;
+import org.opends.server.api.DiskSpaceMonitorHandler;
+import org.opends.server.backends.pluggable.spi.AccessMode;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.EmptyCursor;
+import org.opends.server.backends.pluggable.spi.Importer;
+import org.opends.server.backends.pluggable.spi.ReadOnlyStorageException;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.SequentialCursor;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+import org.opends.server.backends.pluggable.spi.StorageStatus;
+import org.opends.server.backends.pluggable.spi.StorageUtils;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.UpdateFunction;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.core.MemoryQuota;
+import org.opends.server.core.ServerContext;
+import org.opends.server.extensions.DiskSpaceMonitor;
+import org.opends.server.types.BackupConfig;
+import org.opends.server.types.BackupDirectory;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.RestoreConfig;
+import org.opends.server.util.BackupManager;
+
+/**
+ * Log-structured merge tree implementation of the {@link Storage} engine.
+ * <p>
+ * All the trees are stored in a single {@link LogStructuredStore}, where the key of each record is prefixed by the
+ * 4 bytes identifier of its tree. The identifiers are recorded in a catalog, stored as the tree with identifier 0.
+ * Deleting a tree only deletes its catalog record: the records of a deleted tree are dropped when segments are merged.
+ * <p>
+ * Write transactions are serialized and buffer their changes until they are atomically committed. Read transactions
+ * do not take any lock and read the records committed when they started.
+ * <p>
+ * When opened {@link AccessMode#READ_ONLY}, which is only done by the offline tools such as export-ldif and
+ * verify-index while the backend is disabled, the storage reads a memory-mapped snapshot of the store files without
+ * writing them nor replaying the logs to new segments. The snapshot only contains the records committed when the
+ * storage was opened. The backend itself always opens the storage read-write.
+ */
+public final class LSMStorage implements Storage, Backupable, ConfigurationChangeListener<LSMBackendCfg>,
+  DiskSpaceMonitorHandler
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  private static final int TREE_ID_SIZE = 4;
+  private static final int CATALOG_TREE_ID = 0;
+  /** The catalog key holding the next tree identifier. */
+  private static final ByteString NEXT_TREE_ID_KEY = ByteString.valueOfBytes(new byte[TREE_ID_SIZE]);
+
+  /** Cursor over the records of a tree, possibly overlaid by the uncommitted records of a write transaction. */
+  private final class CursorImpl implements Cursor<ByteString, ByteString>
+  {
+    private final int treeId;
+    private final LogStructuredStore.ReadView view;
+    private final NavigableMap<ByteString, ByteString> overlay;
+    private final WriteTxn txn;
+    private final TreeName treeName;
+    /** Whether the view was opened for this cursor only. */
+    private final boolean closeView;
+    /** The current composite key, or the key to start from when the cursor is not defined. */
+    private ByteString position;
+    private Map.Entry<ByteString, ByteString> current;
+
+    private CursorImpl(TreeName treeName, int treeId, LogStructuredStore.ReadView view,
+        NavigableMap<ByteString, ByteString> overlay, WriteTxn txn, boolean closeView)
+    {
+      this.treeName = treeName;
+      this.treeId = treeId;
+      this.view = view;
+      this.overlay = overlay;
+      this.txn = txn;
+      this.closeView = closeView;
+    }
+
+    @Override
+    public boolean next()
+    {
+      if (position == null)
+      {
+        return setCurrent(view.ceiling(treeKey(treeId, ByteString.empty()), true, overlay));
+      }
+      return setCurrent(view.ceiling(position, false, overlay));
+    }
+
+    @Override
+    public boolean isDefined()
+    {
+      return current != null;
+    }
+
+    @Override
+    public ByteString getKey()
+    {
+      throwIfUndefined();
+      return current.getKey().subSequence(TREE_ID_SIZE, current.getKey().length());
+    }
+
+    @Override
+    public ByteString getValue()
+    {
+      throwIfUndefined();
+      return current.getValue();
+    }
+
+    @Override
+    public void delete()
+    {
+      throwIfUndefined();
+      if (txn == null)
+      {
+        throw new UnsupportedOperationException();
+      }
+      txn.delete(treeName, getKey());
+    }
+
+    @Override
+    public boolean positionToKey(ByteSequence key)
+    {
+      position = treeKey(treeId, key);
+      final ByteString value = view.get(position, overlay);
+      current = value != null ? new AbstractMap.SimpleImmutableEntry<>(position, value) : null;
+      return current != null;
+    }
+
+    @Override
+    public boolean positionToKeyOrNext(ByteSequence key)
+    {
+      position = treeKey(treeId, key);
+      return setCurrent(view.ceiling(position, true, overlay));
+    }
+
+    @Override
+    public boolean positionToLastKey()
+    {
+      return setCurrent(view.floor(treeKey(treeId + 1, ByteString.empty()), false, overlay));
+    }
+
+    @Override
+    public boolean positionToIndex(int index)
+    {
+      position = null;
+      for (int i = 0; i <= index; i++)
+      {
+        if (!next())
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private boolean setCurrent(Map.Entry<ByteString, ByteString> record)
+    {
+      current = record != null && decodeTreeId(record.getKey()) == treeId ? record : null;
+      if (current != null)
+      {
+        position = current.getKey();
+      }
+      return current != null;
+    }
+
+    private void throwIfUndefined()
+    {
+      if (!isDefined())
+      {
+        throw new NoSuchElementException();
+      }
+    }
+
+    @Override
+    public void close()
+    {
+      if (closeView)
+      {
+        view.close();
+      }
+    }
+  }
+
+  /** Read transaction reading the records committed when it started. */
+  private class ReadTxn implements ReadableTransaction
+  {
+    final LogStructuredStore.ReadView view;
+
+    private ReadTxn(LogStructuredStore.ReadView view)
+    {
+      this.view = view;
+    }
+
+    @Override
+    public ByteString read(TreeName treeName, ByteSequence key)
+    {
+      final Integer treeId = getTreeId(treeName);
+      return treeId != null ? view.get(treeKey(treeId, key), getOverlay()) : null;
+    }
+
+    @Override
+    public List<ByteString> multiRead(TreeName treeName, List<? extends ByteSequence> keys)
+    {
+      final Integer treeId = getTreeId(treeName);
+      if (treeId == null)
+      {
+        return Collections.nCopies(keys.size(), (ByteString) null);
+      }
+      final List<ByteString> treeKeys = new ArrayList<>(keys.size());
+      for (ByteSequence key : keys)
+      {
+        treeKeys.add(treeKey(treeId, key));
+      }
+      return view.multiGet(treeKeys, getOverlay());
+    }
+
+    @Override
+    public Cursor<ByteString, ByteString> openCursor(TreeName treeName)
+    {
+      final Integer treeId = getTreeId(treeName);
+      if (treeId == null)
+      {
+        return new EmptyCursor<>();
+      }
+      return new CursorImpl(treeName, treeId, view, getOverlay(), getWriteTxn(), false);
+    }
+
+    @Override
+    public long getRecordCount(TreeName treeName)
+    {
+      try (final Cursor<?, ?> cursor = openCursor(treeName))
+      {
+        long count = 0;
+        while (cursor.next())
+        {
+          count++;
+        }
+        return count;
+      }
+    }
+
+    Integer getTreeId(TreeName treeName)
+    {
+      return treeIds.get(treeName);
+    }
+
+    NavigableMap<ByteString, ByteString> getOverlay()
+    {
+      return null;
+    }
+
+    WriteTxn getWriteTxn()
+    {
+      return null;
+    }
+  }
+
+  /** Write transaction buffering its changes until they are committed. */
+  private final class WriteTxn extends ReadTxn implements WriteableTransaction
+  {
+    private final NavigableMap<ByteString, ByteString> overlay = new TreeMap<>();
+    private final Map<TreeName, Integer> createdTrees = new HashMap<>();
+    private final Map<TreeName, Integer> deletedTrees = new HashMap<>();
+
+    private WriteTxn(LogStructuredStore.ReadView view)
+    {
+      super(view);
+    }
+
+    @Override
+    Integer getTreeId(TreeName treeName)
+    {
+      final Integer treeId = createdTrees.get(treeName);
+      if (treeId != null || deletedTrees.containsKey(treeName))
+      {
+        return treeId;
+      }
+      return treeIds.get(treeName);
+    }
+
+    @Override
+    NavigableMap<ByteString, ByteString> getOverlay()
+    {
+      return overlay;
+    }
+
+    @Override
+    WriteTxn getWriteTxn()
+    {
+      return this;
+    }
+
+    private int getExistingTreeId(TreeName treeName)
+    {
+      final Integer treeId = getTreeId(treeName);
+      if (treeId == null)
+      {
+        throw new StorageRuntimeException("Tree " + treeName + " does not exist");
+      }
+      return treeId;
+    }
+
+    @Override
+    public void openTree(TreeName treeName, boolean createOnDemand)
+    {
+      if (getTreeId(treeName) != null)
+      {
+        return;
+      }
+      if (!createOnDemand)
+      {
+        throw new StorageRuntimeException("Tree " + treeName + " does not exist");
+      }
+      final int treeId = nextTreeId++;
+      liveTreeIds.put(treeId, treeName);
+      createdTrees.put(treeName, treeId);
+      overlay.put(catalogKey(treeName), ByteString.valueOfInt(treeId));
+      overlay.put(NEXT_TREE_ID_KEY, ByteString.valueOfInt(nextTreeId));
+    }
+
+    @Override
+    public void deleteTree(TreeName treeName)
+    {
+      final Integer treeId = getTreeId(treeName);
+      if (treeId == null)
+      {
+        return;
+      }
+      overlay.subMap(treeKey(treeId, ByteString.empty()), treeKey(treeId + 1, ByteString.empty())).clear();
+      overlay.put(catalogKey(treeName), LogStructuredStore.TOMBSTONE);
+      if (createdTrees.remove(treeName) != null)
+      {
+        liveTreeIds.remove(treeId);
+      }
+      else
+      {
+        deletedTrees.put(treeName, treeId);
+      }
+    }
+
+    @Override
+    public void put(TreeName treeName, ByteSequence key, ByteSequence value)
+    {
+      overlay.put(treeKey(getExistingTreeId(treeName), key), value.toByteString());
+    }
+
+    @Override
+    public boolean update(TreeName treeName, ByteSequence key, UpdateFunction f)
+    {
+      final ByteString treeKey = treeKey(getExistingTreeId(treeName), key);
+      final ByteString oldValue = view.get(treeKey, overlay);
+      final ByteSequence newValue = f.computeNewValue(oldValue);
+      if (Objects.equals(newValue, oldValue))
+      {
+        return false;
+      }
+      overlay.put(treeKey, newValue != null ? newValue.toByteString() : LogStructuredStore.TOMBSTONE);
+      return true;
+    }
+
+    @Override
+    public boolean delete(TreeName treeName, ByteSequence key)
+    {
+      final ByteString treeKey = treeKey(getExistingTreeId(treeName), key);
+      final boolean exists = view.get(treeKey, overlay) != null;
+      overlay.put(treeKey, LogStructuredStore.TOMBSTONE);
+      return exists;
+    }
+
+    private void commit() throws IOException
+    {
+      store.commit(overlay);
+      // Deleted trees may have been created again by this transaction
+      for (Map.Entry<TreeName, Integer> deletedTree : deletedTrees.entrySet())
+      {
+        treeIds.remove(deletedTree.getKey(), deletedTree.getValue());
+        liveTreeIds.remove(deletedTree.getValue());
+      }
+      treeIds.putAll(createdTrees);
+    }
+
+    private void rollback()
+    {
+      for (Integer treeId : createdTrees.values())
+      {
+        liveTreeIds.remove(treeId);
+      }
+    }
+  }
+
+  /** Read-only implementation of the {@link WriteableTransaction} interface. */
+  private final class ReadOnlyTxn extends ReadTxn implements WriteableTransaction
+  {
+    private ReadOnlyTxn(LogStructuredStore.ReadView view)
+    {
+      super(view);
+    }
+
+    @Override
+    public void openTree(TreeName treeName, boolean createOnDemand)
+    {
+      if (createOnDemand)
+      {
+        throw new ReadOnlyStorageException();
+      }
+    }
+
+    @Override
+    public void deleteTree(TreeName treeName)
+    {
+      throw new ReadOnlyStorageException();
+    }
+
+    @Override
+    public void put(TreeName treeName, ByteSequence key, ByteSequence value)
+    {
+      throw new ReadOnlyStorageException();
+    }
+
+    @Override
+    public boolean update(TreeName treeName, ByteSequence key, UpdateFunction f)
+    {
+      throw new ReadOnlyStorageException();
+    }
+
+    @Override
+    public boolean delete(TreeName treeName, ByteSequence key)
+    {
+      throw new ReadOnlyStorageException();
+    }
+  }
+
+  /** No operation transaction faking database files are present and empty. */
+  private static final class ReadOnlyEmptyTxn implements WriteableTransaction
+  {
+    @Override
+    public void openTree(TreeName name, boolean createOnDemand)
+    {
+      if (createOnDemand)
+      {
+        throw new ReadOnlyStorageException();
+      }
+    }
+
+    @Override
+    public void deleteTree(TreeName name)
+    {
+      throw new ReadOnlyStorageException();
+    }
+
+    @Override
+    public void put(TreeName treeName, ByteSequence key, ByteSequence value)
+    {
+      throw new ReadOnlyStorageException();
+    }
+
+    @Override
+    public boolean update(TreeName treeName, ByteSequence key, UpdateFunction f)
+    {
+      throw new ReadOnlyStorageException();
+    }
+
+    @Override
+    public boolean delete(TreeName treeName, ByteSequence key)
+    {
+      throw new ReadOnlyStorageException();
+    }
+
+    @Override
+    public ByteString read(TreeName treeName, ByteSequence key)
+    {
+      return null;
+    }
+
+    @Override
+    public List<ByteString> multiRead(TreeName treeName, List<? extends ByteSequence> keys)
+    {
+      return Collections.nCopies(keys.size(), (ByteString) null);
+    }
+
+    @Override
+    public Cursor<ByteString, ByteString> openCursor(TreeName treeName)
+    {
+      return new EmptyCursor<>();
+    }
+
+    @Override
+    public long getRecordCount(TreeName treeName)
+    {
+      return 0;
+    }
+  }
+
+  /**
+   * Log-structured merge tree implementation of the {@link Importer} interface. The imported records are buffered in
+   * memory then written directly to segments, without going through the write-ahead log.
+   */
+  private final class ImporterImpl implements Importer
+  {
+    /** Held for reading while adding records to the buffer, and for writing while writing the buffer to a segment. */
+    private final ReentrantReadWriteLock bufferLock = new ReentrantReadWriteLock();
+    private ConcurrentSkipListMap<ByteString, ByteString> buffer = new ConcurrentSkipListMap<>();
+    private final AtomicLong bufferSize = new AtomicLong();
+
+    @Override
+    public void clearTree(final TreeName treeName)
+    {
+      writeBuffer();
+      try
+      {
+        write(new WriteOperation()
+        {
+          @Override
+          public void run(WriteableTransaction txn) throws Exception
+          {
+            txn.deleteTree(treeName);
+            txn.openTree(treeName, true);
+          }
+        });
+      }
+      catch (StorageRuntimeException e)
+      {
+        throw e;
+      }
+      catch (Exception e)
+      {
+        throw new StorageRuntimeException(e);
+      }
+    }
+
+    @Override
+    public void put(TreeName treeName, ByteSequence key, ByteSequence value)
+    {
+      final Integer treeId = treeIds.get(treeName);
+      if (treeId == null)
+      {
+        throw new StorageRuntimeException("Tree " + treeName + " does not exist");
+      }
+      final ByteString treeKey = treeKey(treeId, key);
+      final ByteString treeValue = value.toByteString();
+      bufferLock.readLock().lock();
+      try
+      {
+        buffer.put(treeKey, treeValue);
+      }
+      finally
+      {
+        bufferLock.readLock().unlock();
+      }
+      if (bufferSize.addAndGet(treeKey.length() + treeValue.length()) >= config.getDBMemtableSize())
+      {
+        writeBuffer();
+      }
+    }
+
+    private void writeBuffer()
+    {
+      bufferLock.writeLock().lock();
+      try
+      {
+        if (!buffer.isEmpty())
+        {
+          store.writeSegment(buffer);
+          buffer = new ConcurrentSkipListMap<>();
+          bufferSize.set(0);
+        }
+      }
+      catch (IOException e)
+      {
+        throw new StorageRuntimeException(e);
+      }
+      finally
+      {
+        bufferLock.writeLock().unlock();
+      }
+    }
+
+    @Override
+    public ByteString read(TreeName treeName, ByteSequence key)
+    {
+      final Integer treeId = treeIds.get(treeName);
+      if (treeId == null)
+      {
+        return null;
+      }
+      bufferLock.readLock().lock();
+      try (LogStructuredStore.ReadView view = store.openView())
+      {
+        return view.get(treeKey(treeId, key), buffer);
+      }
+      finally
+      {
+        bufferLock.readLock().unlock();
+      }
+    }
+
+    @Override
+    public SequentialCursor<ByteString, ByteString> openCursor(TreeName treeName)
+    {
+      final Integer treeId = treeIds.get(treeName);
+      if (treeId == null)
+      {
+        return new EmptyCursor<>();
+      }
+      // Make all the imported records visible to the cursor
+      writeBuffer();
+      return new CursorImpl(treeName, treeId, store.openView(), null, null, true);
+    }
+
+    @Override
+    public void close()
+    {
+      try
+      {
+        writeBuffer();
+      }
+      finally
+      {
+        LSMStorage.this.close();
+      }
+    }
+  }
+
+  private final ServerContext serverContext;
+  private final File backendDirectory;
+  private AccessMode accessMode;
+  /** It is NULL when opening the storage READ-ONLY and no files have been created yet. */
+  private LogStructuredStore store;
+  /** Serializes the write transactions. */
+  private final ReentrantLock writeLock = new ReentrantLock();
+  /** The identifiers of the committed trees. */
+  private final ConcurrentMap<TreeName, Integer> treeIds = new ConcurrentHashMap<>();
+  /** The identifiers of the trees whose records must be kept, including the trees created by uncommitted writes. */
+  private final ConcurrentMap<Integer, TreeName> liveTreeIds = new ConcurrentHashMap<>();
+  /** Guarded by {@link #writeLock}, the next identifier is volatile for being read while merging segments. */
+  private volatile int nextTreeId;
+  /** The files being backed up, {@code null} if no backup is running while the storage is open. */
+  private volatile List<File> filesToBackup;
+  private LSMBackendCfg config;
+  private DiskSpaceMonitor diskMonitor;
+  private MemoryQuota memQuota;
+  private StorageStatus storageStatus = StorageStatus.working();
+
+  /**
+   * Creates a new log-structured merge tree storage with the provided configuration.
+   *
+   * @param cfg
+   *          The configuration.
+   * @param serverContext
+   *          This server instance context
+   * @throws ConfigException if memory cannot be reserved
+   */
+  public LSMStorage(final LSMBackendCfg cfg, ServerContext serverContext) throws ConfigException
+  {
+    this.serverContext = serverContext;
+    backendDirectory = getBackendDirectory(cfg);
+    config = cfg;
+    cfg.addLSMChangeListener(this);
+  }
+
+  private static ByteString treeKey(int treeId, ByteSequence key)
+  {
+    return new ByteStringBuilder(TREE_ID_SIZE + key.length()).appendInt(treeId).appendBytes(key).toByteString();
+  }
+
+  private static int decodeTreeId(ByteString treeKey)
+  {
+    return treeKey.subSequence(0, TREE_ID_SIZE).toInt();
+  }
+
+  private static ByteString catalogKey(TreeName treeName)
+  {
+    return treeKey(CATALOG_TREE_ID, ByteString.valueOfUtf8(treeName.toString()));
+  }
+
+  /** Records of the trees deleted or rolled back are dropped when merging segments. */
+  private final LogStructuredStore.RecordFilter obsoleteTreesFilter = new LogStructuredStore.RecordFilter()
+  {
+    @Override
+    public boolean isObsolete(ByteString key)
+    {
+      final int treeId = decodeTreeId(key);
+      return treeId != CATALOG_TREE_ID && treeId < nextTreeId && !liveTreeIds.containsKey(treeId);
+    }
+  };
+
+  @Override
+  public void open(AccessMode accessMode) throws ConfigException, StorageRuntimeException
+  {
+    Reject.ifNull(accessMode, "accessMode must not be null");
+    if (isBackendIncomplete(accessMode))
+    {
+      // Do not open store on disk
+      return;
+    }
+    open0(accessMode, config.isDBTxnNoSync());
+  }
+
+  private boolean isBackendIncomplete(AccessMode accessMode)
+  {
+    return !accessMode.isWriteable() && (!backendDirectory.exists() || backendDirectoryIncomplete());
+  }
+
+  private boolean backendDirectoryIncomplete()
+  {
+    try
+    {
+      return !getFilesToBackup().hasNext();
+    }
+    catch (DirectoryException ignored)
+    {
+      return true;
+    }
+  }
+
+  private void open0(AccessMode accessMode, boolean txnNoSync) throws ConfigException
+  {
+    setupStorageFiles(backendDirectory, config.getDBDirectoryPermissions(), config.dn());
+    if (store != null)
+    {
+      throw new IllegalStateException(
+          "Database is already open, either the backend is enabled or an import is currently running.");
+    }
+    this.accessMode = accessMode;
+    diskMonitor = serverContext.getDiskSpaceMonitor();
+    memQuota = serverContext.getMemoryQuota();
+    final long cacheSize = computeSize(config);
+    memQuota.acquireMemory(cacheSize);
+
+    final LogStructuredStore newStore = new LogStructuredStore(backendDirectory, config.getDBMemtableSize(),
+        config.getDBCompactionSegmentCount(), !txnNoSync, cacheSize, obsoleteTreesFilter);
+    try
+    {
+      if (accessMode.isWriteable())
+      {
+        final int nbRecoveredTransactions = newStore.open();
+        if (nbRecoveredTransactions > 0)
+        {
+          logger.info(NOTE_LSM_RECOVERED_LOGS, config.getBackendId(), nbRecoveredTransactions);
+        }
+      }
+      else
+      {
+        // Serve the reads from memory-mapped segments, without writing the store files nor locking
+        newStore.openSnapshot();
+      }
+      store = newStore;
+      loadCatalog();
+    }
+    catch (IOException e)
+    {
+      memQuota.releaseMemory(cacheSize);
+      throw new StorageRuntimeException(e);
+    }
+    registerMonitoredDirectory(config);
+  }
+
+  private void loadCatalog()
+  {
+    treeIds.clear();
+    liveTreeIds.clear();
+    nextTreeId = CATALOG_TREE_ID + 1;
+    try (LogStructuredStore.ReadView view = store.openView();
+        Cursor<ByteString, ByteString> cursor = new CursorImpl(null, CATALOG_TREE_ID, view, null, null, false))
+    {
+      while (cursor.next())
+      {
+        if (cursor.getKey().length() == 0)
+        {
+          nextTreeId = cursor.getValue().toInt();
+        }
+        else
+        {
+          final TreeName treeName = TreeName.valueOf(cursor.getKey().toString());
+          treeIds.put(treeName, cursor.getValue().toInt());
+          liveTreeIds.put(cursor.getValue().toInt(), treeName);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void close()
+  {
+    if (store != null)
+    {
+      store.close();
+      store = null;
+      memQuota.releaseMemory(computeSize(config));
+    }
+    config.removeLSMChangeListener(this);
+    if (diskMonitor != null)
+    {
+      diskMonitor.deregisterMonitoredDirectory(getDirectory(), this);
+    }
+  }
+
+  @Override
+  public <T> T read(final ReadOperation<T> operation) throws Exception
+  {
+    try
+    {
+      if (store == null)
+      {
+        return operation.run(new ReadOnlyEmptyTxn());
+      }
+      try (LogStructuredStore.ReadView view = store.openView())
+      {
+        return operation.run(new ReadTxn(view));
+      }
+    }
+    catch (final StorageRuntimeException e)
+    {
+      throw unwrap(e);
+    }
+  }
+
+  @Override
+  public Importer startImport() throws ConfigException, StorageRuntimeException
+  {
+    open0(AccessMode.READ_WRITE, true);
+    return new ImporterImpl();
+  }
+
+  @Override
+  public void write(final WriteOperation operation) throws Exception
+  {
+    if (store == null)
+    {
+      operation.run(new ReadOnlyEmptyTxn());
+      return;
+    }
+    if (!accessMode.isWriteable())
+    {
+      try (LogStructuredStore.ReadView view = store.openView())
+      {
+        operation.run(new ReadOnlyTxn(view));
+      }
+      return;
+    }
+
+    writeLock.lock();
+    final LogStructuredStore.ReadView view = store.openView();
+    final WriteTxn txn = new WriteTxn(view);
+    try
+    {
+      try
+      {
+        operation.run(txn);
+        txn.commit();
+      }
+      catch (final StorageRuntimeException e)
+      {
+        throw unwrap(e);
+      }
+    }
+    catch (final Exception e)
+    {
+      txn.rollback();
+      throw e;
+    }
+    finally
+    {
+      view.close();
+      writeLock.unlock();
+    }
+  }
+
+  private Exception unwrap(StorageRuntimeException e) throws Exception
+  {
+    if (e.getCause() != null)
+    {
+      throw (Exception) e.getCause();
+    }
+    throw e;
+  }
+
+  @Override
+  public boolean supportsBackupAndRestore()
+  {
+    return true;
+  }
+
+  @Override
+  public File getDirectory()
+  {
+    return getBackendDirectory(config);
+  }
+
+  private static File getBackendDirectory(LSMBackendCfg cfg)
+  {
+    return getDBDirectory(cfg.getDBDirectory(), cfg.getBackendId());
+  }
+
+  @Override
+  public ListIterator<Path> getFilesToBackup() throws DirectoryException
+  {
+    final List<File> files = filesToBackup;
+    if (files == null)
+    {
+      return getFilesToBackupWhenOffline();
+    }
+    final List<Path> paths = new ArrayList<>(files.size());
+    for (File file : files)
+    {
+      paths.add(file.toPath());
+    }
+    return paths.listIterator();
+  }
+
+  /** Filter to retrieve the database files to backup. */
+  private static final FileFilter BACKUP_FILES_FILTER = new FileFilter()
+  {
+    @Override
+    public boolean accept(File file)
+    {
+      return LogStructuredStore.isStoreFile(file.getName());
+    }
+  };
+
+  /**
+   * Returns the list of files to backup when there is no backup running on the open database.
+   * <p>
+   * The segment files are immutable and the manifest is atomically replaced, so the files only need to be listed
+   * consistently while the database is open, which is done by suspending the flushes and merges of segments.
+   */
+  private ListIterator<Path> getFilesToBackupWhenOffline() throws DirectoryException
+  {
+    return BackupManager.getFiles(getDirectory(), BACKUP_FILES_FILTER, config.getBackendId()).listIterator();
+  }
+
+  @Override
+  public Path beforeRestore() throws DirectoryException
+  {
+    return null;
+  }
+
+  @Override
+  public boolean isDirectRestore()
+  {
+    // restore is done in an intermediate directory
+    return false;
+  }
+
+  @Override
+  public void afterRestore(Path restoreDirectory, Path saveDirectory) throws DirectoryException
+  {
+    // intermediate directory content is moved to database directory
+    File targetDirectory = getDirectory();
+    recursiveDelete(targetDirectory);
+    try
+    {
+      Files.move(restoreDirectory, targetDirectory.toPath());
+    }
+    catch(IOException e)
+    {
+      LocalizableMessage msg = ERR_CANNOT_RENAME_RESTORE_DIRECTORY.get(restoreDirectory, targetDirectory.getPath());
+      throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(), msg);
+    }
+  }
+
+  @Override
+  public void createBackup(BackupConfig backupConfig) throws DirectoryException
+  {
+    final LogStructuredStore openStore = store;
+    if (openStore != null)
+    {
+      filesToBackup = openStore.suspendMaintenance();
+    }
+    try
+    {
+      new BackupManager(config.getBackendId()).createBackup(this, backupConfig);
+    }
+    finally
+    {
+      if (openStore != null)
+      {
+        filesToBackup = null;
+        openStore.resumeMaintenance();
+      }
+    }
+  }
+
+  @Override
+  public void removeBackup(BackupDirectory backupDirectory, String backupID) throws DirectoryException
+  {
+    new BackupManager(config.getBackendId()).removeBackup(backupDirectory, backupID);
+  }
+
+  @Override
+  public void restoreBackup(RestoreConfig restoreConfig) throws DirectoryException
+  {
+    new BackupManager(config.getBackendId()).restoreBackup(this, restoreConfig);
+  }
+
+  @Override
+  public Set<TreeName> listTrees()
+  {
+    if (store == null)
+    {
+      return Collections.<TreeName>emptySet();
+    }
+    return new HashSet<>(treeIds.keySet());
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(LSMBackendCfg newCfg,
+      List<LocalizableMessage> unacceptableReasons)
+  {
+    long newSize = computeSize(newCfg);
+    long oldSize = computeSize(config);
+    return (newSize <= oldSize || memQuota.isMemoryAvailable(newSize - oldSize))
+        && checkConfigurationDirectories(newCfg, unacceptableReasons);
+  }
+
+  private long computeSize(LSMBackendCfg cfg)
+  {
+    return cfg.getDBCacheSize() > 0 ? cfg.getDBCacheSize() : memQuota.memPercentToBytes(cfg.getDBCachePercent());
+  }
+
+  /**
+   * Checks newly created backend has a valid configuration.
+   * @param cfg the new configuration
+   * @param unacceptableReasons the list of accumulated errors and their messages
+   * @param context the server context
+   * @return true if newly created backend has a valid configuration
+   */
+  static boolean isConfigurationAcceptable(LSMBackendCfg cfg, List<LocalizableMessage> unacceptableReasons,
+      ServerContext context)
+  {
+    if (context != null)
+    {
+      MemoryQuota memQuota = context.getMemoryQuota();
+      if (cfg.getDBCacheSize() > 0 && !memQuota.isMemoryAvailable(cfg.getDBCacheSize()))
+      {
+        unacceptableReasons.add(ERR_BACKEND_CONFIG_CACHE_SIZE_GREATER_THAN_JVM_HEAP.get(
+            cfg.getDBCacheSize(), memQuota.getAvailableMemory()));
+        return false;
+      }
+      else if (!memQuota.isMemoryAvailable(memQuota.memPercentToBytes(cfg.getDBCachePercent())))
+      {
+        unacceptableReasons.add(ERR_BACKEND_CONFIG_CACHE_PERCENT_GREATER_THAN_JVM_HEAP.get(
+            cfg.getDBCachePercent(), memQuota.memBytesToPercent(memQuota.getAvailableMemory())));
+        return false;
+      }
+    }
+    return checkConfigurationDirectories(cfg, unacceptableReasons);
+  }
+
+  private static boolean checkConfigurationDirectories(LSMBackendCfg cfg,
+    List<LocalizableMessage> unacceptableReasons)
+  {
+    final ConfigChangeResult ccr = new ConfigChangeResult();
+    File newBackendDirectory = getBackendDirectory(cfg);
+
+    checkDBDirExistsOrCanCreate(newBackendDirectory, ccr, true);
+    checkDBDirPermissions(cfg.getDBDirectoryPermissions(), cfg.dn(), ccr);
+    if (!ccr.getMessages().isEmpty())
+    {
+      unacceptableReasons.addAll(ccr.getMessages());
+      return false;
+    }
+    return true;
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(LSMBackendCfg cfg)
+  {
+    final ConfigChangeResult ccr = new ConfigChangeResult();
+
+    try
+    {
+      File newBackendDirectory = getBackendDirectory(cfg);
+
+      // Create the directory if it doesn't exist.
+      if(!cfg.getDBDirectory().equals(config.getDBDirectory()))
+      {
+        checkDBDirExistsOrCanCreate(newBackendDirectory, ccr, false);
+        if (!ccr.getMessages().isEmpty())
+        {
+          return ccr;
+        }
+
+        ccr.setAdminActionRequired(true);
+        ccr.addMessage(NOTE_CONFIG_DB_DIR_REQUIRES_RESTART.get(config.getDBDirectory(), cfg.getDBDirectory()));
+      }
+
+      if (!cfg.getDBDirectoryPermissions().equalsIgnoreCase(config.getDBDirectoryPermissions())
+          || !cfg.getDBDirectory().equals(config.getDBDirectory()))
+      {
+        checkDBDirPermissions(cfg.getDBDirectoryPermissions(), cfg.dn(), ccr);
+        if (!ccr.getMessages().isEmpty())
+        {
+          return ccr;
+        }
+
+        setDBDirPermissions(newBackendDirectory, cfg.getDBDirectoryPermissions(), cfg.dn(), ccr);
+        if (!ccr.getMessages().isEmpty())
+        {
+          return ccr;
+        }
+      }
+      registerMonitoredDirectory(cfg);
+      final LogStructuredStore openStore = store;
+      if (openStore != null)
+      {
+        final long oldSize = computeSize(config);
+        final long newSize = computeSize(cfg);
+        if (newSize > oldSize)
+        {
+          memQuota.acquireMemory(newSize - oldSize);
+        }
+        else
+        {
+          memQuota.releaseMemory(oldSize - newSize);
+        }
+        openStore.setBlockCacheSize(newSize);
+        openStore.setMemTableSize(cfg.getDBMemtableSize());
+        openStore.setCompactionSegmentCount(cfg.getDBCompactionSegmentCount());
+        openStore.setSyncCommits(!cfg.isDBTxnNoSync());
+      }
+      config = cfg;
+    }
+    catch (Exception e)
+    {
+      addErrorMessage(ccr, LocalizableMessage.raw(stackTraceToSingleLineString(e)));
+    }
+    return ccr;
+  }
+
+  private void registerMonitoredDirectory(LSMBackendCfg cfg)
+  {
+    diskMonitor.registerMonitoredDirectory(
+      cfg.getBackendId() + " backend",
+      getDirectory(),
+      cfg.getDiskLowThreshold(),
+      cfg.getDiskFullThreshold(),
+      this);
+  }
+
+  @Override
+  public void removeStorageFiles() throws StorageRuntimeException
+  {
+    StorageUtils.removeStorageFiles(backendDirectory);
+  }
+
+  @Override
+  public StorageStatus getStorageStatus()
+  {
+    return storageStatus;
+  }
+
+  @Override
+  public void diskFullThresholdReached(File directory, long thresholdInBytes) {
+    storageStatus = statusWhenDiskSpaceFull(directory, thresholdInBytes, config.getBackendId());
+  }
+
+  @Override
+  public void diskLowThresholdReached(File directory, long thresholdInBytes) {
+    storageStatus = statusWhenDiskSpaceLow(directory, thresholdInBytes, config.getBackendId());
+  }
+
+  @Override
+  public void diskSpaceRestored(File directory, long lowThresholdInBytes, long fullThresholdInBytes) {
+    storageStatus = StorageStatus.working();
+  }
+}
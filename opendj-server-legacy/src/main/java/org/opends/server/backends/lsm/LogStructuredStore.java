@@ -0,0 +1,1395 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.lsm;
+
+import static org.forgerock.util.Utils.*;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteSequenceReader;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+
+/**
+ * A sorted key/value store implemented as a log-structured merge tree.
+ * <p>
+ * Committed records are appended to a {@link WriteAheadLog} then put in an in-memory sorted memtable. Once the memtable
+ * is full, it becomes immutable and a new memtable and log are started, then a background thread writes the immutable
+ * memtable to a new {@link Segment} file and deletes its log. The background thread merges segments once there are too
+ * many of them, dropping the overwritten and deleted records.
+ * <p>
+ * A record is read from the memtables then from the segments, newest first, and the first version found wins. Deleted
+ * records are represented by a {@link #TOMBSTONE} value hiding the older versions of the record until it is merged
+ * with the oldest segment.
+ * <p>
+ * The segments and the oldest log which must be replayed on recovery are recorded in a manifest file, which is
+ * atomically replaced each time a segment is added or removed.
+ * <p>
+ * Commits are serialized and numbered. The records are read through a {@link ReadView}, which only sees the commits
+ * numbered up to the last one published when it was opened: a commit is published once all its records are in the
+ * memtable, so that readers never see part of it. The memtable keeps the values replaced by the commits published
+ * since the oldest open view was opened, and the segments replaced by a merge are closed once no open view reads
+ * them.
+ * <p>
+ * The store can also be opened as a read-only snapshot, which never writes to the store files: the segments are
+ * memory-mapped and the logs are replayed in memory. Reading a snapshot does not take any lock. The snapshot only
+ * contains the records committed when it was opened.
+ */
+final class LogStructuredStore implements Closeable
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The value of the deleted records. */
+  static final ByteString TOMBSTONE = ByteString.wrap(new byte[0]);
+
+  private static final String MANIFEST_NAME = "MANIFEST";
+  private static final String LOG_SUFFIX = ".log";
+  private static final String SEGMENT_SUFFIX = ".seg";
+  private static final String TMP_SUFFIX = ".tmp";
+  private static final int MANIFEST_MAGIC = 0x4c534d31;
+  /** Estimated memory used by a record in a memtable, in addition to its key and value. */
+  private static final int RECORD_OVERHEAD = 64;
+  /** Number of immutable memtables waiting to be flushed from which commits are blocked. */
+  private static final int MAX_IMMUTABLE_MEMTABLES = 4;
+  /** Older segments are merged with the newer ones if they are not more than this many times larger. */
+  private static final int COMPACTION_SIZE_RATIO = 4;
+
+  /** Decides which records can be dropped when merging segments. */
+  interface RecordFilter
+  {
+    /**
+     * Returns whether the record with the provided key is no longer needed.
+     *
+     * @param key
+     *          the record key
+     * @return {@code true} if the record can be dropped
+     */
+    boolean isObsolete(ByteString key);
+  }
+
+  /** A value of a memtable record, linked to the value it replaced as long as an open view may read it. */
+  private static final class Record
+  {
+    private final ByteString value;
+    /** The number of the commit which wrote the value, 0 for imported and replayed records. */
+    private final long sequence;
+    private volatile Record previous;
+
+    private Record(ByteString value, long sequence, Record previous)
+    {
+      this.value = value;
+      this.sequence = sequence;
+      this.previous = previous;
+    }
+
+    /** Returns the newest value written up to the provided commit, or {@code null} if there is none. */
+    private static ByteString getValue(Record record, long sequence)
+    {
+      Record visible = record;
+      while (visible != null && visible.sequence > sequence)
+      {
+        visible = visible.previous;
+      }
+      return visible != null ? visible.value : null;
+    }
+  }
+
+  /** Sorted records held in memory, along with the log making them durable. */
+  private static final class MemTable
+  {
+    private final ConcurrentSkipListMap<ByteString, Record> records = new ConcurrentSkipListMap<>();
+    private final AtomicLong size = new AtomicLong();
+    /** The log of the memtable, {@code null} for an imported memtable. */
+    private final WriteAheadLog log;
+
+    private MemTable(WriteAheadLog log)
+    {
+      this.log = log;
+    }
+
+    /** Returns an immutable memtable holding the provided imported or replayed records. */
+    private static MemTable of(Map<ByteString, ByteString> records)
+    {
+      final MemTable memTable = new MemTable(null);
+      for (Map.Entry<ByteString, ByteString> record : records.entrySet())
+      {
+        memTable.records.put(record.getKey(), new Record(record.getValue(), 0, null));
+      }
+      return memTable;
+    }
+
+    /**
+     * Puts a record written by the provided commit. The replaced values are kept while an open view may read them, and
+     * are counted in the memtable size until they are dropped. Must only be called by the committing thread.
+     */
+    private void put(ByteString key, ByteString value, long sequence, long oldestViewSequence)
+    {
+      final Record previous = records.get(key);
+      records.put(key, new Record(value, sequence, previous));
+      long addedSize = value.length() + RECORD_OVERHEAD;
+      if (previous == null)
+      {
+        addedSize += key.length();
+      }
+      else if (previous.sequence <= oldestViewSequence)
+      {
+        // Every open view reads the previous value, or a newer one once it is published
+        for (Record dropped = previous.previous; dropped != null; dropped = dropped.previous)
+        {
+          addedSize -= dropped.value.length() + RECORD_OVERHEAD;
+        }
+        previous.previous = null;
+      }
+      size.addAndGet(addedSize);
+    }
+
+    private ByteString get(ByteString key, long sequence)
+    {
+      return Record.getValue(records.get(key), sequence);
+    }
+
+    private Map.Entry<ByteString, ByteString> ceiling(ByteString key, boolean inclusive, long sequence)
+    {
+      return first(records.tailMap(key, inclusive), sequence);
+    }
+
+    private Map.Entry<ByteString, ByteString> floor(ByteString key, boolean inclusive, long sequence)
+    {
+      return first(records.headMap(key, inclusive).descendingMap(), sequence);
+    }
+
+    /** Skips the records written after the provided commit. */
+    private static Map.Entry<ByteString, ByteString> first(NavigableMap<ByteString, Record> records, long sequence)
+    {
+      for (Map.Entry<ByteString, Record> record : records.entrySet())
+      {
+        final ByteString value = Record.getValue(record.getValue(), sequence);
+        if (value != null)
+        {
+          return new AbstractMap.SimpleImmutableEntry<>(record.getKey(), value);
+        }
+      }
+      return null;
+    }
+
+    /** Returns an iterator over the newest value of each record, in key order. */
+    private Iterator<Map.Entry<ByteString, ByteString>> iterator()
+    {
+      final Iterator<Map.Entry<ByteString, Record>> it = records.entrySet().iterator();
+      return new Iterator<Map.Entry<ByteString, ByteString>>()
+      {
+        @Override
+        public boolean hasNext()
+        {
+          return it.hasNext();
+        }
+
+        @Override
+        public Map.Entry<ByteString, ByteString> next()
+        {
+          final Map.Entry<ByteString, Record> record = it.next();
+          return new AbstractMap.SimpleImmutableEntry<>(record.getKey(), record.getValue().value);
+        }
+
+        @Override
+        public void remove()
+        {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+  }
+
+  /** The memtables and segments of the store, replaced as a whole each time one of them changes. */
+  private static final class Version
+  {
+    private final MemTable memTable;
+    /** Newest first. */
+    private final List<MemTable> immutableMemTables;
+    /** Newest first. */
+    private final List<Segment> segments;
+
+    private Version(MemTable memTable, List<MemTable> immutableMemTables, List<Segment> segments)
+    {
+      this.memTable = memTable;
+      this.immutableMemTables = Collections.unmodifiableList(immutableMemTables);
+      this.segments = Collections.unmodifiableList(segments);
+    }
+  }
+
+  /** Merges sorted records, keeping the newest version of each record. */
+  private static final class MergingIterator implements Iterator<Map.Entry<ByteString, ByteString>>
+  {
+    /** The next record of one of the merged sources. */
+    private static final class Head
+    {
+      private final Iterator<Map.Entry<ByteString, ByteString>> source;
+      /** The lower, the newer. */
+      private final int age;
+      private Map.Entry<ByteString, ByteString> record;
+
+      private Head(Iterator<Map.Entry<ByteString, ByteString>> source, int age)
+      {
+        this.source = source;
+        this.age = age;
+      }
+    }
+
+    private final PriorityQueue<Head> heads = new PriorityQueue<>(11, new Comparator<Head>()
+    {
+      @Override
+      public int compare(Head h1, Head h2)
+      {
+        final int cmp = h1.record.getKey().compareTo(h2.record.getKey());
+        return cmp != 0 ? cmp : Integer.compare(h1.age, h2.age);
+      }
+    });
+    private final boolean dropTombstones;
+    private final RecordFilter recordFilter;
+    private Map.Entry<ByteString, ByteString> next;
+
+    private MergingIterator(List<Iterator<Map.Entry<ByteString, ByteString>>> sources, boolean dropTombstones,
+        RecordFilter recordFilter)
+    {
+      this.dropTombstones = dropTombstones;
+      this.recordFilter = recordFilter;
+      for (int age = 0; age < sources.size(); age++)
+      {
+        advance(new Head(sources.get(age), age));
+      }
+    }
+
+    private void advance(Head head)
+    {
+      if (head.source.hasNext())
+      {
+        head.record = head.source.next();
+        heads.add(head);
+      }
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      while (next == null && !heads.isEmpty())
+      {
+        final Head newest = heads.poll();
+        final Map.Entry<ByteString, ByteString> record = newest.record;
+        advance(newest);
+        while (!heads.isEmpty() && heads.peek().record.getKey().equals(record.getKey()))
+        {
+          advance(heads.poll());
+        }
+        if (!(dropTombstones && record.getValue() == TOMBSTONE) && !recordFilter.isObsolete(record.getKey()))
+        {
+          next = record;
+        }
+      }
+      return next != null;
+    }
+
+    @Override
+    public Map.Entry<ByteString, ByteString> next()
+    {
+      if (!hasNext())
+      {
+        throw new NoSuchElementException();
+      }
+      final Map.Entry<ByteString, ByteString> result = next;
+      next = null;
+      return result;
+    }
+
+    @Override
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * A consistent view of the records committed when the view was opened. The segments read by the view remain open
+   * until it is closed.
+   */
+  final class ReadView implements Closeable
+  {
+    private final Version version;
+    /** The number of the last commit visible to this view. */
+    private final long sequence;
+
+    private ReadView(Version version, long sequence)
+    {
+      this.version = version;
+      this.sequence = sequence;
+    }
+
+    /**
+     * Returns the value of a record.
+     *
+     * @param key
+     *          the record key
+     * @param overlay
+     *          uncommitted records read before the store, may be {@code null}
+     * @return the record value, or {@code null} if there is no such record
+     */
+    ByteString get(ByteString key, NavigableMap<ByteString, ByteString> overlay)
+    {
+      ByteString value = overlay != null ? overlay.get(key) : null;
+      if (value == null)
+      {
+        lockSegments();
+        try
+        {
+          value = getCommitted(key);
+        }
+        finally
+        {
+          unlockSegments();
+        }
+      }
+      return value != TOMBSTONE ? value : null;
+    }
+
+    /**
+     * Returns the values of several records, locking the segments only once.
+     *
+     * @param keys
+     *          the record keys
+     * @param overlay
+     *          uncommitted records read before the store, may be {@code null}
+     * @return the record values in the order of the keys, with {@code null} for each missing record
+     */
+    List<ByteString> multiGet(List<ByteString> keys, NavigableMap<ByteString, ByteString> overlay)
+    {
+      final List<ByteString> values = new ArrayList<>(keys.size());
+      lockSegments();
+      try
+      {
+        for (ByteString key : keys)
+        {
+          ByteString value = overlay != null ? overlay.get(key) : null;
+          if (value == null)
+          {
+            value = getCommitted(key);
+          }
+          values.add(value != TOMBSTONE ? value : null);
+        }
+      }
+      finally
+      {
+        unlockSegments();
+      }
+      return values;
+    }
+
+    private ByteString getCommitted(ByteString key)
+    {
+      ByteString value = version.memTable.get(key, sequence);
+      for (Iterator<MemTable> it = version.immutableMemTables.iterator(); value == null && it.hasNext();)
+      {
+        value = it.next().get(key, sequence);
+      }
+      for (Iterator<Segment> it = version.segments.iterator(); value == null && it.hasNext();)
+      {
+        value = it.next().get(key);
+      }
+      return value;
+    }
+
+    /**
+     * Returns the record with the least key greater than, or equal to if inclusive, the provided key.
+     *
+     * @param key
+     *          the key
+     * @param inclusive
+     *          whether the record with the provided key can be returned
+     * @param overlay
+     *          uncommitted records read before the store, may be {@code null}
+     * @return the record, or {@code null} if there is none
+     */
+    Map.Entry<ByteString, ByteString> ceiling(ByteString key, boolean inclusive,
+        NavigableMap<ByteString, ByteString> overlay)
+    {
+      lockSegments();
+      try
+      {
+        ByteString from = key;
+        boolean fromInclusive = inclusive;
+        while (true)
+        {
+          Map.Entry<ByteString, ByteString> least = null;
+          if (overlay != null)
+          {
+            least = LogStructuredStore.ceiling(overlay, from, fromInclusive);
+          }
+          least = least(least, version.memTable.ceiling(from, fromInclusive, sequence));
+          for (MemTable memTable : version.immutableMemTables)
+          {
+            least = least(least, memTable.ceiling(from, fromInclusive, sequence));
+          }
+          for (Segment segment : version.segments)
+          {
+            least = least(least, segment.ceiling(from, fromInclusive));
+          }
+          if (least == null || least.getValue() != TOMBSTONE)
+          {
+            return least;
+          }
+          from = least.getKey();
+          fromInclusive = false;
+        }
+      }
+      finally
+      {
+        unlockSegments();
+      }
+    }
+
+    /**
+     * Returns the record with the greatest key less than, or equal to if inclusive, the provided key.
+     *
+     * @param key
+     *          the key
+     * @param inclusive
+     *          whether the record with the provided key can be returned
+     * @param overlay
+     *          uncommitted records read before the store, may be {@code null}
+     * @return the record, or {@code null} if there is none
+     */
+    Map.Entry<ByteString, ByteString> floor(ByteString key, boolean inclusive,
+        NavigableMap<ByteString, ByteString> overlay)
+    {
+      lockSegments();
+      try
+      {
+        ByteString from = key;
+        boolean fromInclusive = inclusive;
+        while (true)
+        {
+          Map.Entry<ByteString, ByteString> greatest = null;
+          if (overlay != null)
+          {
+            greatest = LogStructuredStore.floor(overlay, from, fromInclusive);
+          }
+          greatest = greatest(greatest, version.memTable.floor(from, fromInclusive, sequence));
+          for (MemTable memTable : version.immutableMemTables)
+          {
+            greatest = greatest(greatest, memTable.floor(from, fromInclusive, sequence));
+          }
+          for (Segment segment : version.segments)
+          {
+            greatest = greatest(greatest, segment.floor(from, fromInclusive));
+          }
+          if (greatest == null || greatest.getValue() != TOMBSTONE)
+          {
+            return greatest;
+          }
+          from = greatest.getKey();
+          fromInclusive = false;
+        }
+      }
+      finally
+      {
+        unlockSegments();
+      }
+    }
+
+    /** Closes this view, releasing the segments which were only kept open for it. */
+    @Override
+    public void close()
+    {
+      closeView(this);
+    }
+  }
+
+  private final File directory;
+  private final RecordFilter recordFilter;
+  private final BlockCache blockCache;
+  private volatile long memTableSize;
+  private volatile int compactionSegmentCount;
+  private volatile boolean syncCommits;
+
+  /** Serializes the commits. */
+  private final ReentrantLock commitLock = new ReentrantLock();
+  /** Prevents closing the segments while they are read. */
+  private final ReentrantReadWriteLock segmentsLock = new ReentrantReadWriteLock();
+  /** Held while flushing memtables, merging segments, or backing up the files, which must not change meanwhile. */
+  private final ReentrantLock maintenanceLock = new ReentrantLock();
+  private ExecutorService backgroundExecutor;
+  private volatile Version version;
+  /** The number of the last published commit. */
+  private volatile long committedSequence;
+  /** Guards the open views and the retired segments, so that no segment is released while a view is opened. */
+  private final Object viewsLock = new Object();
+  /** The open views, guarded by {@link #viewsLock}. */
+  private final List<ReadView> openViews = new ArrayList<>();
+  /**
+   * Segments replaced by a merge, closed and deleted once no open view reads them, guarded by {@link #viewsLock}.
+   */
+  private final List<Segment> retiredSegments = new ArrayList<>();
+  /** The number of the next log or segment file, guarded by this. */
+  private long nextFileNumber;
+  /** Whether the store is closing, guarded by this. */
+  private boolean closing;
+  /** Whether the store is a read-only snapshot, set before the store is published. */
+  private boolean snapshot;
+
+  /**
+   * Creates a new store.
+   *
+   * @param directory
+   *          the directory holding the files of the store
+   * @param memTableSize
+   *          the size from which a memtable is written to a segment
+   * @param compactionSegmentCount
+   *          the number of segments from which segments are merged
+   * @param syncCommits
+   *          whether the log is synced to disk on each commit
+   * @param blockCacheSize
+   *          the size of the cache of segment blocks
+   * @param recordFilter
+   *          decides which records can be dropped when merging segments
+   */
+  LogStructuredStore(File directory, long memTableSize, int compactionSegmentCount, boolean syncCommits,
+      long blockCacheSize, RecordFilter recordFilter)
+  {
+    this.directory = directory;
+    this.memTableSize = memTableSize;
+    this.compactionSegmentCount = compactionSegmentCount;
+    this.syncCommits = syncCommits;
+    this.blockCache = new BlockCache(blockCacheSize);
+    this.recordFilter = recordFilter;
+  }
+
+  void setMemTableSize(long memTableSize)
+  {
+    this.memTableSize = memTableSize;
+  }
+
+  void setCompactionSegmentCount(int compactionSegmentCount)
+  {
+    this.compactionSegmentCount = compactionSegmentCount;
+  }
+
+  void setSyncCommits(boolean syncCommits)
+  {
+    this.syncCommits = syncCommits;
+  }
+
+  void setBlockCacheSize(long blockCacheSize)
+  {
+    blockCache.setMaxSize(blockCacheSize);
+  }
+
+  /**
+   * Opens the store, replaying the logs left by a server which stopped abruptly.
+   *
+   * @return the number of transactions replayed from the logs
+   * @throws IOException
+   *           if the files of the store cannot be read
+   */
+  synchronized int open() throws IOException
+  {
+    final List<Segment> segments = new ArrayList<>();
+    try
+    {
+      final List<Long> manifestSegmentNumbers = new ArrayList<>();
+      final long logNumber = readManifest(manifestSegmentNumbers);
+      for (long number : manifestSegmentNumbers)
+      {
+        segments.add(Segment.open(getFile(number, SEGMENT_SUFFIX), number, blockCache));
+      }
+
+      // Remove the files left by interrupted flushes and merges, and the logs of flushed memtables.
+      final Set<Long> segmentNumbers = new HashSet<>();
+      for (Segment segment : segments)
+      {
+        segmentNumbers.add(segment.getNumber());
+      }
+      final List<Long> logNumbers = new ArrayList<>();
+      for (File file : listFiles())
+      {
+        final String name = file.getName();
+        final long number = getFileNumber(name);
+        nextFileNumber = Math.max(nextFileNumber, number + 1);
+        if (name.endsWith(LOG_SUFFIX) && number >= logNumber)
+        {
+          logNumbers.add(number);
+        }
+        else if ((isStoreFile(name) || name.endsWith(TMP_SUFFIX)) && !name.equals(MANIFEST_NAME)
+            && !(name.endsWith(SEGMENT_SUFFIX) && segmentNumbers.contains(number)))
+        {
+          file.delete();
+        }
+      }
+      Collections.sort(logNumbers);
+
+      final ConcurrentSkipListMap<ByteString, ByteString> recoveredRecords = new ConcurrentSkipListMap<>();
+      int nbTransactions = 0;
+      for (long number : logNumbers)
+      {
+        nbTransactions += WriteAheadLog.replay(getFile(number, LOG_SUFFIX), recoveredRecords);
+      }
+      if (!recoveredRecords.isEmpty())
+      {
+        segments.add(0, writeSegment(recoveredRecords.entrySet().iterator(), recoveredRecords.size()));
+      }
+
+      final WriteAheadLog log = newLog();
+      version = new Version(new MemTable(log), new ArrayList<MemTable>(), segments);
+      writeManifest(version.segments, log.getNumber());
+      for (long number : logNumbers)
+      {
+        getFile(number, LOG_SUFFIX).delete();
+      }
+
+      closing = false;
+      backgroundExecutor = Executors.newSingleThreadExecutor(newThreadFactory(null, "LSM-BACKGROUND-%d", true));
+      scheduleCompaction();
+      return nbTransactions;
+    }
+    catch (IOException | RuntimeException e)
+    {
+      for (Segment segment : segments)
+      {
+        segment.close();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Opens the store as a read-only snapshot. Nothing is written to the store files: the segments are memory-mapped and
+   * the records of the logs are replayed in memory.
+   *
+   * @return the number of transactions replayed from the logs
+   * @throws IOException
+   *           if the files of the store cannot be read
+   */
+  synchronized int openSnapshot() throws IOException
+  {
+    snapshot = true;
+    final List<Long> segmentNumbers = new ArrayList<>();
+    final long logNumber = readManifest(segmentNumbers);
+
+    final List<Segment> segments = new ArrayList<>(segmentNumbers.size());
+    for (long number : segmentNumbers)
+    {
+      segments.add(Segment.map(getFile(number, SEGMENT_SUFFIX), number, blockCache));
+    }
+
+    final List<Long> logNumbers = new ArrayList<>();
+    for (File file : listFiles())
+    {
+      final long number = getFileNumber(file.getName());
+      if (file.getName().endsWith(LOG_SUFFIX) && number >= logNumber)
+      {
+        logNumbers.add(number);
+      }
+    }
+    Collections.sort(logNumbers);
+    final ConcurrentSkipListMap<ByteString, ByteString> records = new ConcurrentSkipListMap<>();
+    int nbTransactions = 0;
+    for (long number : logNumbers)
+    {
+      nbTransactions += WriteAheadLog.replay(getFile(number, LOG_SUFFIX), records);
+    }
+
+    version = new Version(MemTable.of(records), new ArrayList<MemTable>(), segments);
+    return nbTransactions;
+  }
+
+  /** Reads the numbers of the segments listed in the manifest and returns the number of the oldest log to replay. */
+  private long readManifest(List<Long> segmentNumbers) throws IOException
+  {
+    final File manifest = new File(directory, MANIFEST_NAME);
+    if (!manifest.exists())
+    {
+      return 0;
+    }
+    final byte[] content = Files.readAllBytes(manifest.toPath());
+    final CRC32 crc = new CRC32();
+    crc.update(content, 0, Math.max(content.length - 4, 0));
+    final ByteSequenceReader reader = ByteString.wrap(content).asReader();
+    if (content.length < 24 || reader.readInt() != MANIFEST_MAGIC
+        || ByteString.wrap(content, content.length - 4, 4).toInt() != (int) crc.getValue())
+    {
+      throw new IOException("Manifest file " + manifest + " is corrupted");
+    }
+    nextFileNumber = reader.readLong();
+    final long logNumber = reader.readLong();
+    final int nbSegments = reader.readInt();
+    for (int i = 0; i < nbSegments; i++)
+    {
+      segmentNumbers.add(reader.readLong());
+    }
+    return logNumber;
+  }
+
+  /** Must be called with the monitor held. */
+  private void writeManifest(List<Segment> segments, long logNumber) throws IOException
+  {
+    final ByteStringBuilder content = new ByteStringBuilder();
+    content.appendInt(MANIFEST_MAGIC).appendLong(nextFileNumber).appendLong(logNumber).appendInt(segments.size());
+    for (Segment segment : segments)
+    {
+      content.appendLong(segment.getNumber());
+    }
+    final CRC32 crc = new CRC32();
+    crc.update(content.getBackingArray(), 0, content.length());
+    content.appendInt((int) crc.getValue());
+
+    final File tmpManifest = new File(directory, MANIFEST_NAME + TMP_SUFFIX);
+    try (FileOutputStream output = new FileOutputStream(tmpManifest))
+    {
+      content.copyTo(output);
+      output.getChannel().force(true);
+    }
+    Files.move(tmpManifest.toPath(), new File(directory, MANIFEST_NAME).toPath(), StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Must be called with the monitor held. */
+  private void writeManifest(Version version) throws IOException
+  {
+    long logNumber = version.memTable.log.getNumber();
+    for (MemTable memTable : version.immutableMemTables)
+    {
+      if (memTable.log != null)
+      {
+        logNumber = Math.min(logNumber, memTable.log.getNumber());
+      }
+    }
+    writeManifest(version.segments, logNumber);
+  }
+
+  private File[] listFiles()
+  {
+    final File[] files = directory.listFiles();
+    return files != null ? files : new File[0];
+  }
+
+  private static long getFileNumber(String fileName)
+  {
+    final int dot = fileName.indexOf('.');
+    try
+    {
+      return Long.parseLong(dot > 0 ? fileName.substring(0, dot) : fileName, 16);
+    }
+    catch (NumberFormatException e)
+    {
+      return -1;
+    }
+  }
+
+  private File getFile(long number, String suffix)
+  {
+    return new File(directory, String.format("%016x", number) + suffix);
+  }
+
+  /**
+   * Returns whether the provided file name is the name of a file of a store.
+   *
+   * @param fileName
+   *          the file name
+   * @return {@code true} if the file belongs to a store
+   */
+  static boolean isStoreFile(String fileName)
+  {
+    return fileName.equals(MANIFEST_NAME)
+        || ((fileName.endsWith(LOG_SUFFIX) || fileName.endsWith(SEGMENT_SUFFIX)) && getFileNumber(fileName) >= 0);
+  }
+
+  private synchronized WriteAheadLog newLog() throws IOException
+  {
+    final long number = nextFileNumber++;
+    return new WriteAheadLog(getFile(number, LOG_SUFFIX), number);
+  }
+
+  /**
+   * Opens a view of the records committed so far, which must be closed once read.
+   *
+   * @return a view of the committed records
+   */
+  ReadView openView()
+  {
+    synchronized (viewsLock)
+    {
+      final ReadView view = new ReadView(version, committedSequence);
+      openViews.add(view);
+      return view;
+    }
+  }
+
+  private void closeView(ReadView view)
+  {
+    final List<Segment> releasedSegments;
+    synchronized (viewsLock)
+    {
+      if (!openViews.remove(view))
+      {
+        return;
+      }
+      releasedSegments = removeUnreadRetiredSegments();
+    }
+    release(releasedSegments);
+  }
+
+  /** Returns the number of the oldest commit which can be read by an open view. */
+  private long getOldestViewSequence()
+  {
+    synchronized (viewsLock)
+    {
+      long oldest = committedSequence;
+      for (ReadView view : openViews)
+      {
+        oldest = Math.min(oldest, view.sequence);
+      }
+      return oldest;
+    }
+  }
+
+  /** Keeps the segments removed from the current version open until no open view reads them. */
+  private void retire(List<Segment> segments)
+  {
+    final List<Segment> releasedSegments;
+    synchronized (viewsLock)
+    {
+      retiredSegments.addAll(segments);
+      releasedSegments = removeUnreadRetiredSegments();
+    }
+    release(releasedSegments);
+  }
+
+  /** Must be called with the views lock held. */
+  private List<Segment> removeUnreadRetiredSegments()
+  {
+    if (retiredSegments.isEmpty())
+    {
+      return Collections.emptyList();
+    }
+    final Set<Segment> readSegments = new HashSet<>();
+    for (ReadView view : openViews)
+    {
+      readSegments.addAll(view.version.segments);
+    }
+    final List<Segment> unreadSegments = new ArrayList<>();
+    for (Iterator<Segment> it = retiredSegments.iterator(); it.hasNext();)
+    {
+      final Segment segment = it.next();
+      if (!readSegments.contains(segment))
+      {
+        unreadSegments.add(segment);
+        it.remove();
+      }
+    }
+    return unreadSegments;
+  }
+
+  /** The segments of a snapshot are only closed, as they still belong to the store read by the snapshot. */
+  private void release(List<Segment> segments)
+  {
+    for (Segment segment : segments)
+    {
+      segment.close();
+      if (!snapshot)
+      {
+        segment.getFile().delete();
+      }
+    }
+  }
+
+  /** The segments of a snapshot are never closed while they are read, hence readers do not need to lock them. */
+  private void lockSegments()
+  {
+    if (!snapshot)
+    {
+      segmentsLock.readLock().lock();
+    }
+  }
+
+  private void unlockSegments()
+  {
+    if (!snapshot)
+    {
+      segmentsLock.readLock().unlock();
+    }
+  }
+
+  private static Map.Entry<ByteString, ByteString> ceiling(NavigableMap<ByteString, ByteString> records,
+      ByteString key, boolean inclusive)
+  {
+    return inclusive ? records.ceilingEntry(key) : records.higherEntry(key);
+  }
+
+  private static Map.Entry<ByteString, ByteString> floor(NavigableMap<ByteString, ByteString> records,
+      ByteString key, boolean inclusive)
+  {
+    return inclusive ? records.floorEntry(key) : records.lowerEntry(key);
+  }
+
+  /** The sources are visited newest first, so the current record wins when both records have the same key. */
+  private static Map.Entry<ByteString, ByteString> least(Map.Entry<ByteString, ByteString> current,
+      Map.Entry<ByteString, ByteString> candidate)
+  {
+    if (current == null || (candidate != null && candidate.getKey().compareTo(current.getKey()) < 0))
+    {
+      return candidate;
+    }
+    return current;
+  }
+
+  private static Map.Entry<ByteString, ByteString> greatest(Map.Entry<ByteString, ByteString> current,
+      Map.Entry<ByteString, ByteString> candidate)
+  {
+    if (current == null || (candidate != null && candidate.getKey().compareTo(current.getKey()) > 0))
+    {
+      return candidate;
+    }
+    return current;
+  }
+
+  /**
+   * Atomically and durably commits records. The records are only visible to the views opened once they are all in the
+   * memtable.
+   *
+   * @param records
+   *          the records to commit, whose values are {@link #TOMBSTONE} for the deleted records
+   * @throws IOException
+   *           if the records cannot be written to the log
+   */
+  void commit(NavigableMap<ByteString, ByteString> records) throws IOException
+  {
+    if (records.isEmpty())
+    {
+      return;
+    }
+    commitLock.lock();
+    try
+    {
+      final MemTable memTable = version.memTable;
+      memTable.log.append(records, syncCommits);
+      final long sequence = committedSequence + 1;
+      final long oldestViewSequence = getOldestViewSequence();
+      for (Map.Entry<ByteString, ByteString> record : records.entrySet())
+      {
+        memTable.put(record.getKey(), record.getValue(), sequence, oldestViewSequence);
+      }
+      committedSequence = sequence;
+      if (memTable.size.get() >= memTableSize)
+      {
+        final WriteAheadLog log = newLog();
+        synchronized (this)
+        {
+          final Version current = version;
+          final List<MemTable> immutableMemTables = new ArrayList<>(current.immutableMemTables);
+          immutableMemTables.add(0, current.memTable);
+          version = new Version(new MemTable(log), immutableMemTables, current.segments);
+        }
+        scheduleFlush();
+        awaitFlushes(MAX_IMMUTABLE_MEMTABLES, null);
+      }
+    }
+    finally
+    {
+      commitLock.unlock();
+    }
+  }
+
+  /**
+   * Writes records directly to a new segment, bypassing the log. The records are visible to the views opened once
+   * this method is called, and durable once it returns.
+   *
+   * @param records
+   *          the records to write
+   * @throws IOException
+   *           if the segment cannot be written
+   */
+  void writeSegment(Map<ByteString, ByteString> records) throws IOException
+  {
+    if (records.isEmpty())
+    {
+      return;
+    }
+    final MemTable memTable = MemTable.of(records);
+    synchronized (this)
+    {
+      final Version current = version;
+      final List<MemTable> immutableMemTables = new ArrayList<>(current.immutableMemTables);
+      immutableMemTables.add(0, memTable);
+      version = new Version(current.memTable, immutableMemTables, current.segments);
+    }
+    scheduleFlush();
+    awaitFlushes(0, memTable);
+  }
+
+  /** Waits until there are at most the provided number of immutable memtables, or the provided one is flushed. */
+  private synchronized void awaitFlushes(int maxImmutableMemTables, MemTable memTable) throws IOException
+  {
+    boolean interrupted = false;
+    try
+    {
+      while (!closing && (version.immutableMemTables.size() > maxImmutableMemTables
+          || (memTable != null && version.immutableMemTables.contains(memTable))))
+      {
+        try
+        {
+          wait();
+        }
+        catch (InterruptedException e)
+        {
+          interrupted = true;
+        }
+      }
+      if (memTable != null && version.immutableMemTables.contains(memTable))
+      {
+        throw new IOException("The store was closed before the records could be written");
+      }
+    }
+    finally
+    {
+      if (interrupted)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void scheduleFlush()
+  {
+    runInBackground(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        flushMemTables();
+        compact();
+      }
+    });
+  }
+
+  private void scheduleCompaction()
+  {
+    runInBackground(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        compact();
+      }
+    });
+  }
+
+  private void runInBackground(Runnable task)
+  {
+    try
+    {
+      backgroundExecutor.execute(task);
+    }
+    catch (RejectedExecutionException e)
+    {
+      // The store is closing, the memtables will be flushed on close
+      logger.traceException(e);
+    }
+  }
+
+  /**
+   * Writes the immutable memtables to segments, oldest first. The memtables made immutable meanwhile are written by
+   * the next flush, so that segments are merged even while commits keep filling memtables.
+   */
+  private void flushMemTables()
+  {
+    maintenanceLock.lock();
+    try
+    {
+      final List<MemTable> immutableMemTables = version.immutableMemTables;
+      for (int i = immutableMemTables.size() - 1; i >= 0; i--)
+      {
+        flush(immutableMemTables.get(i));
+      }
+    }
+    catch (IOException e)
+    {
+      // The memtables will be flushed again on the next rotation or on close, and their logs are kept meanwhile
+      logger.traceException(e);
+    }
+    finally
+    {
+      maintenanceLock.unlock();
+    }
+  }
+
+  private void flush(MemTable memTable) throws IOException
+  {
+    final Segment segment = writeSegment(memTable.iterator(), memTable.records.size());
+    synchronized (this)
+    {
+      final Version current = version;
+      final List<MemTable> immutableMemTables = new ArrayList<>(current.immutableMemTables);
+      immutableMemTables.remove(memTable);
+      final List<Segment> segments = new ArrayList<>(current.segments);
+      segments.add(0, segment);
+      final Version newVersion = new Version(current.memTable, immutableMemTables, segments);
+      writeManifest(newVersion);
+      version = newVersion;
+      notifyAll();
+    }
+    if (memTable.log != null)
+    {
+      memTable.log.close();
+      memTable.log.getFile().delete();
+    }
+  }
+
+  private Segment writeSegment(Iterator<Map.Entry<ByteString, ByteString>> records, long expectedNbRecords)
+      throws IOException
+  {
+    final long number;
+    synchronized (this)
+    {
+      number = nextFileNumber++;
+    }
+    final File file = getFile(number, SEGMENT_SUFFIX);
+    try (Segment.Writer writer = new Segment.Writer(file, expectedNbRecords))
+    {
+      while (records.hasNext())
+      {
+        final Map.Entry<ByteString, ByteString> record = records.next();
+        writer.append(record.getKey(), record.getValue());
+      }
+      writer.finish();
+    }
+    return Segment.open(file, number, blockCache);
+  }
+
+  /**
+   * Merges the newest segments while there are too many segments. The newest segments are merged with the older ones
+   * which are not much larger, so that each record is rewritten a logarithmic number of times.
+   */
+  private void compact()
+  {
+    maintenanceLock.lock();
+    try
+    {
+      List<Segment> segments = version.segments;
+      while (segments.size() >= compactionSegmentCount && segments.size() >= 2)
+      {
+        int nbMerged = 2;
+        long mergedSize = segments.get(0).getSize() + segments.get(1).getSize();
+        while (nbMerged < segments.size() && segments.get(nbMerged).getSize() <= COMPACTION_SIZE_RATIO * mergedSize)
+        {
+          mergedSize += segments.get(nbMerged).getSize();
+          nbMerged++;
+        }
+        merge(new ArrayList<>(segments.subList(0, nbMerged)), nbMerged == segments.size());
+        segments = version.segments;
+      }
+    }
+    catch (IOException e)
+    {
+      // The segments will be merged again after the next flush
+      logger.traceException(e);
+    }
+    finally
+    {
+      maintenanceLock.unlock();
+    }
+  }
+
+  private void merge(List<Segment> mergedSegments, boolean includesOldestSegment) throws IOException
+  {
+    final List<Iterator<Map.Entry<ByteString, ByteString>>> sources = new ArrayList<>(mergedSegments.size());
+    long nbRecords = 0;
+    for (Segment segment : mergedSegments)
+    {
+      sources.add(segment.iterator());
+      nbRecords += segment.getNbRecords();
+    }
+    // Deleted records can only be dropped when there is no older segment holding a previous version
+    final Segment segment = writeSegment(new MergingIterator(sources, includesOldestSegment, recordFilter), nbRecords);
+    synchronized (this)
+    {
+      final Version current = version;
+      final List<Segment> segments = new ArrayList<>(current.segments);
+      final int index = segments.indexOf(mergedSegments.get(0));
+      segments.removeAll(mergedSegments);
+      segments.add(index, segment);
+      final Version newVersion = new Version(current.memTable, current.immutableMemTables, segments);
+      writeManifest(newVersion);
+      version = newVersion;
+    }
+    // The views opened before the new version was published still read the merged segments
+    retire(mergedSegments);
+  }
+
+  /**
+   * Suspends the background flushes and merges, so that the files of the store are not deleted, then returns the
+   * files needed for restoring the store. Commits may block until {@link #resumeMaintenance()} is called.
+   *
+   * @return the files needed for restoring the store
+   */
+  List<File> suspendMaintenance()
+  {
+    maintenanceLock.lock();
+    synchronized (this)
+    {
+      final List<File> files = new ArrayList<>();
+      files.add(new File(directory, MANIFEST_NAME));
+      final Version current = version;
+      for (Segment segment : current.segments)
+      {
+        files.add(segment.getFile());
+      }
+      for (MemTable memTable : current.immutableMemTables)
+      {
+        if (memTable.log != null)
+        {
+          files.add(memTable.log.getFile());
+        }
+      }
+      files.add(current.memTable.log.getFile());
+      return files;
+    }
+  }
+
+  /** Resumes the background flushes and merges suspended by {@link #suspendMaintenance()}. */
+  void resumeMaintenance()
+  {
+    maintenanceLock.unlock();
+  }
+
+  /** Flushes all the memtables, so that no log needs to be replayed when the store is opened again. */
+  @Override
+  public void close()
+  {
+    if (snapshot)
+    {
+      synchronized (this)
+      {
+        for (Segment segment : version.segments)
+        {
+          segment.close();
+        }
+      }
+      synchronized (viewsLock)
+      {
+        release(retiredSegments);
+        retiredSegments.clear();
+      }
+      return;
+    }
+    synchronized (this)
+    {
+      closing = true;
+      notifyAll();
+    }
+    backgroundExecutor.shutdown();
+    boolean interrupted = false;
+    try
+    {
+      while (!backgroundExecutor.awaitTermination(1, TimeUnit.SECONDS))
+      {
+        // Wait for the running flush or merge
+      }
+    }
+    catch (InterruptedException e)
+    {
+      interrupted = true;
+    }
+
+    commitLock.lock();
+    maintenanceLock.lock();
+    try
+    {
+      List<MemTable> immutableMemTables = version.immutableMemTables;
+      while (!immutableMemTables.isEmpty())
+      {
+        flush(immutableMemTables.get(immutableMemTables.size() - 1));
+        immutableMemTables = version.immutableMemTables;
+      }
+      final MemTable memTable = version.memTable;
+      synchronized (this)
+      {
+        final List<Segment> segments = new ArrayList<>(version.segments);
+        if (!memTable.records.isEmpty())
+        {
+          segments.add(0, writeSegment(memTable.iterator(), memTable.records.size()));
+        }
+        writeManifest(segments, nextFileNumber);
+        version = new Version(memTable, immutableMemTables, segments);
+      }
+      memTable.log.close();
+      memTable.log.getFile().delete();
+    }
+    catch (IOException e)
+    {
+      // The logs will be replayed when the store is opened again
+      logger.traceException(e);
+    }
+    finally
+    {
+      segmentsLock.writeLock().lock();
+      try
+      {
+        for (Segment segment : version.segments)
+        {
+          segment.close();
+        }
+        synchronized (viewsLock)
+        {
+          release(retiredSegments);
+          retiredSegments.clear();
+        }
+      }
+      finally
+      {
+        segmentsLock.writeLock().unlock();
+        maintenanceLock.unlock();
+        commitLock.unlock();
+      }
+      if (interrupted)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,574 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.lsm;
+
+import static org.forgerock.util.Utils.*;
+import static org.opends.server.backends.lsm.LogStructuredStore.*;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteSequenceReader;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+
+/**
+ * An immutable file holding records sorted by key.
+ * <p>
+ * A segment file is made of:
+ * <ul>
+ * <li>the data blocks, each holding consecutive records. A record is the compact length of its key, its key, then
+ * either {@code 0} for a deleted record, or the compact length plus one of its value followed by its value.</li>
+ * <li>the block index: the number of blocks, then the first key and the offset of each block.</li>
+ * <li>the bloom filter of the keys.</li>
+ * <li>the footer: the offsets of the block index and of the bloom filter, the number of records and a magic
+ * number.</li>
+ * </ul>
+ * The block index and the bloom filter are kept in memory, the data blocks are read on demand through the
+ * {@link BlockCache}. Alternatively, the segment file can be memory-mapped, in which case the data blocks are decoded
+ * from the mapping on each read, without going through the cache nor taking any lock.
+ */
+final class Segment implements Closeable
+{
+  /** The size from which a data block is ended. */
+  static final int BLOCK_SIZE = 4 * 1024;
+  private static final long MAGIC = 0x4f444a4c534d3031L;
+  private static final int FOOTER_SIZE = 32;
+  /** The size up to which a segment file can be memory-mapped. */
+  private static final long MAX_MAPPED_SIZE = Integer.MAX_VALUE;
+
+  /** A decoded data block. */
+  static final class Block
+  {
+    private final ByteString[] keys;
+    private final ByteString[] values;
+    private final int size;
+
+    private Block(ByteString[] keys, ByteString[] values, int size)
+    {
+      this.keys = keys;
+      this.values = values;
+      this.size = size;
+    }
+
+    /** Returns the size in bytes of this block. */
+    int size()
+    {
+      return size;
+    }
+
+    /** Returns the index of the first key greater than, or equal to if inclusive, the provided key. */
+    private int ceilingIndex(ByteSequence key, boolean inclusive)
+    {
+      int low = 0;
+      int high = keys.length;
+      while (low < high)
+      {
+        final int mid = (low + high) >>> 1;
+        final int cmp = keys[mid].compareTo(key);
+        if (cmp > 0 || (inclusive && cmp == 0))
+        {
+          high = mid;
+        }
+        else
+        {
+          low = mid + 1;
+        }
+      }
+      return low;
+    }
+
+    private Map.Entry<ByteString, ByteString> entry(int index)
+    {
+      return new SimpleImmutableEntry<>(keys[index], values[index]);
+    }
+  }
+
+  /** Writes a new segment file from records appended in key order. */
+  static final class Writer implements Closeable
+  {
+    private final File file;
+    private final FileOutputStream fileOutput;
+    private final BufferedOutputStream output;
+    private final ByteStringBuilder block = new ByteStringBuilder(2 * BLOCK_SIZE);
+    private final ByteStringBuilder index = new ByteStringBuilder();
+    private final BloomFilter bloomFilter;
+    private long position;
+    private int nbBlocks;
+    private long nbRecords;
+    private boolean finished;
+
+    /**
+     * Creates a new segment file.
+     *
+     * @param file
+     *          the segment file to create
+     * @param expectedNbRecords
+     *          the number of records which will be appended, used for sizing the bloom filter
+     * @throws IOException
+     *           if the file cannot be created
+     */
+    Writer(File file, long expectedNbRecords) throws IOException
+    {
+      this.file = file;
+      this.fileOutput = new FileOutputStream(file);
+      this.output = new BufferedOutputStream(fileOutput, 64 * 1024);
+      this.bloomFilter = new BloomFilter(expectedNbRecords);
+    }
+
+    /**
+     * Appends a record, whose key must be greater than the key of the previously appended record.
+     *
+     * @param key
+     *          the record key
+     * @param value
+     *          the record value, or {@link LogStructuredStore#TOMBSTONE} for a deleted record
+     * @throws IOException
+     *           if the record cannot be written
+     */
+    void append(ByteString key, ByteString value) throws IOException
+    {
+      if (block.length() == 0)
+      {
+        index.appendCompactUnsigned(key.length()).appendBytes(key).appendCompactUnsigned(position);
+        nbBlocks++;
+      }
+      block.appendCompactUnsigned(key.length()).appendBytes(key);
+      if (value == TOMBSTONE)
+      {
+        block.appendCompactUnsigned(0);
+      }
+      else
+      {
+        block.appendCompactUnsigned(value.length() + 1L).appendBytes(value);
+      }
+      bloomFilter.add(key);
+      nbRecords++;
+      if (block.length() >= BLOCK_SIZE)
+      {
+        flushBlock();
+      }
+    }
+
+    private void flushBlock() throws IOException
+    {
+      block.copyTo(output);
+      position += block.length();
+      block.clearAndTruncate(4 * BLOCK_SIZE, 2 * BLOCK_SIZE);
+    }
+
+    /**
+     * Writes the block index, the bloom filter and the footer, then syncs the segment file to disk.
+     *
+     * @throws IOException
+     *           if the segment file cannot be written
+     */
+    void finish() throws IOException
+    {
+      flushBlock();
+      final ByteStringBuilder trailer = new ByteStringBuilder(index.length() + 16);
+      trailer.appendCompactUnsigned(nbBlocks).appendBytes(index);
+      final long indexOffset = position;
+      final long bloomFilterOffset = indexOffset + trailer.length();
+      bloomFilter.encode(trailer);
+      trailer.appendLong(indexOffset).appendLong(bloomFilterOffset).appendLong(nbRecords).appendLong(MAGIC);
+      trailer.copyTo(output);
+      output.flush();
+      fileOutput.getChannel().force(true);
+      finished = true;
+    }
+
+    /** Closes the segment file, deleting it if it was not finished. */
+    @Override
+    public void close()
+    {
+      closeSilently(output);
+      if (!finished)
+      {
+        file.delete();
+      }
+    }
+  }
+
+  private final long number;
+  private final File file;
+  /** The channel for reading the data blocks, {@code null} if the segment file is memory-mapped. */
+  private final FileChannel channel;
+  /** The memory-mapped segment file, {@code null} if the data blocks are read from the channel. */
+  private final ByteBuffer mapping;
+  private final ByteString[] firstKeys;
+  /** The offsets of the blocks, followed by the offset of the end of the last block. */
+  private final long[] blockOffsets;
+  private final BloomFilter bloomFilter;
+  private final long nbRecords;
+  private final BlockCache blockCache;
+
+  private Segment(long number, File file, FileChannel channel, ByteBuffer mapping, ByteString[] firstKeys,
+      long[] blockOffsets, BloomFilter bloomFilter, long nbRecords, BlockCache blockCache)
+  {
+    this.number = number;
+    this.file = file;
+    this.channel = channel;
+    this.mapping = mapping;
+    this.firstKeys = firstKeys;
+    this.blockOffsets = blockOffsets;
+    this.bloomFilter = bloomFilter;
+    this.nbRecords = nbRecords;
+    this.blockCache = blockCache;
+  }
+
+  /**
+   * Opens a segment file.
+   *
+   * @param file
+   *          the segment file
+   * @param number
+   *          the number identifying the segment
+   * @param blockCache
+   *          the cache of the blocks read from the segment
+   * @return the opened segment
+   * @throws IOException
+   *           if the segment file cannot be read or is corrupted
+   */
+  static Segment open(File file, long number, BlockCache blockCache) throws IOException
+  {
+    return open(file, number, blockCache, false);
+  }
+
+  /**
+   * Opens a segment file, memory-mapping it if possible.
+   * <p>
+   * A memory-mapped segment holds no file descriptor and no lock, and remains readable after it is closed or its file
+   * is deleted: the mapping is released once the segment is garbage collected.
+   *
+   * @param file
+   *          the segment file
+   * @param number
+   *          the number identifying the segment
+   * @param blockCache
+   *          the cache of the blocks read from the segment, used if the segment file is too large for being mapped
+   * @return the opened segment
+   * @throws IOException
+   *           if the segment file cannot be read or is corrupted
+   */
+  static Segment map(File file, long number, BlockCache blockCache) throws IOException
+  {
+    return open(file, number, blockCache, true);
+  }
+
+  private static Segment open(File file, long number, BlockCache blockCache, boolean map) throws IOException
+  {
+    final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    try
+    {
+      final long fileSize = channel.size();
+      if (fileSize < FOOTER_SIZE)
+      {
+        throw new IOException("Segment file " + file + " is truncated");
+      }
+      final ByteSequenceReader footer = read(channel, fileSize - FOOTER_SIZE, FOOTER_SIZE).asReader();
+      final long indexOffset = footer.readLong();
+      final long bloomFilterOffset = footer.readLong();
+      final long nbRecords = footer.readLong();
+      if (footer.readLong() != MAGIC || indexOffset > bloomFilterOffset || bloomFilterOffset > fileSize - FOOTER_SIZE)
+      {
+        throw new IOException("Segment file " + file + " is corrupted");
+      }
+
+      final ByteSequenceReader index = read(channel, indexOffset, (int) (bloomFilterOffset - indexOffset)).asReader();
+      final int nbBlocks = index.readCompactUnsignedInt();
+      final ByteString[] firstKeys = new ByteString[nbBlocks];
+      final long[] blockOffsets = new long[nbBlocks + 1];
+      for (int i = 0; i < nbBlocks; i++)
+      {
+        firstKeys[i] = index.readByteString(index.readCompactUnsignedInt());
+        blockOffsets[i] = index.readCompactUnsignedLong();
+      }
+      blockOffsets[nbBlocks] = indexOffset;
+
+      final int bloomFilterSize = (int) (fileSize - FOOTER_SIZE - bloomFilterOffset);
+      final BloomFilter bloomFilter = BloomFilter.decode(read(channel, bloomFilterOffset, bloomFilterSize).asReader());
+      if (map && indexOffset <= MAX_MAPPED_SIZE)
+      {
+        final ByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, indexOffset);
+        channel.close();
+        return new Segment(number, file, null, mapping, firstKeys, blockOffsets, bloomFilter, nbRecords, blockCache);
+      }
+      return new Segment(number, file, channel, null, firstKeys, blockOffsets, bloomFilter, nbRecords, blockCache);
+    }
+    catch (IOException | RuntimeException e)
+    {
+      closeSilently(channel);
+      throw e;
+    }
+  }
+
+  private static ByteString read(FileChannel channel, long position, int length) throws IOException
+  {
+    final ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining())
+    {
+      if (channel.read(buffer, position + buffer.position()) < 0)
+      {
+        throw new EOFException();
+      }
+    }
+    return ByteString.wrap(buffer.array());
+  }
+
+  long getNumber()
+  {
+    return number;
+  }
+
+  File getFile()
+  {
+    return file;
+  }
+
+  long getNbRecords()
+  {
+    return nbRecords;
+  }
+
+  long getSize()
+  {
+    return blockOffsets[blockOffsets.length - 1];
+  }
+
+  /**
+   * Returns the value of the record with the provided key.
+   *
+   * @param key
+   *          the record key
+   * @return the record value, {@link LogStructuredStore#TOMBSTONE} if the record is deleted, or {@code null} if the
+   *         segment has no record with this key
+   */
+  ByteString get(ByteSequence key)
+  {
+    if (!bloomFilter.mightContain(key))
+    {
+      return null;
+    }
+    final int blockIndex = findBlock(key);
+    if (blockIndex < 0)
+    {
+      return null;
+    }
+    final Block block = getBlock(blockIndex);
+    final int i = block.ceilingIndex(key, true);
+    return i < block.keys.length && block.keys[i].compareTo(key) == 0 ? block.values[i] : null;
+  }
+
+  /**
+   * Returns the record with the least key greater than, or equal to if inclusive, the provided key.
+   *
+   * @param key
+   *          the key
+   * @param inclusive
+   *          whether a record with the provided key can be returned
+   * @return the record, whose value may be {@link LogStructuredStore#TOMBSTONE}, or {@code null} if there is none
+   */
+  Map.Entry<ByteString, ByteString> ceiling(ByteSequence key, boolean inclusive)
+  {
+    for (int blockIndex = Math.max(findBlock(key), 0); blockIndex < firstKeys.length; blockIndex++)
+    {
+      final Block block = getBlock(blockIndex);
+      final int i = block.ceilingIndex(key, inclusive);
+      if (i < block.keys.length)
+      {
+        return block.entry(i);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the record with the greatest key less than, or equal to if inclusive, the provided key.
+   *
+   * @param key
+   *          the key
+   * @param inclusive
+   *          whether a record with the provided key can be returned
+   * @return the record, whose value may be {@link LogStructuredStore#TOMBSTONE}, or {@code null} if there is none
+   */
+  Map.Entry<ByteString, ByteString> floor(ByteSequence key, boolean inclusive)
+  {
+    for (int blockIndex = findBlock(key); blockIndex >= 0; blockIndex--)
+    {
+      final Block block = getBlock(blockIndex);
+      final int i = block.ceilingIndex(key, !inclusive) - 1;
+      if (i >= 0)
+      {
+        return block.entry(i);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns an iterator over all the records of this segment, in key order. The read blocks are not cached.
+   *
+   * @return an iterator over all the records of this segment
+   */
+  Iterator<Map.Entry<ByteString, ByteString>> iterator()
+  {
+    return new Iterator<Map.Entry<ByteString, ByteString>>()
+    {
+      private int blockIndex;
+      private Block block;
+      private int recordIndex;
+
+      @Override
+      public boolean hasNext()
+      {
+        while (block == null || recordIndex == block.keys.length)
+        {
+          if (blockIndex == firstKeys.length)
+          {
+            return false;
+          }
+          block = readBlock(blockIndex++);
+          recordIndex = 0;
+        }
+        return true;
+      }
+
+      @Override
+      public Map.Entry<ByteString, ByteString> next()
+      {
+        if (!hasNext())
+        {
+          throw new NoSuchElementException();
+        }
+        return block.entry(recordIndex++);
+      }
+
+      @Override
+      public void remove()
+      {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  /** Returns the index of the last block whose first key is less than or equal to the provided key, or -1. */
+  private int findBlock(ByteSequence key)
+  {
+    int low = 0;
+    int high = firstKeys.length - 1;
+    int result = -1;
+    while (low <= high)
+    {
+      final int mid = (low + high) >>> 1;
+      if (firstKeys[mid].compareTo(key) <= 0)
+      {
+        result = mid;
+        low = mid + 1;
+      }
+      else
+      {
+        high = mid - 1;
+      }
+    }
+    return result;
+  }
+
+  private Block getBlock(int blockIndex)
+  {
+    if (mapping != null)
+    {
+      return readBlock(blockIndex);
+    }
+    Block block = blockCache.get(number, blockIndex);
+    if (block == null)
+    {
+      block = readBlock(blockIndex);
+      blockCache.put(number, blockIndex, block);
+    }
+    return block;
+  }
+
+  private Block readBlock(int blockIndex)
+  {
+    final long offset = blockOffsets[blockIndex];
+    final int length = (int) (blockOffsets[blockIndex + 1] - offset);
+    final ByteString data;
+    if (mapping != null)
+    {
+      // Decoded keys and values are views over this single copy of the block
+      final byte[] bytes = new byte[length];
+      final ByteBuffer block = mapping.duplicate();
+      block.position((int) offset);
+      block.get(bytes);
+      data = ByteString.wrap(bytes);
+    }
+    else
+    {
+      try
+      {
+        data = read(channel, offset, length);
+      }
+      catch (IOException e)
+      {
+        throw new StorageRuntimeException(e);
+      }
+    }
+
+    final List<ByteString> keys = new ArrayList<>();
+    final List<ByteString> values = new ArrayList<>();
+    final ByteSequenceReader reader = data.asReader();
+    while (reader.remaining() > 0)
+    {
+      keys.add(reader.readByteString(reader.readCompactUnsignedInt()));
+      final int valueLength = reader.readCompactUnsignedInt();
+      values.add(valueLength == 0 ? TOMBSTONE : reader.readByteString(valueLength - 1));
+    }
+    return new Block(keys.toArray(new ByteString[keys.size()]), values.toArray(new ByteString[values.size()]),
+        data.length());
+  }
+
+  @Override
+  public void close()
+  {
+    if (channel != null)
+    {
+      closeSilently(channel);
+      blockCache.invalidate(number);
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return file.getName();
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.lsm;
+
+import static java.nio.file.StandardOpenOption.*;
+
+import static org.opends.server.backends.lsm.LogStructuredStore.*;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.forgerock.opendj.ldap.ByteSequenceReader;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+
+/**
+ * A write-ahead log, making durable the records of the memtable of a {@link LogStructuredStore} until the memtable is
+ * written to a segment.
+ * <p>
+ * Each committed transaction is appended as a single log record: the length of the payload, its CRC-32 checksum, then
+ * the payload holding the records of the transaction encoded like in the segment files. A server stopping abruptly may
+ * leave an incomplete log record at the end of the log, which is ignored when replaying the log.
+ */
+final class WriteAheadLog implements Closeable
+{
+  private static final int HEADER_SIZE = 8;
+
+  private final long number;
+  private final File file;
+  private final FileChannel channel;
+  private final CRC32 checksum = new CRC32();
+
+  /**
+   * Opens a write-ahead log for appending, creating it if needed.
+   *
+   * @param file
+   *          the log file
+   * @param number
+   *          the number identifying the log
+   * @throws IOException
+   *           if the log file cannot be opened
+   */
+  WriteAheadLog(File file, long number) throws IOException
+  {
+    this.number = number;
+    this.file = file;
+    this.channel = FileChannel.open(file.toPath(), CREATE, WRITE, APPEND);
+  }
+
+  long getNumber()
+  {
+    return number;
+  }
+
+  File getFile()
+  {
+    return file;
+  }
+
+  /**
+   * Appends the records of a transaction to this log. This method is not thread safe.
+   *
+   * @param records
+   *          the records of the transaction, whose values may be {@link LogStructuredStore#TOMBSTONE}
+   * @param sync
+   *          whether the log must be synced to disk before returning
+   * @throws IOException
+   *           if the records cannot be written, in which case the log is left unchanged
+   */
+  void append(Map<ByteString, ByteString> records, boolean sync) throws IOException
+  {
+    final ByteStringBuilder builder = new ByteStringBuilder();
+    builder.appendInt(0).appendInt(0);
+    for (Map.Entry<ByteString, ByteString> record : records.entrySet())
+    {
+      appendRecord(builder, record.getKey(), record.getValue());
+    }
+    final int payloadLength = builder.length() - HEADER_SIZE;
+    checksum.reset();
+    checksum.update(builder.getBackingArray(), HEADER_SIZE, payloadLength);
+    final ByteBuffer buffer = ByteBuffer.wrap(builder.getBackingArray(), 0, builder.length());
+    buffer.putInt(0, payloadLength).putInt(4, (int) checksum.getValue());
+
+    final long size = channel.size();
+    try
+    {
+      while (buffer.hasRemaining())
+      {
+        channel.write(buffer);
+      }
+      if (sync)
+      {
+        channel.force(false);
+      }
+    }
+    catch (IOException e)
+    {
+      // Do not leave a partial log record, it would prevent replaying the next ones
+      channel.truncate(size);
+      throw e;
+    }
+  }
+
+  private static void appendRecord(ByteStringBuilder builder, ByteString key, ByteString value)
+  {
+    builder.appendCompactUnsigned(key.length()).appendBytes(key);
+    if (value == TOMBSTONE)
+    {
+      builder.appendCompactUnsigned(0);
+    }
+    else
+    {
+      builder.appendCompactUnsigned(value.length() + 1L).appendBytes(value);
+    }
+  }
+
+  /**
+   * Replays the log records of a log file, stopping at the first incomplete or corrupted log record.
+   *
+   * @param file
+   *          the log file
+   * @param records
+   *          the map where the replayed records are put
+   * @return the number of replayed transactions
+   * @throws IOException
+   *           if the log file cannot be read
+   */
+  static int replay(File file, Map<ByteString, ByteString> records) throws IOException
+  {
+    final long fileSize = file.length();
+    final CRC32 crc = new CRC32();
+    int nbTransactions = 0;
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+    {
+      while (true)
+      {
+        final byte[] payload;
+        try
+        {
+          final int payloadLength = input.readInt();
+          final int expectedChecksum = input.readInt();
+          if (payloadLength < 0 || payloadLength > fileSize)
+          {
+            return nbTransactions;
+          }
+          payload = new byte[payloadLength];
+          input.readFully(payload);
+          crc.reset();
+          crc.update(payload);
+          if ((int) crc.getValue() != expectedChecksum)
+          {
+            return nbTransactions;
+          }
+        }
+        catch (EOFException e)
+        {
+          return nbTransactions;
+        }
+
+        final ByteSequenceReader reader = ByteString.wrap(payload).asReader();
+        while (reader.remaining() > 0)
+        {
+          final ByteString key = reader.readByteString(reader.readCompactUnsignedInt());
+          final int valueLength = reader.readCompactUnsignedInt();
+          records.put(key, valueLength == 0 ? TOMBSTONE : reader.readByteString(valueLength - 1));
+        }
+        nbTransactions++;
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException
+  {
+    channel.close();
+  }
+}
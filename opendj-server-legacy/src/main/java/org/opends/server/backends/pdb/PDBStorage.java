@@ -520,6 +520,28 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
       }
     }
 
+    @Override
+    public List<ByteString> multiRead(final TreeName treeName, final List<? extends ByteSequence> keys)
+    {
+      try
+      {
+        // Persistit reuses the exchange's last position when the next key is on the same page
+        final Exchange ex = getExchangeFromCache(treeName);
+        final List<ByteString> values = new ArrayList<>(keys.size());
+        for (ByteSequence key : keys)
+        {
+          bytesToKey(ex.getKey(), key);
+          ex.fetch();
+          values.add(valueToBytes(ex.getValue()));
+        }
+        return values;
+      }
+      catch (final PersistitException | RollbackException e)
+      {
+        throw new StorageRuntimeException(e);
+      }
+    }
+
     @Override
     public boolean update(final TreeName treeName, final ByteSequence key, final UpdateFunction f)
     {
@@ -676,6 +698,12 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
       return delegate.read(treeName, key);
     }
 
+    @Override
+    public List<ByteString> multiRead(TreeName treeName, List<? extends ByteSequence> keys)
+    {
+      return delegate.multiRead(treeName, keys);
+    }
+
     @Override
     public Cursor<ByteString, ByteString> openCursor(TreeName treeName)
     {
@@ -805,6 +833,12 @@ public final class PDBStorage implements Storage, Backupable, ConfigurationChang
       return null;
     }
 
+    @Override
+    public List<ByteString> multiRead(TreeName treeName, List<? extends ByteSequence> keys)
+    {
+      return Collections.nCopies(keys.size(), (ByteString) null);
+    }
+
     @Override
     public Cursor<ByteString, ByteString> openCursor(TreeName treeName)
     {
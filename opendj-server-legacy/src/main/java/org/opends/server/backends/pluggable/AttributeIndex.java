@@ -765,7 +765,30 @@ class AttributeIndex implements ConfigurationChangeListener<BackendIndexCfg>, Cl
     }
   }
 
-  private static IndexQuery getIndexQuery(IndexQueryFactory<IndexQuery> indexQueryFactory,
+  /**
+   * Estimates the number of candidate entries which would be returned by the evaluation of a filter against this
+   * attribute index. The estimation relies on the statistics of the indexes and does not read their content.
+   *
+   * @param indexFilterType the index type filter
+   * @param filter The filter.
+   * @return The estimated number of candidate entries, or {@link IndexCardinalityEstimator#UNKNOWN} if it cannot be
+   *         estimated.
+   */
+  long estimateCandidateCount(IndexFilterType indexFilterType, SearchFilter filter)
+  {
+    try
+    {
+      return getIndexQuery(new IndexCardinalityEstimator(this), indexFilterType, filter);
+    }
+    catch (DecodeException e)
+    {
+      // The filter will be evaluated to an empty set
+      logger.traceException(e);
+      return 0;
+    }
+  }
+
+  private static <T> T getIndexQuery(IndexQueryFactory<T> indexQueryFactory,
       IndexFilterType indexFilterType, SearchFilter filter) throws DecodeException
   {
     MatchingRule rule;
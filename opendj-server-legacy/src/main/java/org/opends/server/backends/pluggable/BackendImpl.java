@@ -598,7 +598,8 @@ public abstract class BackendImpl<C extends PluggableBackendCfg> extends LocalBa
         rootContainer = getReadOnlyRootContainer();
       }
 
-      ExportJob exportJob = new ExportJob(exportConfig);
+      // Reading the entries in parallel does not produce a consistent snapshot when the backend is written to
+      final ExportJob exportJob = openRootContainer ? new ExportJob(exportConfig) : new ExportJob(exportConfig, 1);
       exportJob.exportLDIF(rootContainer);
     }
     catch (IOException ioe)
@@ -704,7 +705,7 @@ public abstract class BackendImpl<C extends PluggableBackendCfg> extends LocalBa
       {
         rootContainer = getReadOnlyRootContainer();
       }
-      return new VerifyJob(rootContainer, verifyConfig).verifyBackend();
+      return new VerifyJob(rootContainer, verifyConfig, !openRootContainer).verifyBackend();
     }
     catch (StorageRuntimeException e)
     {
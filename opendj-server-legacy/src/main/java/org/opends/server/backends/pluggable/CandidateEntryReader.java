@@ -0,0 +1,200 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.api.EntryCache;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Entry;
+
+/**
+ * Reads the candidate entries of a search operation from the entry tree in batches.
+ * <p>
+ * Reading candidate entries one by one walks the entry tree from its root for each of them. Instead, the entries which
+ * are not in the entry cache are read in batches with a single {@link ReadableTransaction#multiRead multi-key read}
+ * sorted by entry ID, which lets the storage engine reuse its position in the tree from one entry to the next. Entries
+ * are only decoded and put in the entry cache when they are actually examined.
+ * <p>
+ * A search operation may stop before examining all its candidate entries, for instance when a size limit is reached
+ * or when a page of results is full. The batches are therefore small at first and grow as entries are examined, in
+ * order to limit the number of entries read for nothing.
+ */
+final class CandidateEntryReader
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** Number of candidate entries read in the first batch. */
+  static final int MIN_BATCH_SIZE = 8;
+  /** Maximum number of candidate entries read in a single batch. */
+  static final int MAX_BATCH_SIZE = 256;
+
+  private final ID2Entry id2entry;
+  private final String backendID;
+  private final ReadableTransaction txn;
+  private final Iterator<EntryID> candidates;
+  private final EntryCache<?> entryCache = DirectoryServer.getEntryCache();
+
+  private final List<EntryID> entryIDs = new ArrayList<>();
+  /** The entries of the batch found in the entry cache, or their encoded form read from the entry tree. */
+  private final List<Object> entries = new ArrayList<>();
+  /** Whether the batch could not be read at once, in which case its entries are read one by one. */
+  private boolean batchReadFailed;
+  private int batchSize = MIN_BATCH_SIZE;
+  private int position = -1;
+
+  /**
+   * Creates a new reader of candidate entries.
+   *
+   * @param id2entry
+   *          the entry tree
+   * @param backendID
+   *          the ID of the backend, used for looking up the entry cache
+   * @param txn
+   *          a non null transaction
+   * @param candidates
+   *          the IDs of the candidate entries, in the order they are examined
+   */
+  CandidateEntryReader(ID2Entry id2entry, String backendID, ReadableTransaction txn, Iterator<EntryID> candidates)
+  {
+    this.id2entry = id2entry;
+    this.backendID = backendID;
+    this.txn = txn;
+    this.candidates = candidates;
+  }
+
+  /**
+   * Moves to the next candidate entry.
+   *
+   * @return {@code true} if there is a next candidate entry, {@code false} otherwise
+   */
+  boolean next()
+  {
+    position++;
+    if (position >= entryIDs.size())
+    {
+      readNextBatch();
+    }
+    return position < entryIDs.size();
+  }
+
+  /**
+   * Returns the ID of the current candidate entry.
+   *
+   * @return the ID of the current candidate entry
+   */
+  EntryID getEntryID()
+  {
+    return entryIDs.get(position);
+  }
+
+  /**
+   * Returns the current candidate entry, putting it in the entry cache if it was read from the entry tree.
+   *
+   * @return the current candidate entry, or {@code null} if it does not exist anymore
+   * @throws DirectoryException
+   *           If a problem occurs while reading or decoding the entry
+   */
+  Entry getEntry() throws DirectoryException
+  {
+    final EntryID entryID = entryIDs.get(position);
+    final Object cachedOrEncoded = entries.get(position);
+    if (cachedOrEncoded instanceof Entry)
+    {
+      return (Entry) cachedOrEncoded;
+    }
+
+    final Entry entry = batchReadFailed
+        ? id2entry.get(txn, entryID)
+        : id2entry.decode(entryID, (ByteString) cachedOrEncoded);
+    if (entry != null)
+    {
+      // Put the entry in the cache making sure not to overwrite a newer copy
+      // that may have been inserted since the time we read the cache.
+      entryCache.putEntryIfAbsent(entry, backendID, entryID.longValue());
+    }
+    return entry;
+  }
+
+  private void readNextBatch()
+  {
+    entryIDs.clear();
+    entries.clear();
+    position = 0;
+    batchReadFailed = false;
+
+    final List<Integer> misses = new ArrayList<>();
+    while (entryIDs.size() < batchSize && candidates.hasNext())
+    {
+      final EntryID entryID = candidates.next();
+      final Entry cacheEntry = entryCache.getEntry(backendID, entryID.longValue());
+      if (cacheEntry == null)
+      {
+        misses.add(entryIDs.size());
+      }
+      entryIDs.add(entryID);
+      entries.add(cacheEntry);
+    }
+    batchSize = Math.min(batchSize * 2, MAX_BATCH_SIZE);
+    if (!misses.isEmpty())
+    {
+      readMisses(misses);
+    }
+  }
+
+  private void readMisses(List<Integer> misses)
+  {
+    // Candidates sorted by a VLV index or a sort control are not in entry ID order
+    Collections.sort(misses, new Comparator<Integer>()
+    {
+      @Override
+      public int compare(Integer i1, Integer i2)
+      {
+        return entryIDs.get(i1).compareTo(entryIDs.get(i2));
+      }
+    });
+    final EntryID[] missingIDs = new EntryID[misses.size()];
+    for (int i = 0; i < missingIDs.length; i++)
+    {
+      missingIDs[i] = entryIDs.get(misses.get(i));
+    }
+
+    try
+    {
+      final List<ByteString> values = id2entry.readEncodedEntries(txn, Arrays.asList(missingIDs));
+      for (int i = 0; i < missingIDs.length; i++)
+      {
+        entries.set(misses.get(i), values.get(i));
+      }
+    }
+    catch (StorageRuntimeException e)
+    {
+      // Let each entry report its own failure when it is examined
+      logger.traceException(e);
+      batchReadFailed = true;
+    }
+  }
+}
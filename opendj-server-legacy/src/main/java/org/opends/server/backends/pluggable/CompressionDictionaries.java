@@ -0,0 +1,310 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteSequence;
+
+/**
+ * Shared dictionaries used by the {@link EntryCompressor}s. Entries are small and compress poorly on their own, but
+ * they have a lot of content in common: DN suffixes, compressed schema tokens, object classes or frequent values. A
+ * dictionary made of these common byte sequences lets the compressor reference them from the first byte of each entry.
+ * <p>
+ * A dictionary is trained on the first entries written, then registered under a new identifier which is stored in each
+ * entry it compressed. Registered dictionaries never change, so entries compressed with them remain readable.
+ * <p>
+ * This implementation keeps the dictionaries in memory only: subclasses must override
+ * {@link #storeDictionary(int, byte[])} for persisting them.
+ */
+class CompressionDictionaries
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** Identifier stored in the entries compressed without dictionary. */
+  static final int NO_DICTIONARY = 0;
+
+  /** Maximum size of a trained dictionary. */
+  static final int DICTIONARY_SIZE = 16 * 1024;
+  /** Number of bytes of entries sampled before training the dictionary. */
+  static final int SAMPLES_SIZE = 512 * 1024;
+
+  /** Length of the byte sequences whose frequency is counted across the samples. */
+  private static final int DMER_LENGTH = 8;
+  /** Length of the chunks of samples which are candidates for being copied into the dictionary. */
+  private static final int SEGMENT_LENGTH = 64;
+  private static final int FREQUENCIES_HASH_LOG = 18;
+  private static final byte[] EMPTY_DICTIONARY = new byte[0];
+
+  /** A chunk of a sample along with the sum of the frequencies of the byte sequences it contains. */
+  private static final class Segment
+  {
+    private final byte[] sample;
+    private final int start;
+    private final int length;
+    private long score;
+
+    private Segment(byte[] sample, int start, int length)
+    {
+      this.sample = sample;
+      this.start = start;
+      this.length = length;
+    }
+  }
+
+  private static final Comparator<Segment> BEST_SCORE_FIRST = new Comparator<Segment>()
+  {
+    @Override
+    public int compare(Segment s1, Segment s2)
+    {
+      return Long.compare(s2.score, s1.score);
+    }
+  };
+
+  /** Copy on write map of the registered dictionaries. */
+  private volatile Map<Integer, byte[]> dictionaries = Collections.emptyMap();
+  /** Dictionary used for compressing new entries. */
+  private volatile int currentDictionaryId = NO_DICTIONARY;
+  /** Entries sampled for training a dictionary, {@code null} once training is not needed anymore. */
+  private List<byte[]> samples;
+  private int samplesSize;
+
+  /**
+   * Creates a new set of dictionaries.
+   *
+   * @param trainable
+   *          whether a dictionary should be trained from the sampled entries
+   */
+  CompressionDictionaries(boolean trainable)
+  {
+    this.samples = trainable ? new ArrayList<byte[]>() : null;
+  }
+
+  /**
+   * Returns the identifier of the dictionary to use for compressing new entries.
+   *
+   * @return the identifier of the current dictionary, or {@link #NO_DICTIONARY}
+   */
+  int getCurrentDictionaryId()
+  {
+    return currentDictionaryId;
+  }
+
+  /**
+   * Returns the dictionary registered with the provided identifier.
+   *
+   * @param dictionaryId
+   *          the identifier of the dictionary
+   * @return the dictionary, empty for {@link #NO_DICTIONARY}, or {@code null} if no such dictionary is registered
+   */
+  byte[] getDictionary(int dictionaryId)
+  {
+    return dictionaryId == NO_DICTIONARY ? EMPTY_DICTIONARY : dictionaries.get(dictionaryId);
+  }
+
+  /**
+   * Samples an encoded entry for training the dictionary. The dictionary is trained, stored and becomes the current
+   * dictionary as soon as enough entries have been sampled.
+   *
+   * @param encodedEntry
+   *          the uncompressed encoding of an entry
+   */
+  void addSample(ByteSequence encodedEntry)
+  {
+    if (currentDictionaryId != NO_DICTIONARY)
+    {
+      return;
+    }
+    synchronized (this)
+    {
+      if (samples == null)
+      {
+        return;
+      }
+      samples.add(encodedEntry.toByteArray());
+      samplesSize += encodedEntry.length();
+      if (samplesSize < SAMPLES_SIZE)
+      {
+        return;
+      }
+      final byte[] dictionary = train(samples, DICTIONARY_SIZE);
+      samples = null;
+      if (dictionary.length > 0)
+      {
+        final int dictionaryId = currentDictionaryId + 1;
+        if (storeDictionary(dictionaryId, dictionary))
+        {
+          registerDictionary(dictionaryId, dictionary);
+        }
+        else
+        {
+          // Train another dictionary from the next entries, by then the dictionary may be stored successfully
+          logger.trace("Could not store the compression dictionary %d, sampling entries again", dictionaryId);
+          samples = new ArrayList<>();
+          samplesSize = 0;
+        }
+      }
+    }
+  }
+
+  /**
+   * Registers a dictionary, which becomes the current dictionary if its identifier is the highest one.
+   *
+   * @param dictionaryId
+   *          the identifier of the dictionary
+   * @param dictionary
+   *          the content of the dictionary
+   */
+  final synchronized void registerDictionary(int dictionaryId, byte[] dictionary)
+  {
+    final Map<Integer, byte[]> newDictionaries = new HashMap<>(dictionaries);
+    newDictionaries.put(dictionaryId, dictionary);
+    dictionaries = newDictionaries;
+    if (dictionaryId > currentDictionaryId)
+    {
+      currentDictionaryId = dictionaryId;
+      samples = null;
+    }
+  }
+
+  /**
+   * Stores a newly trained dictionary. Entries are only compressed with the dictionary once this method succeeded,
+   * otherwise a new dictionary is trained from the next sampled entries.
+   *
+   * @param dictionaryId
+   *          the identifier of the dictionary
+   * @param dictionary
+   *          the content of the dictionary
+   * @return {@code true} if the dictionary can be used, {@code false} otherwise
+   */
+  boolean storeDictionary(int dictionaryId, byte[] dictionary)
+  {
+    return true;
+  }
+
+  /**
+   * Trains a dictionary from the provided samples: the chunks of samples containing the byte sequences shared by the
+   * highest number of samples are selected, the best ones being placed at the end of the dictionary, closest to the
+   * compressed data.
+   *
+   * @param samples
+   *          the samples
+   * @param dictionarySize
+   *          the maximum size of the dictionary
+   * @return the trained dictionary, empty if the samples have nothing in common
+   */
+  static byte[] train(List<byte[]> samples, int dictionarySize)
+  {
+    // Count the number of samples each d-mer appears in.
+    final int[] frequencies = new int[1 << FREQUENCIES_HASH_LOG];
+    final int[] lastSample = new int[frequencies.length];
+    Arrays.fill(lastSample, -1);
+    for (int s = 0; s < samples.size(); s++)
+    {
+      final byte[] sample = samples.get(s);
+      for (int i = 0; i + DMER_LENGTH <= sample.length; i++)
+      {
+        final int h = hashDmer(sample, i);
+        if (lastSample[h] != s)
+        {
+          lastSample[h] = s;
+          frequencies[h]++;
+        }
+      }
+    }
+
+    final PriorityQueue<Segment> candidates = new PriorityQueue<>(Math.max(1, samples.size()), BEST_SCORE_FIRST);
+    for (final byte[] sample : samples)
+    {
+      for (int start = 0; start + DMER_LENGTH <= sample.length; start += SEGMENT_LENGTH)
+      {
+        final Segment segment = new Segment(sample, start, Math.min(SEGMENT_LENGTH, sample.length - start));
+        segment.score = score(segment, frequencies);
+        if (segment.score > 0)
+        {
+          candidates.add(segment);
+        }
+      }
+    }
+
+    // Greedily select the best segments. Once selected, the d-mers of a segment do not count anymore, hence the scores
+    // of the other segments can only decrease: they are lazily recomputed when they reach the head of the queue.
+    final List<Segment> selected = new ArrayList<>();
+    int size = 0;
+    while (size < dictionarySize && !candidates.isEmpty())
+    {
+      final Segment segment = candidates.poll();
+      final long score = score(segment, frequencies);
+      if (score < segment.score)
+      {
+        segment.score = score;
+        if (score > 0)
+        {
+          candidates.add(segment);
+        }
+        continue;
+      }
+      selected.add(segment);
+      size += segment.length;
+      for (int i = segment.start; i + DMER_LENGTH <= segment.start + segment.length; i++)
+      {
+        frequencies[hashDmer(segment.sample, i)] = 0;
+      }
+    }
+
+    final byte[] dictionary = new byte[Math.min(size, dictionarySize)];
+    int end = dictionary.length;
+    for (Segment segment : selected)
+    {
+      final int length = Math.min(segment.length, end);
+      System.arraycopy(segment.sample, segment.start + segment.length - length, dictionary, end - length, length);
+      end -= length;
+    }
+    return dictionary;
+  }
+
+  private static long score(Segment segment, int[] frequencies)
+  {
+    long score = 0;
+    for (int i = segment.start; i + DMER_LENGTH <= segment.start + segment.length; i++)
+    {
+      final int frequency = frequencies[hashDmer(segment.sample, i)];
+      if (frequency > 1)
+      {
+        score += frequency;
+      }
+    }
+    return score;
+  }
+
+  private static int hashDmer(byte[] sample, int pos)
+  {
+    long dmer = 0;
+    for (int i = 0; i < DMER_LENGTH; i++)
+    {
+      dmer = (dmer << 8) | (sample[pos + i] & 0xFF);
+    }
+    return (int) ((dmer * 0x9E3779B97F4A7C15L) >>> (64 - FREQUENCIES_HASH_LOG));
+  }
+}
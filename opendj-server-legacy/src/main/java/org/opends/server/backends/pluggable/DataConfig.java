@@ -33,6 +33,8 @@ final class DataConfig
   static final class Builder
   {
     private boolean compressed;
+    private EntryCompressor compressor;
+    private CompressionDictionaries compressionDictionaries;
     private boolean encrypted;
     private boolean compactEncoding;
     private CompressedSchema compressedSchema;
@@ -55,6 +57,18 @@ final class DataConfig
       return this;
     }
 
+    public Builder compressor(EntryCompressor compressor)
+    {
+      this.compressor = compressor;
+      return this;
+    }
+
+    public Builder compressionDictionaries(CompressionDictionaries dictionaries)
+    {
+      this.compressionDictionaries = dictionaries;
+      return this;
+    }
+
     public Builder encrypt(boolean enabled)
     {
       this.encrypted = enabled;
@@ -81,6 +95,12 @@ final class DataConfig
   /** Indicates whether data should be compressed before writing to the storage. */
   private final boolean compressed;
 
+  /** The compressor to use, or {@code null} for compressing data with Deflater in the legacy format. */
+  private final EntryCompressor compressor;
+
+  /** The shared dictionaries priming the compressor, or {@code null} for compressing without dictionary. */
+  private final CompressionDictionaries compressionDictionaries;
+
   /** The configuration to use when encoding entries in the tree. */
   private final EntryEncodeConfig encodeConfig;
 
@@ -95,6 +115,8 @@ final class DataConfig
   private DataConfig(Builder builder)
   {
     this.compressed = builder.compressed;
+    this.compressor = builder.compressor;
+    this.compressionDictionaries = builder.compressionDictionaries;
     this.encrypted = builder.encrypted;
     this.cryptoSuite = builder.cryptoSuite;
 
@@ -115,6 +137,16 @@ final class DataConfig
     return compressed;
   }
 
+  EntryCompressor getCompressor()
+  {
+    return compressor;
+  }
+
+  CompressionDictionaries getCompressionDictionaries()
+  {
+    return compressionDictionaries;
+  }
+
   boolean isEncrypted()
   {
     return encrypted;
@@ -136,6 +168,11 @@ final class DataConfig
     final StringBuilder builder = new StringBuilder();
     builder.append("DataConfig(compressed=");
     builder.append(compressed);
+    if (compressed && compressor != null)
+    {
+      builder.append(", compressor=");
+      builder.append(compressor.getClass().getSimpleName());
+    }
     builder.append(", encrypted=");
     builder.append(encrypted);
     builder.append(", ");
@@ -21,20 +21,38 @@ import static org.opends.messages.BackendMessages.*;
 import static org.opends.server.backends.pluggable.EntryIDSet.*;
 import static org.opends.server.backends.pluggable.State.IndexFlag.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.forgerock.i18n.slf4j.LocalizedLogger;
 import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteSequenceReader;
 import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
 import org.forgerock.util.promise.NeverThrowsException;
 import org.opends.server.backends.pluggable.CursorTransformer.ValueTransformer;
 import org.opends.server.backends.pluggable.EntryIDSet.EntryIDSetCodec;
 import org.opends.server.backends.pluggable.State.IndexFlag;
 import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.Importer;
 import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.Storage;
 import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
 import org.opends.server.backends.pluggable.spi.TreeName;
 import org.opends.server.backends.pluggable.spi.UpdateFunction;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
 import org.opends.server.backends.pluggable.spi.WriteableTransaction;
 import org.opends.server.crypto.CryptoSuite;
 
@@ -42,11 +60,25 @@ import org.opends.server.crypto.CryptoSuite;
  * Represents an index implemented by a tree in which each key maps to a set of entry IDs. The key
  * is a byte array, and is constructed from some normalized form of an attribute value (or fragment
  * of a value) appearing in the entry.
+ * <p>
+ * Rewriting the whole set of entry IDs of a key on each update is costly for the keys referencing
+ * many entries. Once the encoded set of a key exceeds {@link #DELTA_THRESHOLD} bytes, the key is
+ * updated by appending the added and deleted entry IDs as a delta record to a companion tree. The
+ * deltas are applied in order when reading the key, and merged into its set in the background
+ * once {@link #MAX_DELTAS_PER_KEY} deltas have been appended.
  */
 class DefaultIndex extends AbstractTree implements Index
 {
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
+  private static final ByteString KEY_COUNT_KEY = ByteString.valueOfUtf8("nbKeys");
+  private static final ByteString ENTRY_ID_COUNT_KEY = ByteString.valueOfUtf8("nbEntryIDs");
+
+  /** Size of the encoded set of entry IDs from which a key is updated with deltas rather than rewritten. */
+  static final int DELTA_THRESHOLD = 16 * 1024;
+  /** Number of deltas appended to a key after which they are merged into the set of entry IDs of the key. */
+  static final int MAX_DELTAS_PER_KEY = 256;
+
   private final State state;
   private final EntryContainer entryContainer;
   /** The limit on the number of entry IDs that may be indexed by one key. */
@@ -55,6 +87,43 @@ class DefaultIndex extends AbstractTree implements Index
   private EntryIDSetCodec codec;
   private CryptoSuite cryptoSuite;
 
+  /**
+   * Persisted statistics of this index: the number of keys having a defined {@link EntryIDSet} and the total number of
+   * entry IDs they reference. Cached in {@link #keyCount} and {@link #entryIDCount} so that they can be used for each
+   * search without reading the storage, the cache being updated once the transactions updating the index are committed.
+   */
+  private final ShardedCounter statistics;
+  private final AtomicLong keyCount = new AtomicLong();
+  private final AtomicLong entryIDCount = new AtomicLong();
+  /** Statistics are not available for indexes populated before they were introduced, until they are rebuilt. */
+  private volatile boolean statisticsAvailable;
+  /**
+   * The statistics deltas written by the transaction of the write operation run by the current thread with
+   * {@link #write(Storage, WriteOperation)}, which are added to the cached statistics once the transaction is committed.
+   */
+  private static final ThreadLocal<Map<DefaultIndex, long[]>> UNCOMMITTED_STATISTICS = new ThreadLocal<>();
+
+  /**
+   * The deltas tree: the keys are the length of the index key, the index key and a sequence number ordering the deltas
+   * of the index key, the values are the encoded sets of added and deleted entry IDs.
+   */
+  private final TreeName deltasTreeName;
+  /** The deltas tree, as listed with the other trees of the entry container. */
+  private final Tree deltasTree;
+  /**
+   * The approximate number of pending deltas of the keys updated with deltas. A key is never removed while the index is
+   * open, so that the deltas appended concurrently to a merge are always applied when reading the key.
+   */
+  private final ConcurrentMap<ByteString, AtomicInteger> deltaCounts = new ConcurrentHashMap<>();
+  private final AtomicLong deltaSequence = new AtomicLong();
+  /**
+   * The keys updated with deltas which may have no record in the index tree, either because a merge removed the record
+   * after deleting all its entry IDs, or because the record was missing when the index was opened. Only these keys are
+   * looked up when opening a cursor, instead of all the keys updated with deltas.
+   */
+  private final Set<ByteString> keysWithoutRecord =
+      Collections.newSetFromMap(new ConcurrentHashMap<ByteString, Boolean>());
+
   /**
    * A flag to indicate if this index should be trusted to be consistent with the entries tree.
    * If not trusted, we assume that existing entryIDSets for a key is still accurate. However, keys
@@ -86,6 +155,12 @@ class DefaultIndex extends AbstractTree implements Index
       throws StorageRuntimeException
   {
     super(name);
+    this.statistics = new ShardedCounter(new TreeName(name.getBaseDN(), "counter." + name.getIndexId()));
+    this.deltasTreeName = new TreeName(name.getBaseDN(), "deltas." + name.getIndexId());
+    this.deltasTree = new AbstractTree(deltasTreeName)
+    {
+      // Only used to list the deltas tree
+    };
     this.indexEntryLimit = indexEntryLimit;
     this.state = state;
     this.entryContainer = entryContainer;
@@ -96,7 +171,7 @@ class DefaultIndex extends AbstractTree implements Index
   final void afterOpen(WriteableTransaction txn, boolean createOnDemand)
   {
     final EnumSet<IndexFlag> flags = state.getIndexFlags(txn, getName());
-    codec = flags.contains(COMPACTED) ? CODEC_V2 : CODEC_V1;
+    codec = flags.contains(BITMAP) ? CODEC_V4 : flags.contains(COMPACTED) ? CODEC_V2 : CODEC_V1;
     if (cryptoSuite.isEncrypted())
     {
       codec = new EntryIDSet.EntryIDSetCodecV3(codec, cryptoSuite);
@@ -108,6 +183,84 @@ class DefaultIndex extends AbstractTree implements Index
       // is no reason why this index can't be upgraded to trusted.
       setTrusted(txn, true);
     }
+    loadStatistics(txn, createOnDemand);
+    loadDeltas(txn, createOnDemand);
+  }
+
+  @Override
+  void beforeDelete(WriteableTransaction txn) throws StorageRuntimeException
+  {
+    txn.deleteTree(deltasTreeName);
+    deltaCounts.clear();
+    keysWithoutRecord.clear();
+    statistics.delete(txn);
+    keyCount.set(0);
+    entryIDCount.set(0);
+    statisticsAvailable = true;
+  }
+
+  private void loadStatistics(WriteableTransaction txn, boolean createOnDemand)
+  {
+    try
+    {
+      statistics.open(txn, createOnDemand);
+      keyCount.set(statistics.getCount(txn, KEY_COUNT_KEY));
+      entryIDCount.set(statistics.getCount(txn, ENTRY_ID_COUNT_KEY));
+      statisticsAvailable = keyCount.get() > 0 || isEmpty(txn);
+    }
+    catch (StorageRuntimeException e)
+    {
+      // Statistics tree may not exist when the storage is opened read-only
+      logger.traceException(e);
+      statisticsAvailable = false;
+    }
+  }
+
+  private void loadDeltas(WriteableTransaction txn, boolean createOnDemand)
+  {
+    deltaCounts.clear();
+    keysWithoutRecord.clear();
+    try
+    {
+      txn.openTree(deltasTreeName, createOnDemand);
+      try (Cursor<ByteString, ByteString> cursor = txn.openCursor(deltasTreeName))
+      {
+        while (cursor.next())
+        {
+          final ByteSequenceReader reader = cursor.getKey().asReader();
+          final ByteString key = reader.readByteString(reader.readCompactUnsignedInt());
+          getDeltaCount(key).incrementAndGet();
+          deltaSequence.set(Math.max(deltaSequence.get(), reader.readLong()));
+        }
+      }
+      for (ByteString key : deltaCounts.keySet())
+      {
+        if (txn.read(getName(), key) == null)
+        {
+          keysWithoutRecord.add(key);
+        }
+      }
+    }
+    catch (StorageRuntimeException e)
+    {
+      // Deltas tree may not exist when the storage is opened read-only
+      logger.traceException(e);
+    }
+  }
+
+  private AtomicInteger getDeltaCount(ByteString key)
+  {
+    final AtomicInteger newCount = new AtomicInteger();
+    final AtomicInteger count = deltaCounts.putIfAbsent(key, newCount);
+    return count != null ? count : newCount;
+  }
+
+  private boolean isEmpty(ReadableTransaction txn)
+  {
+    try (Cursor<ByteString, ByteString> cursor = txn.openCursor(getName()))
+    {
+      return !cursor.next();
+    }
   }
 
   @Override
@@ -128,18 +281,210 @@ class DefaultIndex extends AbstractTree implements Index
   }
 
   @Override
-  public final Cursor<ByteString, EntryIDSet> openCursor(ReadableTransaction txn)
+  public final Cursor<ByteString, EntryIDSet> openCursor(final ReadableTransaction txn)
   {
     checkNotNull(txn, "txn must not be null");
-    return CursorTransformer.transformValues(txn.openCursor(getName()),
+    final Cursor<ByteString, EntryIDSet> cursor = CursorTransformer.transformValues(txn.openCursor(getName()),
         new ValueTransformer<ByteString, ByteString, EntryIDSet, NeverThrowsException>()
         {
           @Override
           public EntryIDSet transform(ByteString key, ByteString value) throws NeverThrowsException
           {
-            return decodeValue(key, value);
+            final EntryIDSet entryIDSet = decodeValue(key, value);
+            return hasDeltas(key) ? applyDeltas(txn, key, entryIDSet, null) : entryIDSet;
           }
         });
+    if (keysWithoutRecord.isEmpty())
+    {
+      return cursor;
+    }
+    final NavigableMap<ByteString, EntryIDSet> deltaOnlyKeys = getDeltaOnlyKeys(txn);
+    return deltaOnlyKeys.isEmpty() ? cursor : new DeltaOnlyKeysCursor(cursor, deltaOnlyKeys);
+  }
+
+  /**
+   * Returns the keys which are only defined by their pending deltas. Such keys have no record in the index tree, either
+   * because a merge removed the record after deleting all its entry IDs, or because the deltas were appended before the
+   * record was created, and must be read from the deltas tree until the next merge.
+   */
+  private NavigableMap<ByteString, EntryIDSet> getDeltaOnlyKeys(ReadableTransaction txn)
+  {
+    final NavigableMap<ByteString, EntryIDSet> deltaOnlyKeys = new TreeMap<>();
+    if (trusted)
+    {
+      // No entry IDs are added to a missing key of an untrusted index
+      for (ByteString key : keysWithoutRecord)
+      {
+        if (txn.read(getName(), key) == null)
+        {
+          final EntryIDSet entryIDSet = applyDeltas(txn, key, newDefinedSet(), null);
+          if (entryIDSet.size() > 0)
+          {
+            deltaOnlyKeys.put(key, entryIDSet);
+          }
+        }
+      }
+    }
+    return deltaOnlyKeys;
+  }
+
+  /** Cursor on the records of the index tree and on the keys only defined by their pending deltas, in key order. */
+  private static final class DeltaOnlyKeysCursor implements Cursor<ByteString, EntryIDSet>
+  {
+    private final Cursor<ByteString, EntryIDSet> cursor;
+    private final NavigableMap<ByteString, EntryIDSet> deltaOnlyKeys;
+    private boolean isCursorDefined;
+    private Map.Entry<ByteString, EntryIDSet> deltaOnlyKey;
+    private boolean isPositioned;
+    private boolean isOnCursor;
+    private boolean isDefined;
+
+    DeltaOnlyKeysCursor(Cursor<ByteString, EntryIDSet> cursor, NavigableMap<ByteString, EntryIDSet> deltaOnlyKeys)
+    {
+      this.cursor = cursor;
+      this.deltaOnlyKeys = deltaOnlyKeys;
+    }
+
+    @Override
+    public boolean next()
+    {
+      if (!isPositioned)
+      {
+        isCursorDefined = cursor.next();
+        deltaOnlyKey = deltaOnlyKeys.firstEntry();
+      }
+      else if (!isDefined)
+      {
+        return false;
+      }
+      else if (isOnCursor)
+      {
+        isCursorDefined = cursor.next();
+      }
+      else
+      {
+        deltaOnlyKey = deltaOnlyKeys.higherEntry(deltaOnlyKey.getKey());
+      }
+      return selectLowestKey();
+    }
+
+    @Override
+    public boolean positionToKey(ByteSequence key)
+    {
+      isCursorDefined = cursor.positionToKey(key);
+      if (isCursorDefined)
+      {
+        deltaOnlyKey = deltaOnlyKeys.higherEntry(key.toByteString());
+        return selectLowestKey();
+      }
+      if (deltaOnlyKeys.containsKey(key.toByteString()))
+      {
+        return positionToKeyOrNext(key);
+      }
+      isPositioned = true;
+      isDefined = false;
+      return false;
+    }
+
+    @Override
+    public boolean positionToKeyOrNext(ByteSequence key)
+    {
+      isCursorDefined = cursor.positionToKeyOrNext(key);
+      deltaOnlyKey = deltaOnlyKeys.ceilingEntry(key.toByteString());
+      return selectLowestKey();
+    }
+
+    @Override
+    public boolean positionToLastKey()
+    {
+      isCursorDefined = cursor.positionToLastKey();
+      deltaOnlyKey = deltaOnlyKeys.lastEntry();
+      // Only keep the source holding the last key, the other one must not be read by next()
+      if (isCursorDefined && cursor.getKey().compareTo(deltaOnlyKey.getKey()) < 0)
+      {
+        isCursorDefined = false;
+      }
+      else if (isCursorDefined)
+      {
+        deltaOnlyKey = null;
+      }
+      return selectLowestKey();
+    }
+
+    @Override
+    public boolean positionToIndex(int index)
+    {
+      isPositioned = false;
+      for (int i = 0; i <= index; i++)
+      {
+        if (!next())
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private boolean selectLowestKey()
+    {
+      isPositioned = true;
+      if (isCursorDefined && (deltaOnlyKey == null || cursor.getKey().compareTo(deltaOnlyKey.getKey()) < 0))
+      {
+        isOnCursor = true;
+        isDefined = true;
+      }
+      else
+      {
+        isOnCursor = false;
+        isDefined = deltaOnlyKey != null;
+      }
+      return isDefined;
+    }
+
+    @Override
+    public boolean isDefined()
+    {
+      return isDefined;
+    }
+
+    @Override
+    public ByteString getKey() throws NoSuchElementException
+    {
+      throwIfUndefined();
+      return isOnCursor ? cursor.getKey() : deltaOnlyKey.getKey();
+    }
+
+    @Override
+    public EntryIDSet getValue() throws NoSuchElementException
+    {
+      throwIfUndefined();
+      return isOnCursor ? cursor.getValue() : deltaOnlyKey.getValue();
+    }
+
+    @Override
+    public void delete() throws NoSuchElementException, UnsupportedOperationException
+    {
+      throwIfUndefined();
+      if (!isOnCursor)
+      {
+        throw new UnsupportedOperationException();
+      }
+      cursor.delete();
+    }
+
+    private void throwIfUndefined()
+    {
+      if (!isDefined)
+      {
+        throw new NoSuchElementException();
+      }
+    }
+
+    @Override
+    public void close()
+    {
+      cursor.close();
+    }
   }
 
   EntryIDSet decodeValue(ByteSequence key, ByteString value)
@@ -175,6 +520,13 @@ class DefaultIndex extends AbstractTree implements Index
       return;
     }
 
+    final AtomicInteger deltaCount = deltaCounts.get(key);
+    if (deltaCount != null)
+    {
+      appendDelta(txn, key, deletedIDs, addedIDs, deltaCount);
+      return;
+    }
+
     /*
      * Avoid taking a write lock on a record which has hit all IDs because it is likely to be a
      * point of contention.
@@ -185,6 +537,8 @@ class DefaultIndex extends AbstractTree implements Index
     }
 
     // The record is going to be changed in some way.
+    final long[] statisticsDelta = new long[2];
+    final boolean[] isLargeValue = new boolean[1];
     txn.update(getName(), key, new UpdateFunction()
     {
       @Override
@@ -192,7 +546,11 @@ class DefaultIndex extends AbstractTree implements Index
       {
         if (oldValue != null)
         {
-          EntryIDSet entryIDSet = computeEntryIDSet(key, oldValue.toByteString(), deletedIDs, addedIDs);
+          isLargeValue[0] = oldValue.length() >= DELTA_THRESHOLD;
+          final EntryIDSet oldEntryIDSet = decodeValue(key, oldValue.toByteString());
+          final long oldSize = definedSize(oldEntryIDSet);
+          final EntryIDSet entryIDSet = computeEntryIDSet(key, oldEntryIDSet, deletedIDs, addedIDs);
+          setStatisticsDelta(statisticsDelta, oldSize, definedSize(entryIDSet));
           /*
            * If there are no more IDs then return null indicating that the record should be removed.
            * If index is not trusted then this will cause all subsequent reads for this key to
@@ -208,12 +566,320 @@ class DefaultIndex extends AbstractTree implements Index
           }
           if (isNotEmpty(addedIDs))
           {
+            setStatisticsDelta(statisticsDelta, 0, definedSize(addedIDs));
             return toValue(addedIDs);
           }
         }
+        setStatisticsDelta(statisticsDelta, 0, 0);
         return null; // no change.
       }
     });
+    updateStatistics(txn, statisticsDelta[0], statisticsDelta[1]);
+    if (isLargeValue[0])
+    {
+      // Next updates of this key will append deltas.
+      getDeltaCount(key);
+    }
+  }
+
+  private void appendDelta(WriteableTransaction txn, final ByteString key, EntryIDSet deletedIDs, EntryIDSet addedIDs,
+      AtomicInteger deltaCount)
+  {
+    final ByteString encodedAddedIDs = toValue(addedIDs != null ? addedIDs : newDefinedSet());
+    final ByteString encodedDeletedIDs = toValue(deletedIDs != null ? deletedIDs : newDefinedSet());
+    final ByteStringBuilder delta = new ByteStringBuilder(encodedAddedIDs.length() + encodedDeletedIDs.length() + 5);
+    delta.appendCompactUnsigned(encodedAddedIDs.length());
+    delta.appendBytes(encodedAddedIDs);
+    delta.appendBytes(encodedDeletedIDs);
+    txn.put(deltasTreeName, deltaKeyPrefix(key).appendLong(deltaSequence.incrementAndGet()), delta);
+
+    // Statistics are updated when the deltas are merged.
+    if (deltaCount.incrementAndGet() % MAX_DELTAS_PER_KEY == 0)
+    {
+      entryContainer.writeInBackground(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          mergeDeltas(txn, key);
+        }
+      });
+    }
+  }
+
+  private static ByteStringBuilder deltaKeyPrefix(ByteSequence key)
+  {
+    return new ByteStringBuilder(key.length() + 13).appendCompactUnsigned(key.length()).appendBytes(key);
+  }
+
+  private boolean hasDeltas(ByteSequence key)
+  {
+    return !deltaCounts.isEmpty() && deltaCounts.containsKey(key.toByteString());
+  }
+
+  /**
+   * Applies the pending deltas of a key to its set of entry IDs, in the order they were appended.
+   *
+   * @param txn
+   *          a non null transaction
+   * @param key
+   *          the key of the index
+   * @param entryIDSet
+   *          the set of entry IDs stored for the key, which is modified
+   * @param deltaKeys
+   *          if not {@code null}, the keys of the applied deltas are added to this list
+   * @return the up to date set of entry IDs of the key
+   */
+  private EntryIDSet applyDeltas(ReadableTransaction txn, ByteString key, EntryIDSet entryIDSet,
+      List<ByteString> deltaKeys)
+  {
+    EntryIDSet result = entryIDSet;
+    final ByteString prefix = deltaKeyPrefix(key).toByteString();
+    try (Cursor<ByteString, ByteString> cursor = txn.openCursor(deltasTreeName))
+    {
+      boolean found = cursor.positionToKeyOrNext(prefix);
+      while (found && cursor.getKey().startsWith(prefix))
+      {
+        final ByteSequenceReader reader = cursor.getValue().asReader();
+        final EntryIDSet addedIDs = decodeValue(key, reader.readByteString(reader.readCompactUnsignedInt()));
+        final EntryIDSet deletedIDs = decodeValue(key, reader.readByteString(reader.remaining()));
+        result = computeEntryIDSet(key, result, deletedIDs, addedIDs);
+        if (deltaKeys != null)
+        {
+          deltaKeys.add(cursor.getKey());
+        }
+        found = cursor.next();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Merges the pending deltas of a key into the set of entry IDs stored for this key.
+   *
+   * @param txn
+   *          a non null transaction
+   * @param key
+   *          the key of the index
+   * @throws StorageRuntimeException
+   *           If an error occurs in the storage.
+   */
+  void mergeDeltas(final WriteableTransaction txn, final ByteString key) throws StorageRuntimeException
+  {
+    final AtomicInteger deltaCount = deltaCounts.get(key);
+    if (deltaCount == null)
+    {
+      return;
+    }
+
+    final List<ByteString> deltaKeys = new ArrayList<>();
+    final long[] statisticsDelta = new long[2];
+    final boolean[] isDefined = new boolean[1];
+    final boolean[] hasRecord = new boolean[1];
+    txn.update(getName(), key, new UpdateFunction()
+    {
+      @Override
+      public ByteSequence computeNewValue(final ByteSequence oldValue)
+      {
+        deltaKeys.clear();
+        if (oldValue == null && !trusted)
+        {
+          // No entry IDs are added to a missing key of an untrusted index: discard the deltas.
+          setStatisticsDelta(statisticsDelta, 0, 0);
+          applyDeltas(txn, key, newUndefinedSet(), deltaKeys);
+          isDefined[0] = false;
+          hasRecord[0] = false;
+          return null;
+        }
+        final EntryIDSet oldEntryIDSet = oldValue != null ? decodeValue(key, oldValue.toByteString()) : newDefinedSet();
+        final long oldSize = definedSize(oldEntryIDSet);
+        final EntryIDSet entryIDSet = applyDeltas(txn, key, oldEntryIDSet, deltaKeys);
+        setStatisticsDelta(statisticsDelta, oldSize, definedSize(entryIDSet));
+        isDefined[0] = entryIDSet.isDefined();
+        hasRecord[0] = entryIDSet.size() != 0;
+        // The deltas appended to a removed key are read from the deltas tree until the next merge: see openCursor()
+        return entryIDSet.size() == 0 ? null : toValue(entryIDSet);
+      }
+    });
+    for (ByteString deltaKey : deltaKeys)
+    {
+      txn.delete(deltasTreeName, deltaKey);
+    }
+    updateStatistics(txn, statisticsDelta[0], statisticsDelta[1]);
+    deltaCount.set(0);
+    if (!isDefined[0])
+    {
+      // The key has hit all IDs and is no longer updated: the deltas appended concurrently cannot change it either.
+      deltaCounts.remove(key);
+      keysWithoutRecord.remove(key);
+    }
+    else if (hasRecord[0])
+    {
+      keysWithoutRecord.remove(key);
+    }
+    else
+    {
+      keysWithoutRecord.add(key);
+    }
+  }
+
+  private static long definedSize(EntryIDSet entryIDSet)
+  {
+    return entryIDSet.isDefined() ? entryIDSet.size() : 0;
+  }
+
+  /** The update function may be invoked several times: the last invocation gives the delta to apply. */
+  private static void setStatisticsDelta(long[] statisticsDelta, long oldSize, long newSize)
+  {
+    statisticsDelta[0] = Long.signum(newSize) - Long.signum(oldSize);
+    statisticsDelta[1] = newSize - oldSize;
+  }
+
+  private void updateStatistics(WriteableTransaction txn, long keyCountDelta, long entryIDCountDelta)
+  {
+    if (!statisticsAvailable)
+    {
+      return;
+    }
+    if (keyCountDelta != 0)
+    {
+      statistics.addCount(txn, KEY_COUNT_KEY, keyCountDelta);
+    }
+    if (entryIDCountDelta != 0)
+    {
+      statistics.addCount(txn, ENTRY_ID_COUNT_KEY, entryIDCountDelta);
+    }
+
+    final Map<DefaultIndex, long[]> uncommittedStatistics = UNCOMMITTED_STATISTICS.get();
+    if (uncommittedStatistics == null)
+    {
+      // The commit of the transaction is not tracked
+      addToCachedStatistics(keyCountDelta, entryIDCountDelta);
+      return;
+    }
+    long[] uncommittedDelta = uncommittedStatistics.get(this);
+    if (uncommittedDelta == null)
+    {
+      uncommittedDelta = new long[2];
+      uncommittedStatistics.put(this, uncommittedDelta);
+    }
+    uncommittedDelta[0] += keyCountDelta;
+    uncommittedDelta[1] += entryIDCountDelta;
+  }
+
+  private void addToCachedStatistics(long keyCountDelta, long entryIDCountDelta)
+  {
+    keyCount.addAndGet(keyCountDelta);
+    entryIDCount.addAndGet(entryIDCountDelta);
+  }
+
+  /**
+   * Runs a write operation updating indexes. The statistics cached by the updated indexes only account for the updates
+   * once the transaction is committed, so that the attempts retried by the storage and the transactions rolled back are
+   * not counted.
+   *
+   * @param storage
+   *          the storage where to run the write operation
+   * @param writeOperation
+   *          the write operation
+   * @throws Exception
+   *           if a problem occurs while running the write operation
+   */
+  static void write(Storage storage, final WriteOperation writeOperation) throws Exception
+  {
+    final Map<DefaultIndex, long[]> uncommittedStatistics = new HashMap<>();
+    UNCOMMITTED_STATISTICS.set(uncommittedStatistics);
+    try
+    {
+      storage.write(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          // Forget the updates of the previous attempt
+          uncommittedStatistics.clear();
+          writeOperation.run(txn);
+        }
+      });
+    }
+    finally
+    {
+      UNCOMMITTED_STATISTICS.remove();
+    }
+    for (Map.Entry<DefaultIndex, long[]> committedDelta : uncommittedStatistics.entrySet())
+    {
+      committedDelta.getKey().addToCachedStatistics(committedDelta.getValue()[0], committedDelta.getValue()[1]);
+    }
+  }
+
+  /**
+   * Returns the tree persisting the statistics of this index.
+   *
+   * @return the statistics tree
+   */
+  Tree getStatisticsTree()
+  {
+    return statistics;
+  }
+
+  /**
+   * Returns the tree holding the pending deltas of the keys of this index.
+   *
+   * @return the deltas tree
+   */
+  Tree getDeltasTree()
+  {
+    return deltasTree;
+  }
+
+  /**
+   * Writes the statistics of this index computed while importing its content.
+   *
+   * @param importer
+   *          The importer used to populate this index.
+   * @param nbKeys
+   *          The number of keys having a defined {@link EntryIDSet}.
+   * @param nbEntryIDs
+   *          The total number of entry IDs referenced by these keys.
+   */
+  void importStatistics(Importer importer, long nbKeys, long nbEntryIDs)
+  {
+    statistics.importPut(importer, KEY_COUNT_KEY, nbKeys);
+    statistics.importPut(importer, ENTRY_ID_COUNT_KEY, nbEntryIDs);
+    keyCount.set(nbKeys);
+    entryIDCount.set(nbEntryIDs);
+    statisticsAvailable = true;
+  }
+
+  /**
+   * Returns the average number of entry IDs referenced by a key of this index, as maintained by the index statistics.
+   * Keys which exceeded the index entry limit are not taken into account.
+   *
+   * @return The average number of entry IDs per key, or {@code -1} if it is unknown.
+   */
+  long getAverageEntryIDCountPerKey()
+  {
+    final long nbKeys = keyCount.get();
+    if (!statisticsAvailable || !trusted || nbKeys <= 0)
+    {
+      return -1;
+    }
+    return Math.max(1, entryIDCount.get() / nbKeys);
+  }
+
+  /**
+   * Returns the total number of entry IDs referenced by the keys of this index, as maintained by the index statistics.
+   * Keys which exceeded the index entry limit are not taken into account.
+   *
+   * @return The total number of entry IDs, or {@code -1} if it is unknown.
+   */
+  long getEntryIDCount()
+  {
+    if (!statisticsAvailable || !trusted || keyCount.get() <= 0)
+    {
+      return -1;
+    }
+    return entryIDCount.get();
   }
 
   private static boolean isNullOrEmpty(EntryIDSet entryIDSet)
@@ -226,9 +892,9 @@ class DefaultIndex extends AbstractTree implements Index
     return entryIDSet != null && entryIDSet.size() > 0;
   }
 
-  private EntryIDSet computeEntryIDSet(ByteString key, ByteString value, EntryIDSet deletedIDs, EntryIDSet addedIDs)
+  private EntryIDSet computeEntryIDSet(ByteString key, EntryIDSet entryIDSet, EntryIDSet deletedIDs,
+      EntryIDSet addedIDs)
   {
-    EntryIDSet entryIDSet = decodeValue(key, value);
     if (addedIDs != null)
     {
       if (entryIDSet.isDefined() && indexEntryLimit > 0)
@@ -272,6 +938,12 @@ class DefaultIndex extends AbstractTree implements Index
     try
     {
       ByteString value = txn.read(getName(), key);
+      if (hasDeltas(key))
+      {
+        final EntryIDSet entryIDSet =
+            value != null ? decodeValue(key, value) : trusted ? newDefinedSet() : newUndefinedSet();
+        return applyDeltas(txn, key.toByteString(), entryIDSet, null);
+      }
       if (value != null)
       {
         return decodeValue(key, value);
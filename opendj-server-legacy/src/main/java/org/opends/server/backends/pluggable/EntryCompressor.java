@@ -0,0 +1,69 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.forgerock.opendj.ldap.DecodeException;
+
+/**
+ * Block compression algorithm used for compressing the entries stored in the {@link ID2Entry} tree.
+ * <p>
+ * Each compressed entry records the {@link #getId() identifier} of the compressor which produced it, so that
+ * compressors can be added without making the existing entries unreadable. Compressors are primed with a shared
+ * dictionary, possibly empty, whose bytes can be referenced from the compressed data: the exact same dictionary must
+ * be provided for decompressing the data.
+ * <p>
+ * Implementations must be thread safe.
+ */
+interface EntryCompressor
+{
+  /**
+   * Returns the identifier of this compressor, as stored in the compressed entries.
+   *
+   * @return the identifier of this compressor
+   */
+  byte getId();
+
+  /**
+   * Compresses the provided data.
+   *
+   * @param data
+   *          the data to compress
+   * @param dictionary
+   *          the dictionary priming the compressor, possibly empty
+   * @param output
+   *          the buffer where the compressed data will be appended
+   */
+  void compress(ByteSequence data, byte[] dictionary, ByteStringBuilder output);
+
+  /**
+   * Decompresses the provided data.
+   *
+   * @param compressed
+   *          the data to decompress
+   * @param dictionary
+   *          the dictionary which was used for compressing the data
+   * @param uncompressedLength
+   *          the length of the data once decompressed
+   * @param output
+   *          the buffer where the decompressed data will be appended
+   * @throws DecodeException
+   *           if the compressed data are corrupted
+   */
+  void decompress(ByteSequence compressed, byte[] dictionary, int uncompressedLength, ByteStringBuilder output)
+      throws DecodeException;
+}
@@ -32,11 +32,16 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -56,6 +61,7 @@ import org.forgerock.opendj.ldap.ResultCode;
 import org.forgerock.opendj.ldap.SearchScope;
 import org.forgerock.opendj.ldap.SortKey;
 import org.forgerock.opendj.ldap.schema.AttributeType;
+import org.forgerock.opendj.server.config.meta.PluggableBackendCfgDefn.EntriesCompressionAlgorithm;
 import org.forgerock.opendj.server.config.server.BackendIndexCfg;
 import org.forgerock.opendj.server.config.server.BackendVLVIndexCfg;
 import org.forgerock.opendj.server.config.server.PluggableBackendCfg;
@@ -66,6 +72,7 @@ import org.opends.server.api.EntryCache;
 import org.opends.server.api.VirtualAttributeProvider;
 import org.opends.server.api.plugin.PluginResult.SubordinateDelete;
 import org.opends.server.api.plugin.PluginResult.SubordinateModifyDN;
+import org.opends.server.backends.pluggable.AttributeIndex.MatchingRuleIndex;
 import org.opends.server.backends.pluggable.spi.AccessMode;
 import org.opends.server.backends.pluggable.spi.Cursor;
 import org.opends.server.backends.pluggable.spi.ReadOperation;
@@ -124,6 +131,10 @@ public class EntryContainer
   private static final String REFERRAL_TREE_NAME = REFERRAL_INDEX_NAME;
   /** The name of the state tree. */
   private static final String STATE_TREE_NAME = STATE_INDEX_NAME;
+  /** The initial size of the array used for collecting the IDs of the entries in the scope of a search. */
+  private static final int SCOPE_ID_SET_INITIAL_SIZE = 1024;
+  /** The maximum time to wait for the background writes when closing. */
+  private static final long BACKGROUND_WRITER_SHUTDOWN_TIMEOUT_SECONDS = 30;
 
   /** The attribute index configuration manager. */
   private final AttributeIndexCfgManager attributeIndexCfgManager;
@@ -140,6 +151,11 @@ public class EntryContainer
   private final RootContainer rootContainer;
   /** The tree storage. */
   private final Storage storage;
+  /** Commits the add, delete and modify operations, merging the index updates of concurrent operations. */
+  private final GroupCommitWriter groupCommitWriter;
+  /** Runs the maintenance writes, such as merging the index deltas, off the operation threads. */
+  private final ExecutorService backgroundWriter =
+      Executors.newSingleThreadExecutor(newThreadFactory(null, "INDEX-DELTA-MERGER-%d", true));
 
   /** The DN tree maps a normalized DN string to an entry ID (8 bytes). */
   private final DN2ID dn2id;
@@ -354,6 +370,7 @@ public class EntryContainer
     this.baseDN = baseDN;
     this.config = config;
     this.storage = storage;
+    this.groupCommitWriter = new GroupCommitWriter(storage);
     this.rootContainer = rootContainer;
     this.serverContext = serverContext;
     this.treePrefix = baseDN.toNormalizedUrlSafeString();
@@ -388,6 +405,8 @@ public class EntryContainer
   {
     return new DataConfig.Builder()
         .compress(config.isEntriesCompressed())
+        .compressor(newEntryCompressor(config.getEntriesCompressionAlgorithm()))
+        .compressionDictionaries(rootContainer.getCompressionDictionaries())
         .encode(config.isCompactEncoding())
         .encrypt(config.isConfidentialityEnabled())
         .cryptoSuite(serverContext.getCryptoManager().newCryptoSuite(config.getCipherTransformation(),
@@ -396,6 +415,18 @@ public class EntryContainer
         .build();
   }
 
+  /** Returns the compressor to use, or {@code null} for the legacy Deflater based compression. */
+  private static EntryCompressor newEntryCompressor(EntriesCompressionAlgorithm algorithm)
+  {
+    switch (algorithm)
+    {
+    case LZ_BLOCK:
+      return LZBlockCompressor.INSTANCE;
+    default:
+      return null;
+    }
+  }
+
   private TreeName getIndexName(String indexId)
   {
     return new TreeName(treePrefix, indexId);
@@ -472,6 +503,22 @@ public class EntryContainer
   @Override
   public void close() throws StorageRuntimeException
   {
+    // Let the background writes complete before closing the trees they write to. The ones which did not complete in
+    // time are persisted and completed later on, for instance when the index deltas are merged.
+    backgroundWriter.shutdown();
+    try
+    {
+      if (!backgroundWriter.awaitTermination(BACKGROUND_WRITER_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+      {
+        backgroundWriter.shutdownNow();
+      }
+    }
+    catch (InterruptedException e)
+    {
+      logger.traceException(e);
+      backgroundWriter.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
     closeSilently(attrIndexMap.values());
     closeSilently(vlvIndexMap.values());
 
@@ -483,6 +530,40 @@ public class EntryContainer
     config.removeBackendVLVIndexDeleteListener(vlvIndexCfgManager);
   }
 
+  /**
+   * Runs a write operation in the background, for maintenance tasks which do not need to complete before the operation
+   * triggering them. Failures are only traced, as the task will be triggered again.
+   *
+   * @param operation
+   *          the write operation
+   */
+  void writeInBackground(final WriteOperation operation)
+  {
+    try
+    {
+      backgroundWriter.execute(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          try
+          {
+            DefaultIndex.write(storage, operation);
+          }
+          catch (Exception e)
+          {
+            logger.traceException(e);
+          }
+        }
+      });
+    }
+    catch (RejectedExecutionException e)
+    {
+      // The entry container is closing
+      logger.traceException(e);
+    }
+  }
+
   /**
    * Retrieves a reference to the root container in which this entry container
    * exists.
@@ -758,8 +839,9 @@ public class EntryContainer
 
           // Combining server-side sort with paged result controls
           // requires us to use an entryIDSet where the entryIDs are ordered
-          // so further paging can restart where it previously stopped
-          long[] reorderedCandidateEntryIDs;
+          // so further paging can restart where it previously stopped.
+          // Unsorted candidates are streamed from the entryIDSet in entryID order.
+          long[] reorderedCandidateEntryIDs = null;
           if (candidateEntryIDs == null)
           {
             if (processSearchWithVirtualAttributeRule(searchOperation, true))
@@ -773,9 +855,16 @@ public class EntryContainer
 
             // Evaluate the filter against the attribute indexes.
             candidateEntryIDs = indexFilter.evaluate();
-            if (!isBelowFilterThreshold(candidateEntryIDs))
+            if (candidateEntryIDs.isDefined() && searchScope == SearchScope.WHOLE_SUBTREE && aBaseDN.equals(baseDN))
+            {
+              // Every entry of this entry container is in scope
+              candidatesAreInScope = true;
+            }
+            else if (!isBelowFilterThreshold(candidateEntryIDs))
             {
-              final int idSetLimit = getEntryIDSetLimit(searchOperation);
+              // Reading more entries in scope than there are candidates would cost more than checking the scope of
+              // each candidate entry: stop reading the scope beyond the number of candidates
+              final int idSetLimit = (int) Math.min(getEntryIDSetLimit(searchOperation), candidateEntryIDs.size());
               final EntryIDSet scopeSet = getIDSetFromScope(txn, aBaseDN, searchScope, idSetLimit);
               candidateEntryIDs.retainAll(scopeSet);
               if (debugBuffer != null)
@@ -798,11 +887,11 @@ public class EntryContainer
               try
               {
                 List<SortKey> sortKeys = sortRequest.getSortKeys();
-                reorderedCandidateEntryIDs = sort(txn, candidateEntryIDs, searchOperation, sortKeys, vlvRequest);
+                reorderedCandidateEntryIDs =
+                    sort(txn, candidateEntryIDs, searchOperation, sortKeys, vlvRequest, pageRequest);
               }
               catch (DirectoryException de)
               {
-                reorderedCandidateEntryIDs = candidateEntryIDs.toLongArray();
                 serverSideSortControlError(searchOperation, sortRequest, de);
               }
               try
@@ -828,13 +917,10 @@ public class EntryContainer
                 serverSideSortControlError(searchOperation, sortRequest, de);
               }
             }
-            else
-            {
-              reorderedCandidateEntryIDs = candidateEntryIDs.toLongArray();
-            }
           }
           else
           {
+            // VLV indexes return the candidates in sort order
             reorderedCandidateEntryIDs = candidateEntryIDs.toLongArray();
           }
 
@@ -855,6 +941,11 @@ public class EntryContainer
             rootContainer.getMonitorProvider().incrementIndexedSearchCount();
             searchIndexed(txn, reorderedCandidateEntryIDs, candidatesAreInScope, searchOperation, pageRequest);
           }
+          else if (candidateEntryIDs.isDefined())
+          {
+            rootContainer.getMonitorProvider().incrementIndexedSearchCount();
+            searchIndexed(txn, candidateEntryIDs, candidatesAreInScope, searchOperation, pageRequest);
+          }
           else
           {
             rootContainer.getMonitorProvider().incrementUnindexedSearchCount();
@@ -873,9 +964,45 @@ public class EntryContainer
                   ResultCode.INSUFFICIENT_ACCESS_RIGHTS, ERR_SEARCH_UNINDEXED_INSUFFICIENT_PRIVILEGES.get());
             }
 
+            if (sortRequest != null && sortRequest.containsSortKeys() && vlvRequest == null)
+            {
+              // Sort the entries in scope if an ordering index can be walked or if only the first ones are needed.
+              // The entries in scope are not even read when neither is possible.
+              final EntryIDSorter sorter = new EntryIDSorter(
+                  this, txn, searchOperation, sortRequest.getSortKeys(), isManageDsaITOperation(searchOperation));
+              final int limit = getSortLimit(searchOperation, pageRequest);
+              if (sorter.mayBeBounded(limit))
+              {
+                final int lookThroughLimit = searchOperation.getClientConnection().getLookthroughLimit();
+                final EntryIDSet scopeSet = getIDSetFromScope(
+                    txn, aBaseDN, searchScope, lookThroughLimit > 0 ? lookThroughLimit : Integer.MAX_VALUE);
+                if (scopeSet.isDefined() && sorter.isBounded(scopeSet.size(), limit))
+                {
+                  long[] sortedEntryIDs;
+                  try
+                  {
+                    sortedEntryIDs = sorter.sort(scopeSet, limit, getBeginEntryID(pageRequest));
+                    if (sortedEntryIDs != null)
+                    {
+                      addServerSideSortControl(searchOperation, SUCCESS);
+                    }
+                  }
+                  catch (DirectoryException de)
+                  {
+                    sortedEntryIDs = scopeSet.toLongArray();
+                    serverSideSortControlError(searchOperation, sortRequest, de);
+                  }
+                  if (sortedEntryIDs != null)
+                  {
+                    searchIndexed(txn, sortedEntryIDs, true, searchOperation, pageRequest);
+                    return null;
+                  }
+                }
+              }
+            }
+
             if (sortRequest != null)
             {
-              // FIXME OPENDJ-2628: Add support for sorting unindexed searches using indexes like DSEE currently does
               addServerSideSortControl(searchOperation, UNWILLING_TO_PERFORM);
               if (sortRequest.isCritical())
               {
@@ -979,7 +1106,8 @@ public class EntryContainer
   private static EntryIDSet newIDSetFromCursor(SequentialCursor<?, EntryID> cursor, boolean includeCurrent,
       int idSetLimit)
   {
-    long entryIDs[] = new long[idSetLimit];
+    // The limit may be much bigger than the number of entries in scope: grow the array on demand
+    long entryIDs[] = new long[Math.min(idSetLimit, SCOPE_ID_SET_INITIAL_SIZE)];
     int offset = 0;
     if (includeCurrent)
     {
@@ -988,6 +1116,10 @@ public class EntryContainer
 
     while(offset < idSetLimit && cursor.next())
     {
+      if (offset == entryIDs.length)
+      {
+        entryIDs = Arrays.copyOf(entryIDs, (int) Math.min(idSetLimit, 2L * entryIDs.length));
+      }
       entryIDs[offset++] = cursor.getValue().longValue();
     }
 
@@ -1231,7 +1363,7 @@ public class EntryContainer
    * @throws DirectoryException
    *           If an error occurs retrieving the entry
    */
-  private Entry getEntry(ReadableTransaction txn, EntryID entryID) throws DirectoryException
+  Entry getEntry(ReadableTransaction txn, EntryID entryID) throws DirectoryException
   {
     // Try the entry cache first.
     final EntryCache<?> entryCache = getEntryCache();
@@ -1251,6 +1383,20 @@ public class EntryContainer
     return entry;
   }
 
+  /**
+   * Returns a reader of candidate entries, which reads them from the entry cache or in batches from id2entry.
+   *
+   * @param txn
+   *          a non null transaction
+   * @param candidates
+   *          the IDs of the candidate entries, in the order they are examined
+   * @return a reader of the candidate entries
+   */
+  CandidateEntryReader newCandidateEntryReader(ReadableTransaction txn, Iterator<EntryID> candidates)
+  {
+    return new CandidateEntryReader(id2entry, backendID, txn, candidates);
+  }
+
   /**
    * We were able to obtain a set of candidate entry IDs for the search from the indexes.
    * <p>
@@ -1274,23 +1420,83 @@ public class EntryContainer
    * @throws DirectoryException
    *           If an error prevented the search from being processed.
    */
-  private void searchIndexed(ReadableTransaction txn, long[] entryIDReorderedSet, boolean candidatesAreInScope,
+  private void searchIndexed(ReadableTransaction txn, final long[] entryIDReorderedSet, boolean candidatesAreInScope,
       SearchOperation searchOperation, PagedResultsControl pageRequest) throws DirectoryException,
       CanceledOperationException
   {
-    SearchScope searchScope = searchOperation.getScope();
-    DN aBaseDN = searchOperation.getBaseDN();
-    boolean manageDsaIT = isManageDsaITOperation(searchOperation);
-    boolean continueSearch = true;
+    final int startIndex = findStartIndex(decodeBeginEntryID(pageRequest), entryIDReorderedSet);
+    final Iterator<EntryID> candidates = new Iterator<EntryID>()
+    {
+      private int index = startIndex;
 
-    // Set the starting value.
-    Long beginEntryID = null;
+      @Override
+      public boolean hasNext()
+      {
+        return index < entryIDReorderedSet.length;
+      }
+
+      @Override
+      public EntryID next()
+      {
+        if (!hasNext())
+        {
+          throw new NoSuchElementException();
+        }
+        return new EntryID(entryIDReorderedSet[index++]);
+      }
+
+      @Override
+      public void remove()
+      {
+        throw new UnsupportedOperationException();
+      }
+    };
+    searchIndexed(txn, candidates, entryIDReorderedSet.length, candidatesAreInScope, searchOperation, pageRequest);
+  }
+
+  /**
+   * Same as {@link #searchIndexed(ReadableTransaction, long[], boolean, SearchOperation, PagedResultsControl)} for
+   * candidate entry IDs returned in entry ID order. The candidates are streamed from the provided set, and the paged
+   * results cookie is looked up in the set instead of scanning all the candidates.
+   *
+   * @param candidateEntryIDs
+   *          The candidate entry IDs, must be defined.
+   * @param candidatesAreInScope
+   *          true if it is certain that every candidate entry is in the search scope.
+   * @param searchOperation
+   *          The search operation.
+   * @param pageRequest
+   *          A Paged Results control, or null if none.
+   * @throws DirectoryException
+   *           If an error prevented the search from being processed.
+   */
+  private void searchIndexed(ReadableTransaction txn, EntryIDSet candidateEntryIDs, boolean candidatesAreInScope,
+      SearchOperation searchOperation, PagedResultsControl pageRequest) throws DirectoryException,
+      CanceledOperationException
+  {
+    final EntryID beginEntryID = decodeBeginEntryID(pageRequest);
+    final Iterator<EntryID> candidates =
+        beginEntryID != null ? candidateEntryIDs.iterator(beginEntryID) : candidateEntryIDs.iterator();
+    searchIndexed(txn, candidates, candidateEntryIDs.size(), candidatesAreInScope, searchOperation, pageRequest);
+  }
+
+  /**
+   * Decodes the paged results cookie of an indexed search.
+   *
+   * @param pageRequest
+   *          A Paged Results control, or null if none.
+   * @return The ID of the next entry to be returned, or {@code null} if the search starts from the first entry.
+   * @throws DirectoryException
+   *           If the cookie is invalid.
+   */
+  private static EntryID decodeBeginEntryID(PagedResultsControl pageRequest) throws DirectoryException
+  {
     if (pageRequest != null && pageRequest.getCookie().length() != 0)
     {
       // The cookie contains the ID of the next entry to be returned.
       try
       {
-        beginEntryID = pageRequest.getCookie().toLong();
+        return new EntryID(pageRequest.getCookie().toLong());
       }
       catch (Exception e)
       {
@@ -1299,7 +1505,19 @@ public class EntryContainer
             ERR_INVALID_PAGED_RESULTS_COOKIE.get(pageRequest.getCookie().toHexString()), e);
       }
     }
-    else if (!manageDsaIT)
+    return null;
+  }
+
+  private void searchIndexed(ReadableTransaction txn, Iterator<EntryID> candidates, long nbCandidates,
+      boolean candidatesAreInScope, SearchOperation searchOperation, PagedResultsControl pageRequest)
+      throws DirectoryException, CanceledOperationException
+  {
+    SearchScope searchScope = searchOperation.getScope();
+    DN aBaseDN = searchOperation.getBaseDN();
+    boolean manageDsaIT = isManageDsaITOperation(searchOperation);
+    boolean continueSearch = true;
+
+    if ((pageRequest == null || pageRequest.getCookie().length() == 0) && !manageDsaIT)
     {
       continueSearch = dn2uri.returnSearchReferences(txn, searchOperation);
     }
@@ -1307,7 +1525,7 @@ public class EntryContainer
     // Make sure the candidate list is smaller than the lookthrough limit
     int lookthroughLimit =
       searchOperation.getClientConnection().getLookthroughLimit();
-    if (lookthroughLimit > 0 && entryIDReorderedSet.length > lookthroughLimit)
+    if (lookthroughLimit > 0 && nbCandidates > lookthroughLimit)
     {
       //Lookthrough limit exceeded
       searchOperation.setResultCode(ResultCode.ADMIN_LIMIT_EXCEEDED);
@@ -1319,13 +1537,14 @@ public class EntryContainer
     if (continueSearch)
     {
       final SearchFilter filter = searchOperation.getFilter();
-      for (int i = findStartIndex(beginEntryID, entryIDReorderedSet); i < entryIDReorderedSet.length; i++)
+      final CandidateEntryReader reader = newCandidateEntryReader(txn, candidates);
+      while (reader.next())
       {
-        EntryID entryID = new EntryID(entryIDReorderedSet[i]);
+        EntryID entryID = reader.getEntryID();
         Entry entry;
         try
         {
-          entry = getEntry(txn, entryID);
+          entry = reader.getEntry();
         }
         catch (Exception e)
         {
@@ -1374,7 +1593,7 @@ public class EntryContainer
     addPagedResultsControl(searchOperation, pageRequest, null);
   }
 
-  private int findStartIndex(Long beginEntryID, long[] entryIDReorderedSet)
+  private int findStartIndex(EntryID beginEntryID, long[] entryIDReorderedSet)
   {
     if (beginEntryID == null)
     {
@@ -1453,7 +1672,7 @@ public class EntryContainer
 
     try
     {
-      storage.write(new WriteOperation()
+      groupCommitWriter.write(new WriteOperation()
       {
         @Override
         public void run(WriteableTransaction txn) throws Exception
@@ -1490,7 +1709,6 @@ public class EntryContainer
             id2entry.put(txn, entryID, encodedEntry);
             dn2uri.addEntry(txn, entry);
             id2childrenCount.updateTotalCount(txn, 1);
-            indexBuffer.flush(txn);
             // One last check before committing
             addOperation.checkIfCanceled(true);
           }
@@ -1509,7 +1727,7 @@ public class EntryContainer
                 DirectoryServer.getCoreConfigManager().getServerErrorResultCode(), ERR_UNCHECKED_EXCEPTION.get(msg), e);
           }
         }
-      });
+      }, indexBuffer, true);
     }
     catch (Exception e)
     {
@@ -1577,9 +1795,12 @@ public class EntryContainer
           throws DirectoryException, StorageRuntimeException, CanceledOperationException
   {
     final IndexBuffer indexBuffer = new IndexBuffer();
+    // Delete the subordinate entries in dn2id if requested.
+    final boolean isSubtreeDelete = deleteOperation.getRequestControl(SubtreeDeleteControl.DECODER) != null;
     try
     {
-      storage.write(new WriteOperation()
+      // Subtree deletes are committed alone so that they do not delay the concurrent write operations.
+      groupCommitWriter.write(new WriteOperation()
       {
         @Override
         public void run(WriteableTransaction txn) throws Exception
@@ -1606,9 +1827,6 @@ public class EntryContainer
               }
             }
 
-            // Delete the subordinate entries in dn2id if requested.
-            final boolean isSubtreeDelete = deleteOperation.getRequestControl(SubtreeDeleteControl.DECODER) != null;
-
             /* draft-armijo-ldap-treedelete, 4.1 Tree Delete Semantics: The server MUST NOT chase referrals stored in
              * the tree. If information about referrals is stored in this section of the tree, this pointer will be
              * deleted.
@@ -1685,7 +1903,6 @@ public class EntryContainer
               }
             }
             id2childrenCount.updateTotalCount(txn, -entriesToBeDeleted.size());
-            indexBuffer.flush(txn);
             deleteOperation.checkIfCanceled(true);
             if (isSubtreeDelete)
             {
@@ -1722,7 +1939,7 @@ public class EntryContainer
             }
           }
         }
-      });
+      }, indexBuffer, !isSubtreeDelete);
     }
     catch (Exception e)
     {
@@ -1862,7 +2079,7 @@ public class EntryContainer
     final ByteString encodedNewEntry = id2entry.encode(newEntry);
     try
     {
-      storage.write(new WriteOperation()
+      groupCommitWriter.write(new WriteOperation()
       {
         @Override
         public void run(WriteableTransaction txn) throws Exception
@@ -1892,8 +2109,6 @@ public class EntryContainer
             dn2uri.modifyEntry(txn, oldEntry, newEntry, modifyOperation.getModifications());
             indexModifications(indexBuffer, oldEntry, newEntry, entryID, modifyOperation.getModifications());
 
-            indexBuffer.flush(txn);
-
             // One last check before committing
             modifyOperation.checkIfCanceled(true);
 
@@ -1919,7 +2134,7 @@ public class EntryContainer
                 DirectoryServer.getCoreConfigManager().getServerErrorResultCode(), ERR_UNCHECKED_EXCEPTION.get(msg), e);
           }
         }
-      });
+      }, indexBuffer, true);
     }
     catch (Exception e)
     {
@@ -1954,7 +2169,7 @@ public class EntryContainer
     final IndexBuffer indexBuffer = new IndexBuffer();
     try
     {
-      storage.write(new WriteOperation()
+      DefaultIndex.write(storage, new WriteOperation()
       {
         @Override
         public void run(WriteableTransaction txn) throws Exception
@@ -2304,7 +2519,7 @@ public class EntryContainer
    */
   void delete(WriteableTransaction txn) throws StorageRuntimeException
   {
-    for (Tree tree : listTrees())
+    for (Tree tree : listTrees(false))
     {
       tree.delete(txn);
     }
@@ -2456,7 +2671,7 @@ public class EntryContainer
         @Override
         public void run(WriteableTransaction txn) throws Exception
         {
-          for (Tree tree : listTrees())
+          for (Tree tree : listTrees(false))
           {
             tree.delete(txn);
           }
@@ -2470,6 +2685,18 @@ public class EntryContainer
   }
 
   List<Tree> listTrees()
+  {
+    return listTrees(true);
+  }
+
+  /**
+   * Lists the trees of this entry container.
+   *
+   * @param includeIndexSubTrees
+   *          whether to list the statistics and deltas trees of the indexes, which are deleted along with their index
+   * @return the trees of this entry container
+   */
+  private List<Tree> listTrees(boolean includeIndexSubTrees)
   {
     final List<Tree> allTrees = new ArrayList<>();
     allTrees.add(dn2id);
@@ -2478,9 +2705,17 @@ public class EntryContainer
     allTrees.add(id2childrenCount);
     allTrees.add(state);
 
-    for (AttributeIndex index : attrIndexMap.values())
+    for (AttributeIndex attributeIndex : attrIndexMap.values())
     {
-      allTrees.addAll(index.getNameToIndexes().values());
+      for (MatchingRuleIndex index : attributeIndex.getNameToIndexes().values())
+      {
+        allTrees.add(index);
+        if (includeIndexSubTrees)
+        {
+          allTrees.add(index.getStatisticsTree());
+          allTrees.add(index.getDeltasTree());
+        }
+      }
     }
 
     allTrees.addAll(vlvIndexMap.values());
@@ -2537,23 +2772,38 @@ public class EntryContainer
   }
 
   private long[] sort(ReadableTransaction txn, EntryIDSet entryIDSet, SearchOperation searchOperation,
-      List<SortKey> sortKeys, VLVRequestControl vlvRequest) throws DirectoryException
+      List<SortKey> sortKeys, VLVRequestControl vlvRequest, PagedResultsControl pageRequest) throws DirectoryException
   {
     if (!entryIDSet.isDefined())
     {
       return null;
     }
 
+    if (vlvRequest == null && !exceedsLookThroughLimit(searchOperation, entryIDSet.size()))
+    {
+      // Avoid decoding all the candidate entries when possible
+      final EntryID beginEntryID = getBeginEntryID(pageRequest);
+      final int limit = getSortLimit(searchOperation, pageRequest);
+      final long[] sortedIDs = new EntryIDSorter(this, txn, searchOperation, sortKeys,
+          isManageDsaITOperation(searchOperation)).sort(entryIDSet, limit, beginEntryID);
+      if (sortedIDs != null)
+      {
+        return sortedIDs;
+      }
+    }
+
     final DN baseDN = searchOperation.getBaseDN();
     final SearchScope scope = searchOperation.getScope();
     final SearchFilter filter = searchOperation.getFilter();
 
     final TreeMap<ByteString, EntryID> sortMap = new TreeMap<>();
-    for (EntryID id : entryIDSet)
+    final CandidateEntryReader reader = newCandidateEntryReader(txn, entryIDSet.iterator());
+    while (reader.next())
     {
+      final EntryID id = reader.getEntryID();
       try
       {
-        Entry e = getEntry(txn, id);
+        Entry e = reader.getEntry();
         if (e.matchesBaseAndScope(baseDN, scope) && filter.matchesEntry(e))
         {
           sortMap.put(encodeVLVKey(sortKeys, e, id.longValue()), id);
@@ -2580,6 +2830,49 @@ public class EntryContainer
     return sortByGreaterThanOrEqualAssertion(searchOperation, vlvRequest, sortKeys, sortMap);
   }
 
+  /** Returns the ID of the first entry to return in the current page, or {@code null} to start with the first one. */
+  private static EntryID getBeginEntryID(PagedResultsControl pageRequest)
+  {
+    try
+    {
+      return decodeBeginEntryID(pageRequest);
+    }
+    catch (DirectoryException e)
+    {
+      // The invalid cookie will be reported when returning the entries
+      return null;
+    }
+  }
+
+  /** The whole list of matching entries is needed for checking the lookthrough limit when it may be exceeded. */
+  private static boolean exceedsLookThroughLimit(SearchOperation searchOperation, long nbCandidates)
+  {
+    final int lookThroughLimit = searchOperation.getClientConnection().getLookthroughLimit();
+    return lookThroughLimit > 0 && nbCandidates > lookThroughLimit;
+  }
+
+  /**
+   * Returns the number of sorted entries needed to process the search, or {@code 0} if all the candidate entries
+   * must be sorted. One additional entry is needed for setting the paged results cookie or for detecting that the size
+   * limit has been exceeded.
+   */
+  private static int getSortLimit(SearchOperation searchOperation, PagedResultsControl pageRequest)
+  {
+    if (pageRequest != null)
+    {
+      if (pageRequest.getCookie().length() != 0 && getBeginEntryID(pageRequest) == null)
+      {
+        return 0;
+      }
+      return pageRequest.getSize() + 1;
+    }
+    else if (searchOperation.getSizeLimit() > 0)
+    {
+      return searchOperation.getSizeLimit() + 1;
+    }
+    return 0;
+  }
+
   private static final long[] toArray(Collection<EntryID> entryIDs)
   {
     final long[] array = new long[entryIDs.size()];
@@ -0,0 +1,1002 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.forgerock.util.Reject.*;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.forgerock.opendj.ldap.ByteSequenceReader;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+
+/**
+ * Compressed bitmap of entry IDs, organized like a Roaring bitmap.
+ * <p>
+ * Entry IDs are partitioned into chunks sharing the same upper 48 bits. Each chunk stores the lower 16 bits of its IDs
+ * either as a sorted array when the chunk is sparse, or as a 65536 bits bitmap when the chunk is dense. Unions,
+ * intersections and differences are performed chunk by chunk without ever expanding the IDs into a {@code long[]}.
+ * <p>
+ * This class is not thread safe and instances must not be shared between {@link EntryIDSet}s since they are updated in
+ * place.
+ */
+final class EntryIDBitmap
+{
+  /** Maximum number of values held by an array chunk before it is converted to a bitmap chunk. */
+  private static final int ARRAY_MAX_SIZE = 4096;
+  /** Number of 64 bits words in a bitmap chunk. */
+  private static final int BITMAP_WORDS = 1024;
+  /** Encoded size of a bitmap chunk. */
+  private static final int BITMAP_ENCODED_SIZE = BITMAP_WORDS * 8;
+
+  private static final byte ARRAY_CHUNK = 0x00;
+  private static final byte BITMAP_CHUNK = 0x01;
+  private static final byte RUN_CHUNK = 0x02;
+
+  private static final long[] NO_KEYS = new long[0];
+  private static final Chunk[] NO_CHUNKS = new Chunk[0];
+
+  /** Base class for the lower 16 bits container of a chunk. */
+  private abstract static class Chunk
+  {
+    /** Number of values held by this chunk, never zero. */
+    int cardinality;
+
+    abstract boolean contains(int low);
+
+    /** Returns this chunk or a new chunk replacing this one if its representation had to be changed. */
+    abstract Chunk add(int low);
+
+    /** Returns this chunk, a new chunk replacing this one or {@code null} if the chunk became empty. */
+    abstract Chunk remove(int low);
+
+    abstract int first();
+
+    abstract int last();
+
+    abstract Chunk copy();
+
+    /** Copies the lower 16 bits of the values held by this chunk in ascending order. */
+    abstract char[] toLows();
+  }
+
+  /** Sparse chunk storing the values in a sorted array. */
+  private static final class ArrayChunk extends Chunk
+  {
+    private char[] values;
+
+    ArrayChunk(char[] values, int cardinality)
+    {
+      this.values = values;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    boolean contains(int low)
+    {
+      return Arrays.binarySearch(values, 0, cardinality, (char) low) >= 0;
+    }
+
+    @Override
+    Chunk add(int low)
+    {
+      int pos = Arrays.binarySearch(values, 0, cardinality, (char) low);
+      if (pos >= 0)
+      {
+        return this;
+      }
+      if (cardinality == ARRAY_MAX_SIZE)
+      {
+        return toBitmapChunk().add(low);
+      }
+      pos = -(pos + 1);
+      if (cardinality == values.length)
+      {
+        values = Arrays.copyOf(values, Math.max(4, Math.min(cardinality * 2, ARRAY_MAX_SIZE)));
+      }
+      System.arraycopy(values, pos, values, pos + 1, cardinality - pos);
+      values[pos] = (char) low;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    Chunk remove(int low)
+    {
+      final int pos = Arrays.binarySearch(values, 0, cardinality, (char) low);
+      if (pos < 0)
+      {
+        return this;
+      }
+      System.arraycopy(values, pos + 1, values, pos, cardinality - pos - 1);
+      cardinality--;
+      return cardinality != 0 ? this : null;
+    }
+
+    @Override
+    int first()
+    {
+      return values[0];
+    }
+
+    @Override
+    int last()
+    {
+      return values[cardinality - 1];
+    }
+
+    @Override
+    Chunk copy()
+    {
+      return new ArrayChunk(Arrays.copyOf(values, cardinality), cardinality);
+    }
+
+    @Override
+    char[] toLows()
+    {
+      return Arrays.copyOf(values, cardinality);
+    }
+
+    private BitmapChunk toBitmapChunk()
+    {
+      final long[] words = new long[BITMAP_WORDS];
+      for (int i = 0; i < cardinality; i++)
+      {
+        words[values[i] >>> 6] |= 1L << values[i];
+      }
+      return new BitmapChunk(words, cardinality);
+    }
+  }
+
+  /** Dense chunk storing the values as a bitmap. */
+  private static final class BitmapChunk extends Chunk
+  {
+    private final long[] words;
+
+    BitmapChunk(long[] words, int cardinality)
+    {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    boolean contains(int low)
+    {
+      return (words[low >>> 6] & (1L << low)) != 0;
+    }
+
+    @Override
+    Chunk add(int low)
+    {
+      final long word = words[low >>> 6];
+      final long newWord = word | (1L << low);
+      if (newWord != word)
+      {
+        words[low >>> 6] = newWord;
+        cardinality++;
+      }
+      return this;
+    }
+
+    @Override
+    Chunk remove(int low)
+    {
+      final long word = words[low >>> 6];
+      final long newWord = word & ~(1L << low);
+      if (newWord == word)
+      {
+        return this;
+      }
+      words[low >>> 6] = newWord;
+      cardinality--;
+      return cardinality > ARRAY_MAX_SIZE ? this : new ArrayChunk(toLows(), cardinality);
+    }
+
+    @Override
+    int first()
+    {
+      return nextSetBit(0);
+    }
+
+    @Override
+    int last()
+    {
+      for (int i = BITMAP_WORDS - 1; i >= 0; i--)
+      {
+        if (words[i] != 0)
+        {
+          return i * 64 + 63 - Long.numberOfLeadingZeros(words[i]);
+        }
+      }
+      throw new NoSuchElementException();
+    }
+
+    @Override
+    Chunk copy()
+    {
+      return new BitmapChunk(words.clone(), cardinality);
+    }
+
+    @Override
+    char[] toLows()
+    {
+      final char[] lows = new char[cardinality];
+      int pos = 0;
+      for (int i = 0; i < BITMAP_WORDS; i++)
+      {
+        long word = words[i];
+        while (word != 0)
+        {
+          lows[pos++] = (char) (i * 64 + Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+      return lows;
+    }
+
+    /** Returns the first value greater or equal than {@code from}, or -1 if there is none. */
+    int nextSetBit(int from)
+    {
+      int i = from >>> 6;
+      if (i >= BITMAP_WORDS)
+      {
+        return -1;
+      }
+      long word = words[i] & (-1L << from);
+      while (true)
+      {
+        if (word != 0)
+        {
+          return i * 64 + Long.numberOfTrailingZeros(word);
+        }
+        if (++i == BITMAP_WORDS)
+        {
+          return -1;
+        }
+        word = words[i];
+      }
+    }
+  }
+
+  /** Upper 48 bits of the IDs held by each chunk, in ascending order. */
+  private long[] keys;
+  private Chunk[] chunks;
+  private int nbChunks;
+
+  /** Creates a new empty bitmap. */
+  EntryIDBitmap()
+  {
+    this(NO_KEYS, NO_CHUNKS, 0);
+  }
+
+  private EntryIDBitmap(long[] keys, Chunk[] chunks, int nbChunks)
+  {
+    this.keys = keys;
+    this.chunks = chunks;
+    this.nbChunks = nbChunks;
+  }
+
+  /**
+   * Creates a new bitmap holding the provided entry IDs.
+   *
+   * @param sortedIDs
+   *          The entry IDs, sorted in ascending order without duplicates.
+   * @return A new bitmap holding the provided entry IDs.
+   */
+  static EntryIDBitmap valueOf(long[] sortedIDs)
+  {
+    checkNotNull(sortedIDs, "sortedIDs must not be null");
+    final EntryIDBitmap bitmap = new EntryIDBitmap();
+    int start = 0;
+    while (start < sortedIDs.length)
+    {
+      final long key = highBits(sortedIDs[start]);
+      int end = start + 1;
+      while (end < sortedIDs.length && highBits(sortedIDs[end]) == key)
+      {
+        end++;
+      }
+      final char[] lows = new char[end - start];
+      for (int i = start; i < end; i++)
+      {
+        lows[i - start] = (char) sortedIDs[i];
+      }
+      bitmap.appendChunk(key, newChunk(lows, lows.length));
+      start = end;
+    }
+    return bitmap;
+  }
+
+  private static long highBits(long id)
+  {
+    return id >>> 16;
+  }
+
+  private static int lowBits(long id)
+  {
+    return (int) id & 0xFFFF;
+  }
+
+  private static Chunk newChunk(char[] sortedLows, int cardinality)
+  {
+    if (cardinality <= ARRAY_MAX_SIZE)
+    {
+      return new ArrayChunk(sortedLows, cardinality);
+    }
+    final long[] words = new long[BITMAP_WORDS];
+    for (int i = 0; i < cardinality; i++)
+    {
+      words[sortedLows[i] >>> 6] |= 1L << sortedLows[i];
+    }
+    return new BitmapChunk(words, cardinality);
+  }
+
+  private static Chunk newChunk(long[] words)
+  {
+    int cardinality = 0;
+    for (long word : words)
+    {
+      cardinality += Long.bitCount(word);
+    }
+    if (cardinality == 0)
+    {
+      return null;
+    }
+    final BitmapChunk chunk = new BitmapChunk(words, cardinality);
+    return cardinality > ARRAY_MAX_SIZE ? chunk : new ArrayChunk(chunk.toLows(), cardinality);
+  }
+
+  private static long[] copyWords(Chunk chunk)
+  {
+    if (chunk instanceof BitmapChunk)
+    {
+      return ((BitmapChunk) chunk).words.clone();
+    }
+    return ((ArrayChunk) chunk).toBitmapChunk().words;
+  }
+
+  private static Chunk or(Chunk a, Chunk b)
+  {
+    if (a instanceof ArrayChunk && b instanceof ArrayChunk && a.cardinality + b.cardinality <= ARRAY_MAX_SIZE)
+    {
+      final char[] va = ((ArrayChunk) a).values;
+      final char[] vb = ((ArrayChunk) b).values;
+      final char[] merged = new char[a.cardinality + b.cardinality];
+      int i = 0, j = 0, n = 0;
+      while (i < a.cardinality && j < b.cardinality)
+      {
+        if (va[i] < vb[j])
+        {
+          merged[n++] = va[i++];
+        }
+        else if (vb[j] < va[i])
+        {
+          merged[n++] = vb[j++];
+        }
+        else
+        {
+          merged[n++] = va[i++];
+          j++;
+        }
+      }
+      while (i < a.cardinality)
+      {
+        merged[n++] = va[i++];
+      }
+      while (j < b.cardinality)
+      {
+        merged[n++] = vb[j++];
+      }
+      return new ArrayChunk(merged, n);
+    }
+
+    final long[] words = copyWords(a);
+    if (b instanceof BitmapChunk)
+    {
+      final long[] other = ((BitmapChunk) b).words;
+      for (int i = 0; i < BITMAP_WORDS; i++)
+      {
+        words[i] |= other[i];
+      }
+    }
+    else
+    {
+      final ArrayChunk array = (ArrayChunk) b;
+      for (int i = 0; i < array.cardinality; i++)
+      {
+        words[array.values[i] >>> 6] |= 1L << array.values[i];
+      }
+    }
+    return newChunk(words);
+  }
+
+  private static Chunk and(Chunk a, Chunk b)
+  {
+    if (a instanceof ArrayChunk)
+    {
+      return filter((ArrayChunk) a, b, true);
+    }
+    else if (b instanceof ArrayChunk)
+    {
+      return filter((ArrayChunk) b, a, true);
+    }
+    final long[] wa = ((BitmapChunk) a).words;
+    final long[] wb = ((BitmapChunk) b).words;
+    final long[] words = new long[BITMAP_WORDS];
+    for (int i = 0; i < BITMAP_WORDS; i++)
+    {
+      words[i] = wa[i] & wb[i];
+    }
+    return newChunk(words);
+  }
+
+  private static Chunk andNot(Chunk a, Chunk b)
+  {
+    if (a instanceof ArrayChunk)
+    {
+      return filter((ArrayChunk) a, b, false);
+    }
+    final long[] words = copyWords(a);
+    if (b instanceof BitmapChunk)
+    {
+      final long[] other = ((BitmapChunk) b).words;
+      for (int i = 0; i < BITMAP_WORDS; i++)
+      {
+        words[i] &= ~other[i];
+      }
+    }
+    else
+    {
+      final ArrayChunk array = (ArrayChunk) b;
+      for (int i = 0; i < array.cardinality; i++)
+      {
+        words[array.values[i] >>> 6] &= ~(1L << array.values[i]);
+      }
+    }
+    return newChunk(words);
+  }
+
+  /** Keeps the values of {@code a} which are (or are not, depending on {@code retain}) contained in {@code b}. */
+  private static Chunk filter(ArrayChunk a, Chunk b, boolean retain)
+  {
+    final char[] filtered = new char[a.cardinality];
+    int n = 0;
+    for (int i = 0; i < a.cardinality; i++)
+    {
+      if (b.contains(a.values[i]) == retain)
+      {
+        filtered[n++] = a.values[i];
+      }
+    }
+    return n != 0 ? new ArrayChunk(filtered, n) : null;
+  }
+
+  private void appendChunk(long key, Chunk chunk)
+  {
+    if (nbChunks == keys.length)
+    {
+      final int newLength = Math.max(4, nbChunks * 2);
+      keys = Arrays.copyOf(keys, newLength);
+      chunks = Arrays.copyOf(chunks, newLength);
+    }
+    keys[nbChunks] = key;
+    chunks[nbChunks] = chunk;
+    nbChunks++;
+  }
+
+  private void insertChunk(int pos, long key, Chunk chunk)
+  {
+    appendChunk(key, chunk);
+    System.arraycopy(keys, pos, keys, pos + 1, nbChunks - pos - 1);
+    System.arraycopy(chunks, pos, chunks, pos + 1, nbChunks - pos - 1);
+    keys[pos] = key;
+    chunks[pos] = chunk;
+  }
+
+  private void removeChunk(int pos)
+  {
+    System.arraycopy(keys, pos + 1, keys, pos, nbChunks - pos - 1);
+    System.arraycopy(chunks, pos + 1, chunks, pos, nbChunks - pos - 1);
+    nbChunks--;
+    chunks[nbChunks] = null;
+  }
+
+  private int indexOf(long key)
+  {
+    return Arrays.binarySearch(keys, 0, nbChunks, key);
+  }
+
+  /**
+   * Returns the number of entry IDs held by this bitmap.
+   *
+   * @return The number of entry IDs held by this bitmap.
+   */
+  long cardinality()
+  {
+    long cardinality = 0;
+    for (int i = 0; i < nbChunks; i++)
+    {
+      cardinality += chunks[i].cardinality;
+    }
+    return cardinality;
+  }
+
+  boolean isEmpty()
+  {
+    return nbChunks == 0;
+  }
+
+  /**
+   * Returns the smallest entry ID held by this bitmap.
+   *
+   * @return The smallest entry ID held by this bitmap.
+   * @throws NoSuchElementException
+   *           if this bitmap is empty
+   */
+  long first()
+  {
+    if (nbChunks == 0)
+    {
+      throw new NoSuchElementException();
+    }
+    return keys[0] << 16 | chunks[0].first();
+  }
+
+  /**
+   * Returns the greatest entry ID held by this bitmap.
+   *
+   * @return The greatest entry ID held by this bitmap.
+   * @throws NoSuchElementException
+   *           if this bitmap is empty
+   */
+  long last()
+  {
+    if (nbChunks == 0)
+    {
+      throw new NoSuchElementException();
+    }
+    return keys[nbChunks - 1] << 16 | chunks[nbChunks - 1].last();
+  }
+
+  boolean contains(long id)
+  {
+    final int pos = indexOf(highBits(id));
+    return pos >= 0 && chunks[pos].contains(lowBits(id));
+  }
+
+  boolean add(long id)
+  {
+    final long key = highBits(id);
+    final int pos = indexOf(key);
+    if (pos < 0)
+    {
+      insertChunk(-(pos + 1), key, new ArrayChunk(new char[] { (char) id }, 1));
+      return true;
+    }
+    final int cardinality = chunks[pos].cardinality;
+    chunks[pos] = chunks[pos].add(lowBits(id));
+    return chunks[pos].cardinality != cardinality;
+  }
+
+  boolean remove(long id)
+  {
+    final int pos = indexOf(highBits(id));
+    if (pos < 0)
+    {
+      return false;
+    }
+    final Chunk chunk = chunks[pos];
+    final int cardinality = chunk.cardinality;
+    final Chunk newChunk = chunk.remove(lowBits(id));
+    if (newChunk == null)
+    {
+      removeChunk(pos);
+      return true;
+    }
+    chunks[pos] = newChunk;
+    return newChunk.cardinality != cardinality;
+  }
+
+  /**
+   * Adds all the entry IDs of the provided bitmap to this bitmap.
+   *
+   * @param that
+   *          The bitmap to merge into this one, it is left unchanged.
+   */
+  void or(EntryIDBitmap that)
+  {
+    final long[] newKeys = new long[nbChunks + that.nbChunks];
+    final Chunk[] newChunks = new Chunk[nbChunks + that.nbChunks];
+    int i = 0, j = 0, n = 0;
+    while (i < nbChunks || j < that.nbChunks)
+    {
+      if (j == that.nbChunks || (i < nbChunks && keys[i] < that.keys[j]))
+      {
+        newKeys[n] = keys[i];
+        newChunks[n++] = chunks[i++];
+      }
+      else if (i == nbChunks || that.keys[j] < keys[i])
+      {
+        newKeys[n] = that.keys[j];
+        newChunks[n++] = that.chunks[j++].copy();
+      }
+      else
+      {
+        newKeys[n] = keys[i];
+        newChunks[n++] = or(chunks[i++], that.chunks[j++]);
+      }
+    }
+    keys = newKeys;
+    chunks = newChunks;
+    nbChunks = n;
+  }
+
+  /**
+   * Retains only the entry IDs of this bitmap which are also contained in the provided bitmap.
+   *
+   * @param that
+   *          The bitmap to intersect with this one, it is left unchanged.
+   */
+  void and(EntryIDBitmap that)
+  {
+    int i = 0, j = 0, n = 0;
+    while (i < nbChunks && j < that.nbChunks)
+    {
+      if (keys[i] < that.keys[j])
+      {
+        i++;
+      }
+      else if (that.keys[j] < keys[i])
+      {
+        j++;
+      }
+      else
+      {
+        final Chunk chunk = and(chunks[i], that.chunks[j]);
+        if (chunk != null)
+        {
+          keys[n] = keys[i];
+          chunks[n++] = chunk;
+        }
+        i++;
+        j++;
+      }
+    }
+    truncate(n);
+  }
+
+  /**
+   * Removes from this bitmap all the entry IDs contained in the provided bitmap.
+   *
+   * @param that
+   *          The bitmap holding the entry IDs to remove, it is left unchanged.
+   */
+  void andNot(EntryIDBitmap that)
+  {
+    int i = 0, j = 0, n = 0;
+    while (i < nbChunks)
+    {
+      if (j == that.nbChunks || keys[i] < that.keys[j])
+      {
+        keys[n] = keys[i];
+        chunks[n++] = chunks[i++];
+      }
+      else if (that.keys[j] < keys[i])
+      {
+        j++;
+      }
+      else
+      {
+        final Chunk chunk = andNot(chunks[i], that.chunks[j]);
+        if (chunk != null)
+        {
+          keys[n] = keys[i];
+          chunks[n++] = chunk;
+        }
+        i++;
+        j++;
+      }
+    }
+    truncate(n);
+  }
+
+  private void truncate(int newNbChunks)
+  {
+    Arrays.fill(chunks, newNbChunks, nbChunks, null);
+    nbChunks = newNbChunks;
+  }
+
+  /**
+   * Returns a deep copy of this bitmap.
+   *
+   * @return A deep copy of this bitmap.
+   */
+  EntryIDBitmap copy()
+  {
+    final Chunk[] newChunks = new Chunk[nbChunks];
+    for (int i = 0; i < nbChunks; i++)
+    {
+      newChunks[i] = chunks[i].copy();
+    }
+    return new EntryIDBitmap(Arrays.copyOf(keys, nbChunks), newChunks, nbChunks);
+  }
+
+  /**
+   * Expands this bitmap into an array of entry IDs.
+   *
+   * @return A new array holding all the entry IDs of this bitmap in ascending order.
+   */
+  long[] toArray()
+  {
+    final long[] ids = new long[(int) cardinality()];
+    int pos = 0;
+    for (int i = 0; i < nbChunks; i++)
+    {
+      final long base = keys[i] << 16;
+      for (char low : chunks[i].toLows())
+      {
+        ids[pos++] = base | low;
+      }
+    }
+    return ids;
+  }
+
+  Iterator<EntryID> iterator()
+  {
+    return new BitmapIterator();
+  }
+
+  /**
+   * Returns an iterator over the entry IDs of this bitmap greater than or equal to the provided entry ID.
+   *
+   * @param begin
+   *          The lowest entry ID returned by the iterator
+   * @return An iterator over the entry IDs greater than or equal to {@code begin}, in ascending order.
+   */
+  Iterator<EntryID> iterator(long begin)
+  {
+    return new BitmapIterator(begin);
+  }
+
+  /** Iterator over the entry IDs of this bitmap, in ascending order. */
+  private final class BitmapIterator implements Iterator<EntryID>
+  {
+    private int chunkIndex;
+    /** Position of the next value in the current chunk: array index or bit index. */
+    private int position;
+
+    BitmapIterator()
+    {
+      position = nbChunks != 0 ? firstPosition(chunks[0]) : 0;
+    }
+
+    BitmapIterator(long begin)
+    {
+      final int pos = indexOf(highBits(begin));
+      chunkIndex = pos >= 0 ? pos : -(pos + 1);
+      if (chunkIndex < nbChunks)
+      {
+        position = pos >= 0 ? positionFrom(chunks[chunkIndex], lowBits(begin)) : firstPosition(chunks[chunkIndex]);
+        if (position < 0 && ++chunkIndex < nbChunks)
+        {
+          position = firstPosition(chunks[chunkIndex]);
+        }
+      }
+    }
+
+    private int firstPosition(Chunk chunk)
+    {
+      return chunk instanceof BitmapChunk ? ((BitmapChunk) chunk).nextSetBit(0) : 0;
+    }
+
+    /** Returns the position of the first value greater or equal than {@code low}, or -1 if there is none. */
+    private int positionFrom(Chunk chunk, int low)
+    {
+      if (chunk instanceof BitmapChunk)
+      {
+        return ((BitmapChunk) chunk).nextSetBit(low);
+      }
+      final int pos = Arrays.binarySearch(((ArrayChunk) chunk).values, 0, chunk.cardinality, (char) low);
+      final int index = pos >= 0 ? pos : -(pos + 1);
+      return index < chunk.cardinality ? index : -1;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+      return chunkIndex < nbChunks;
+    }
+
+    @Override
+    public EntryID next()
+    {
+      if (!hasNext())
+      {
+        throw new NoSuchElementException();
+      }
+      final Chunk chunk = chunks[chunkIndex];
+      final int low;
+      final boolean exhausted;
+      if (chunk instanceof ArrayChunk)
+      {
+        low = ((ArrayChunk) chunk).values[position++];
+        exhausted = position == chunk.cardinality;
+      }
+      else
+      {
+        low = position;
+        position = ((BitmapChunk) chunk).nextSetBit(position + 1);
+        exhausted = position < 0;
+      }
+      final EntryID entryID = new EntryID(keys[chunkIndex] << 16 | low);
+      if (exhausted && ++chunkIndex < nbChunks)
+      {
+        position = firstPosition(chunks[chunkIndex]);
+      }
+      return entryID;
+    }
+
+    @Override
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Encodes this bitmap. Each chunk is written using the most compact of the array, bitmap or run-length encodings.
+   *
+   * @param builder
+   *          The builder where to append the encoded bitmap.
+   * @return The provided builder.
+   */
+  ByteStringBuilder appendTo(ByteStringBuilder builder)
+  {
+    builder.appendCompactUnsigned(nbChunks);
+    long previousKey = 0;
+    for (int i = 0; i < nbChunks; i++)
+    {
+      final Chunk chunk = chunks[i];
+      final char[] lows = chunk.toLows();
+      final int nbRuns = countRuns(lows);
+      final int arraySize = 2 * chunk.cardinality;
+      final int runsSize = 4 * nbRuns;
+
+      builder.appendCompactUnsigned(keys[i] - previousKey);
+      previousKey = keys[i];
+      if (runsSize < arraySize && runsSize < BITMAP_ENCODED_SIZE)
+      {
+        builder.appendByte(RUN_CHUNK);
+        builder.appendCompactUnsigned(nbRuns);
+        appendRuns(builder, lows);
+      }
+      else if (arraySize <= BITMAP_ENCODED_SIZE)
+      {
+        builder.appendByte(ARRAY_CHUNK);
+        builder.appendCompactUnsigned(chunk.cardinality);
+        for (char low : lows)
+        {
+          builder.appendShort(low);
+        }
+      }
+      else
+      {
+        builder.appendByte(BITMAP_CHUNK);
+        for (long word : copyWords(chunk))
+        {
+          builder.appendLong(word);
+        }
+      }
+    }
+    return builder;
+  }
+
+  private static int countRuns(char[] lows)
+  {
+    int nbRuns = lows.length != 0 ? 1 : 0;
+    for (int i = 1; i < lows.length; i++)
+    {
+      if (lows[i] != lows[i - 1] + 1)
+      {
+        nbRuns++;
+      }
+    }
+    return nbRuns;
+  }
+
+  private static void appendRuns(ByteStringBuilder builder, char[] lows)
+  {
+    int start = 0;
+    for (int i = 1; i <= lows.length; i++)
+    {
+      if (i == lows.length || lows[i] != lows[i - 1] + 1)
+      {
+        builder.appendShort(lows[start]);
+        builder.appendShort(i - start - 1);
+        start = i;
+      }
+    }
+  }
+
+  /**
+   * Decodes a bitmap previously encoded with {@link #appendTo(ByteStringBuilder)}.
+   *
+   * @param reader
+   *          The reader positioned at the beginning of the encoded bitmap.
+   * @return The decoded bitmap.
+   */
+  static EntryIDBitmap readFrom(ByteSequenceReader reader)
+  {
+    final int nbChunks = reader.readCompactUnsignedInt();
+    final EntryIDBitmap bitmap = new EntryIDBitmap(new long[nbChunks], new Chunk[nbChunks], 0);
+    long key = 0;
+    for (int i = 0; i < nbChunks; i++)
+    {
+      key += reader.readCompactUnsignedLong();
+      final byte type = reader.readByte();
+      switch (type)
+      {
+      case ARRAY_CHUNK:
+        final int cardinality = reader.readCompactUnsignedInt();
+        final char[] lows = new char[cardinality];
+        for (int j = 0; j < cardinality; j++)
+        {
+          lows[j] = (char) reader.readShort();
+        }
+        bitmap.appendChunk(key, new ArrayChunk(lows, cardinality));
+        break;
+      case BITMAP_CHUNK:
+        final long[] words = new long[BITMAP_WORDS];
+        for (int j = 0; j < BITMAP_WORDS; j++)
+        {
+          words[j] = reader.readLong();
+        }
+        bitmap.appendChunk(key, newChunk(words));
+        break;
+      case RUN_CHUNK:
+        bitmap.appendChunk(key, readRuns(reader));
+        break;
+      default:
+        throw new IllegalStateException("Unknown bitmap chunk type " + type);
+      }
+    }
+    return bitmap;
+  }
+
+  private static Chunk readRuns(ByteSequenceReader reader)
+  {
+    final int nbRuns = reader.readCompactUnsignedInt();
+    final int[] runs = new int[2 * nbRuns];
+    int cardinality = 0;
+    for (int i = 0; i < nbRuns; i++)
+    {
+      runs[2 * i] = reader.readShort() & 0xFFFF;
+      runs[2 * i + 1] = (reader.readShort() & 0xFFFF) + 1;
+      cardinality += runs[2 * i + 1];
+    }
+    final char[] lows = new char[cardinality];
+    int pos = 0;
+    for (int i = 0; i < nbRuns; i++)
+    {
+      for (int j = 0; j < runs[2 * i + 1]; j++)
+      {
+        lows[pos++] = (char) (runs[2 * i] + j);
+      }
+    }
+    return newChunk(lows, cardinality);
+  }
+}
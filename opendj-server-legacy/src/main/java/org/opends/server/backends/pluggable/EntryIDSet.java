@@ -43,6 +43,7 @@ final class EntryIDSet implements Iterable<EntryID>
 {
   public static final EntryIDSetCodec CODEC_V1 = new EntryIDSetCodecV1();
   public static final EntryIDSetCodec CODEC_V2 = new EntryIDSetCodecV2();
+  public static final EntryIDSetCodec CODEC_V4 = new EntryIDSetCodecV4();
 
   private static final ByteSequence NO_KEY = ByteString.valueOfUtf8("<none>");
   private static final long[] EMPTY_LONG_ARRAY = new long[0];
@@ -73,6 +74,8 @@ final class EntryIDSet implements Iterable<EntryID>
 
     @Override
     Iterator<EntryID> iterator();
+
+    Iterator<EntryID> iterator(EntryID begin);
   }
 
   /** Define serialization contract for EntryIDSet. */
@@ -255,6 +258,13 @@ final class EntryIDSet implements Iterable<EntryID>
       return new IDSetIterator(entryIDs);
     }
 
+    @Override
+    public Iterator<EntryID> iterator(EntryID begin)
+    {
+      final int pos = Arrays.binarySearch(entryIDs, begin.longValue());
+      return new IDSetIterator(entryIDs, pos >= 0 ? pos : -(pos + 1));
+    }
+
     @Override
     public long[] getRange()
     {
@@ -272,6 +282,114 @@ final class EntryIDSet implements Iterable<EntryID>
     }
   }
 
+  /**
+   * Concrete implementation representing a set of EntryIDs stored in a compressed bitmap. Used for large sets so that
+   * unions, intersections and differences are performed on the compressed form.
+   */
+  private static final class BitmapImpl implements EntryIDSetImplementor
+  {
+    /** Owned by this implementation: it is updated in place and must never be shared. */
+    private final EntryIDBitmap bitmap;
+
+    BitmapImpl(EntryIDBitmap bitmap)
+    {
+      this.bitmap = checkNotNull(bitmap, "bitmap must not be null");
+    }
+
+    @Override
+    public long size()
+    {
+      return bitmap.cardinality();
+    }
+
+    @Override
+    public void toString(StringBuilder buffer)
+    {
+      buffer.append("[COUNT:").append(size()).append("]");
+    }
+
+    @Override
+    public boolean isDefined()
+    {
+      return true;
+    }
+
+    @Override
+    public boolean add(EntryID entryID)
+    {
+      return bitmap.add(entryID.longValue());
+    }
+
+    @Override
+    public boolean remove(EntryID entryID)
+    {
+      return bitmap.remove(entryID.longValue());
+    }
+
+    @Override
+    public boolean contains(EntryID entryID)
+    {
+      return bitmap.contains(entryID.longValue());
+    }
+
+    @Override
+    public void addAll(EntryIDSet that)
+    {
+      if (that.concreteImpl instanceof BitmapImpl)
+      {
+        bitmap.or(((BitmapImpl) that.concreteImpl).bitmap);
+      }
+      else
+      {
+        bitmap.or(EntryIDBitmap.valueOf(that.getIDs()));
+      }
+    }
+
+    @Override
+    public void removeAll(EntryIDSet that)
+    {
+      if (that.concreteImpl instanceof BitmapImpl)
+      {
+        bitmap.andNot(((BitmapImpl) that.concreteImpl).bitmap);
+      }
+      else
+      {
+        for (long id : that.getIDs())
+        {
+          bitmap.remove(id);
+        }
+      }
+    }
+
+    @Override
+    public Iterator<EntryID> iterator()
+    {
+      return bitmap.iterator();
+    }
+
+    @Override
+    public Iterator<EntryID> iterator(EntryID begin)
+    {
+      return bitmap.iterator(begin.longValue());
+    }
+
+    @Override
+    public long[] getRange()
+    {
+      if (!bitmap.isEmpty())
+      {
+        return new long[] { bitmap.first(), bitmap.last() };
+      }
+      return NO_ENTRY_IDS_RANGE;
+    }
+
+    @Override
+    public long[] getIDs()
+    {
+      return bitmap.toArray();
+    }
+  }
+
   /**
    * Concrete implementation where the EntryIDs are not defined, for example when the index entry
    * limit has been exceeded.
@@ -347,6 +465,12 @@ final class EntryIDSet implements Iterable<EntryID>
       return Iterators.emptyIterator();
     }
 
+    @Override
+    public Iterator<EntryID> iterator(EntryID begin)
+    {
+      return Iterators.emptyIterator();
+    }
+
     @Override
     public long[] getRange()
     {
@@ -367,8 +491,14 @@ final class EntryIDSet implements Iterable<EntryID>
     private int currentIndex;
 
     IDSetIterator(long[] entryIDSet)
+    {
+      this(entryIDSet, 0);
+    }
+
+    IDSetIterator(long[] entryIDSet, int startIndex)
     {
       this.entryIDSet = entryIDSet;
+      this.currentIndex = startIndex;
     }
 
     @Override
@@ -539,7 +669,60 @@ final class EntryIDSet implements Iterable<EntryID>
   }
 
   /**
-   * Decorate a V1 or V2 codec with encryption. When writing EntryIDSets to disk,
+   * Compressed bitmap EntryIDSet codec implementation. Small sets are encoded exactly like {@link EntryIDSetCodecV2}
+   * while sets having at least {@link #BITMAP_THRESHOLD} IDs are encoded as an {@link EntryIDBitmap}. Bitmaps are
+   * prefixed with a tag which cannot start a {@link EntryIDSetCodecV2} value (it would denote a size greater than
+   * {@link Integer#MAX_VALUE}), so values written by {@link EntryIDSetCodecV2} remain readable by this codec. The
+   * reverse is not true: this codec is only used by the indexes having the {@link State.IndexFlag#BITMAP} flag.
+   * <p>
+   * Decoded bitmaps are kept compressed so that the logical operations performed on large index keys do not need to
+   * expand them into an array of IDs.
+   */
+  private static final class EntryIDSetCodecV4 implements EntryIDSetCodec
+  {
+    private static final byte BITMAP_SET = (byte) 0xFE;
+    /** Well below the default index entry limit of 4000, so that bitmaps are used with the default settings. */
+    private static final int BITMAP_THRESHOLD = 1024;
+
+    @Override
+    public ByteString encode(EntryIDSet idSet)
+    {
+      checkNotNull(idSet, "idSet must not be null");
+      if (!idSet.isDefined() || idSet.size() < BITMAP_THRESHOLD)
+      {
+        return CODEC_V2.encode(idSet);
+      }
+      final ByteStringBuilder builder = new ByteStringBuilder();
+      builder.appendByte(BITMAP_SET);
+      return toBitmap(idSet).appendTo(builder).toByteString();
+    }
+
+    @Override
+    public EntryIDSet decode(ByteSequence key, ByteString value)
+    {
+      checkNotNull(key, "key must not be null");
+      checkNotNull(value, "value must not be null");
+      if (value.byteAt(0) == BITMAP_SET)
+      {
+        final ByteSequenceReader reader = value.asReader();
+        reader.skip(1);
+        return new EntryIDSet(new BitmapImpl(EntryIDBitmap.readFrom(reader)));
+      }
+      return CODEC_V2.decode(key, value);
+    }
+
+    private static EntryIDBitmap toBitmap(EntryIDSet idSet)
+    {
+      if (idSet.concreteImpl instanceof BitmapImpl)
+      {
+        return ((BitmapImpl) idSet.concreteImpl).bitmap;
+      }
+      return EntryIDBitmap.valueOf(idSet.getIDs());
+    }
+  }
+
+  /**
+   * Decorate a V1, V2 or V4 codec with encryption. When writing EntryIDSets to disk,
    * prepend two bytes, {0, 1} to mark them as encrypted.
    * The first is tag zero (unused in other encodings), followed by a byte
    * indicating version 1 of encryption.
@@ -657,6 +840,28 @@ final class EntryIDSet implements Iterable<EntryID>
     return target;
   }
 
+  /** Intersects two sets, at least one of them being a {@link BitmapImpl}, without expanding the bitmaps. */
+  private static EntryIDSetImplementor intersection(EntryIDSetImplementor set1, EntryIDSetImplementor set2)
+  {
+    if (set1 instanceof BitmapImpl && set2 instanceof BitmapImpl)
+    {
+      ((BitmapImpl) set1).bitmap.and(((BitmapImpl) set2).bitmap);
+      return set1;
+    }
+    final long[] ids = set1 instanceof BitmapImpl ? set2.getIDs() : set1.getIDs();
+    final EntryIDBitmap bitmap = set1 instanceof BitmapImpl ? ((BitmapImpl) set1).bitmap : ((BitmapImpl) set2).bitmap;
+    final long[] target = new long[ids.length];
+    int ci = 0;
+    for (long id : ids)
+    {
+      if (bitmap.contains(id))
+      {
+        target[ci++] = id;
+      }
+    }
+    return new DefinedImpl(ci < target.length ? Arrays.copyOf(target, ci) : target);
+  }
+
   /**
    * Creates a new set of entry IDs that is the union of several entry ID sets.
    *
@@ -689,6 +894,17 @@ final class EntryIDSet implements Iterable<EntryID>
       return newUndefinedSet();
     }
 
+    if (containsBitmapSet(sets))
+    {
+      final EntryIDBitmap union = new EntryIDBitmap();
+      for (EntryIDSet l : sets)
+      {
+        union.or(l.concreteImpl instanceof BitmapImpl
+            ? ((BitmapImpl) l.concreteImpl).bitmap : EntryIDBitmap.valueOf(l.getIDs()));
+      }
+      return new EntryIDSet(new BitmapImpl(union));
+    }
+
     boolean needSort = false;
     long[] n = new long[count];
     int pos = 0;
@@ -723,6 +939,18 @@ final class EntryIDSet implements Iterable<EntryID>
     return newDefinedSet(Arrays.copyOf(n1, j));
   }
 
+  private static boolean containsBitmapSet(List<EntryIDSet> sets)
+  {
+    for (EntryIDSet l : sets)
+    {
+      if (l.concreteImpl instanceof BitmapImpl)
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private EntryIDSetImplementor concreteImpl;
 
   private EntryIDSet(EntryIDSetImplementor concreteImpl)
@@ -873,6 +1101,11 @@ final class EntryIDSet implements Iterable<EntryID>
   {
     checkNotNull(that, "that must not be null");
     Reject.ifFalse(that.isDefined(), "that must be defined");
+    if (concreteImpl instanceof DefinedImpl && that.concreteImpl instanceof BitmapImpl)
+    {
+      // Merging a large set: switch to the compressed form rather than expanding the bitmap.
+      concreteImpl = new BitmapImpl(EntryIDBitmap.valueOf(concreteImpl.getIDs()));
+    }
     concreteImpl.addAll(that);
   }
 
@@ -889,7 +1122,9 @@ final class EntryIDSet implements Iterable<EntryID>
     checkNotNull(that, "that must not be null");
     if (!concreteImpl.isDefined())
     {
-      if ( that.isDefined() ) {
+      if (that.concreteImpl instanceof BitmapImpl) {
+        concreteImpl = new BitmapImpl(((BitmapImpl) that.concreteImpl).bitmap.copy());
+      } else if ( that.isDefined() ) {
         // NOTE: It's ok to share the same array instance here thanks to the copy-on-write
         // performed by the implementation.
         concreteImpl = new DefinedImpl(that.getIDs());
@@ -904,7 +1139,11 @@ final class EntryIDSet implements Iterable<EntryID>
     }
 
     final boolean thatSetOverlap = compareForOverlap(getRange(), that.getRange()) == 0;
-    if (thatSetOverlap)
+    if (thatSetOverlap && (concreteImpl instanceof BitmapImpl || that.concreteImpl instanceof BitmapImpl))
+    {
+      concreteImpl = intersection(concreteImpl, that.concreteImpl);
+    }
+    else if (thatSetOverlap)
     {
       concreteImpl = new DefinedImpl(intersection(concreteImpl.getIDs(), that.getIDs()));
     }
@@ -942,6 +1181,19 @@ final class EntryIDSet implements Iterable<EntryID>
     return concreteImpl.iterator();
   }
 
+  /**
+   * Creates an iterator over the entry IDs of the set greater than or equal to the provided entry ID, or an empty
+   * iterator if the set is not defined.
+   *
+   * @param begin
+   *          The lowest entry ID returned by the iterator
+   * @return An EntryID iterator.
+   */
+  public Iterator<EntryID> iterator(EntryID begin)
+  {
+    return concreteImpl.iterator(begin);
+  }
+
   private long[] getIDs()
   {
     return concreteImpl.getIDs();
@@ -0,0 +1,391 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.opends.messages.BackendMessages.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.opendj.ldap.AttributeDescription;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.SortKey;
+import org.forgerock.opendj.ldap.schema.AttributeType;
+import org.forgerock.opendj.ldap.schema.MatchingRule;
+import org.forgerock.opendj.ldap.spi.Indexer;
+import org.opends.server.backends.pluggable.AttributeIndex.MatchingRuleIndex;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.core.SearchOperation;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Entry;
+
+/**
+ * Sorts the candidate entries of a search operation requesting a server side sort, without decoding more entries than
+ * necessary.
+ * <p>
+ * When the primary sort key is in ascending order and its attribute has a trusted ordering index, the candidate entries
+ * are read in order by walking this index. Otherwise, when only the first sorted entries are needed (paged results or
+ * size limit), they are selected by keeping a bounded number of sort keys while iterating over the candidates.
+ */
+final class EntryIDSorter
+{
+  /**
+   * Decoding an entry is much more expensive than reading an entry ID from an index: an ordering index is only walked
+   * when it does not reference more than this number of entry IDs per candidate entry.
+   */
+  private static final int INDEX_WALK_COST_RATIO = 16;
+
+  private final EntryContainer entryContainer;
+  private final ReadableTransaction txn;
+  private final SearchOperation searchOperation;
+  private final List<SortKey> sortKeys;
+  private final boolean manageDsaIT;
+
+  /**
+   * Creates a sorter for the provided search operation.
+   *
+   * @param entryContainer
+   *          the entry container processing the search
+   * @param txn
+   *          a non null transaction
+   * @param searchOperation
+   *          the search operation whose candidate entries must be sorted
+   * @param sortKeys
+   *          the requested sort keys
+   * @param manageDsaIT
+   *          whether the search operation has the ManageDsaIT request control
+   */
+  EntryIDSorter(EntryContainer entryContainer, ReadableTransaction txn, SearchOperation searchOperation,
+      List<SortKey> sortKeys, boolean manageDsaIT)
+  {
+    this.entryContainer = entryContainer;
+    this.txn = txn;
+    this.searchOperation = searchOperation;
+    this.sortKeys = sortKeys;
+    this.manageDsaIT = manageDsaIT;
+  }
+
+  /**
+   * Sorts the provided candidate entries.
+   *
+   * @param candidates
+   *          the defined set of candidate entries
+   * @param limit
+   *          the maximum number of matching entries to return, or {@code 0} to return all the candidate entries
+   * @param beginEntryID
+   *          the ID of the first entry to return, or {@code null} to start with the first sorted entry. Ignored when
+   *          there is no limit.
+   * @return the sorted entry IDs, or {@code null} if the candidate entries cannot be sorted without decoding all of
+   *         them and keeping their sort keys
+   * @throws DirectoryException
+   *           If an error occurs while examining a candidate entry
+   */
+  long[] sort(EntryIDSet candidates, int limit, EntryID beginEntryID) throws DirectoryException
+  {
+    final boolean isLimited = limit > 0 && limit < candidates.size();
+    final DefaultIndex orderingIndex = getOrderingIndex(candidates.size(), isLimited);
+    if (orderingIndex != null)
+    {
+      final long[] sortedIDs = isLimited
+          ? walkIndexUntilLimit(orderingIndex, candidates, limit, beginEntryID)
+          : walkIndex(orderingIndex, candidates);
+      if (sortedIDs != null)
+      {
+        return sortedIDs;
+      }
+    }
+    return limit > 0 ? selectFirstEntries(candidates, limit, beginEntryID) : null;
+  }
+
+  /**
+   * Returns whether the provided number of candidate entries can be sorted without decoding all of them and keeping
+   * their sort keys, either by walking an ordering index or because only the first sorted entries are needed.
+   *
+   * @param nbCandidates
+   *          the number of candidate entries
+   * @param limit
+   *          the maximum number of matching entries to return, or {@code 0} to return all the candidate entries
+   * @return {@code true} if the sort needs a bounded amount of memory, {@code false} otherwise
+   */
+  boolean isBounded(long nbCandidates, int limit)
+  {
+    return limit > 0 || getOrderingIndex(nbCandidates, false) != null;
+  }
+
+  /**
+   * Returns whether the candidate entries may be sorted without decoding all of them and keeping their sort keys,
+   * depending on their number. The candidate entries do not need to be read if this method returns {@code false}.
+   *
+   * @param limit
+   *          the maximum number of matching entries to return, or {@code 0} to return all the candidate entries
+   * @return {@code true} if the sort needs a bounded amount of memory for some numbers of candidate entries
+   */
+  boolean mayBeBounded(int limit)
+  {
+    return limit > 0 || getOrderingIndex(Integer.MAX_VALUE, false) != null;
+  }
+
+  /**
+   * Returns an index whose keys are ordered like the primary sort key, if it is cheaper to walk it than to decode all
+   * the candidate entries.
+   */
+  private DefaultIndex getOrderingIndex(long nbCandidates, boolean isLimited)
+  {
+    if (sortKeys.size() != 1 || sortKeys.get(0).isReverseOrder())
+    {
+      // Multi-valued entries are sorted according to their lowest value, even in reverse order
+      return null;
+    }
+    final SortKey sortKey = sortKeys.get(0);
+
+    final AttributeType attrType = AttributeDescription.valueOf(sortKey.getAttributeDescription()).getAttributeType();
+    final MatchingRule orderingRule = VLVIndex.getEffectiveOrderingRule(sortKey);
+    final AttributeIndex attributeIndex = entryContainer.getAttributeIndex(attrType);
+    if (orderingRule == null || !orderingRule.equals(attrType.getOrderingMatchingRule()) || attributeIndex == null)
+    {
+      return null;
+    }
+
+    for (Indexer indexer : orderingRule.createIndexers(attributeIndex.getIndexingOptions()))
+    {
+      final MatchingRuleIndex index = attributeIndex.getNameToIndexes().get(indexer.getIndexID());
+      if (index != null && index.isTrusted())
+      {
+        final long nbIndexedIDs = index.getEntryIDCount();
+        final boolean isCheaper = nbIndexedIDs >= 0 ? nbIndexedIDs <= nbCandidates * INDEX_WALK_COST_RATIO : isLimited;
+        return isCheaper ? index : null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Walks the whole ordering index to sort the candidate entries without decoding them. The returned entry IDs have not
+   * been checked against the search base, scope and filter.
+   */
+  private long[] walkIndex(DefaultIndex orderingIndex, EntryIDSet candidates)
+  {
+    final long[] sortedIDs = new long[(int) candidates.size()];
+    final EntryIDBitmap sortedEntryIDs = new EntryIDBitmap();
+    int nbSortedIDs = 0;
+    try (Cursor<ByteString, EntryIDSet> cursor = orderingIndex.openCursor(txn))
+    {
+      while (nbSortedIDs < sortedIDs.length && cursor.next())
+      {
+        final EntryIDSet entryIDs = cursor.getValue();
+        if (!entryIDs.isDefined())
+        {
+          // The index entry limit has been exceeded: the order of these entries is unknown
+          return null;
+        }
+        for (EntryID entryID : entryIDs)
+        {
+          // Multi-valued entries are sorted according to their lowest value, which is the first key referencing them
+          if (candidates.contains(entryID) && sortedEntryIDs.add(entryID.longValue()))
+          {
+            sortedIDs[nbSortedIDs++] = entryID.longValue();
+          }
+        }
+      }
+    }
+
+    // Entries without any value for the sort key are sorted last
+    for (Iterator<EntryID> it = candidates.iterator(); nbSortedIDs < sortedIDs.length && it.hasNext();)
+    {
+      final long entryID = it.next().longValue();
+      if (!sortedEntryIDs.contains(entryID))
+      {
+        sortedIDs[nbSortedIDs++] = entryID;
+      }
+    }
+    return sortedIDs;
+  }
+
+  /**
+   * Walks the ordering index until the requested number of matching entries have been found, only decoding the
+   * candidate entries which are met along the way.
+   */
+  private long[] walkIndexUntilLimit(DefaultIndex orderingIndex, EntryIDSet candidates, int limit,
+      EntryID beginEntryID) throws DirectoryException
+  {
+    final SortKey sortKey = sortKeys.get(0);
+    ByteString beginKey = null;
+    if (beginEntryID != null)
+    {
+      final Entry beginEntry = getEntry(beginEntryID);
+      if (beginEntry == null)
+      {
+        return null;
+      }
+      beginKey = VLVIndex.getLowestAttributeValue(beginEntry, sortKey);
+    }
+
+    final long[] sortedIDs = new long[limit];
+    int nbSortedIDs = 0;
+    if (beginEntryID == null || beginKey != null)
+    {
+      try (Cursor<ByteString, EntryIDSet> cursor = orderingIndex.openCursor(txn))
+      {
+        boolean found = beginKey != null ? cursor.positionToKeyOrNext(beginKey) : cursor.next();
+        for (; found && nbSortedIDs < limit; found = cursor.next())
+        {
+          final ByteString key = cursor.getKey();
+          final EntryIDSet entryIDs = cursor.getValue();
+          if (!entryIDs.isDefined())
+          {
+            // The index entry limit has been exceeded: the order of these entries is unknown
+            return null;
+          }
+          final boolean isBeginKey = key.equals(beginKey);
+          for (Iterator<EntryID> it = entryIDs.iterator(); nbSortedIDs < limit && it.hasNext();)
+          {
+            final EntryID entryID = it.next();
+            if ((isBeginKey && entryID.compareTo(beginEntryID) < 0) || !candidates.contains(entryID))
+            {
+              continue;
+            }
+            // Multi-valued entries are sorted according to their lowest value: skip the other keys referencing them
+            final Entry entry = getMatchingEntry(entryID);
+            if (entry != null && key.equals(VLVIndex.getLowestAttributeValue(entry, sortKey)))
+            {
+              sortedIDs[nbSortedIDs++] = entryID.longValue();
+            }
+          }
+        }
+      }
+    }
+
+    // Entries without any value for the sort key are sorted last, by entry ID
+    final CandidateEntryReader reader = entryContainer.newCandidateEntryReader(txn,
+        beginKey == null && beginEntryID != null ? candidates.iterator(beginEntryID) : candidates.iterator());
+    while (nbSortedIDs < limit && reader.next())
+    {
+      final Entry entry = getMatchingEntry(reader);
+      if (entry != null && VLVIndex.getLowestAttributeValue(entry, sortKey) == null)
+      {
+        sortedIDs[nbSortedIDs++] = reader.getEntryID().longValue();
+      }
+    }
+    return Arrays.copyOf(sortedIDs, nbSortedIDs);
+  }
+
+  /**
+   * Iterates over all the candidate entries, only keeping the sort keys of the first {@code limit} matching entries
+   * following the first entry to return.
+   */
+  private long[] selectFirstEntries(EntryIDSet candidates, int limit, EntryID beginEntryID) throws DirectoryException
+  {
+    ByteString beginKey = null;
+    if (beginEntryID != null)
+    {
+      final Entry beginEntry = getEntry(beginEntryID);
+      if (beginEntry == null)
+      {
+        return null;
+      }
+      beginKey = VLVIndex.encodeVLVKey(sortKeys, beginEntry, beginEntryID.longValue());
+    }
+
+    // Sort keys are unique because they end with the entry ID
+    final TreeMap<ByteString, EntryID> firstEntries = new TreeMap<>();
+    final CandidateEntryReader reader = entryContainer.newCandidateEntryReader(txn, candidates.iterator());
+    while (reader.next())
+    {
+      final EntryID entryID = reader.getEntryID();
+      final Entry entry = getMatchingEntry(reader);
+      if (entry == null)
+      {
+        continue;
+      }
+      final ByteString key = VLVIndex.encodeVLVKey(sortKeys, entry, entryID.longValue());
+      if ((beginKey == null || key.compareTo(beginKey) >= 0)
+          && (firstEntries.size() < limit || key.compareTo(firstEntries.lastKey()) < 0))
+      {
+        firstEntries.put(key, entryID);
+        if (firstEntries.size() > limit)
+        {
+          firstEntries.pollLastEntry();
+        }
+      }
+    }
+
+    final long[] sortedIDs = new long[firstEntries.size()];
+    int i = 0;
+    for (EntryID entryID : firstEntries.values())
+    {
+      sortedIDs[i++] = entryID.longValue();
+    }
+    return sortedIDs;
+  }
+
+  /** Returns the entry if it is returned by the search operation, {@code null} otherwise. */
+  private Entry getMatchingEntry(EntryID entryID) throws DirectoryException
+  {
+    try
+    {
+      return matches(entryContainer.getEntry(txn, entryID));
+    }
+    catch (Exception e)
+    {
+      throw cannotExamineEntry(entryID, e);
+    }
+  }
+
+  /** Returns the current entry of the reader if it is returned by the search operation, {@code null} otherwise. */
+  private Entry getMatchingEntry(CandidateEntryReader reader) throws DirectoryException
+  {
+    try
+    {
+      return matches(reader.getEntry());
+    }
+    catch (Exception e)
+    {
+      throw cannotExamineEntry(reader.getEntryID(), e);
+    }
+  }
+
+  private Entry matches(Entry entry) throws DirectoryException
+  {
+    return entry != null
+        && entry.matchesBaseAndScope(searchOperation.getBaseDN(), searchOperation.getScope())
+        && (manageDsaIT || entry.getReferralURLs() == null)
+        && searchOperation.getFilter().matchesEntry(entry) ? entry : null;
+  }
+
+  private Entry getEntry(EntryID entryID) throws DirectoryException
+  {
+    try
+    {
+      return entryContainer.getEntry(txn, entryID);
+    }
+    catch (Exception e)
+    {
+      throw cannotExamineEntry(entryID, e);
+    }
+  }
+
+  private static DirectoryException cannotExamineEntry(EntryID entryID, Exception e)
+  {
+    LocalizableMessage message = ERR_ENTRYIDSORTER_CANNOT_EXAMINE_ENTRY.get(entryID, getExceptionMessage(e));
+    return new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(), message, e);
+  }
+}
@@ -16,51 +16,106 @@
  */
 package org.opends.server.backends.pluggable;
 
+import static org.forgerock.util.Utils.*;
+import static org.opends.messages.BackendMessages.*;
+
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.forgerock.i18n.slf4j.LocalizedLogger;
 import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.DN;
 import org.opends.server.backends.pluggable.spi.Cursor;
 import org.opends.server.backends.pluggable.spi.ReadOperation;
 import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.Storage;
 import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
-import org.forgerock.opendj.ldap.DN;
 import org.opends.server.types.Entry;
 import org.opends.server.types.LDIFExportConfig;
 import org.opends.server.util.LDIFException;
 import org.opends.server.util.StaticUtils;
 
-import static org.opends.messages.BackendMessages.*;
-
-/** Export a backend to LDIF. */
+/**
+ * Export a backend to LDIF.
+ * <p>
+ * The entry ID space of each exported entry container is split into ranges which are read, decoded and formatted to
+ * LDIF concurrently by a pool of worker threads. The formatted ranges are then written to the export writer in entry
+ * ID order, so that the produced LDIF is identical to the one produced by a single threaded export.
+ * <p>
+ * Each range is read in its own read transaction, hence the exported entries only form a consistent snapshot when the
+ * backend is not written to during the export, and the LDIF export plugins are invoked concurrently. When using a
+ * single thread, all the entries are read in one read transaction and formatted by the calling thread.
+ */
 class ExportJob
 {
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
+  /** The name template of the export worker threads. */
+  private static final String EXPORT_WORKER_THREAD_NAME = "EXPORT-WORKER-%d";
+
+  /** The default number of entry IDs read by a single export task. */
+  private static final long ENTRY_ID_RANGE_SIZE = 1000;
+
+  /** The number of pending export tasks per worker thread, bounding the memory used by formatted entries. */
+  private static final int PENDING_TASKS_PER_THREAD = 2;
+
   /** The requested LDIF export configuration. */
   private final LDIFExportConfig exportConfig;
 
+  /** The number of threads reading and formatting the entries. */
+  private final int threadCount;
+
+  /** The number of entry IDs read by a single export task. */
+  private final long rangeSize;
+
   /** The number of milliseconds between job progress reports. */
   private final long progressInterval = 10000;
 
   /** The current number of entries exported. */
-  private long exportedCount;
+  private volatile long exportedCount;
 
   /** The current number of entries skipped. */
-  private long skippedCount;
+  private volatile long skippedCount;
 
   /**
-   * Create a new export job.
+   * Create a new export job using one worker thread per available processor.
    *
    * @param exportConfig The requested LDIF export configuration.
    */
   ExportJob(LDIFExportConfig exportConfig)
+  {
+    this(exportConfig, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Create a new export job.
+   *
+   * @param exportConfig The requested LDIF export configuration.
+   * @param threadCount The number of threads reading and formatting the entries.
+   */
+  ExportJob(LDIFExportConfig exportConfig, int threadCount)
+  {
+    this(exportConfig, threadCount, ENTRY_ID_RANGE_SIZE);
+  }
+
+  /** For unit testing. */
+  ExportJob(LDIFExportConfig exportConfig, int threadCount, long rangeSize)
   {
     this.exportConfig = exportConfig;
+    this.threadCount = Math.max(1, threadCount);
+    this.rangeSize = rangeSize;
   }
 
   /**
@@ -108,34 +163,20 @@ class ExportJob
     TimerTask progressTask = new ProgressTask();
     timer.scheduleAtFixedRate(progressTask, progressInterval, progressInterval);
 
-    // Iterate through the containers.
     try
     {
-      rootContainer.getStorage().read(new ReadOperation<Void>()
+      if (threadCount == 1)
       {
-        @Override
-        public Void run(ReadableTransaction txn) throws Exception
-        {
-          for (EntryContainer exportContainer : exportContainers)
-          {
-            if (exportConfig.isCancelled())
-            {
-              break;
-            }
-
-            exportContainer.sharedLock.lock();
-            try
-            {
-              exportContainer(txn, exportContainer);
-            }
-            finally
-            {
-              exportContainer.sharedLock.unlock();
-            }
-          }
-          return null;
-        }
-      });
+        exportInOneTransaction(rootContainer.getStorage(), exportContainers);
+      }
+      else
+      {
+        exportInParallel(rootContainer.getStorage(), exportContainers);
+      }
+    }
+    catch (IOException | LDIFException | StorageRuntimeException e)
+    {
+      throw e;
     }
     catch (Exception e)
     {
@@ -158,23 +199,213 @@ class ExportJob
     logger.info(NOTE_EXPORT_FINAL_STATUS, exportedCount, skippedCount, totalTime/1000, rate);
   }
 
+  /** Exports the entries of the entry containers in a single read transaction. */
+  private void exportInOneTransaction(Storage storage, final List<EntryContainer> exportContainers) throws Exception
+  {
+    storage.read(new ReadOperation<Void>()
+    {
+      @Override
+      public Void run(ReadableTransaction txn) throws Exception
+      {
+        for (EntryContainer exportContainer : exportContainers)
+        {
+          if (exportConfig.isCancelled())
+          {
+            break;
+          }
+
+          exportContainer.sharedLock.lock();
+          try
+          {
+            final long highestID = exportContainer.getHighestEntryID(txn).longValue();
+            for (long rangeStart = 1; rangeStart <= highestID && !exportConfig.isCancelled(); rangeStart += rangeSize)
+            {
+              final long rangeEnd = Math.min(highestID, rangeStart + rangeSize - 1);
+              write(exportRange(txn, exportContainer, rangeStart, rangeEnd, exportConfig.getWriter()));
+            }
+          }
+          finally
+          {
+            exportContainer.sharedLock.unlock();
+          }
+        }
+        return null;
+      }
+    });
+  }
+
+  /** Exports the entries of the entry containers with a pool of worker threads, each range in its own transaction. */
+  private void exportInParallel(Storage storage, List<EntryContainer> exportContainers) throws Exception
+  {
+    final ExecutorService executor =
+        Executors.newFixedThreadPool(threadCount, newThreadFactory(null, EXPORT_WORKER_THREAD_NAME, true));
+    try
+    {
+      for (EntryContainer exportContainer : exportContainers)
+      {
+        if (exportConfig.isCancelled())
+        {
+          break;
+        }
+
+        exportContainer.sharedLock.lock();
+        try
+        {
+          exportContainer(storage, exportContainer, executor);
+        }
+        finally
+        {
+          exportContainer.sharedLock.unlock();
+        }
+      }
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
   /**
    * Export the entries in a single entry entryContainer, in other words from
-   * one of the base DNs.
+   * one of the base DNs. The entry ID ranges are submitted to the executor and
+   * their results are written in submission order.
+   * @param storage The storage holding the entry container.
    * @param entryContainer The entry container that holds the entries to be
    *                       exported.
-   * @throws StorageRuntimeException If an error occurs in the storage.
-   * @throws IOException If an error occurs while writing an entry.
-   * @throws  LDIFException  If an error occurs while trying to determine
-   *                         whether to write an entry.
+   * @param executor The executor reading and formatting the entry ID ranges.
+   * @throws Exception If an error occurs while reading or writing an entry.
+   */
+  private void exportContainer(final Storage storage, final EntryContainer entryContainer, ExecutorService executor)
+       throws Exception
+  {
+    final long highestID = storage.read(new ReadOperation<Long>()
+    {
+      @Override
+      public Long run(ReadableTransaction txn) throws Exception
+      {
+        return entryContainer.getHighestEntryID(txn).longValue();
+      }
+    });
+
+    final Deque<Future<ExportedRange>> pendingTasks = new ArrayDeque<>();
+    try
+    {
+      long nextRangeStart = 1;
+      while (nextRangeStart <= highestID || !pendingTasks.isEmpty())
+      {
+        while (nextRangeStart <= highestID
+            && pendingTasks.size() < threadCount * PENDING_TASKS_PER_THREAD
+            && !exportConfig.isCancelled())
+        {
+          final long rangeEnd = Math.min(highestID, nextRangeStart + rangeSize - 1);
+          pendingTasks.add(executor.submit(new ExportRangeTask(storage, entryContainer, nextRangeStart, rangeEnd)));
+          nextRangeStart = rangeEnd + 1;
+        }
+        if (pendingTasks.isEmpty())
+        {
+          // Cancelled
+          break;
+        }
+        write(getResult(pendingTasks.removeFirst()));
+      }
+    }
+    finally
+    {
+      for (Future<ExportedRange> pendingTask : pendingTasks)
+      {
+        pendingTask.cancel(true);
+      }
+    }
+  }
+
+  private static ExportedRange getResult(Future<ExportedRange> future) throws Exception
+  {
+    try
+    {
+      return future.get();
+    }
+    catch (ExecutionException e)
+    {
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+    }
+  }
+
+  private void write(ExportedRange range) throws IOException
+  {
+    if (range.ldif != null && range.ldif.length() > 0)
+    {
+      exportConfig.getWriter().write(range.ldif);
+    }
+    exportedCount += range.exportedCount;
+    skippedCount += range.skippedCount;
+  }
+
+  /** The LDIF formatted entries of an entry ID range, with the number of exported and skipped entries. */
+  private static final class ExportedRange
+  {
+    /** The LDIF formatted entries, or {@code null} if they were written to the export writer. */
+    private final String ldif;
+    private final long exportedCount;
+    private final long skippedCount;
+
+    private ExportedRange(String ldif, long exportedCount, long skippedCount)
+    {
+      this.ldif = ldif;
+      this.exportedCount = exportedCount;
+      this.skippedCount = skippedCount;
+    }
+  }
+
+  /** Reads, decodes and formats to LDIF the entries of an entry ID range in its own read transaction. */
+  private final class ExportRangeTask implements Callable<ExportedRange>, ReadOperation<ExportedRange>
+  {
+    private final Storage storage;
+    private final EntryContainer entryContainer;
+    private final long rangeStart;
+    private final long rangeEnd;
+
+    private ExportRangeTask(Storage storage, EntryContainer entryContainer, long rangeStart, long rangeEnd)
+    {
+      this.storage = storage;
+      this.entryContainer = entryContainer;
+      this.rangeStart = rangeStart;
+      this.rangeEnd = rangeEnd;
+    }
+
+    @Override
+    public ExportedRange call() throws Exception
+    {
+      return storage.read(this);
+    }
+
+    @Override
+    public ExportedRange run(ReadableTransaction txn) throws Exception
+    {
+      final StringWriter ldif = new StringWriter();
+      final ExportedRange range;
+      try (final BufferedWriter writer = new BufferedWriter(ldif))
+      {
+        range = exportRange(txn, entryContainer, rangeStart, rangeEnd, writer);
+      }
+      return new ExportedRange(ldif.toString(), range.exportedCount, range.skippedCount);
+    }
+  }
+
+  /**
+   * Reads, decodes and formats to LDIF the entries of an entry ID range.
+   *
+   * @return the number of exported and skipped entries, the LDIF being written to the provided writer
    */
-  private void exportContainer(ReadableTransaction txn, EntryContainer entryContainer)
-       throws StorageRuntimeException, IOException, LDIFException
+  private ExportedRange exportRange(ReadableTransaction txn, EntryContainer entryContainer, long rangeStart,
+      long rangeEnd, BufferedWriter writer) throws IOException, LDIFException
   {
-    ID2Entry id2entry = entryContainer.getID2Entry();
+    final ID2Entry id2entry = entryContainer.getID2Entry();
+    long rangeExportedCount = 0;
+    long rangeSkippedCount = 0;
     try (final Cursor<ByteString, ByteString> cursor = txn.openCursor(id2entry.getName()))
     {
-      while (cursor.next())
+      boolean found = cursor.positionToKeyOrNext(new EntryID(rangeStart).toByteString());
+      for (; found; found = cursor.next())
       {
         if (exportConfig.isCancelled())
         {
@@ -195,10 +426,14 @@ class ExportJob
 
             logger.trace("Malformed id2entry ID %s.%n", StaticUtils.bytesToHex(key));
           }
-          skippedCount++;
+          rangeSkippedCount++;
           continue;
         }
 
+        if (entryID.longValue() > rangeEnd)
+        {
+          break;
+        }
         if (entryID.longValue() == 0)
         {
           // This is the stored entry count.
@@ -220,20 +455,21 @@ class ExportJob
             logger.trace("Malformed id2entry record for ID %d:%n%s%n",
                        entryID, StaticUtils.bytesToHex(value));
           }
-          skippedCount++;
+          rangeSkippedCount++;
           continue;
         }
 
-        if (entry.toLDIF(exportConfig))
+        if (entry.toLDIF(exportConfig, writer))
         {
-          exportedCount++;
+          rangeExportedCount++;
         }
         else
         {
-          skippedCount++;
+          rangeSkippedCount++;
         }
       }
     }
+    return new ExportedRange(null, rangeExportedCount, rangeSkippedCount);
   }
 
   /** This class reports progress of the export job at fixed intervals. */
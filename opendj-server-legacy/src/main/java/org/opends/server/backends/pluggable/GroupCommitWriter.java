@@ -0,0 +1,252 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+
+/**
+ * Commits the write operations of concurrent writers in a single storage transaction, merging their index updates.
+ * <p>
+ * Some index keys, such as {@code objectClass=inetOrgPerson}, are updated by almost every write operation, and each
+ * update reads, modifies and rewrites the whole entry ID set of the key. Write operations are therefore queued, and
+ * the first writer finding no commit in progress becomes the leader: it runs all the queued operations in a single
+ * transaction, then flushes their merged {@link IndexBuffer}s so that each index key is only updated once per batch.
+ * The operations queued while the leader commits form the next batch, hence a write operation waits for at most one
+ * batch commit before its own batch starts.
+ * <p>
+ * A batch is committed atomically. If any of its operations fails, the batch is rolled back and each of its operations
+ * is run again in its own transaction, so that a failure only affects the operation which caused it.
+ */
+final class GroupCommitWriter
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** Maximum number of write operations committed in a single transaction. */
+  static final int MAX_BATCH_SIZE = 128;
+
+  /** A write operation waiting to be committed, along with the outcome of its commit. */
+  private static final class PendingWrite
+  {
+    private final WriteOperation operation;
+    private final IndexBuffer indexBuffer;
+    /** Whether the commit of the operation completed, successfully or not. Only read by the leader. */
+    private boolean completed;
+    private Exception failure;
+    /** Whether the waiting writer can return, guarded by the pending writes. */
+    private boolean done;
+
+    private PendingWrite(WriteOperation operation, IndexBuffer indexBuffer)
+    {
+      this.operation = operation;
+      this.indexBuffer = indexBuffer;
+    }
+  }
+
+  private final Storage storage;
+  /** The write operations waiting for a leader, also used for guarding the state of the commits. */
+  private final ArrayDeque<PendingWrite> pendingWrites = new ArrayDeque<>();
+  /** The thread committing a batch, {@code null} if no commit is in progress. */
+  private Thread leader;
+
+  /**
+   * Creates a new writer.
+   *
+   * @param storage
+   *          the storage in which the write operations are committed
+   */
+  GroupCommitWriter(Storage storage)
+  {
+    this.storage = storage;
+  }
+
+  /**
+   * Commits a write operation, possibly in the same transaction as concurrent write operations. This method returns
+   * once the operation has been committed.
+   *
+   * @param operation
+   *          the write operation, which must buffer all its index updates in the provided index buffer. It may be run
+   *          several times, for instance when the transaction is retried.
+   * @param indexBuffer
+   *          the index updates of the operation, which are flushed after the operation has been run
+   * @param groupable
+   *          whether the operation can be committed along with concurrent operations. Long running operations should
+   *          be committed alone, otherwise they would delay the commit of the concurrent operations.
+   * @throws Exception
+   *           if the write operation failed
+   */
+  void write(WriteOperation operation, IndexBuffer indexBuffer, boolean groupable) throws Exception
+  {
+    final PendingWrite write = new PendingWrite(operation, indexBuffer);
+    boolean alone = !groupable;
+    if (groupable)
+    {
+      synchronized (pendingWrites)
+      {
+        // The operations of the batch being committed cannot wait for the batch.
+        alone = leader == Thread.currentThread();
+        if (!alone)
+        {
+          pendingWrites.add(write);
+        }
+      }
+    }
+    if (alone)
+    {
+      writeAlone(operation, indexBuffer);
+      return;
+    }
+
+    boolean interrupted = false;
+    try
+    {
+      while (true)
+      {
+        final List<PendingWrite> batch;
+        synchronized (pendingWrites)
+        {
+          while (!write.done && leader != null)
+          {
+            try
+            {
+              pendingWrites.wait();
+            }
+            catch (InterruptedException e)
+            {
+              // The write operation may already be running: wait until it completes.
+              interrupted = true;
+            }
+          }
+          if (write.done)
+          {
+            break;
+          }
+          leader = Thread.currentThread();
+          batch = pollBatch();
+        }
+        try
+        {
+          commit(batch);
+        }
+        finally
+        {
+          synchronized (pendingWrites)
+          {
+            for (PendingWrite batchWrite : batch)
+            {
+              if (!batchWrite.completed)
+              {
+                batchWrite.failure = new StorageRuntimeException("The batch of write operations could not complete");
+              }
+              batchWrite.done = true;
+            }
+            leader = null;
+            pendingWrites.notifyAll();
+          }
+        }
+      }
+    }
+    finally
+    {
+      if (interrupted)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (write.failure != null)
+    {
+      throw write.failure;
+    }
+  }
+
+  /** Commits a write operation in its own transaction. */
+  private void writeAlone(final WriteOperation operation, final IndexBuffer indexBuffer) throws Exception
+  {
+    DefaultIndex.write(storage, new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        operation.run(txn);
+        indexBuffer.flush(txn);
+      }
+    });
+  }
+
+  private List<PendingWrite> pollBatch()
+  {
+    final List<PendingWrite> batch = new ArrayList<>(Math.min(pendingWrites.size(), MAX_BATCH_SIZE));
+    while (!pendingWrites.isEmpty() && batch.size() < MAX_BATCH_SIZE)
+    {
+      batch.add(pendingWrites.poll());
+    }
+    return batch;
+  }
+
+  private void commit(final List<PendingWrite> batch)
+  {
+    if (batch.size() > 1)
+    {
+      try
+      {
+        DefaultIndex.write(storage, new WriteOperation()
+        {
+          @Override
+          public void run(WriteableTransaction txn) throws Exception
+          {
+            final IndexBuffer mergedIndexBuffer = new IndexBuffer();
+            for (PendingWrite write : batch)
+            {
+              write.operation.run(txn);
+              mergedIndexBuffer.merge(write.indexBuffer);
+            }
+            mergedIndexBuffer.flush(txn);
+          }
+        });
+        for (PendingWrite write : batch)
+        {
+          write.completed = true;
+        }
+        return;
+      }
+      catch (Exception e)
+      {
+        // Run each operation in its own transaction below, so that the failure only affects the faulty operation.
+        logger.traceException(e);
+      }
+    }
+
+    for (PendingWrite write : batch)
+    {
+      try
+      {
+        writeAlone(write.operation, write.indexBuffer);
+      }
+      catch (Exception e)
+      {
+        write.failure = e;
+      }
+      write.completed = true;
+    }
+  }
+}
@@ -26,6 +26,8 @@ import static org.opends.server.core.DirectoryServer.*;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.zip.DataFormatException;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.InflaterInputStream;
@@ -119,9 +121,12 @@ class ID2Entry extends AbstractTree
     private static final byte PLAIN_ENTRY = 0x00;
     private static final byte COMPRESS_ENTRY = 0x01;
     private static final byte ENCRYPT_ENTRY = 0x02;
+    private static final byte[] NO_DICTIONARY = new byte[0];
 
     /** The format version for entry encoding. */
     static final byte FORMAT_VERSION_V2 = 0x02;
+    /** The format version for entries compressed with an {@link EntryCompressor}. */
+    static final byte FORMAT_VERSION_V3 = 0x03;
 
     private final ByteStringBuilder encodedBuffer = new ByteStringBuilder();
     private final ByteStringBuilder entryBuffer = new ByteStringBuilder();
@@ -140,8 +145,8 @@ class ID2Entry extends AbstractTree
       compressedEntryBuffer.clearAndTruncate(maxBufferSize, BUFFER_INIT_SIZE);
     }
 
-    private Entry decode(ByteString bytes, CompressedSchema compressedSchema)
-        throws DirectoryException, DecodeException, IOException
+    private Entry decode(ByteString bytes, CompressedSchema compressedSchema,
+        CompressionDictionaries compressionDictionaries) throws DirectoryException, DecodeException, IOException
     {
       final byte formatVersion = bytes.byteAt(0);
       switch(formatVersion)
@@ -150,6 +155,8 @@ class ID2Entry extends AbstractTree
         return decodeV1(bytes, compressedSchema);
       case FORMAT_VERSION_V2:
         return decodeV2(bytes, compressedSchema);
+      case FORMAT_VERSION_V3:
+        return decodeV3(bytes, compressedSchema, compressionDictionaries);
       default:
         throw DecodeException.error(ERR_INCOMPATIBLE_ENTRY_VERSION.get(formatVersion));
       }
@@ -257,7 +264,7 @@ class ID2Entry extends AbstractTree
       {
         if (format == PLAIN_ENTRY)
         {
-          return Entry.decode(reader, compressedSchema);
+          return Entry.decodeLazily(bytes.subSequence(reader.position(), bytes.length()), compressedSchema);
         }
         InputStream is = reader.asInputStream();
         if ((format & ENCRYPT_ENTRY) == ENCRYPT_ENTRY)
@@ -282,7 +289,7 @@ class ID2Entry extends AbstractTree
           position += readBytes;
           leftToRead -= readBytes;
         } while (leftToRead > 0 && readBytes > 0);
-        return Entry.decode(ByteString.wrap(data).asReader(), compressedSchema);
+        return Entry.decodeLazily(ByteString.wrap(data), compressedSchema);
       }
       catch (CryptoManagerException cme)
       {
@@ -291,6 +298,98 @@ class ID2Entry extends AbstractTree
       }
     }
 
+    /**
+     * Decodes an entry compressed with an {@link EntryCompressor}.
+     * Entries are encoded according to the sequence
+     *   {VERSION_BYTE, FLAG_BYTE, COMPACT_INTEGER_LENGTH,
+     *    [COMPRESSOR_BYTE, COMPACT_INTEGER_DICTIONARY], ID2ENTRY_VALUE}
+     * where
+     *
+     * VERSION_BYTE = 0x3
+     * FLAG_BYTE, COMPACT_INTEGER_LENGTH and ID2ENTRY_VALUE are as in decodeV2()
+     * COMPRESSOR_BYTE = identifier of the compressor, only present with the COMPRESS_ENTRY flag
+     * COMPACT_INTEGER_DICTIONARY = identifier of the shared dictionary, only present with the COMPRESS_ENTRY flag
+     *
+     * @param bytes A byte array containing the encoded tree value.
+     * @param compressedSchema The compressed schema manager to use when decoding.
+     * @param compressionDictionaries The shared dictionaries used when compressing the entries.
+     * @return The decoded entry.
+     * @throws DecodeException If the data is not in the expected format, or a decompression
+     * or decryption error occurs.
+     * @throws DirectoryException If a Directory Server error occurs.
+     * @throws IOException if an error occurs while reading the data.
+     */
+    private Entry decodeV3(ByteString bytes, CompressedSchema compressedSchema,
+        CompressionDictionaries compressionDictionaries) throws DirectoryException, DecodeException, IOException
+    {
+      ByteSequenceReader reader = bytes.asReader();
+      // skip version byte
+      reader.position(1);
+      int format = reader.readByte();
+      int encodedEntryLen = reader.readCompactUnsignedInt();
+      EntryCompressor compressor = null;
+      byte[] dictionary = null;
+      if ((format & COMPRESS_ENTRY) == COMPRESS_ENTRY)
+      {
+        compressor = getCompressor(reader.readByte());
+        dictionary = getDictionary(compressionDictionaries, reader.readCompactUnsignedInt());
+      }
+
+      ByteSequence payload = bytes.subSequence(reader.position(), bytes.length());
+      if ((format & ENCRYPT_ENTRY) == ENCRYPT_ENTRY)
+      {
+        try
+        {
+          InputStream is = getCryptoManager().getCipherInputStream(payload.asReader().asInputStream());
+          while (compressedEntryBuffer.appendBytes(is, BUFFER_INIT_SIZE) != -1)
+          {
+            // Read the whole payload: CipherInputStream does not read more than block size...
+          }
+          payload = compressedEntryBuffer;
+        }
+        catch (CryptoManagerException cme)
+        {
+          logger.traceException(cme);
+          throw DecodeException.error(cme.getMessageObject());
+        }
+      }
+      if (compressor == null)
+      {
+        // The decoded entry lazily reads its attribute values from the payload: the cached buffer is copied.
+        return Entry.decodeLazily(payload.toByteString(), compressedSchema);
+      }
+      compressor.decompress(payload, dictionary, encodedEntryLen, entryBuffer);
+      // The decoded entry lazily reads its attribute values from the decompressed data: the cached buffer is copied.
+      return Entry.decodeLazily(entryBuffer.toByteString(), compressedSchema);
+    }
+
+    private static EntryCompressor getCompressor(byte compressorId) throws DecodeException
+    {
+      switch (compressorId)
+      {
+      case LZBlockCompressor.ID:
+        return LZBlockCompressor.INSTANCE;
+      default:
+        throw DecodeException.error(ERR_UNKNOWN_ENTRY_COMPRESSOR.get(compressorId));
+      }
+    }
+
+    private static byte[] getDictionary(CompressionDictionaries compressionDictionaries, int dictionaryId)
+        throws DecodeException
+    {
+      if (dictionaryId == CompressionDictionaries.NO_DICTIONARY)
+      {
+        return NO_DICTIONARY;
+      }
+      final byte[] dictionary =
+          compressionDictionaries != null ? compressionDictionaries.getDictionary(dictionaryId) : null;
+      if (dictionary == null)
+      {
+        throw DecodeException.error(ERR_UNKNOWN_COMPRESSION_DICTIONARY.get(dictionaryId));
+      }
+      return dictionary;
+    }
+
     private ByteString encode(Entry entry, DataConfig dataConfig) throws DirectoryException
     {
       encodeVolatile(entry, dataConfig);
@@ -300,6 +399,11 @@ class ID2Entry extends AbstractTree
     private void encodeVolatile(Entry entry, DataConfig dataConfig) throws DirectoryException
     {
       entry.encode(entryBuffer, dataConfig.getEntryEncodeConfig());
+      if (dataConfig.isCompressed() && dataConfig.getCompressor() != null)
+      {
+        encodeV3(dataConfig);
+        return;
+      }
 
       OutputStream os = encodedBuffer.asOutputStream();
       try
@@ -339,6 +443,56 @@ class ID2Entry extends AbstractTree
         }
       }
     }
+
+    /** Encodes the entry held in entryBuffer using the compressor of the provided configuration. */
+    private void encodeV3(DataConfig dataConfig) throws DirectoryException
+    {
+      final EntryCompressor compressor = dataConfig.getCompressor();
+      final CompressionDictionaries compressionDictionaries = dataConfig.getCompressionDictionaries();
+      int dictionaryId = CompressionDictionaries.NO_DICTIONARY;
+      byte[] dictionary = NO_DICTIONARY;
+      if (compressionDictionaries != null)
+      {
+        compressionDictionaries.addSample(entryBuffer);
+        dictionaryId = compressionDictionaries.getCurrentDictionaryId();
+        dictionary = compressionDictionaries.getDictionary(dictionaryId);
+      }
+      compressor.compress(entryBuffer, dictionary, compressedEntryBuffer);
+
+      encodedBuffer.appendByte(FORMAT_VERSION_V3);
+      encodedBuffer.appendByte(PLAIN_ENTRY);
+      encodedBuffer.appendCompactUnsigned(entryBuffer.length());
+      byte format = PLAIN_ENTRY;
+      ByteSequence payload = entryBuffer;
+      if (compressedEntryBuffer.length() < entryBuffer.length())
+      {
+        format = COMPRESS_ENTRY;
+        encodedBuffer.appendByte(compressor.getId());
+        encodedBuffer.appendCompactUnsigned(dictionaryId);
+        payload = compressedEntryBuffer;
+      }
+
+      if (!dataConfig.isEncrypted())
+      {
+        encodedBuffer.setByte(1, format);
+        encodedBuffer.appendBytes(payload);
+        return;
+      }
+      encodedBuffer.setByte(1, (byte) (format | ENCRYPT_ENTRY));
+      OutputStream os = null;
+      try
+      {
+        os = dataConfig.getCryptoSuite().getCipherOutputStream(encodedBuffer.asOutputStream());
+        payload.copyTo(os);
+        os.close();
+      }
+      catch (CryptoManagerException | IOException e)
+      {
+        logger.traceException(e);
+        closeSilently(os);
+        throw new DirectoryException(UNWILLING_TO_PERFORM, ERR_CANNOT_ENCODE_ENTRY.get(e.getLocalizedMessage()));
+      }
+    }
   }
 
   /**
@@ -388,7 +542,7 @@ class ID2Entry extends AbstractTree
     EntryCodec codec = acquireEntryCodec();
     try
     {
-      return codec.decode(bytes, compressedSchema);
+      return codec.decode(bytes, compressedSchema, dataConfig.getCompressionDictionaries());
     }
     finally
     {
@@ -469,6 +623,46 @@ class ID2Entry extends AbstractTree
     }
   }
 
+  /**
+   * Reads several encoded entries from the entry tree.
+   *
+   * @param txn a non null transaction
+   * @param entryIDs The desired entry IDs, preferably sorted in ascending order.
+   * @return The encoded entries in the order of the entry IDs, with null for each missing record.
+   * @throws StorageRuntimeException If an error occurs in the storage.
+   */
+  List<ByteString> readEncodedEntries(ReadableTransaction txn, List<EntryID> entryIDs)
+  {
+    final List<ByteString> keys = new ArrayList<>(entryIDs.size());
+    for (EntryID entryID : entryIDs)
+    {
+      keys.add(entryID.toByteString());
+    }
+    return txn.multiRead(getName(), keys);
+  }
+
+  /**
+   * Decodes an entry read from the entry tree.
+   *
+   * @param entryID The entry ID which forms the key.
+   * @param value The encoded entry, or null if there is no such record.
+   * @return The decoded entry, or null if there is no such record.
+   * @throws DirectoryException If the entry cannot be decoded.
+   */
+  Entry decode(EntryID entryID, ByteString value) throws DirectoryException
+  {
+    try
+    {
+      return get0(value);
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      throw new DirectoryException(DirectoryServer.getCoreConfigManager().getServerErrorResultCode(),
+          ERR_ENTRY_DATABASE_CORRUPT.get(entryID), e);
+    }
+  }
+
   Cursor<EntryID, Entry> openCursor(ReadableTransaction txn)
   {
     return transformKeysAndValues(txn.openCursor(getName()), TO_ENTRY_ID, TO_ENTRY);
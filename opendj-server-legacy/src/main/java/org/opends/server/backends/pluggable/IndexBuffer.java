@@ -55,6 +55,8 @@ class IndexBuffer
 
     void remove(Index index, ByteString key, EntryID entryID);
 
+    void merge(IndexBufferImplementor other);
+
     void reset();
   }
 
@@ -246,6 +248,61 @@ class IndexBuffer
       createOrGetBufferedIndexValues(index, key).deleteEntryID(entryID);
     }
 
+    @Override
+    public void merge(IndexBufferImplementor other)
+    {
+      Reject.ifFalse(other instanceof DefaultIndexBuffer, "Only buffered index updates can be merged");
+      final DefaultIndexBuffer otherBuffer = (DefaultIndexBuffer) other;
+      for (Entry<Index, SortedMap<ByteString, BufferedIndexValues>> entry : otherBuffer.bufferedIndexes.entrySet())
+      {
+        final Map<ByteString, BufferedIndexValues> bufferedOperations = createOrGetBufferedOperations(entry.getKey());
+        for (Entry<ByteString, BufferedIndexValues> keyEntry : entry.getValue().entrySet())
+        {
+          final BufferedIndexValues otherValues = keyEntry.getValue();
+          BufferedIndexValues values = bufferedOperations.get(keyEntry.getKey());
+          if (values == null)
+          {
+            values = new BufferedIndexValues();
+            bufferedOperations.put(keyEntry.getKey(), values);
+          }
+          if (otherValues.deletedEntryIDs != null)
+          {
+            for (EntryID entryID : otherValues.deletedEntryIDs)
+            {
+              values.deleteEntryID(entryID);
+            }
+          }
+          if (otherValues.addedEntryIDs != null)
+          {
+            for (EntryID entryID : otherValues.addedEntryIDs)
+            {
+              values.addEntryID(entryID);
+            }
+          }
+        }
+      }
+
+      for (Entry<VLVIndex, BufferedVLVIndexValues> entry : otherBuffer.bufferedVLVIndexes.entrySet())
+      {
+        final BufferedVLVIndexValues values = createOrGetBufferedVLVIndexValues(entry.getKey());
+        final BufferedVLVIndexValues otherValues = entry.getValue();
+        if (otherValues.deletedSortKeys != null)
+        {
+          for (ByteString sortKey : otherValues.deletedSortKeys)
+          {
+            values.deleteSortKey(sortKey);
+          }
+        }
+        if (otherValues.addedSortKeys != null)
+        {
+          for (ByteString sortKey : otherValues.addedSortKeys)
+          {
+            values.addSortKey(sortKey);
+          }
+        }
+      }
+    }
+
     private static void flushIndex(Index index, WriteableTransaction txn,
         Map<ByteString, BufferedIndexValues> bufferedValues)
     {
@@ -316,6 +373,12 @@ class IndexBuffer
       throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void merge(IndexBufferImplementor other)
+    {
+      throw new UnsupportedOperationException();
+    }
+
     @Override
     public void reset()
     {
@@ -388,6 +451,18 @@ class IndexBuffer
     impl.remove(index, key, entryID);
   }
 
+  /**
+   * Merges the index changes buffered by another index buffer into this index buffer, so that they are flushed along
+   * with the index changes of this index buffer.
+   *
+   * @param indexBuffer
+   *          the index buffer whose changes are merged, which is not modified
+   */
+  void merge(IndexBuffer indexBuffer)
+  {
+    impl.merge(indexBuffer.impl);
+  }
+
   void reset()
   {
     impl.reset();
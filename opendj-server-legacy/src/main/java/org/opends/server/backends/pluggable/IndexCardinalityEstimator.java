@@ -0,0 +1,118 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import java.util.Collection;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.spi.IndexQueryFactory;
+import org.forgerock.opendj.ldap.spi.IndexingOptions;
+import org.opends.server.backends.pluggable.AttributeIndex.MatchingRuleIndex;
+
+/**
+ * Implementation of {@link IndexQueryFactory} estimating, without reading the indexes, the number of candidate entries
+ * an index query would return. Estimations are derived from the statistics maintained by each {@link DefaultIndex}: an
+ * exact match is expected to return the average number of entry IDs per key of the index, a range the whole index.
+ * <p>
+ * These estimations are only used to decide in which order the components of an AND filter should be evaluated.
+ */
+final class IndexCardinalityEstimator implements IndexQueryFactory<Long>
+{
+  /** Estimation returned when the cost of a query cannot be estimated, for instance because an index is missing. */
+  static final long UNKNOWN = Long.MAX_VALUE;
+
+  private static final String PRESENCE_INDEX_KEY = "presence";
+
+  private final AttributeIndex attributeIndex;
+
+  /**
+   * Creates a new estimator for the provided attribute index.
+   *
+   * @param attributeIndex
+   *          The targeted attribute index
+   */
+  IndexCardinalityEstimator(AttributeIndex attributeIndex)
+  {
+    this.attributeIndex = attributeIndex;
+  }
+
+  @Override
+  public Long createExactMatchQuery(String indexID, ByteSequence key)
+  {
+    MatchingRuleIndex index = attributeIndex.getNameToIndexes().get(indexID);
+    if (index == null)
+    {
+      index = attributeIndex.getNameToIndexes().get(indexID + AttributeIndex.PROTECTED_INDEX_ID);
+      if (index == null)
+      {
+        return createMatchAllQuery();
+      }
+    }
+    return toEstimation(index.getAverageEntryIDCountPerKey());
+  }
+
+  @Override
+  public Long createRangeMatchQuery(String indexID, ByteSequence lowerBound, ByteSequence upperBound,
+      boolean lowerBoundInclusive, boolean upperBoundInclusive)
+  {
+    final MatchingRuleIndex index = attributeIndex.getNameToIndexes().get(indexID);
+    return index != null ? toEstimation(index.getEntryIDCount()) : createMatchAllQuery();
+  }
+
+  @Override
+  public Long createIntersectionQuery(Collection<Long> subqueries)
+  {
+    long estimation = UNKNOWN;
+    for (Long subquery : subqueries)
+    {
+      estimation = Math.min(estimation, subquery);
+    }
+    return estimation;
+  }
+
+  @Override
+  public Long createUnionQuery(Collection<Long> subqueries)
+  {
+    long estimation = 0;
+    for (Long subquery : subqueries)
+    {
+      if (subquery == UNKNOWN || estimation > UNKNOWN - subquery)
+      {
+        return UNKNOWN;
+      }
+      estimation += subquery;
+    }
+    return estimation;
+  }
+
+  @Override
+  public Long createMatchAllQuery()
+  {
+    final MatchingRuleIndex index = attributeIndex.getNameToIndexes().get(PRESENCE_INDEX_KEY);
+    return index != null ? toEstimation(index.getEntryIDCount()) : UNKNOWN;
+  }
+
+  @Override
+  public IndexingOptions getIndexingOptions()
+  {
+    return attributeIndex.getIndexingOptions();
+  }
+
+  private static long toEstimation(long count)
+  {
+    return count >= 0 ? count : UNKNOWN;
+  }
+}
@@ -20,7 +20,10 @@ import static org.opends.messages.BackendMessages.*;
 import static org.opends.server.backends.pluggable.EntryIDSet.*;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 
 import org.opends.server.backends.pluggable.AttributeIndex.IndexFilterType;
@@ -205,6 +208,11 @@ class IndexFilter
       }
     }
 
+    // Within each group, start with the most selective components according to the index statistics
+    // so that the candidate set shrinks below the threshold as soon as possible.
+    sortBySelectivity(fastComps);
+    sortBySelectivity(otherComps);
+
     EntryIDSet results = newUndefinedSet();
     // First, process the fast components.
     results = applyFiltersUntilThreshold(results, fastComps);
@@ -259,6 +267,64 @@ class IndexFilter
     return applyFiltersUntilThreshold(results, remainComps);
   }
 
+  /**
+   * Sorts the provided filters by ascending estimated number of candidate entries. Filters which cannot be estimated
+   * are kept last, in their original order.
+   */
+  private void sortBySelectivity(ArrayList<SearchFilter> filters)
+  {
+    if (filters.size() < 2)
+    {
+      return;
+    }
+    final Map<SearchFilter, Long> estimations = new IdentityHashMap<>(filters.size());
+    for (SearchFilter filter : filters)
+    {
+      estimations.put(filter, estimateCandidateCount(filter));
+    }
+    // Stable sort: filters having the same estimation keep their relative order
+    Collections.sort(filters, new Comparator<SearchFilter>()
+    {
+      @Override
+      public int compare(SearchFilter f1, SearchFilter f2)
+      {
+        return Long.compare(estimations.get(f1), estimations.get(f2));
+      }
+    });
+  }
+
+  private long estimateCandidateCount(SearchFilter filter)
+  {
+    final IndexFilterType indexFilterType = toIndexFilterType(filter.getFilterType());
+    if (indexFilterType == null)
+    {
+      return IndexCardinalityEstimator.UNKNOWN;
+    }
+    final AttributeIndex attributeIndex = entryContainer.getAttributeIndex(filter.getAttributeType());
+    if (attributeIndex == null)
+    {
+      return IndexCardinalityEstimator.UNKNOWN;
+    }
+    return attributeIndex.estimateCandidateCount(indexFilterType, filter);
+  }
+
+  private static IndexFilterType toIndexFilterType(FilterType filterType)
+  {
+    switch (filterType)
+    {
+    case EQUALITY:
+      return IndexFilterType.EQUALITY;
+    case PRESENT:
+      return IndexFilterType.PRESENCE;
+    case APPROXIMATE_MATCH:
+      return IndexFilterType.APPROXIMATE;
+    case SUBSTRING:
+      return IndexFilterType.SUBSTRING;
+    default:
+      return null;
+    }
+  }
+
   private EntryIDSet applyFiltersUntilThreshold(EntryIDSet results, ArrayList<SearchFilter> filters)
   {
     for(SearchFilter filter : filters) {
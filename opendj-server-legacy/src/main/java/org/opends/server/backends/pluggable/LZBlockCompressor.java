@@ -0,0 +1,311 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.opends.messages.BackendMessages.*;
+
+import java.util.Arrays;
+
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.forgerock.opendj.ldap.DecodeException;
+
+/**
+ * Fast LZ77 block compressor producing data in the LZ4 block format.
+ * <p>
+ * The compressed data is a list of sequences, each made of a token, literal bytes copied as is and a match
+ * referencing bytes previously decompressed, up to 64KB backward. The last sequence only contains literals:
+ *
+ * <pre>
+ * SEQUENCE = TOKEN [LITERAL_LENGTH_EXTENSION] LITERALS [OFFSET [MATCH_LENGTH_EXTENSION]]
+ * TOKEN = 4 high bits holding the literal length, 4 low bits holding the match length minus 4
+ * OFFSET = 2 bytes little endian distance between the match and the current position
+ * xxx_LENGTH_EXTENSION = bytes added to the length while the 4 bits of the token and the previous bytes are all set
+ * </pre>
+ *
+ * The dictionary is logically prepended to the data, so that matches can reference its last 64KB. Decompression
+ * only copies bytes and is much cheaper than inflating data compressed with Deflater.
+ */
+final class LZBlockCompressor implements EntryCompressor
+{
+  /** Identifier of this compressor in the compressed entries. */
+  static final byte ID = 0x01;
+  /** The single instance of this stateless compressor. */
+  static final LZBlockCompressor INSTANCE = new LZBlockCompressor();
+
+  private static final int MIN_MATCH = 4;
+  private static final int MAX_OFFSET = 0xFFFF;
+  /** The last bytes of the data are always encoded as literals. */
+  private static final int LAST_LITERALS = 5;
+  /** A match cannot start in the last bytes of the data. */
+  private static final int MATCH_FIND_LIMIT = 12;
+  private static final int RUN_MASK = 0x0F;
+  private static final int ML_MASK = 0x0F;
+  private static final int MAX_LENGTH_BYTE = 0xFF;
+  private static final int HASH_LOG = 12;
+  private static final int HASH_TABLE_SIZE = 1 << HASH_LOG;
+  /** Number of failed match lookups after which positions are skipped faster in incompressible data. */
+  private static final int SKIP_TRIGGER = 6;
+
+  /** Per thread buffers, avoiding to rehash the dictionary for each compressed entry. */
+  private static final ThreadLocal<CompressionState> COMPRESSION_STATE = new ThreadLocal<CompressionState>()
+  {
+    @Override
+    protected CompressionState initialValue()
+    {
+      return new CompressionState();
+    }
+  };
+
+  /** Buffers used for compressing data, caching the content of the hash table once the dictionary is hashed. */
+  private static final class CompressionState
+  {
+    private final int[] hashTable = new int[HASH_TABLE_SIZE];
+    private final int[] dictionaryHashTable = new int[HASH_TABLE_SIZE];
+    private byte[] dictionary;
+    private int dictionaryLength;
+    private byte[] source = new byte[0];
+
+    private void reset(byte[] dictionary, ByteSequence data)
+    {
+      final int dictionaryLength = Math.min(dictionary.length, MAX_OFFSET);
+      final int sourceLength = dictionaryLength + data.length();
+      final boolean sameDictionary = this.dictionary == dictionary;
+      if (source.length < sourceLength)
+      {
+        source = sameDictionary ? Arrays.copyOf(source, sourceLength) : new byte[sourceLength];
+      }
+      data.copyTo(source, dictionaryLength);
+      if (!sameDictionary)
+      {
+        System.arraycopy(dictionary, dictionary.length - dictionaryLength, source, 0, dictionaryLength);
+        Arrays.fill(dictionaryHashTable, -1);
+        for (int i = 0; i + MIN_MATCH <= dictionaryLength; i++)
+        {
+          dictionaryHashTable[hash(readInt(source, i))] = i;
+        }
+        this.dictionary = dictionary;
+        this.dictionaryLength = dictionaryLength;
+      }
+      System.arraycopy(dictionaryHashTable, 0, hashTable, 0, HASH_TABLE_SIZE);
+    }
+  }
+
+  private LZBlockCompressor()
+  {
+    // Use INSTANCE.
+  }
+
+  @Override
+  public byte getId()
+  {
+    return ID;
+  }
+
+  @Override
+  public void compress(ByteSequence data, byte[] dictionary, ByteStringBuilder output)
+  {
+    final CompressionState state = COMPRESSION_STATE.get();
+    state.reset(dictionary, data);
+    final byte[] src = state.source;
+    final int[] hashTable = state.hashTable;
+    final int start = state.dictionaryLength;
+    final int end = start + data.length();
+    final int matchLimit = end - LAST_LITERALS;
+    final int matchFindLimit = end - MATCH_FIND_LIMIT;
+
+    int anchor = start;
+    int pos = start;
+    int misses = 0;
+    while (pos < matchFindLimit)
+    {
+      final int sequence = readInt(src, pos);
+      final int h = hash(sequence);
+      final int ref = hashTable[h];
+      hashTable[h] = pos;
+      if (ref < 0 || pos - ref > MAX_OFFSET || readInt(src, ref) != sequence)
+      {
+        pos += 1 + (misses++ >>> SKIP_TRIGGER);
+        continue;
+      }
+      misses = 0;
+
+      // Extend the match backward, then forward.
+      int matchStart = pos;
+      int refStart = ref;
+      while (matchStart > anchor && refStart > 0 && src[matchStart - 1] == src[refStart - 1])
+      {
+        matchStart--;
+        refStart--;
+      }
+      int matchEnd = pos + MIN_MATCH;
+      int refEnd = ref + MIN_MATCH;
+      while (matchEnd < matchLimit && src[matchEnd] == src[refEnd])
+      {
+        matchEnd++;
+        refEnd++;
+      }
+
+      writeSequence(output, src, anchor, matchStart - anchor, matchStart - refStart, matchEnd - matchStart);
+      hashTable[hash(readInt(src, matchEnd - 2))] = matchEnd - 2;
+      pos = matchEnd;
+      anchor = matchEnd;
+    }
+    writeLastLiterals(output, src, anchor, end - anchor);
+  }
+
+  @Override
+  public void decompress(ByteSequence compressed, byte[] dictionary, int uncompressedLength,
+      ByteStringBuilder output) throws DecodeException
+  {
+    final byte[] src = compressed.toByteArray();
+    final int dstStart = output.length();
+    final int dstEnd = dstStart + uncompressedLength;
+    output.setLength(dstEnd);
+    final byte[] dst = output.getBackingArray();
+
+    int sp = 0;
+    int dp = dstStart;
+    while (true)
+    {
+      checkCorrupted(sp < src.length);
+      final int token = src[sp++] & 0xFF;
+
+      int literalLength = token >>> 4;
+      if (literalLength == RUN_MASK)
+      {
+        int b;
+        do
+        {
+          checkCorrupted(sp < src.length);
+          b = src[sp++] & 0xFF;
+          literalLength += b;
+        }
+        while (b == MAX_LENGTH_BYTE);
+      }
+      checkCorrupted(literalLength <= src.length - sp && literalLength <= dstEnd - dp);
+      System.arraycopy(src, sp, dst, dp, literalLength);
+      sp += literalLength;
+      dp += literalLength;
+      if (sp == src.length)
+      {
+        // The last sequence has no match.
+        break;
+      }
+
+      checkCorrupted(sp + 2 <= src.length);
+      final int offset = (src[sp++] & 0xFF) | ((src[sp++] & 0xFF) << 8);
+      int matchLength = token & ML_MASK;
+      if (matchLength == ML_MASK)
+      {
+        int b;
+        do
+        {
+          checkCorrupted(sp < src.length);
+          b = src[sp++] & 0xFF;
+          matchLength += b;
+        }
+        while (b == MAX_LENGTH_BYTE);
+      }
+      matchLength += MIN_MATCH;
+      checkCorrupted(offset > 0 && matchLength <= dstEnd - dp);
+
+      int ref = dp - offset;
+      if (ref < dstStart)
+      {
+        // The match starts in the dictionary.
+        final int dictionaryPos = dictionary.length - (dstStart - ref);
+        checkCorrupted(dictionaryPos >= 0);
+        final int length = Math.min(dstStart - ref, matchLength);
+        System.arraycopy(dictionary, dictionaryPos, dst, dp, length);
+        dp += length;
+        matchLength -= length;
+        ref = dstStart;
+      }
+      if (dp - ref >= matchLength)
+      {
+        System.arraycopy(dst, ref, dst, dp, matchLength);
+        dp += matchLength;
+      }
+      else
+      {
+        // Overlapping match, repeating the last decompressed bytes.
+        for (int i = 0; i < matchLength; i++)
+        {
+          dst[dp++] = dst[ref++];
+        }
+      }
+    }
+    checkCorrupted(dp == dstEnd);
+  }
+
+  private static void checkCorrupted(boolean condition) throws DecodeException
+  {
+    if (!condition)
+    {
+      throw DecodeException.error(ERR_CANNOT_DECODE_ENTRY.get());
+    }
+  }
+
+  private static void writeSequence(ByteStringBuilder output, byte[] src, int literalStart, int literalLength,
+      int offset, int matchLength)
+  {
+    final int matchLengthCode = matchLength - MIN_MATCH;
+    output.appendByte((Math.min(literalLength, RUN_MASK) << 4) | Math.min(matchLengthCode, ML_MASK));
+    if (literalLength >= RUN_MASK)
+    {
+      writeLengthExtension(output, literalLength - RUN_MASK);
+    }
+    output.appendBytes(src, literalStart, literalLength);
+    output.appendByte(offset);
+    output.appendByte(offset >>> 8);
+    if (matchLengthCode >= ML_MASK)
+    {
+      writeLengthExtension(output, matchLengthCode - ML_MASK);
+    }
+  }
+
+  private static void writeLastLiterals(ByteStringBuilder output, byte[] src, int literalStart, int literalLength)
+  {
+    output.appendByte(Math.min(literalLength, RUN_MASK) << 4);
+    if (literalLength >= RUN_MASK)
+    {
+      writeLengthExtension(output, literalLength - RUN_MASK);
+    }
+    output.appendBytes(src, literalStart, literalLength);
+  }
+
+  private static void writeLengthExtension(ByteStringBuilder output, int length)
+  {
+    int remaining = length;
+    while (remaining >= MAX_LENGTH_BYTE)
+    {
+      output.appendByte(MAX_LENGTH_BYTE);
+      remaining -= MAX_LENGTH_BYTE;
+    }
+    output.appendByte(remaining);
+  }
+
+  private static int readInt(byte[] src, int pos)
+  {
+    return (src[pos] & 0xFF) | (src[pos + 1] & 0xFF) << 8 | (src[pos + 2] & 0xFF) << 16 | (src[pos + 3] & 0xFF) << 24;
+  }
+
+  private static int hash(int sequence)
+  {
+    return (sequence * -1640531535) >>> (32 - HASH_LOG);
+  }
+}
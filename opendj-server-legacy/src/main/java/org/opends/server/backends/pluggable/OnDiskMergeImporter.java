@@ -1143,6 +1143,12 @@ final class OnDiskMergeImporter
       return new VLVIndexImporterTask(progressReporter, source, vlvIndex, importer);
     }
 
+    final Callable<Void> newIndexImporterTask(DefaultIndex index, final Chunk source,
+        PhaseTwoProgressReporter progressReporter)
+    {
+      return new IndexImporterTask(progressReporter, source, index, importer);
+    }
+
     static final Callable<Void> newFlushTask(final Chunk source)
     {
       return new Callable<Void>()
@@ -1203,6 +1209,10 @@ final class OnDiskMergeImporter
       {
         return newVLVIndexImporterTask(getVLVIndex(entryContainer, treeName), source, progressReporter);
       }
+      else if (isIndex(entryContainer, treeName))
+      {
+        return newIndexImporterTask(getIndex(entryContainer, treeName), source, progressReporter);
+      }
       return newChunkCopierTask(treeName, source, progressReporter);
     }
   }
@@ -1261,6 +1271,10 @@ final class OnDiskMergeImporter
       {
         return newVLVIndexImporterTask(getVLVIndex(entryContainer, treeName), source, progressReporter);
       }
+      else if (isIndex(entryContainer, treeName))
+      {
+        return newIndexImporterTask(getIndex(entryContainer, treeName), source, progressReporter);
+      }
       return newChunkCopierTask(treeName, source, progressReporter);
     }
   }
@@ -1361,6 +1375,12 @@ final class OnDiskMergeImporter
       throw new UnsupportedOperationException();
     }
 
+    @Override
+    public List<ByteString> multiRead(TreeName treeName, List<? extends ByteSequence> keys)
+    {
+      throw new UnsupportedOperationException();
+    }
+
     @Override
     public boolean update(TreeName treeName, ByteSequence key, UpdateFunction f)
     {
@@ -2295,6 +2315,53 @@ final class OnDiskMergeImporter
     }
   }
 
+  /** Task to copy index chunks into a database tree while computing the index statistics. */
+  private static final class IndexImporterTask implements Callable<Void>
+  {
+    private final PhaseTwoProgressReporter reporter;
+    private final DefaultIndex index;
+    private final Importer destination;
+    private final Chunk source;
+
+    IndexImporterTask(PhaseTwoProgressReporter reporter, Chunk source, DefaultIndex index, Importer destination)
+    {
+      this.source = source;
+      this.index = index;
+      this.destination = destination;
+      this.reporter = reporter;
+    }
+
+    @Override
+    public Void call() throws InterruptedException
+    {
+      checkThreadNotInterrupted();
+      try (final SequentialCursor<ByteString, ByteString> sourceCursor = trackCursorProgress(reporter, source.flip()))
+      {
+        final Chunk destinationChunk = asChunk(index.getName(), destination);
+        long nbKeys = 0;
+        long nbEntryIDs = 0;
+        while (sourceCursor.next())
+        {
+          final ByteString key = sourceCursor.getKey();
+          final ByteString value = sourceCursor.getValue();
+          if (!destinationChunk.put(key, value))
+          {
+            throw new IllegalStateException("Destination chunk is full");
+          }
+          final EntryIDSet entryIDSet = index.decodeValue(key, value);
+          if (entryIDSet.isDefined())
+          {
+            nbKeys++;
+            nbEntryIDs += entryIDSet.size();
+          }
+          checkThreadNotInterrupted();
+        }
+        index.importStatistics(destination, nbKeys, nbEntryIDs);
+        return null;
+      }
+    }
+  }
+
   private static long copyIntoChunk(SequentialCursor<ByteString, ByteString> source, Chunk destination)
       throws InterruptedException
   {
@@ -3174,6 +3241,11 @@ final class OnDiskMergeImporter
     return null;
   }
 
+  private static boolean isIndex(EntryContainer entryContainer, TreeName treeName)
+  {
+    return getIndex(entryContainer, treeName) != null;
+  }
+
   private static DefaultIndex getIndex(EntryContainer entryContainer, TreeName treeName)
   {
     for (AttributeIndex attrIndex : entryContainer.getAttributeIndexes())
@@ -3884,6 +3956,17 @@ final class OnDiskMergeImporter
       return importer.read(treeName, key);
     }
 
+    @Override
+    public List<ByteString> multiRead(TreeName treeName, List<? extends ByteSequence> keys)
+    {
+      final List<ByteString> values = new ArrayList<>(keys.size());
+      for (ByteSequence key : keys)
+      {
+        values.add(importer.read(treeName, key));
+      }
+      return values;
+    }
+
     @Override
     public void put(TreeName treeName, ByteSequence key, ByteSequence value)
     {
@@ -0,0 +1,99 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.opends.messages.BackendMessages.*;
+import static org.opends.server.util.StaticUtils.*;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.backends.pluggable.spi.AccessMode;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+
+/**
+ * This class provides entry compression dictionaries which are persisted in a tree, alongside the compressed schema.
+ * The key is the dictionary identifier and the value is the dictionary content.
+ */
+final class PersistentCompressionDictionaries extends CompressionDictionaries
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The compression dictionaries tree. */
+  private static final TreeName dictionariesTreeName = new TreeName("compressed_schema", "compression_dictionaries");
+
+  /** The storage in which the tree is held. */
+  private final Storage storage;
+  private final String backendId;
+
+  /**
+   * Creates a new instance of the compression dictionaries, loading the dictionaries already stored.
+   *
+   * @param backendId
+   *          the identifier of the backend owning the storage
+   * @param storage
+   *          a reference to the storage in which the tree will be held
+   * @param txn
+   *          a non null transaction
+   * @param accessMode
+   *          specifies how the storage has been opened (read only or read/write)
+   * @throws StorageRuntimeException
+   *           if a problem occurs while loading the dictionaries from the tree
+   */
+  PersistentCompressionDictionaries(String backendId, Storage storage, WriteableTransaction txn,
+      AccessMode accessMode) throws StorageRuntimeException
+  {
+    super(accessMode.isWriteable());
+    this.backendId = backendId;
+    this.storage = storage;
+
+    txn.openTree(dictionariesTreeName, accessMode.isWriteable());
+    try (Cursor<ByteString, ByteString> cursor = txn.openCursor(dictionariesTreeName))
+    {
+      while (cursor.next())
+      {
+        registerDictionary(cursor.getKey().toInt(), cursor.getValue().toByteArray());
+      }
+    }
+  }
+
+  @Override
+  boolean storeDictionary(final int dictionaryId, final byte[] dictionary)
+  {
+    try
+    {
+      storage.write(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          txn.put(dictionariesTreeName, ByteString.valueOfInt(dictionaryId), ByteString.wrap(dictionary));
+        }
+      });
+      return true;
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      logger.warn(WARN_CANNOT_STORE_COMPRESSION_DICTIONARY, backendId, stackTraceToSingleLineString(e));
+      return false;
+    }
+  }
+}
@@ -79,6 +79,8 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
 
   /** The compressed schema manager for this backend. */
   private PersistentCompressedSchema compressedSchema;
+  /** The shared dictionaries used for compressing the entries of this backend. */
+  private PersistentCompressionDictionaries compressionDictionaries;
 
   private final ServerContext serverContext;
 
@@ -137,6 +139,7 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
         public void run(WriteableTransaction txn) throws Exception
         {
           compressedSchema = new PersistentCompressedSchema(serverContext, storage, txn, accessMode);
+          compressionDictionaries = new PersistentCompressionDictionaries(backendId, storage, txn, accessMode);
           openAndRegisterEntryContainers(txn, config.getBaseDN(), accessMode);
         }
       });
@@ -255,6 +258,16 @@ public class RootContainer implements ConfigurationChangeListener<PluggableBacke
     return compressedSchema;
   }
 
+  /**
+   * Retrieves the shared dictionaries used for compressing the entries of this backend.
+   *
+   * @return The entry compression dictionaries for this backend.
+   */
+  CompressionDictionaries getCompressionDictionaries()
+  {
+    return compressionDictionaries;
+  }
+
   /**
    * Get the BackendMonitor object used by this root container.
    *
@@ -40,11 +40,11 @@ import org.opends.server.util.StaticUtils;
 class State extends AbstractTree
 {
   /**
-   * Use COMPACTED serialization for new indexes.
-   * @see {@link EntryIDSet.EntryIDSetCodecV2}
+   * Use COMPACTED serialization with BITMAP encoding of large sets for new indexes.
+   * @see {@link EntryIDSet.EntryIDSetCodecV4}
    */
   private static final Collection<IndexFlag> DEFAULT_FLAGS = Collections.unmodifiableCollection(Arrays
-      .asList(IndexFlag.COMPACTED));
+      .asList(IndexFlag.COMPACTED, IndexFlag.BITMAP));
 
   /**
    * Bit-field containing possible flags that an index can have
@@ -55,7 +55,13 @@ class State extends AbstractTree
     TRUSTED(0x01),
 
     /** Use compact encoding for indexes' ID storage. */
-    COMPACTED(0x02);
+    COMPACTED(0x02),
+
+    /**
+     * Use compressed bitmap encoding for the large sets of IDs. Indexes created before this flag was introduced keep
+     * the compact encoding, so that they remain readable by previous versions.
+     */
+    BITMAP(0x04);
 
     static final EnumSet<IndexFlag> ALL_FLAGS = EnumSet.allOf(IndexFlag.class);
 
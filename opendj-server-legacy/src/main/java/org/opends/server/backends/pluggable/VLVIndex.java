@@ -800,7 +800,7 @@ class VLVIndex extends AbstractTree implements ConfigurationChangeListener<Backe
    * The RFC states that the lowest value of a multi-valued attribute should be used,
    * regardless of the sort order.
    */
-  private static ByteString getLowestAttributeValue(final Entry entry, final SortKey sortKey)
+  static ByteString getLowestAttributeValue(final Entry entry, final SortKey sortKey)
   {
     final AttributeDescription attrDesc = AttributeDescription.valueOf(sortKey.getAttributeDescription());
     final MatchingRule matchingRule = getEffectiveOrderingRule(sortKey);
@@ -830,7 +830,7 @@ class VLVIndex extends AbstractTree implements ConfigurationChangeListener<Backe
     return sortValue;
   }
 
-  private static MatchingRule getEffectiveOrderingRule(SortKey sortKey)
+  static MatchingRule getEffectiveOrderingRule(SortKey sortKey)
   {
     String mrOid = sortKey.getOrderingMatchingRule();
     if (mrOid != null)
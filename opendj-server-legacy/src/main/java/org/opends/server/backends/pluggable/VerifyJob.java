@@ -16,13 +16,21 @@
  */
 package org.opends.server.backends.pluggable;
 
+import static org.forgerock.util.Utils.newThreadFactory;
 import static org.opends.messages.BackendMessages.*;
 import static org.opends.server.backends.pluggable.DnKeyFormat.*;
 import static org.opends.server.backends.pluggable.SuffixContainer.*;
 import static org.opends.server.backends.pluggable.VLVIndex.*;
 import static org.opends.server.util.StaticUtils.*;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.AbstractSet;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -33,10 +41,19 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import org.forgerock.i18n.slf4j.LocalizedLogger;
 import org.forgerock.opendj.ldap.ByteSequence;
@@ -58,11 +75,39 @@ import org.opends.server.types.Entry;
 import org.opends.server.util.ServerConstants;
 import org.opends.server.util.StaticUtils;
 
-/** This class is used to run an index verification process on the backend. */
+/**
+ * This class is used to run an index verification process on the backend.
+ * <p>
+ * The completeness verification splits the entry ID space into ranges verified concurrently by a pool of worker
+ * threads. When a checkpoint file is configured, the highest entry ID below which all the entries have been verified
+ * is periodically saved so that an interrupted verification can be resumed. The cleanliness verification of an
+ * attribute index verifies each of its matching rule indexes concurrently. In both modes, the number of records
+ * verified per second can be limited so that the verification does not impact the clients of a live server.
+ */
 class VerifyJob
 {
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
+  /** The name template of the verify worker threads. */
+  private static final String VERIFY_WORKER_THREAD_NAME = "VERIFY-WORKER-%d";
+  /** The number of entry IDs verified by a single verify task. */
+  private static final long ENTRY_ID_RANGE_SIZE = 1000;
+  /** The number of pending verify tasks per worker thread. */
+  private static final int PENDING_TASKS_PER_THREAD = 2;
+  /** The minimum number of entry IDs verified between two checkpoints. */
+  private static final long CHECKPOINT_INTERVAL = 10000;
+
+  /** Checkpoint file property holding the verified base DN. */
+  private static final String CHECKPOINT_BASE_DN = "baseDN";
+  /** Checkpoint file property holding the verified indexes. */
+  private static final String CHECKPOINT_INDEXES = "indexes";
+  /** Checkpoint file property holding the entry ID up to which all the entries have been verified. */
+  private static final String CHECKPOINT_LAST_ENTRY_ID = "lastEntryID";
+  /** Checkpoint file property holding the number of entries verified. */
+  private static final String CHECKPOINT_KEY_COUNT = "keyCount";
+  /** Checkpoint file property holding the number of errors found. */
+  private static final String CHECKPOINT_ERROR_COUNT = "errorCount";
+
   /** The verify configuration. */
   private final VerifyConfig verifyConfig;
   /** The root container used for the verify job. */
@@ -71,9 +116,9 @@ class VerifyJob
   /** The number of milliseconds between job progress reports. */
   private final long progressInterval = 10000;
   /** The number of index keys processed. */
-  private long keyCount;
+  private final AtomicLong keyCount = new AtomicLong();
   /** The number of errors found. */
-  private long errorCount;
+  private final AtomicLong errorCount = new AtomicLong();
   /** The number of records that have exceeded the entry limit. */
   private long entryLimitExceededCount;
   /** The number of records that reference more than one entry. */
@@ -103,16 +148,30 @@ class VerifyJob
   /** A list of the VLV indexes to be verified. */
   private final ArrayList<VLVIndex> vlvIndexList = new ArrayList<>();
 
+  /** The number of threads verifying the backend. */
+  private final int threadCount;
+  /** Whether the backend may be written to while it is verified. */
+  private final boolean backendOnline;
+  /** Limits the number of records verified per second. */
+  private final Throttle throttle;
+  /** The executor running the verify tasks. */
+  private ExecutorService executor;
+
   /**
    * Construct a VerifyJob.
    *
    * @param rootContainer The root container.
    * @param verifyConfig The verify configuration.
+   * @param backendOnline Whether the backend may be written to while it is verified.
    */
-  VerifyJob(RootContainer rootContainer, VerifyConfig verifyConfig)
+  VerifyJob(RootContainer rootContainer, VerifyConfig verifyConfig, boolean backendOnline)
   {
     this.rootContainer = rootContainer;
     this.verifyConfig = verifyConfig;
+    this.backendOnline = backendOnline;
+    this.threadCount = verifyConfig.getThreadCount() > 0
+        ? verifyConfig.getThreadCount() : Runtime.getRuntime().availableProcessors();
+    this.throttle = new Throttle(verifyConfig.getMaxRecordsPerSecond());
   }
 
   /**
@@ -146,7 +205,7 @@ class VerifyJob
     }
   }
 
-  private long verifyBackend0(ReadableTransaction txn) throws StorageRuntimeException, DirectoryException
+  private long verifyBackend0(ReadableTransaction txn) throws Exception
   {
     EntryContainer entryContainer = rootContainer.getEntryContainer(verifyConfig.getBaseDN());
 
@@ -244,6 +303,7 @@ class VerifyJob
       TimerTask progressTask = new ProgressTask(cleanMode, txn);
       timer.scheduleAtFixedRate(progressTask, progressInterval, progressInterval);
 
+      executor = Executors.newFixedThreadPool(threadCount, newThreadFactory(null, VERIFY_WORKER_THREAD_NAME, true));
       // Iterate through the index keys.
       try
       {
@@ -264,6 +324,7 @@ class VerifyJob
       }
       finally
       {
+        executor.shutdownNow();
         timer.cancel();
       }
 
@@ -273,19 +334,19 @@ class VerifyJob
       float rate = 0;
       if (totalTime > 0)
       {
-        rate = 1000f*keyCount / totalTime;
+        rate = 1000f*keyCount.get() / totalTime;
       }
 
       if (cleanMode)
       {
-        logger.info(NOTE_VERIFY_CLEAN_FINAL_STATUS, keyCount, errorCount, totalTime/1000, rate);
+        logger.info(NOTE_VERIFY_CLEAN_FINAL_STATUS, keyCount.get(), errorCount.get(), totalTime/1000, rate);
 
         if (multiReferenceCount > 0)
         {
           float averageEntryReferences = 0;
-          if (keyCount > 0)
+          if (keyCount.get() > 0)
           {
-            averageEntryReferences = entryReferencesCount/keyCount;
+            averageEntryReferences = entryReferencesCount/keyCount.get();
           }
 
           if (logger.isDebugEnabled())
@@ -299,7 +360,7 @@ class VerifyJob
       }
       else
       {
-        logger.info(NOTE_VERIFY_FINAL_STATUS, keyCount, errorCount, totalTime/1000, rate);
+        logger.info(NOTE_VERIFY_FINAL_STATUS, keyCount.get(), errorCount.get(), totalTime/1000, rate);
         if (!entryLimitMap.isEmpty())
         {
           logger.debug(INFO_VERIFY_ENTRY_LIMIT_STATS_HEADER);
@@ -333,69 +394,192 @@ class VerifyJob
     {
       entryContainer.sharedLock.unlock();
     }
-    return errorCount;
+    return errorCount.get();
   }
 
   /**
    * Iterate through the entries in id2entry to perform a check for
    * index completeness. We check that the ID for the entry is indeed
    * present in the indexes for the appropriate values.
+   * <p>
+   * With several threads, the entry ID ranges are verified concurrently, each
+   * one in its own read transaction, and their results are accounted in entry
+   * ID order, so that the saved checkpoints only cover entries which have all
+   * been verified. The last range also verifies the entries added since the
+   * verification started.
+   * <p>
+   * The number of entries is only compared with the stored entry count when
+   * all of them were verified in the provided transaction, or when the backend
+   * is offline, since entries may be added or deleted meanwhile otherwise.
    *
-   * @throws StorageRuntimeException If an error occurs in the storage.
+   * @throws Exception If an error occurs while verifying the entries.
    */
-  private void iterateID2Entry(ReadableTransaction txn) throws StorageRuntimeException
+  private void iterateID2Entry(ReadableTransaction txn) throws Exception
   {
-    try(final Cursor<ByteString, ByteString> cursor = txn.openCursor(id2entry.getName()))
+    final long storedEntryCount = id2entry.getRecordCount(txn);
+    final long highestID = rootContainer.getEntryContainer(verifyConfig.getBaseDN()).getHighestEntryID(txn).longValue();
+    final File checkpointFile = getCheckpointFile();
+    final boolean verifyInOneTransaction = threadCount == 1;
+
+    long nextRangeStart = loadCheckpoint(checkpointFile);
+    final boolean checkEntryCount = (verifyInOneTransaction || !backendOnline) && nextRangeStart == 0;
+    long lastCheckpointID = nextRangeStart - 1;
+    // The key count is incremented for each entry, this one only counts the entries of the accounted ranges
+    long verifiedKeyCount = keyCount.get();
+    final Deque<Future<VerifiedRange>> pendingTasks = new ArrayDeque<>();
+    try
     {
-      long storedEntryCount = id2entry.getRecordCount(txn);
-      while (cursor.next())
+      while (nextRangeStart <= highestID || !pendingTasks.isEmpty())
       {
-        ByteString key = cursor.getKey();
-        ByteString value = cursor.getValue();
-
-        EntryID entryID;
-        try
+        final VerifiedRange range;
+        if (verifyInOneTransaction)
         {
-          entryID = new EntryID(key);
+          final long rangeEnd = Math.min(highestID, nextRangeStart + ENTRY_ID_RANGE_SIZE - 1);
+          range = new VerifyRangeTask(nextRangeStart, rangeEnd, rangeEnd == highestID).run(txn);
+          nextRangeStart = rangeEnd + 1;
         }
-        catch (Exception e)
+        else
         {
-          errorCount++;
-          if (logger.isTraceEnabled())
+          while (nextRangeStart <= highestID && pendingTasks.size() < threadCount * PENDING_TASKS_PER_THREAD)
           {
-            logger.traceException(e);
-
-            logger.trace("Malformed id2entry ID %s.%n", StaticUtils.bytesToHex(key));
+            final long rangeEnd = Math.min(highestID, nextRangeStart + ENTRY_ID_RANGE_SIZE - 1);
+            pendingTasks.add(executor.submit(new VerifyRangeTask(nextRangeStart, rangeEnd, rangeEnd == highestID)));
+            nextRangeStart = rangeEnd + 1;
           }
-          continue;
+          range = getResult(pendingTasks.removeFirst());
         }
 
-        keyCount++;
-
-        Entry entry;
-        try
+        verifiedKeyCount += range.keyCount;
+        errorCount.addAndGet(range.errorCount);
+        if (checkpointFile != null && range.end - lastCheckpointID >= CHECKPOINT_INTERVAL && range.end < highestID)
         {
-          entry = id2entry.entryFromDatabase(value, rootContainer.getCompressedSchema());
+          saveCheckpoint(checkpointFile, range.end, verifiedKeyCount);
+          lastCheckpointID = range.end;
         }
-        catch (Exception e)
-        {
-          errorCount++;
-          if (logger.isTraceEnabled())
-          {
-            logger.traceException(e);
+      }
+    }
+    finally
+    {
+      for (Future<VerifiedRange> pendingTask : pendingTasks)
+      {
+        pendingTask.cancel(true);
+      }
+    }
 
-            logger.trace("Malformed id2entry record for ID %d:%n%s%n", entryID, StaticUtils.bytesToHex(value));
-          }
-          continue;
-        }
+    if (checkEntryCount && keyCount.get() != storedEntryCount)
+    {
+      errorCount.incrementAndGet();
+      logger.error(ERR_VERIFY_WRONG_ENTRY_COUNT, storedEntryCount, keyCount.get());
+    }
+    if (checkpointFile != null)
+    {
+      checkpointFile.delete();
+    }
+  }
+
+  private File getCheckpointFile()
+  {
+    final String path = verifyConfig.getCheckpointFile();
+    return path != null ? new File(path) : null;
+  }
 
-        verifyEntry(txn, entryID, entry);
+  /**
+   * Loads the progress saved in the checkpoint file by a previous verification of the same indexes.
+   *
+   * @param checkpointFile The checkpoint file, may be {@code null}.
+   * @return The entry ID from which the verification must start.
+   */
+  private long loadCheckpoint(File checkpointFile)
+  {
+    if (checkpointFile == null || !checkpointFile.exists())
+    {
+      return 0;
+    }
+
+    final Properties checkpoint = new Properties();
+    try (InputStream in = new FileInputStream(checkpointFile))
+    {
+      checkpoint.load(in);
+      if (!getCheckpointBaseDN().equals(checkpoint.getProperty(CHECKPOINT_BASE_DN))
+          || !getCheckpointIndexes().equals(checkpoint.getProperty(CHECKPOINT_INDEXES)))
+      {
+        logger.warn(WARN_VERIFY_CHECKPOINT_MISMATCH, checkpointFile);
+        return 0;
       }
-      if (keyCount != storedEntryCount)
+      final long lastEntryID = Long.parseLong(checkpoint.getProperty(CHECKPOINT_LAST_ENTRY_ID));
+      keyCount.set(Long.parseLong(checkpoint.getProperty(CHECKPOINT_KEY_COUNT)));
+      errorCount.set(Long.parseLong(checkpoint.getProperty(CHECKPOINT_ERROR_COUNT)));
+      logger.info(NOTE_VERIFY_RESUME_FROM_CHECKPOINT, lastEntryID + 1, checkpointFile);
+      return lastEntryID + 1;
+    }
+    catch (IOException | RuntimeException e)
+    {
+      logger.traceException(e);
+      logger.warn(WARN_VERIFY_CANNOT_READ_CHECKPOINT, checkpointFile, stackTraceToSingleLineString(e));
+      keyCount.set(0);
+      errorCount.set(0);
+      return 0;
+    }
+  }
+
+  /**
+   * Saves the verification progress in the checkpoint file. The checkpoint is first written to a temporary file
+   * which then replaces the checkpoint file, so that an interruption never leaves a partially written checkpoint.
+   *
+   * @param checkpointFile The checkpoint file.
+   * @param lastEntryID The entry ID up to which all the entries have been verified.
+   * @param verifiedKeyCount The number of entries verified up to the last entry ID.
+   */
+  private void saveCheckpoint(File checkpointFile, long lastEntryID, long verifiedKeyCount)
+  {
+    final Properties checkpoint = new Properties();
+    checkpoint.setProperty(CHECKPOINT_BASE_DN, getCheckpointBaseDN());
+    checkpoint.setProperty(CHECKPOINT_INDEXES, getCheckpointIndexes());
+    checkpoint.setProperty(CHECKPOINT_LAST_ENTRY_ID, Long.toString(lastEntryID));
+    checkpoint.setProperty(CHECKPOINT_KEY_COUNT, Long.toString(verifiedKeyCount));
+    checkpoint.setProperty(CHECKPOINT_ERROR_COUNT, Long.toString(errorCount.get()));
+
+    final File tmpFile = new File(checkpointFile.getPath() + ".tmp");
+    try
+    {
+      try (OutputStream out = new FileOutputStream(tmpFile))
       {
-        errorCount++;
-        logger.error(ERR_VERIFY_WRONG_ENTRY_COUNT, storedEntryCount, keyCount);
+        checkpoint.store(out, null);
       }
+      renameFile(tmpFile, checkpointFile);
+    }
+    catch (IOException e)
+    {
+      logger.traceException(e);
+      logger.warn(WARN_VERIFY_CANNOT_WRITE_CHECKPOINT, checkpointFile, stackTraceToSingleLineString(e));
+    }
+  }
+
+  private String getCheckpointBaseDN()
+  {
+    return verifyConfig.getBaseDN().toNormalizedUrlSafeString();
+  }
+
+  private String getCheckpointIndexes()
+  {
+    final List<String> indexes = new ArrayList<>();
+    for (String index : verifyConfig.getCompleteList())
+    {
+      indexes.add(index.toLowerCase());
+    }
+    Collections.sort(indexes);
+    return indexes.toString();
+  }
+
+  private static <T> T getResult(Future<T> future) throws Exception
+  {
+    try
+    {
+      return future.get();
+    }
+    catch (ExecutionException e)
+    {
+      throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
     }
   }
 
@@ -404,10 +588,9 @@ class VerifyJob
    * index cleanliness. For each ID in the index we check that the
    * entry it refers to does indeed contain the expected value.
    *
-   * @throws StorageRuntimeException If an error occurs in the storage.
-   * @throws DirectoryException If an error occurs reading values in the index.
+   * @throws Exception If an error occurs while verifying the index.
    */
-  private void iterateIndex(ReadableTransaction txn) throws StorageRuntimeException, DirectoryException
+  private void iterateIndex(ReadableTransaction txn) throws Exception
   {
     if (verifyDN2ID)
     {
@@ -419,10 +602,40 @@ class VerifyJob
     }
     else if (!attrIndexList.isEmpty())
     {
-      AttributeIndex attrIndex = attrIndexList.get(0);
-      for (MatchingRuleIndex index : attrIndex.getNameToIndexes().values())
+      // Each matching rule index is verified by its own task
+      final List<Future<Void>> tasks = new ArrayList<>();
+      try
       {
-        iterateAttrIndex(txn, index);
+        for (final MatchingRuleIndex index : attrIndexList.get(0).getNameToIndexes().values())
+        {
+          tasks.add(executor.submit(new Callable<Void>()
+          {
+            @Override
+            public Void call() throws Exception
+            {
+              return rootContainer.getStorage().read(new ReadOperation<Void>()
+              {
+                @Override
+                public Void run(ReadableTransaction indexTxn) throws Exception
+                {
+                  iterateAttrIndex(indexTxn, index);
+                  return null;
+                }
+              });
+            }
+          }));
+        }
+        for (Future<Void> task : tasks)
+        {
+          getResult(task);
+        }
+      }
+      finally
+      {
+        for (Future<Void> task : tasks)
+        {
+          task.cancel(true);
+        }
       }
     }
     else if (!vlvIndexList.isEmpty())
@@ -446,7 +659,8 @@ class VerifyJob
     {
       while (cursor.next())
       {
-        keyCount++;
+        throttle.acquire();
+        keyCount.incrementAndGet();
 
         final ByteString key = cursor.getKey();
         final EntryID entryID;
@@ -456,7 +670,7 @@ class VerifyJob
         }
         catch (Exception e)
         {
-          errorCount++;
+          errorCount.incrementAndGet();
           logger.trace("File dn2id has malformed ID for DN <%s>", key, e);
           continue;
         }
@@ -470,19 +684,19 @@ class VerifyJob
         }
         catch (Exception e)
         {
-          errorCount++;
+          errorCount.incrementAndGet();
           logger.traceException(e);
           continue;
         }
 
         if (entry == null)
         {
-          errorCount++;
+          errorCount.incrementAndGet();
           logger.error(ERR_VERIFY_DN2ID_UNKNOWN_ID, key, entryID.longValue());
         }
         else if (!key.equals(dnToDNKey(entry.getName(), verifyConfig.getBaseDN().size())))
         {
-          errorCount++;
+          errorCount.incrementAndGet();
           logger.error(ERR_VERIFY_DN2ID_WRONG_ENTRY, key, entry.getName());
         }
       }
@@ -518,7 +732,7 @@ class VerifyJob
     final long currentValue = id2childrenCount.getCount(txn, parent.entryID);
     if (expected != currentValue)
     {
-      errorCount++;
+      errorCount.incrementAndGet();
       logger.error(ERR_VERIFY_ID2COUNT_WRONG_COUNT, parent.baseDN, currentValue, expected);
     }
   }
@@ -529,11 +743,12 @@ class VerifyJob
     {
       while (cursor.next())
       {
+        throttle.acquire();
         final EntryID entryID = cursor.getKey();
         if (!id2entry.containsEntryID(txn, entryID))
         {
           logger.error(ERR_VERIFY_ID2COUNT_WRONG_ID, entryID.longValue());
-          errorCount++;
+          errorCount.incrementAndGet();
         }
       }
     }
@@ -547,7 +762,7 @@ class VerifyJob
    * @param index The index containing the key.
    * @param key A key that has exceeded the entry limit.
    */
-  private void incrEntryLimitStats(Index index, ByteString key)
+  private synchronized void incrEntryLimitStats(Index index, ByteString key)
   {
     HashMap<ByteString,Long> hashMap = entryLimitMap.get(index);
     if (hashMap == null)
@@ -572,7 +787,7 @@ class VerifyJob
    *
    * @param entryIDSet The set of entry IDs for the index record.
    */
-  private void updateIndexStats(EntryIDSet entryIDSet)
+  private synchronized void updateIndexStats(EntryIDSet entryIDSet)
   {
     if (!entryIDSet.isDefined())
     {
@@ -611,6 +826,7 @@ class VerifyJob
     {
       while (cursor.next())
       {
+        throttle.acquire();
         ByteString key = cursor.getKey();
         EntryID id = new EntryID(decodeEntryIDFromVLVKey(key));
         Entry entry;
@@ -621,13 +837,13 @@ class VerifyJob
         catch (Exception e)
         {
           logger.traceException(e);
-          errorCount++;
+          errorCount.incrementAndGet();
           continue;
         }
 
         if (entry == null)
         {
-          errorCount++;
+          errorCount.incrementAndGet();
           logger.error(ERR_VERIFY_UNKNOWN_ID, id, keyDump(vlvIndex, key));
           continue;
         }
@@ -635,7 +851,7 @@ class VerifyJob
         ByteString expectedKey = vlvIndex.toKey(entry, id);
         if (expectedKey.compareTo(key) != 0)
         {
-          errorCount++;
+          errorCount.incrementAndGet();
           logger.error(ERR_VERIFY_ENTRY_NON_MATCHING_KEY, id, keyDump(vlvIndex, expectedKey));
         }
       }
@@ -659,7 +875,8 @@ class VerifyJob
     {
       while (cursor.next())
       {
-        keyCount++;
+        throttle.acquire();
+        keyCount.incrementAndGet();
 
         final ByteString key = cursor.getKey();
 
@@ -669,13 +886,13 @@ class VerifyJob
           entryIDSet = cursor.getValue();
           if (entryIDSet.size() == 0)
           {
-            errorCount++;
+            errorCount.incrementAndGet();
             logger.error(ERR_VERIFY_EMPTY_IDSET, keyDump(index, key));
           }
         }
         catch (Exception e)
         {
-          errorCount++;
+          errorCount.incrementAndGet();
           logger.traceException(e);
           logger.trace("Malformed ID list: %n%s", keyDump(index, key));
           continue;
@@ -703,13 +920,13 @@ class VerifyJob
             catch (Exception e)
             {
               logger.traceException(e);
-              errorCount++;
+              errorCount.incrementAndGet();
               continue;
             }
 
             if (entry == null)
             {
-              errorCount++;
+              errorCount.incrementAndGet();
               logger.error(ERR_VERIFY_UNKNOWN_REFERENCE, id.longValue(), keyDump(index, key));
               continue;
             }
@@ -758,7 +975,7 @@ class VerifyJob
 
             if (!foundMatchingKey.get())
             {
-              errorCount++;
+              errorCount.incrementAndGet();
               logger.error(ERR_VERIFY_UNEXPECTED_REFERENCE, entry.getName(), keyDump(index, key));
             }
           }
@@ -772,14 +989,16 @@ class VerifyJob
    *
    * @param entryID The entry ID.
    * @param entry The entry to be checked.
+   * @return The number of errors found.
    */
-  private void verifyEntry(ReadableTransaction txn, EntryID entryID, Entry entry)
+  private long verifyEntry(ReadableTransaction txn, EntryID entryID, Entry entry)
   {
+    long errors = 0;
     if (verifyDN2ID)
     {
-      verifyDN2ID(txn, entryID, entry);
+      errors += verifyDN2ID(txn, entryID, entry);
     }
-    verifyIndex(txn, entryID, entry);
+    return errors + verifyIndex(txn, entryID, entry);
   }
 
   /**
@@ -787,9 +1006,11 @@ class VerifyJob
    *
    * @param entryID The entry ID.
    * @param entry The entry to be checked.
+   * @return The number of errors found.
    */
-  private void verifyDN2ID(ReadableTransaction txn, EntryID entryID, Entry entry)
+  private long verifyDN2ID(ReadableTransaction txn, EntryID entryID, Entry entry)
   {
+    long errors = 0;
     DN dn = entry.getName();
 
     // Check the ID is in dn2id with the correct DN.
@@ -799,12 +1020,12 @@ class VerifyJob
       if (id == null)
       {
         logger.error(ERR_VERIFY_DN2ID_MISSING_KEY, dn);
-        errorCount++;
+        errors++;
       }
       else if (!id.equals(entryID))
       {
         logger.error(ERR_VERIFY_DN2ID_WRONG_ID, id.longValue(), entryID.longValue(), dn);
-        errorCount++;
+        errors++;
       }
     }
     catch (Exception e)
@@ -814,7 +1035,7 @@ class VerifyJob
         logger.traceException(e);
         logger.trace("File dn2id has error reading key %s: %s.%n", dn, e.getMessage());
       }
-      errorCount++;
+      errors++;
     }
 
     // Check the parent DN is in dn2id.
@@ -827,7 +1048,7 @@ class VerifyJob
         if (id == null)
         {
           logger.error(ERR_VERIFY_DN2ID_MISSING_KEY, parentDN);
-          errorCount++;
+          errors++;
         }
       }
       catch (Exception e)
@@ -837,9 +1058,10 @@ class VerifyJob
           logger.traceException(e);
           logger.trace("File dn2id has error reading key %s: %s.%n", parentDN, e.getMessage());
         }
-        errorCount++;
+        errors++;
       }
     }
+    return errors;
   }
 
   /**
@@ -867,12 +1089,14 @@ class VerifyJob
    *          The entry ID.
    * @param entry
    *          The entry to be checked.
+   * @return The number of errors found.
    */
-  private void verifyIndex(ReadableTransaction txn, EntryID entryID, Entry entry)
+  private long verifyIndex(ReadableTransaction txn, EntryID entryID, Entry entry)
   {
+    long errors = 0;
     for (AttributeIndex attrIndex : attrIndexList)
     {
-      verifyAttribute(txn, entryID, entry, attrIndex);
+      errors += verifyAttribute(txn, entryID, entry, attrIndex);
     }
 
     for (VLVIndex vlvIndex : vlvIndexList)
@@ -882,7 +1106,7 @@ class VerifyJob
         if (vlvIndex.verifyEntry(txn, entryID, entry))
         {
           logger.error(ERR_VERIFY_MISSING_ENTRY_VLV, entry.getName(), vlvIndex.getName());
-          errorCount++;
+          errors++;
         }
       }
       catch (DirectoryException e)
@@ -893,7 +1117,7 @@ class VerifyJob
           logger.trace("Error checking entry %s against filter or base DN for VLV index %s: %s",
                      entry.getName(), vlvIndex.getName(), e.getMessageObject());
         }
-        errorCount++;
+        errors++;
       }
       catch (StorageRuntimeException e)
       {
@@ -903,24 +1127,27 @@ class VerifyJob
           logger.trace("Error reading VLV index %s for entry %s: %s",
               vlvIndex.getName(), entry.getName(), StaticUtils.getBacktrace(e));
         }
-        errorCount++;
+        errors++;
       }
     }
+    return errors;
   }
 
   /** Check that an attribute index is complete for a given attribute. */
-  private void verifyAttribute(ReadableTransaction txn, EntryID entryID, Entry entry, AttributeIndex attrIndex)
+  private long verifyAttribute(ReadableTransaction txn, EntryID entryID, Entry entry, AttributeIndex attrIndex)
   {
+    long errors = 0;
     for (MatchingRuleIndex index : attrIndex.getNameToIndexes().values())
     {
       for (ByteString key : index.indexEntry(entry))
       {
-        verifyAttributeInIndex(index, txn, key, entryID);
+        errors += verifyAttributeInIndex(index, txn, key, entryID);
       }
     }
+    return errors;
   }
 
-  private void verifyAttributeInIndex(Index index, ReadableTransaction txn,
+  private long verifyAttributeInIndex(Index index, ReadableTransaction txn,
       ByteString key, EntryID entryID)
   {
     try
@@ -929,12 +1156,13 @@ class VerifyJob
       if (cr == ConditionResult.FALSE)
       {
         logger.error(ERR_VERIFY_MISSING_ID, entryID.longValue(), keyDump(index, key));
-        errorCount++;
+        return 1;
       }
       else if (cr == ConditionResult.UNDEFINED)
       {
         incrEntryLimitStats(index, key);
       }
+      return 0;
     }
     catch (StorageRuntimeException e)
     {
@@ -944,7 +1172,7 @@ class VerifyJob
 
         logger.trace("Error reading tree: %s%n%s", e.getMessage(), keyDump(index, key));
       }
-      errorCount++;
+      return 1;
     }
   }
 
@@ -973,6 +1201,148 @@ class VerifyJob
     return DirectoryServer.getInstance().getServerContext().getBackendConfigManager().getParentDNInSuffix(dn);
   }
 
+  /** The number of entries and errors of a verified entry ID range. */
+  private static final class VerifiedRange
+  {
+    private final long end;
+    private final long keyCount;
+    private final long errorCount;
+
+    private VerifiedRange(long end, long keyCount, long errorCount)
+    {
+      this.end = end;
+      this.keyCount = keyCount;
+      this.errorCount = errorCount;
+    }
+  }
+
+  /**
+   * Verifies the completeness of the indexes for the entries of an entry ID range, in its own read transaction when
+   * run as a task.
+   */
+  private final class VerifyRangeTask implements Callable<VerifiedRange>, ReadOperation<VerifiedRange>
+  {
+    private final long rangeStart;
+    private final long rangeEnd;
+    /** Whether the entries after the end of the range, added since the verification started, are verified too. */
+    private final boolean lastRange;
+
+    private VerifyRangeTask(long rangeStart, long rangeEnd, boolean lastRange)
+    {
+      this.rangeStart = rangeStart;
+      this.rangeEnd = rangeEnd;
+      this.lastRange = lastRange;
+    }
+
+    @Override
+    public VerifiedRange call() throws Exception
+    {
+      return rootContainer.getStorage().read(this);
+    }
+
+    @Override
+    public VerifiedRange run(ReadableTransaction txn) throws Exception
+    {
+      final ByteString rangeEndKey = new EntryID(rangeEnd).toByteString();
+      long rangeKeyCount = 0;
+      long rangeErrorCount = 0;
+      try (final Cursor<ByteString, ByteString> cursor = txn.openCursor(id2entry.getName()))
+      {
+        // Malformed keys are compared as raw bytes so that each one is checked by exactly one range
+        boolean found = rangeStart == 0 ? cursor.next()
+                                        : cursor.positionToKeyOrNext(new EntryID(rangeStart).toByteString());
+        for (; found && (lastRange || cursor.getKey().compareTo(rangeEndKey) <= 0); found = cursor.next())
+        {
+          throttle.acquire();
+          ByteString key = cursor.getKey();
+          ByteString value = cursor.getValue();
+
+          EntryID entryID;
+          try
+          {
+            entryID = new EntryID(key);
+          }
+          catch (Exception e)
+          {
+            rangeErrorCount++;
+            if (logger.isTraceEnabled())
+            {
+              logger.traceException(e);
+
+              logger.trace("Malformed id2entry ID %s.%n", StaticUtils.bytesToHex(key));
+            }
+            continue;
+          }
+
+          rangeKeyCount++;
+          keyCount.incrementAndGet();
+
+          Entry entry;
+          try
+          {
+            entry = id2entry.entryFromDatabase(value, rootContainer.getCompressedSchema());
+          }
+          catch (Exception e)
+          {
+            rangeErrorCount++;
+            if (logger.isTraceEnabled())
+            {
+              logger.traceException(e);
+
+              logger.trace("Malformed id2entry record for ID %d:%n%s%n", entryID, StaticUtils.bytesToHex(value));
+            }
+            continue;
+          }
+
+          rangeErrorCount += verifyEntry(txn, entryID, entry);
+        }
+      }
+      return new VerifiedRange(rangeEnd, rangeKeyCount, rangeErrorCount);
+    }
+  }
+
+  /** Limits the rate at which the verify threads process records. */
+  private static final class Throttle
+  {
+    /** The minimum number of nanoseconds between two records, or 0 if the rate is not limited. */
+    private final long intervalNanos;
+    /** The time at which the next record may be processed. */
+    private long nextPermitNanos;
+
+    private Throttle(int maxRecordsPerSecond)
+    {
+      this.intervalNanos = maxRecordsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / maxRecordsPerSecond : 0;
+      this.nextPermitNanos = System.nanoTime();
+    }
+
+    /** Waits until the next record may be processed. */
+    private void acquire()
+    {
+      if (intervalNanos == 0)
+      {
+        return;
+      }
+
+      long waitNanos;
+      synchronized (this)
+      {
+        final long now = System.nanoTime();
+        if (nextPermitNanos - now < 0)
+        {
+          nextPermitNanos = now;
+        }
+        waitNanos = nextPermitNanos - now;
+        nextPermitNanos += intervalNanos;
+      }
+      final long deadline = System.nanoTime() + waitNanos;
+      while (waitNanos > 0 && !Thread.currentThread().isInterrupted())
+      {
+        LockSupport.parkNanos(waitNanos);
+        waitNanos = deadline - System.nanoTime();
+      }
+    }
+  }
+
   /** This class maintain the number of children for a given dn. */
   private static final class ChildrenCount {
     private final ByteString baseDN;
@@ -1048,7 +1418,7 @@ class VerifyJob
     @Override
     public void run()
     {
-      long latestCount = keyCount;
+      long latestCount = keyCount.get();
       long deltaCount = latestCount - previousCount;
       long latestTime = System.currentTimeMillis();
       long deltaTime = latestTime - previousTime;
@@ -1060,7 +1430,7 @@ class VerifyJob
 
       float rate = 1000f*deltaCount / deltaTime;
 
-      logger.info(NOTE_VERIFY_PROGRESS_REPORT, latestCount, totalCount, errorCount, rate);
+      logger.info(NOTE_VERIFY_PROGRESS_REPORT, latestCount, totalCount, errorCount.get(), rate);
 
       try
       {
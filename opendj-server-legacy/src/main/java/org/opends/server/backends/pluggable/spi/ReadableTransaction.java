@@ -15,6 +15,8 @@
  */
 package org.opends.server.backends.pluggable.spi;
 
+import java.util.List;
+
 import org.forgerock.opendj.ldap.ByteSequence;
 import org.forgerock.opendj.ldap.ByteString;
 
@@ -34,6 +36,20 @@ public interface ReadableTransaction
    */
   ByteString read(TreeName treeName, ByteSequence key);
 
+  /**
+   * Reads the records' values associated to the provided keys, in the tree whose name is provided.
+   * <p>
+   * Reading keys sorted in ascending order is cheaper than reading them one by one, because the storage engine can
+   * reuse its position in the tree from one key to the next instead of walking the tree from its root.
+   *
+   * @param treeName
+   *          the tree name
+   * @param keys
+   *          the records' keys, preferably sorted in ascending order
+   * @return the records' values, in the same order as the keys, with {@code null} for each key having no record
+   */
+  List<ByteString> multiRead(TreeName treeName, List<? extends ByteSequence> keys);
+
   /**
    * Opens a cursor on the tree whose name is provided.
    *
@@ -108,6 +108,9 @@ public class GroupManager extends InternalDirectoryServerPlugin
   /** A mapping between the DNs of all group entries and the corresponding group instances. */
   private DITCacheMap<Group<?>> groupInstances;
 
+  /** The group instances indexed by member, updated with the write lock held when registering group instances. */
+  private final GroupMembershipIndex membershipIndex = new GroupMembershipIndex();
+
   /** Lock to protect internal data structures. */
   private final ReadWriteLock lock;
 
@@ -270,6 +273,7 @@ public class GroupManager extends InternalDirectoryServerPlugin
           if (g.getClass().getName().equals(group.getClass().getName()))
           {
             iterator.remove();
+            membershipIndex.removeGroup(g);
           }
         }
       }
@@ -331,6 +335,7 @@ public class GroupManager extends InternalDirectoryServerPlugin
               if (g.getClass().getName().equals(group.getClass().getName()))
               {
                 iterator.remove();
+                membershipIndex.removeGroup(g);
               }
             }
           }
@@ -580,8 +585,7 @@ public class GroupManager extends InternalDirectoryServerPlugin
             try
             {
               Group<?> groupInstance = groupImplementation.newInstance(serverContext, entry);
-              groupInstances.put(entry.getName(), groupInstance);
-              refreshToken++;
+              registerGroupInstance(entry.getName(), groupInstance);
             }
             catch (DirectoryException e)
             {
@@ -616,6 +620,7 @@ public class GroupManager extends InternalDirectoryServerPlugin
         if (backend.handlesEntry(groupEntryDN))
         {
           iterator.remove();
+          membershipIndex.removeGroup(mapEntry.getValue());
         }
       }
     }
@@ -680,8 +685,13 @@ public class GroupManager extends InternalDirectoryServerPlugin
     lock.writeLock().lock();
     try
     {
-      if (groupInstances.removeSubtree(entry.getName(), null))
+      final List<Group<?>> removedGroups = new ArrayList<>();
+      if (groupInstances.removeSubtree(entry.getName(), removedGroups))
       {
+        for (Group<?> group : removedGroups)
+        {
+          membershipIndex.removeGroup(group);
+        }
         refreshToken++;
       }
     }
@@ -752,6 +762,7 @@ public class GroupManager extends InternalDirectoryServerPlugin
             || updatesObjectClass(modifications))
         {
           groupInstances.remove(oldEntry.getName());
+          membershipIndex.removeGroup(group);
           // This updates the refreshToken
           createAndRegisterGroup(newEntry);
         }
@@ -942,8 +953,7 @@ public class GroupManager extends InternalDirectoryServerPlugin
           lock.writeLock().lock();
           try
           {
-            groupInstances.put(entry.getName(), groupInstance);
-            refreshToken++;
+            registerGroupInstance(entry.getName(), groupInstance);
           }
           finally
           {
@@ -958,6 +968,68 @@ public class GroupManager extends InternalDirectoryServerPlugin
     }
   }
 
+  /**
+   * Registers a group instance, replacing any group instance registered with the same DN. The caller must hold the
+   * write lock.
+   */
+  private void registerGroupInstance(DN groupDN, Group<?> groupInstance)
+  {
+    final Group<?> previousGroupInstance = groupInstances.put(groupDN, groupInstance);
+    if (previousGroupInstance != null)
+    {
+      membershipIndex.removeGroup(previousGroupInstance);
+    }
+    membershipIndex.addGroup(groupInstance, groupInstance.getNormalizedMemberDNs());
+    refreshToken++;
+  }
+
+  /**
+   * Indexes the members of a registered group instance again. Group
+   * implementations must call this method whenever the members of a group
+   * instance change other than through the group manager, for instance when
+   * they update the group entry with the internal group membership update
+   * control. The caller should hold a lock preventing further changes of the
+   * members, otherwise more recent changes could be overwritten in the index.
+   *
+   * @param  group  The group instance whose members changed.
+   */
+  public void updateMembershipIndex(Group<?> group)
+  {
+    membershipIndex.updateGroup(group, group.getNormalizedMemberDNs());
+  }
+
+  /**
+   * Retrieves the group instances containing the provided entry, either
+   * directly or through nested groups.  The groups listing their members are
+   * found through an index by member, only the other groups, such as dynamic
+   * groups, are checked one by one.
+   *
+   * @param  entry  The entry for which to retrieve the groups.
+   *
+   * @return  The group instances containing the provided entry.
+   */
+  public Set<Group<?>> getGroupInstancesForMember(Entry entry)
+  {
+    // The groups are not called with the group manager lock held,
+    // since some group implementations call the group manager with their own lock held.
+    final List<Group<?>> matchingUnindexedGroups = new ArrayList<>();
+    for (Group<?> group : membershipIndex.getUnindexedGroups())
+    {
+      try
+      {
+        if (group.isMember(entry))
+        {
+          matchingUnindexedGroups.add(group);
+        }
+      }
+      catch (DirectoryException e)
+      {
+        logger.traceException(e);
+      }
+    }
+    return membershipIndex.getGroups(entry.getName().toNormalizedByteString(), matchingUnindexedGroups);
+  }
+
   /**
    * Removes all group instances that might happen to be registered with the
    * group manager.  This method is only intended for testing purposes and
@@ -969,6 +1041,7 @@ public class GroupManager extends InternalDirectoryServerPlugin
     try
     {
       groupInstances.clear();
+      membershipIndex.clear();
     }
     finally
     {
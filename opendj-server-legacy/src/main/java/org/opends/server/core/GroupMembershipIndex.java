@@ -0,0 +1,176 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.opends.server.api.Group;
+
+/**
+ * Indexes the registered group instances by the normalized DNs of their members, so that the groups containing an
+ * entry can be found without checking the membership of the entry in every group.
+ * <p>
+ * Only the groups explicitly listing their members, as returned by {@link Group#getNormalizedMemberDNs()}, are
+ * indexed. The other groups, such as dynamic or virtual static groups, are kept aside and must be checked one by one.
+ * Nested groups are resolved when looking up the groups of an entry, by looking up the groups listing the groups
+ * already found.
+ * <p>
+ * This class is thread safe. It never calls the groups while holding its own lock, except for retrieving their DNs.
+ */
+final class GroupMembershipIndex
+{
+  /** The indexed groups, mapped to their members. */
+  private final Map<Group<?>, Collection<ByteString>> membersByGroup = new IdentityHashMap<>();
+  /** The normalized DNs of the members of the indexed groups, mapped to the groups listing them. */
+  private final Map<ByteString, Set<Group<?>>> groupsByMember = new HashMap<>();
+  /** The groups whose members cannot be indexed. */
+  private final Set<Group<?>> unindexedGroups = new LinkedHashSet<>();
+
+  /**
+   * Adds a group to this index.
+   *
+   * @param group
+   *          the group to add
+   * @param normalizedMemberDNs
+   *          the normalized DNs of the members of the group, or {@code null} if they cannot be indexed
+   */
+  synchronized void addGroup(Group<?> group, Collection<ByteString> normalizedMemberDNs)
+  {
+    removeGroup(group);
+    if (normalizedMemberDNs == null)
+    {
+      unindexedGroups.add(group);
+      return;
+    }
+    membersByGroup.put(group, normalizedMemberDNs);
+    for (ByteString memberDN : normalizedMemberDNs)
+    {
+      Set<Group<?>> groups = groupsByMember.get(memberDN);
+      if (groups == null)
+      {
+        groups = new HashSet<>(2);
+        groupsByMember.put(memberDN, groups);
+      }
+      groups.add(group);
+    }
+  }
+
+  /**
+   * Indexes the members of a group again, provided the group is still in this index.
+   *
+   * @param group
+   *          the group whose members changed
+   * @param normalizedMemberDNs
+   *          the normalized DNs of the members of the group, or {@code null} if they cannot be indexed
+   */
+  synchronized void updateGroup(Group<?> group, Collection<ByteString> normalizedMemberDNs)
+  {
+    if (membersByGroup.containsKey(group) || unindexedGroups.contains(group))
+    {
+      addGroup(group, normalizedMemberDNs);
+    }
+  }
+
+  /**
+   * Removes a group from this index.
+   *
+   * @param group
+   *          the group to remove
+   */
+  synchronized void removeGroup(Group<?> group)
+  {
+    if (unindexedGroups.remove(group))
+    {
+      return;
+    }
+    final Collection<ByteString> normalizedMemberDNs = membersByGroup.remove(group);
+    if (normalizedMemberDNs != null)
+    {
+      for (ByteString memberDN : normalizedMemberDNs)
+      {
+        final Set<Group<?>> groups = groupsByMember.get(memberDN);
+        if (groups != null && groups.remove(group) && groups.isEmpty())
+        {
+          groupsByMember.remove(memberDN);
+        }
+      }
+    }
+  }
+
+  /** Removes all the groups from this index. */
+  synchronized void clear()
+  {
+    membersByGroup.clear();
+    groupsByMember.clear();
+    unindexedGroups.clear();
+  }
+
+  /**
+   * Returns the groups whose members are not indexed.
+   *
+   * @return a copy of the groups whose members are not indexed
+   */
+  synchronized List<Group<?>> getUnindexedGroups()
+  {
+    return new ArrayList<>(unindexedGroups);
+  }
+
+  /**
+   * Returns the groups containing an entry, either directly or through nested groups.
+   *
+   * @param normalizedDN
+   *          the normalized DN of the entry
+   * @param unindexedGroups
+   *          the groups whose members are not indexed and which contain the entry
+   * @return the groups containing the entry, including the provided groups
+   */
+  synchronized Set<Group<?>> getGroups(ByteString normalizedDN, Collection<Group<?>> unindexedGroups)
+  {
+    final Set<Group<?>> groups = new LinkedHashSet<>(unindexedGroups);
+    final ArrayDeque<ByteString> memberDNs = new ArrayDeque<>();
+    memberDNs.add(normalizedDN);
+    for (Group<?> group : unindexedGroups)
+    {
+      memberDNs.add(group.getGroupDN().toNormalizedByteString());
+    }
+    while (!memberDNs.isEmpty())
+    {
+      final Set<Group<?>> containingGroups = groupsByMember.get(memberDNs.poll());
+      if (containingGroups != null)
+      {
+        for (Group<?> group : containingGroups)
+        {
+          // Each group is only visited once, which also stops circular nesting.
+          if (groups.add(group))
+          {
+            memberDNs.add(group.getGroupDN().toNormalizedByteString());
+          }
+        }
+      }
+    }
+    return groups;
+  }
+}
@@ -20,6 +20,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.forgerock.i18n.slf4j.LocalizedLogger;
 import org.forgerock.opendj.ldap.ResultCode;
@@ -31,6 +32,7 @@ import org.forgerock.opendj.ldap.DN;
 import org.opends.server.types.DirectoryException;
 import org.opends.server.types.Entry;
 
+import static org.opends.messages.CoreMessages.*;
 import static org.opends.server.controls.PersistentSearchChangeType.*;
 
 /**
@@ -119,7 +121,10 @@ public final class PersistentSearch
   private final Set<PersistentSearchChangeType> changeTypes;
 
   /** Indicates whether this persistent search has already been aborted. */
-  private boolean isCancelled;
+  private volatile boolean isCancelled;
+
+  /** Indicates whether the client did not read the change notifications of this persistent search fast enough. */
+  private final AtomicBoolean isSlowConsumer = new AtomicBoolean();
 
   /** Indicates whether entries returned should include the entry change notification control. */
   private final boolean returnECs;
@@ -384,7 +389,58 @@ public final class PersistentSearch
     return Collections.emptyList();
   }
 
-  private void sendEntry(Entry entry, List<Control> entryControls)
+  /**
+   * Queues the entry for sending it asynchronously, so that the change is not delayed by the client connection. The
+   * persistent search is cancelled if the client does not read the queued entries fast enough.
+   */
+  private void sendEntry(final Entry entry, final List<Control> entryControls)
+  {
+    final PersistentSearchNotifier notifier = searchOperation.getClientConnection().getPersistentSearchNotifier();
+    final boolean queued = notifier.offer(new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        if (!isCancelled)
+        {
+          sendEntryNow(entry, entryControls);
+        }
+      }
+    }, false);
+    if (!queued && isSlowConsumer.compareAndSet(false, true))
+    {
+      notifier.offer(new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          cancelSlowConsumer();
+        }
+      }, true);
+    }
+  }
+
+  private void cancelSlowConsumer()
+  {
+    if (isCancelled)
+    {
+      return;
+    }
+    searchOperation.setResultCode(ResultCode.ADMIN_LIMIT_EXCEEDED);
+    searchOperation.appendErrorMessage(
+        ERR_PSEARCH_TOO_MANY_PENDING_NOTIFICATIONS.get(PersistentSearchNotifier.MAX_PENDING_NOTIFICATIONS));
+    cancel();
+    try
+    {
+      searchOperation.sendSearchResultDone();
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+    }
+  }
+
+  private void sendEntryNow(Entry entry, List<Control> entryControls)
   {
     try
     {
@@ -0,0 +1,392 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteSequence;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.DecodeException;
+import org.forgerock.opendj.ldap.schema.AttributeType;
+import org.forgerock.opendj.ldap.schema.MatchingRule;
+import org.forgerock.opendj.ldap.schema.Schema;
+import org.forgerock.opendj.ldap.spi.IndexQueryFactory;
+import org.forgerock.opendj.ldap.spi.Indexer;
+import org.forgerock.opendj.ldap.spi.IndexingOptions;
+import org.opends.server.types.Attribute;
+import org.opends.server.types.Entry;
+import org.opends.server.types.FilterType;
+import org.opends.server.types.SearchFilter;
+
+/**
+ * Indexes persistent searches, so that a change only needs to be checked against the persistent searches which may
+ * match it, rather than against all the registered persistent searches.
+ * <p>
+ * A persistent search whose filter is an equality assertion, or an AND filter containing an equality assertion, is
+ * indexed by the keys that the equality matching rule generates for the assertion, which are the keys an equality
+ * index would look up. The other persistent searches are indexed by their base DN. The persistent searches which may
+ * match a changed entry are therefore the ones indexed by a key of one of the entry values, plus the ones indexed by
+ * the DN of the entry or by one of its superiors. They must still check their scope and filter against the entry.
+ * <p>
+ * The index is rebuilt whenever a persistent search is added or removed, which is rare compared to the changes, so
+ * that looking up the index does not require any locking.
+ */
+public final class PersistentSearchIndex
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The indexing options used for generating the keys, only relevant for substring keys. */
+  private static final IndexingOptions INDEXING_OPTIONS = new IndexingOptions()
+  {
+    @Override
+    public int substringKeySize()
+    {
+      return 6;
+    }
+  };
+
+  /**
+   * Collects the exact match keys looked up by an assertion, mapped to their index ID. {@code null} means that the
+   * assertion cannot be evaluated from exact match keys.
+   */
+  private static final IndexQueryFactory<Map<String, Set<ByteString>>> KEY_COLLECTOR =
+      new IndexQueryFactory<Map<String, Set<ByteString>>>()
+  {
+    @Override
+    public Map<String, Set<ByteString>> createExactMatchQuery(String indexID, ByteSequence key)
+    {
+      final Map<String, Set<ByteString>> keys = new HashMap<>();
+      keys.put(indexID, Collections.singleton(key.toByteString()));
+      return keys;
+    }
+
+    @Override
+    public Map<String, Set<ByteString>> createMatchAllQuery()
+    {
+      return null;
+    }
+
+    @Override
+    public Map<String, Set<ByteString>> createRangeMatchQuery(String indexID, ByteSequence lower,
+        ByteSequence upper, boolean lowerIncluded, boolean upperIncluded)
+    {
+      return null;
+    }
+
+    @Override
+    public Map<String, Set<ByteString>> createIntersectionQuery(Collection<Map<String, Set<ByteString>>> subqueries)
+    {
+      // Matching any of the subqueries is a necessary condition.
+      for (Map<String, Set<ByteString>> subquery : subqueries)
+      {
+        if (subquery != null)
+        {
+          return subquery;
+        }
+      }
+      return null;
+    }
+
+    @Override
+    public Map<String, Set<ByteString>> createUnionQuery(Collection<Map<String, Set<ByteString>>> subqueries)
+    {
+      final Map<String, Set<ByteString>> keys = new HashMap<>();
+      for (Map<String, Set<ByteString>> subquery : subqueries)
+      {
+        if (subquery == null)
+        {
+          return null;
+        }
+        for (Map.Entry<String, Set<ByteString>> mapEntry : subquery.entrySet())
+        {
+          Set<ByteString> indexKeys = keys.get(mapEntry.getKey());
+          if (indexKeys == null)
+          {
+            indexKeys = new HashSet<>();
+            keys.put(mapEntry.getKey(), indexKeys);
+          }
+          indexKeys.addAll(mapEntry.getValue());
+        }
+      }
+      return keys;
+    }
+
+    @Override
+    public IndexingOptions getIndexingOptions()
+    {
+      return INDEXING_OPTIONS;
+    }
+  };
+
+  /** The persistent searches asserting the values of an attribute type, indexed by equality keys. */
+  private static final class AttributeTypeIndex
+  {
+    private final MatchingRule equalityMatchingRule;
+    private final Collection<? extends Indexer> indexers;
+    /** The persistent searches, indexed by key, indexed by index ID. */
+    private final Map<String, Map<ByteString, List<PersistentSearch>>> searchesByKey = new HashMap<>();
+    private final List<PersistentSearch> searches = new ArrayList<>();
+
+    private AttributeTypeIndex(MatchingRule equalityMatchingRule)
+    {
+      this.equalityMatchingRule = equalityMatchingRule;
+      this.indexers = equalityMatchingRule.createIndexers(INDEXING_OPTIONS);
+    }
+
+    private void add(PersistentSearch psearch, Map<String, Set<ByteString>> keys)
+    {
+      searches.add(psearch);
+      for (Map.Entry<String, Set<ByteString>> mapEntry : keys.entrySet())
+      {
+        Map<ByteString, List<PersistentSearch>> searchesForIndex = searchesByKey.get(mapEntry.getKey());
+        if (searchesForIndex == null)
+        {
+          searchesForIndex = new HashMap<>();
+          searchesByKey.put(mapEntry.getKey(), searchesForIndex);
+        }
+        for (ByteString key : mapEntry.getValue())
+        {
+          put(searchesForIndex, key, psearch);
+        }
+      }
+    }
+
+    private void addCandidates(Attribute attribute, Set<PersistentSearch> candidates)
+    {
+      if (!equalityMatchingRule.equals(attribute.getAttributeDescription().getAttributeType()
+          .getEqualityMatchingRule()))
+      {
+        // The values of this sub-type are not matched with the same matching rule.
+        candidates.addAll(searches);
+        return;
+      }
+
+      final List<ByteString> keys = new ArrayList<>();
+      for (ByteString value : attribute)
+      {
+        for (Indexer indexer : indexers)
+        {
+          final Map<ByteString, List<PersistentSearch>> searchesForIndex = searchesByKey.get(indexer.getIndexID());
+          if (searchesForIndex == null)
+          {
+            continue;
+          }
+          keys.clear();
+          try
+          {
+            indexer.createKeys(Schema.getDefaultSchema(), value, keys);
+          }
+          catch (DecodeException e)
+          {
+            logger.traceException(e);
+            candidates.addAll(searches);
+            return;
+          }
+          for (ByteString key : keys)
+          {
+            addAll(candidates, searchesForIndex.get(key));
+          }
+        }
+      }
+    }
+  }
+
+  /** An immutable snapshot of the index. */
+  private static final class Snapshot
+  {
+    private final Map<DN, List<PersistentSearch>> searchesByBaseDN = new HashMap<>();
+    private final Map<AttributeType, AttributeTypeIndex> searchesByAttributeType = new HashMap<>();
+  }
+
+  /** The persistent searches in the index, guarded by this object. */
+  private final List<PersistentSearch> persistentSearches = new ArrayList<>();
+  private volatile Snapshot snapshot = new Snapshot();
+
+  /**
+   * Adds a persistent search to this index.
+   *
+   * @param psearch
+   *          the persistent search to add
+   */
+  public synchronized void add(PersistentSearch psearch)
+  {
+    persistentSearches.add(psearch);
+    rebuild();
+  }
+
+  /**
+   * Removes a persistent search from this index.
+   *
+   * @param psearch
+   *          the persistent search to remove
+   */
+  public synchronized void remove(PersistentSearch psearch)
+  {
+    if (persistentSearches.remove(psearch))
+    {
+      rebuild();
+    }
+  }
+
+  /** Removes all the persistent searches from this index. */
+  public synchronized void clear()
+  {
+    persistentSearches.clear();
+    rebuild();
+  }
+
+  private void rebuild()
+  {
+    final Snapshot newSnapshot = new Snapshot();
+    for (PersistentSearch psearch : persistentSearches)
+    {
+      final SearchFilter equalityFilter = getIndexableEqualityFilter(psearch.getSearchOperation().getFilter());
+      final Map<String, Set<ByteString>> keys = equalityFilter != null ? getKeys(equalityFilter) : null;
+      if (keys != null)
+      {
+        final AttributeType attributeType = equalityFilter.getAttributeType();
+        AttributeTypeIndex index = newSnapshot.searchesByAttributeType.get(attributeType);
+        if (index == null)
+        {
+          index = new AttributeTypeIndex(attributeType.getEqualityMatchingRule());
+          newSnapshot.searchesByAttributeType.put(attributeType, index);
+        }
+        index.add(psearch, keys);
+      }
+      else
+      {
+        put(newSnapshot.searchesByBaseDN, psearch.getSearchOperation().getBaseDN(), psearch);
+      }
+    }
+    snapshot = newSnapshot;
+  }
+
+  /**
+   * Returns the equality component of the filter used for indexing, preferring the components which do not assert an
+   * object class since they are usually less selective.
+   */
+  private static SearchFilter getIndexableEqualityFilter(SearchFilter filter)
+  {
+    switch (filter.getFilterType())
+    {
+    case EQUALITY:
+      return filter;
+    case AND:
+      SearchFilter objectClassFilter = null;
+      for (SearchFilter component : filter.getFilterComponents())
+      {
+        if (component.getFilterType() == FilterType.EQUALITY)
+        {
+          if (!component.getAttributeType().isObjectClass())
+          {
+            return component;
+          }
+          else if (objectClassFilter == null)
+          {
+            objectClassFilter = component;
+          }
+        }
+      }
+      return objectClassFilter;
+    default:
+      return null;
+    }
+  }
+
+  private static Map<String, Set<ByteString>> getKeys(SearchFilter equalityFilter)
+  {
+    final MatchingRule rule = equalityFilter.getAttributeType().getEqualityMatchingRule();
+    if (rule == null)
+    {
+      return null;
+    }
+    try
+    {
+      return rule.getAssertion(equalityFilter.getAssertionValue()).createIndexQuery(KEY_COLLECTOR);
+    }
+    catch (DecodeException e)
+    {
+      logger.traceException(e);
+      return null;
+    }
+  }
+
+  /**
+   * Returns the persistent searches which may match a change to the provided entries. The returned persistent
+   * searches must still check their scope and filter against the changed entries.
+   *
+   * @param entries
+   *          the entries affected by the change, for instance the entry before and after a modification
+   * @return the persistent searches which may match the change
+   */
+  public Set<PersistentSearch> getCandidates(Entry... entries)
+  {
+    final Snapshot s = snapshot;
+    if (s.searchesByBaseDN.isEmpty() && s.searchesByAttributeType.isEmpty())
+    {
+      return Collections.emptySet();
+    }
+
+    final Set<PersistentSearch> candidates = new LinkedHashSet<>();
+    for (Entry entry : entries)
+    {
+      if (!s.searchesByBaseDN.isEmpty())
+      {
+        for (DN dn = entry.getName(); dn != null; dn = dn.parent())
+        {
+          addAll(candidates, s.searchesByBaseDN.get(dn));
+        }
+      }
+      for (Map.Entry<AttributeType, AttributeTypeIndex> mapEntry : s.searchesByAttributeType.entrySet())
+      {
+        for (Attribute attribute : entry.getAllAttributes(mapEntry.getKey()))
+        {
+          mapEntry.getValue().addCandidates(attribute, candidates);
+        }
+      }
+    }
+    return candidates;
+  }
+
+  private static <K> void put(Map<K, List<PersistentSearch>> map, K key, PersistentSearch psearch)
+  {
+    List<PersistentSearch> searches = map.get(key);
+    if (searches == null)
+    {
+      searches = new ArrayList<>(1);
+      map.put(key, searches);
+    }
+    searches.add(psearch);
+  }
+
+  private static void addAll(Set<PersistentSearch> candidates, List<PersistentSearch> searches)
+  {
+    if (searches != null)
+    {
+      candidates.addAll(searches);
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.core;
+
+import static org.forgerock.util.Utils.*;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+
+/**
+ * Sends the change notifications of the persistent searches registered by a client connection asynchronously.
+ * <p>
+ * The write operations only queue the change notifications, so they are neither delayed by the sending of the
+ * notifications nor blocked by a client reading its notifications slowly. The notifications of a client connection
+ * are sent in order by a shared pool of threads. The number of queued notifications is bounded: when a client does not
+ * read its notifications fast enough, the persistent searches overflowing the queue are cancelled.
+ */
+public final class PersistentSearchNotifier
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The maximum number of change notifications waiting to be sent to a client connection. */
+  static final int MAX_PENDING_NOTIFICATIONS = 10000;
+  /** The maximum number of notifications sent in a row to a client connection before yielding to the others. */
+  private static final int MAX_NOTIFICATIONS_IN_A_ROW = 256;
+  private static final ExecutorService executor = Executors.newFixedThreadPool(
+      Math.max(4, Runtime.getRuntime().availableProcessors()),
+      newThreadFactory(null, "Persistent Search Notifier %d", true));
+
+  /** The notifications waiting to be sent, also guarding {@link #scheduled}. */
+  private final ArrayDeque<Runnable> notifications = new ArrayDeque<>();
+  /** Whether a thread has been asked to send the pending notifications. */
+  private boolean scheduled;
+
+  private final Runnable sendNotifications = new Runnable()
+  {
+    @Override
+    public void run()
+    {
+      sendNotifications();
+    }
+  };
+
+  /**
+   * Queues a change notification.
+   *
+   * @param notification
+   *          the task sending the change notification to the client
+   * @param force
+   *          whether the notification must be queued even if the queue is full, for instance to tell the client that
+   *          its persistent search is cancelled
+   * @return {@code true} if the notification has been queued, {@code false} if the queue is full
+   */
+  boolean offer(Runnable notification, boolean force)
+  {
+    synchronized (notifications)
+    {
+      if (!force && notifications.size() >= MAX_PENDING_NOTIFICATIONS)
+      {
+        return false;
+      }
+      notifications.add(notification);
+      if (scheduled)
+      {
+        return true;
+      }
+      scheduled = true;
+    }
+    executor.execute(sendNotifications);
+    return true;
+  }
+
+  private void sendNotifications()
+  {
+    for (int i = 0; i < MAX_NOTIFICATIONS_IN_A_ROW; i++)
+    {
+      final Runnable notification;
+      synchronized (notifications)
+      {
+        notification = notifications.poll();
+        if (notification == null)
+        {
+          scheduled = false;
+          return;
+        }
+      }
+      try
+      {
+        notification.run();
+      }
+      catch (RuntimeException e)
+      {
+        logger.traceException(e);
+      }
+    }
+    executor.execute(sendNotifications);
+  }
+}
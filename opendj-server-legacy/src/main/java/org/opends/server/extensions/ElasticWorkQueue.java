@@ -0,0 +1,577 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.ConfigMessages.*;
+import static org.opends.messages.CoreMessages.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.server.config.server.ElasticWorkQueueCfg;
+import org.opends.server.api.WorkQueue;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.monitors.ElasticWorkQueueMonitor;
+import org.opends.server.types.CancelRequest;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.Operation;
+
+/**
+ * This class defines a Directory Server work queue which starts worker threads on demand, so that operations blocked
+ * on disk I/O, on a remote server such as a pass through authentication server, or on replication acknowledgements do
+ * not prevent the other operations from being processed.
+ * <p>
+ * A submitted operation is picked up by an idle worker thread if there is one, otherwise a new worker thread is
+ * started for it, up to the maximum number of concurrent operations. Beyond this limit, the operations wait in the
+ * queue. The worker threads started on demand exit once they have been idle for {@link #IDLE_TIMEOUT_SECONDS}, down
+ * to the configured number of worker threads which are always kept running. The thread pool therefore only grows
+ * when the operations block, rather than being sized for the worst case.
+ */
+public class ElasticWorkQueue
+       extends WorkQueue<ElasticWorkQueueCfg>
+       implements ConfigurationChangeListener<ElasticWorkQueueCfg>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The time after which an idle worker thread exits, unless it is one of the worker threads always kept running. */
+  static final long IDLE_TIMEOUT_SECONDS = 60;
+
+  /** The set of worker threads that are processing this work queue, guarded by the lock. */
+  private final ArrayList<ElasticWorkerThread> workerThreads = new ArrayList<>();
+
+  /** The number of operations that have been submitted to the work queue for processing. */
+  private final AtomicLong opsSubmitted = new AtomicLong();
+
+  /**
+   * The number of times that an attempt to submit a new request has been
+   * rejected because the work queue is already at its maximum capacity.
+   */
+  private final AtomicLong queueFullRejects = new AtomicLong();
+
+  /** The lock guarding the pending operations and the state of the work queue. */
+  private final ReentrantLock lock = new ReentrantLock();
+  /** Signaled when an operation is submitted, or when the worker threads should check whether to exit. */
+  private final Condition notEmpty = lock.newCondition();
+  /** Signaled when an operation is picked up, or when the submitting threads should check whether to give up. */
+  private final Condition notFull = lock.newCondition();
+
+  /** The operations waiting to be picked up by a worker thread, guarded by the lock. */
+  private final ArrayDeque<Operation> pendingOperations = new ArrayDeque<>();
+
+  /** The number of worker threads waiting for an operation, guarded by the lock. */
+  private int nbIdleThreads;
+
+  /** The largest number of worker threads which have been running at the same time, guarded by the lock. */
+  private int maxNbWorkerThreads;
+
+  /** Indicates whether the Directory Server is shutting down. */
+  private volatile boolean shutdownRequested;
+
+  /** The thread number used for the last worker thread that was created. */
+  private int lastThreadNumber;
+
+  /** The maximum number of pending requests, beyond which submitting threads are blocked. */
+  private int maxCapacity;
+
+  /** The number of worker threads which are kept running even when they are idle. */
+  private int numWorkerThreads;
+
+  /** The maximum number of worker threads, hence of operations being processed at the same time. */
+  private int maxConcurrentOperations;
+
+  /**
+   * Creates a new instance of this work queue. All initialization should be
+   * performed in the <CODE>initializeWorkQueue</CODE> method.
+   */
+  public ElasticWorkQueue()
+  {
+    // No implementation should be performed here.
+  }
+
+  @Override
+  public void initializeWorkQueue(ElasticWorkQueueCfg configuration)
+      throws ConfigException, InitializationException
+  {
+    lock.lock();
+    try
+    {
+      shutdownRequested = false;
+
+      // Register to be notified of any configuration changes.
+      configuration.addElasticChangeListener(this);
+
+      // Get the necessary configuration from the provided entry.
+      setConfiguration(configuration);
+
+      // Start the worker threads which are always kept running.
+      startWorkerThreads(numWorkerThreads);
+    }
+    finally
+    {
+      lock.unlock();
+    }
+
+    // Create and register a monitor provider for the work queue.
+    try
+    {
+      ElasticWorkQueueMonitor monitor = new ElasticWorkQueueMonitor(this);
+      monitor.initializeMonitorProvider(null);
+      DirectoryServer.registerMonitorProvider(monitor);
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      logger.error(ERR_CONFIG_WORK_QUEUE_CANNOT_CREATE_MONITOR, ElasticWorkQueueMonitor.class, e);
+    }
+  }
+
+  private void setConfiguration(ElasticWorkQueueCfg configuration)
+  {
+    maxConcurrentOperations = configuration.getMaxConcurrentOperations();
+    numWorkerThreads = Math.min(computeNumWorkerThreads(configuration.getNumWorkerThreads()), maxConcurrentOperations);
+    maxCapacity = configuration.getMaxWorkQueueCapacity();
+  }
+
+  /** Starts worker threads until there are at least the provided number of them. Must be called with the lock. */
+  private void startWorkerThreads(int nbThreads)
+  {
+    while (workerThreads.size() < nbThreads)
+    {
+      ElasticWorkerThread t = new ElasticWorkerThread(this, lastThreadNumber++);
+      workerThreads.add(t);
+      t.start();
+    }
+    maxNbWorkerThreads = Math.max(maxNbWorkerThreads, workerThreads.size());
+  }
+
+  @Override
+  public void finalizeWorkQueue(LocalizableMessage reason)
+  {
+    final List<Operation> operations;
+    final List<ElasticWorkerThread> threads;
+    lock.lock();
+    try
+    {
+      shutdownRequested = true;
+      operations = new ArrayList<>(pendingOperations);
+      pendingOperations.clear();
+      threads = new ArrayList<>(workerThreads);
+      notEmpty.signalAll();
+      notFull.signalAll();
+    }
+    finally
+    {
+      lock.unlock();
+    }
+
+    // From now on no more operations can be enqueued or dequeued.
+
+    // Send responses to any operations in the pending queue to indicate that
+    // they won't be processed because the server is shutting down.
+    CancelRequest cancelRequest = new CancelRequest(true, reason);
+    for (Operation o : operations)
+    {
+      try
+      {
+        // The operation has no chance of responding to the cancel
+        // request so avoid waiting for a cancel response.
+        if (o.getCancelResult() == null)
+        {
+          o.abort(cancelRequest);
+        }
+      }
+      catch (Exception e)
+      {
+        logger.traceException(e);
+        logger.warn(WARN_QUEUE_UNABLE_TO_CANCEL, o, e);
+      }
+    }
+
+    // Notify all the worker threads of the shutdown.
+    for (ElasticWorkerThread t : threads)
+    {
+      try
+      {
+        t.shutDown();
+      }
+      catch (Exception e)
+      {
+        logger.traceException(e);
+        logger.warn(WARN_QUEUE_UNABLE_TO_NOTIFY_THREAD, t.getName(), e);
+      }
+    }
+  }
+
+  /**
+   * Indicates whether this work queue has received a request to shut down.
+   *
+   * @return <CODE>true</CODE> if the work queue has recieved a request to shut
+   *         down, or <CODE>false</CODE> if not.
+   */
+  public boolean shutdownRequested()
+  {
+    return shutdownRequested;
+  }
+
+  @Override
+  public void submitOperation(Operation operation) throws DirectoryException
+  {
+    submitOperation(operation, true);
+  }
+
+  @Override
+  public boolean trySubmitOperation(Operation operation) throws DirectoryException
+  {
+    try
+    {
+      submitOperation(operation, false);
+      return true;
+    }
+    catch (DirectoryException e)
+    {
+      if (ResultCode.BUSY == e.getResultCode())
+      {
+        return false;
+      }
+      throw e;
+    }
+  }
+
+  private void submitOperation(Operation operation, boolean blockEnqueuingWhenFull) throws DirectoryException
+  {
+    lock.lock();
+    try
+    {
+      while (true)
+      {
+        if (shutdownRequested)
+        {
+          LocalizableMessage message = WARN_OP_REJECTED_BY_SHUTDOWN.get();
+          throw new DirectoryException(ResultCode.UNAVAILABLE, message);
+        }
+        if (pendingOperations.size() < maxCapacity)
+        {
+          break;
+        }
+        if (!blockEnqueuingWhenFull)
+        {
+          queueFullRejects.incrementAndGet();
+          LocalizableMessage message = WARN_OP_REJECTED_BY_QUEUE_FULL.get(maxCapacity);
+          throw new DirectoryException(ResultCode.BUSY, message);
+        }
+        try
+        {
+          notFull.await();
+        }
+        catch (InterruptedException e)
+        {
+          // We cannot handle the interruption here. Reject the request and
+          // re-interrupt this thread.
+          Thread.currentThread().interrupt();
+
+          queueFullRejects.incrementAndGet();
+
+          LocalizableMessage message = WARN_OP_REJECTED_BY_QUEUE_INTERRUPT.get();
+          throw new DirectoryException(ResultCode.BUSY, message);
+        }
+      }
+
+      pendingOperations.add(operation);
+      opsSubmitted.incrementAndGet();
+      // The idle worker threads already woken up for the previous operations only count once
+      if (pendingOperations.size() <= nbIdleThreads)
+      {
+        notEmpty.signal();
+      }
+      else if (workerThreads.size() < maxConcurrentOperations)
+      {
+        startWorkerThreads(workerThreads.size() + 1);
+      }
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves the next operation that should be processed by one of the worker
+   * threads, blocking if necessary until a new request arrives. This method
+   * should only be called by a worker thread associated with this work queue.
+   *
+   * @param workerThread
+   *          The worker thread that is requesting the operation.
+   * @return The next operation that should be processed, or <CODE>null</CODE>
+   *         if the server is shutting down and no more operations will be
+   *         processed, or if the worker thread should exit.
+   */
+  Operation nextOperation(ElasticWorkerThread workerThread)
+  {
+    lock.lock();
+    try
+    {
+      nbIdleThreads++;
+      long idleNanos = TimeUnit.SECONDS.toNanos(IDLE_TIMEOUT_SECONDS);
+      while (true)
+      {
+        if (shutdownRequested)
+        {
+          return null;
+        }
+        if (workerThreads.size() > maxConcurrentOperations)
+        {
+          workerThreads.remove(workerThread);
+          workerThread.setStoppedByReducedThreadNumber();
+          return null;
+        }
+        final Operation operation = pendingOperations.poll();
+        if (operation != null)
+        {
+          notFull.signal();
+          return operation;
+        }
+        if (idleNanos <= 0)
+        {
+          if (workerThreads.size() > numWorkerThreads)
+          {
+            workerThreads.remove(workerThread);
+            workerThread.setStoppedWhenIdle();
+            return null;
+          }
+          idleNanos = TimeUnit.SECONDS.toNanos(IDLE_TIMEOUT_SECONDS);
+        }
+        try
+        {
+          idleNanos = notEmpty.awaitNanos(idleNanos);
+        }
+        catch (InterruptedException ie)
+        {
+          // If this occurs, then the worker thread must have been interrupted for
+          // some reason. This could be because the Directory Server is shutting
+          // down, in which case we should return null.
+          if (shutdownRequested)
+          {
+            return null;
+          }
+
+          // If we've gotten here, then the worker thread was interrupted for some
+          // other reason. This should not happen, and we need to log a message.
+          logger.warn(WARN_WORKER_INTERRUPTED_WITHOUT_SHUTDOWN, Thread.currentThread().getName(), ie);
+        }
+      }
+    }
+    finally
+    {
+      nbIdleThreads--;
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves the total number of operations that have been successfully
+   * submitted to this work queue for processing since server startup. This does
+   * not include operations that have been rejected for some reason like the
+   * queue already at its maximum capacity.
+   *
+   * @return The total number of operations that have been successfully
+   *         submitted to this work queue since startup.
+   */
+  public long getOpsSubmitted()
+  {
+    return opsSubmitted.longValue();
+  }
+
+  /**
+   * Retrieves the total number of operations that have been rejected because
+   * the work queue was already at its maximum capacity.
+   *
+   * @return The total number of operations that have been rejected because the
+   *         work queue was already at its maximum capacity.
+   */
+  public long getOpsRejectedDueToQueueFull()
+  {
+    return queueFullRejects.longValue();
+  }
+
+  /**
+   * Retrieves the number of pending operations in the queue that have not yet
+   * been picked up for processing.
+   *
+   * @return The number of pending operations in the queue that have not yet
+   *         been picked up for processing.
+   */
+  public int size()
+  {
+    lock.lock();
+    try
+    {
+      return pendingOperations.size();
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves the number of operations being processed by the worker threads.
+   *
+   * @return The number of operations being processed.
+   */
+  public int getNbActiveOperations()
+  {
+    lock.lock();
+    try
+    {
+      int nbActiveOperations = 0;
+      for (ElasticWorkerThread t : workerThreads)
+      {
+        if (t.isActive())
+        {
+          nbActiveOperations++;
+        }
+      }
+      return nbActiveOperations;
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves the number of running worker threads, including the idle ones.
+   *
+   * @return The number of running worker threads.
+   */
+  public int getNbWorkerThreads()
+  {
+    lock.lock();
+    try
+    {
+      return workerThreads.size();
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves the largest number of worker threads which have been running at
+   * the same time since server startup.
+   *
+   * @return The largest number of worker threads which have been running at
+   *         the same time.
+   */
+  public int getMaxNbWorkerThreads()
+  {
+    lock.lock();
+    try
+    {
+      return maxNbWorkerThreads;
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(
+      ElasticWorkQueueCfg configuration, List<LocalizableMessage> unacceptableReasons)
+  {
+    return true;
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(ElasticWorkQueueCfg configuration)
+  {
+    lock.lock();
+    try
+    {
+      setConfiguration(configuration);
+      startWorkerThreads(numWorkerThreads);
+      // Start worker threads for the operations waiting for a higher concurrency limit
+      startWorkerThreads(Math.min(workerThreads.size() + pendingOperations.size() - nbIdleThreads,
+          maxConcurrentOperations));
+
+      // Let the worker threads exit if there are too many, and the submitting threads check the new capacity.
+      notEmpty.signalAll();
+      notFull.signalAll();
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+    }
+    finally
+    {
+      lock.unlock();
+    }
+    return new ConfigChangeResult();
+  }
+
+  @Override
+  public boolean isIdle()
+  {
+    lock.lock();
+    try
+    {
+      if (!pendingOperations.isEmpty())
+      {
+        return false;
+      }
+
+      for (ElasticWorkerThread t : workerThreads)
+      {
+        if (t.isActive())
+        {
+          return false;
+        }
+      }
+
+      return true;
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Return the maximum number of worker threads used by this WorkQueue, which
+   * is the maximum number of concurrent operations.
+   *
+   * @return the maximum number of worker threads used by this WorkQueue
+   */
+  @Override
+  public int getNumWorkerThreads()
+  {
+    return maxConcurrentOperations;
+  }
+}
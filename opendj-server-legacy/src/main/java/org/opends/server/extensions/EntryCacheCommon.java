@@ -352,6 +352,36 @@ public class EntryCacheCommon
     Long maxCacheSize,
     Long cacheCount,
     Long maxCacheCount)
+  {
+    return getGenericMonitorData(cacheHits, cacheMisses, cacheSize,
+        maxCacheSize, cacheCount, maxCacheCount, null);
+  }
+
+
+  /**
+   * Constructs a set of generic attributes containing entry cache
+   * monitor data, including the number of entries evicted from the
+   * cache. Note that <code>null</code> can be passed in place of any
+   * argument to denote the argument is omitted.
+   *
+   * @param cacheHits       number of cache hits.
+   * @param cacheMisses     number of cache misses.
+   * @param cacheSize       size of the current cache, in bytes.
+   * @param maxCacheSize    maximum allowed cache size, in bytes.
+   * @param cacheCount      number of entries stored in the cache.
+   * @param maxCacheCount   maximum number of cache entries allowed.
+   * @param cacheEvictions  number of entries evicted from the cache.
+   *
+   * @return  A set of generic attributes containing monitor data.
+   */
+  public static MonitorData getGenericMonitorData(
+    Long cacheHits,
+    Long cacheMisses,
+    Long cacheSize,
+    Long maxCacheSize,
+    Long cacheCount,
+    Long maxCacheCount,
+    Long cacheEvictions)
   {
     MonitorData attrs = new MonitorData();
 
@@ -376,6 +406,7 @@ public class EntryCacheCommon
     attrs.addIfNotNull("maxEntryCacheSize", maxCacheSize);
     attrs.addIfNotNull("currentEntryCacheCount", cacheCount);
     attrs.addIfNotNull("maxEntryCacheCount", maxCacheCount);
+    attrs.addIfNotNull("entryCacheEvictions", cacheEvictions);
 
     return attrs;
   }
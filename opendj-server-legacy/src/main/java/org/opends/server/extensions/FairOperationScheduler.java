@@ -0,0 +1,485 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.extensions;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.opendj.ldap.SearchScope;
+import org.opends.server.core.SearchOperation;
+import org.opends.server.extensions.FairWorkQueue.OperationClass;
+import org.opends.server.types.Operation;
+import org.opends.server.types.OperationType;
+
+/**
+ * Schedules the operations waiting in a {@link FairWorkQueue}, sharing the worker threads between the classes of
+ * operations, then between the client connections within each class.
+ * <p>
+ * Both levels use deficit round robin, the cost of an operation being the time spent by a worker thread processing it.
+ * As this cost is only known once the operation completes, a dispatched operation is first charged the average
+ * processing time of the operations of its connection, then the difference once it completes. The classes or
+ * connections in debt are skipped and credited with their quantum, so that the worker time is shared between the
+ * classes having waiting operations in proportion to their weights, and equally between the connections of a class. A
+ * client running expensive searches therefore only delays the other clients by its own share of the worker time.
+ * <p>
+ * This class is not thread safe: it is guarded by the lock of the work queue.
+ */
+final class FairOperationScheduler
+{
+  /** The worker time credited per weight unit in each round. */
+  static final long QUANTUM_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  /** The processing time charged for the first operations of a class, before it is measured. */
+  private static final long INITIAL_SERVICE_TIME_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+  /** An operation waiting to be processed, or being processed. */
+  static final class PendingOperation
+  {
+    private final Operation operation;
+    private final ConnectionQueue connectionQueue;
+    private final long submitTime;
+    private long dispatchTime;
+    /** The processing time charged when the operation was dispatched. */
+    private long charge;
+
+    private PendingOperation(Operation operation, ConnectionQueue connectionQueue, long submitTime)
+    {
+      this.operation = operation;
+      this.connectionQueue = connectionQueue;
+      this.submitTime = submitTime;
+    }
+
+    /**
+     * Returns the operation.
+     *
+     * @return the operation
+     */
+    Operation getOperation()
+    {
+      return operation;
+    }
+  }
+
+  /** A flow of operations scheduled with deficit round robin. */
+  private static class Flow
+  {
+    /** The worker time credited each time the flow is skipped because it is in debt. */
+    long quantum;
+    /** The worker time the flow can still use before being skipped, negative when it is in debt. */
+    long deficit;
+    /** The moving average of the processing time of the operations of this flow. */
+    long averageServiceTime = INITIAL_SERVICE_TIME_NANOS;
+
+    /** Forgets the credit of a flow which becomes idle, but not its debt. */
+    void resetCredit()
+    {
+      deficit = Math.min(deficit, 0);
+    }
+
+    void charge(long cost)
+    {
+      deficit -= cost;
+    }
+
+    void recordServiceTime(long serviceTime)
+    {
+      averageServiceTime += (serviceTime - averageServiceTime) / 8;
+    }
+  }
+
+  /** The operations of a client connection belonging to a class. */
+  private static final class ConnectionQueue extends Flow
+  {
+    private final long connectionID;
+    private final ClassQueue classQueue;
+    private final ArrayDeque<PendingOperation> operations = new ArrayDeque<>();
+    /** The number of operations being processed. */
+    private int nbRunning;
+
+    private ConnectionQueue(long connectionID, ClassQueue classQueue)
+    {
+      this.connectionID = connectionID;
+      this.classQueue = classQueue;
+      this.quantum = QUANTUM_NANOS;
+    }
+  }
+
+  /** The operations of a class, along with its statistics. */
+  private static final class ClassQueue extends Flow
+  {
+    private final Map<Long, ConnectionQueue> connections = new HashMap<>();
+    /** The connections having waiting operations, in round robin order. */
+    private final ArrayDeque<ConnectionQueue> activeConnections = new ArrayDeque<>();
+    private int size;
+    private long opsDispatched;
+    private long opsDropped;
+    private long totalWaitTime;
+    private long maxWaitTime;
+  }
+
+  private final Map<OperationClass, ClassQueue> classQueues = new EnumMap<>(OperationClass.class);
+  /** The classes having waiting operations, in round robin order. */
+  private final ArrayDeque<ClassQueue> activeClasses = new ArrayDeque<>();
+  private int size;
+
+  /** Creates a new scheduler, where all the classes have a weight of one. */
+  FairOperationScheduler()
+  {
+    for (OperationClass operationClass : OperationClass.values())
+    {
+      final ClassQueue classQueue = new ClassQueue();
+      classQueue.quantum = QUANTUM_NANOS;
+      classQueues.put(operationClass, classQueue);
+    }
+  }
+
+  /**
+   * Sets the weight of a class, which is its share of the worker time when operations of several classes are waiting.
+   *
+   * @param operationClass
+   *          the class of operations
+   * @param weight
+   *          the weight, at least one
+   */
+  void setWeight(OperationClass operationClass, int weight)
+  {
+    classQueues.get(operationClass).quantum = weight * QUANTUM_NANOS;
+  }
+
+  /**
+   * Adds an operation to the waiting operations.
+   *
+   * @param operation
+   *          the operation
+   * @param now
+   *          the current time, in nanoseconds
+   */
+  void add(Operation operation, long now)
+  {
+    final ClassQueue classQueue = classQueues.get(classify(operation));
+    ConnectionQueue connectionQueue = classQueue.connections.get(operation.getConnectionID());
+    if (connectionQueue == null)
+    {
+      connectionQueue = new ConnectionQueue(operation.getConnectionID(), classQueue);
+      connectionQueue.averageServiceTime = classQueue.averageServiceTime;
+      classQueue.connections.put(connectionQueue.connectionID, connectionQueue);
+    }
+    if (connectionQueue.operations.isEmpty())
+    {
+      classQueue.activeConnections.addLast(connectionQueue);
+    }
+    connectionQueue.operations.addLast(new PendingOperation(operation, connectionQueue, now));
+    if (classQueue.size++ == 0)
+    {
+      activeClasses.addLast(classQueue);
+    }
+    size++;
+  }
+
+  /**
+   * Removes the next operation to process from the waiting operations. The caller must then call
+   * {@link #completed(PendingOperation, long)} or {@link #dropped(PendingOperation)} once done with the operation.
+   *
+   * @param now
+   *          the current time, in nanoseconds
+   * @return the next operation to process, or {@code null} if there are no waiting operations
+   */
+  PendingOperation poll(long now)
+  {
+    if (size == 0)
+    {
+      return null;
+    }
+    final ClassQueue classQueue = nextFlow(activeClasses);
+    final ConnectionQueue connectionQueue = nextFlow(classQueue.activeConnections);
+    final PendingOperation pending = connectionQueue.operations.pollFirst();
+    pending.dispatchTime = now;
+    pending.charge = connectionQueue.averageServiceTime;
+    connectionQueue.charge(pending.charge);
+    classQueue.charge(pending.charge);
+    size--;
+
+    // The flows keep being served until they are in debt, then move to the back of their round
+    if (connectionQueue.operations.isEmpty())
+    {
+      classQueue.activeConnections.pollFirst();
+      connectionQueue.resetCredit();
+    }
+    else if (connectionQueue.deficit < 0)
+    {
+      classQueue.activeConnections.addLast(classQueue.activeConnections.pollFirst());
+    }
+    if (--classQueue.size == 0)
+    {
+      activeClasses.pollFirst();
+      classQueue.resetCredit();
+    }
+    else if (classQueue.deficit < 0)
+    {
+      activeClasses.addLast(activeClasses.pollFirst());
+    }
+    connectionQueue.nbRunning++;
+
+    final long waitTime = now - pending.submitTime;
+    classQueue.opsDispatched++;
+    classQueue.totalWaitTime += waitTime;
+    classQueue.maxWaitTime = Math.max(classQueue.maxWaitTime, waitTime);
+    return pending;
+  }
+
+  /**
+   * Charges the processing time of a dispatched operation, once it has completed.
+   *
+   * @param pending
+   *          the operation returned by {@link #poll(long)}
+   * @param now
+   *          the current time, in nanoseconds
+   */
+  void completed(PendingOperation pending, long now)
+  {
+    final long serviceTime = Math.max(now - pending.dispatchTime, 0);
+    final ConnectionQueue connectionQueue = pending.connectionQueue;
+    final ClassQueue classQueue = connectionQueue.classQueue;
+    connectionQueue.charge(serviceTime - pending.charge);
+    classQueue.charge(serviceTime - pending.charge);
+    connectionQueue.recordServiceTime(serviceTime);
+    classQueue.recordServiceTime(serviceTime);
+    release(connectionQueue);
+  }
+
+  /**
+   * Refunds a dispatched operation which has been dropped rather than processed.
+   *
+   * @param pending
+   *          the operation returned by {@link #poll(long)}
+   */
+  void dropped(PendingOperation pending)
+  {
+    final ConnectionQueue connectionQueue = pending.connectionQueue;
+    connectionQueue.charge(-pending.charge);
+    connectionQueue.classQueue.charge(-pending.charge);
+    connectionQueue.classQueue.opsDropped++;
+    release(connectionQueue);
+  }
+
+  private void release(ConnectionQueue connectionQueue)
+  {
+    if (--connectionQueue.nbRunning == 0 && connectionQueue.operations.isEmpty())
+    {
+      final Map<Long, ConnectionQueue> connections = connectionQueue.classQueue.connections;
+      if (connections.get(connectionQueue.connectionID) == connectionQueue)
+      {
+        connections.remove(connectionQueue.connectionID);
+      }
+    }
+  }
+
+  /**
+   * Returns the flow to serve next, after skipping and crediting the flows in debt.
+   *
+   * @param activeFlows
+   *          the flows having waiting operations, in round robin order, which must not be empty. The returned flow is
+   *          the first one on return.
+   */
+  private static <F extends Flow> F nextFlow(ArrayDeque<F> activeFlows)
+  {
+    long minRounds = Long.MAX_VALUE;
+    for (int i = activeFlows.size(); i > 0; i--)
+    {
+      final F flow = activeFlows.peekFirst();
+      if (flow.deficit < 0)
+      {
+        flow.deficit += flow.quantum;
+      }
+      if (flow.deficit >= 0)
+      {
+        return flow;
+      }
+      minRounds = Math.min(minRounds, (flow.quantum - 1 - flow.deficit) / flow.quantum);
+      activeFlows.addLast(activeFlows.pollFirst());
+    }
+
+    // All the flows are still in debt: rather than looping, credit them with as many rounds as needed for one of them
+    for (F flow : activeFlows)
+    {
+      flow.deficit += minRounds * flow.quantum;
+    }
+    while (activeFlows.peekFirst().deficit < 0)
+    {
+      activeFlows.addLast(activeFlows.pollFirst());
+    }
+    return activeFlows.peekFirst();
+  }
+
+  /**
+   * Returns whether an operation waited longer than its time limit, hence whether the client already gave up on it.
+   *
+   * @param pending
+   *          the operation returned by {@link #poll(long)}
+   * @return {@code true} if the operation should be dropped rather than processed
+   */
+  boolean isExpired(PendingOperation pending)
+  {
+    final Operation operation = pending.operation;
+    if (operation.getOperationType() != OperationType.SEARCH
+        || operation.isInternalOperation() || operation.isSynchronizationOperation())
+    {
+      return false;
+    }
+    final int timeLimit = ((SearchOperation) operation).getTimeLimit();
+    return timeLimit > 0 && pending.dispatchTime - pending.submitTime >= TimeUnit.SECONDS.toNanos(timeLimit);
+  }
+
+  /**
+   * Returns the class of an operation.
+   *
+   * @param operation
+   *          the operation
+   * @return the class of the operation
+   */
+  static OperationClass classify(Operation operation)
+  {
+    if (operation.isInternalOperation() || operation.isSynchronizationOperation())
+    {
+      return OperationClass.INTERNAL;
+    }
+    switch (operation.getOperationType())
+    {
+    case BIND:
+    case EXTENDED:
+      return OperationClass.BIND;
+    case ADD:
+    case DELETE:
+    case MODIFY:
+    case MODIFY_DN:
+      return OperationClass.WRITE;
+    case SEARCH:
+      return ((SearchOperation) operation).getScope() == SearchScope.BASE_OBJECT
+          ? OperationClass.BASE_READ : OperationClass.SEARCH;
+    default:
+      // Compare, abandon and unbind operations are cheap
+      return OperationClass.BASE_READ;
+    }
+  }
+
+  /**
+   * Returns the number of waiting operations.
+   *
+   * @return the number of waiting operations
+   */
+  int size()
+  {
+    return size;
+  }
+
+  /**
+   * Removes all the waiting operations.
+   *
+   * @return the operations which were waiting
+   */
+  List<Operation> clear()
+  {
+    final List<Operation> operations = new ArrayList<>(size);
+    for (ClassQueue classQueue : classQueues.values())
+    {
+      for (ConnectionQueue connectionQueue : classQueue.activeConnections)
+      {
+        for (PendingOperation pending : connectionQueue.operations)
+        {
+          operations.add(pending.operation);
+        }
+        connectionQueue.operations.clear();
+      }
+      classQueue.activeConnections.clear();
+      classQueue.size = 0;
+      for (Iterator<ConnectionQueue> it = classQueue.connections.values().iterator(); it.hasNext();)
+      {
+        if (it.next().nbRunning == 0)
+        {
+          it.remove();
+        }
+      }
+    }
+    activeClasses.clear();
+    size = 0;
+    return operations;
+  }
+
+  /**
+   * Returns the number of waiting operations of a class.
+   *
+   * @param operationClass
+   *          the class of operations
+   * @return the number of waiting operations of the class
+   */
+  int getBacklog(OperationClass operationClass)
+  {
+    return classQueues.get(operationClass).size;
+  }
+
+  /**
+   * Returns the number of operations of a class dispatched to the worker threads, including the dropped ones.
+   *
+   * @param operationClass
+   *          the class of operations
+   * @return the number of dispatched operations of the class
+   */
+  long getOpsDispatched(OperationClass operationClass)
+  {
+    return classQueues.get(operationClass).opsDispatched;
+  }
+
+  /**
+   * Returns the number of operations of a class dropped because they waited longer than their time limit.
+   *
+   * @param operationClass
+   *          the class of operations
+   * @return the number of dropped operations of the class
+   */
+  long getOpsDropped(OperationClass operationClass)
+  {
+    return classQueues.get(operationClass).opsDropped;
+  }
+
+  /**
+   * Returns the total time waited by the dispatched operations of a class.
+   *
+   * @param operationClass
+   *          the class of operations
+   * @return the total wait time, in nanoseconds
+   */
+  long getTotalWaitTime(OperationClass operationClass)
+  {
+    return classQueues.get(operationClass).totalWaitTime;
+  }
+
+  /**
+   * Returns the longest time waited by a dispatched operation of a class.
+   *
+   * @param operationClass
+   *          the class of operations
+   * @return the maximum wait time, in nanoseconds
+   */
+  long getMaxWaitTime(OperationClass operationClass)
+  {
+    return classQueues.get(operationClass).maxWaitTime;
+  }
+}
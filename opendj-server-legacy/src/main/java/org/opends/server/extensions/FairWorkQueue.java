@@ -0,0 +1,710 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.ConfigMessages.*;
+import static org.opends.messages.CoreMessages.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.server.config.server.FairWorkQueueCfg;
+import org.opends.server.api.WorkQueue;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.core.SearchOperation;
+import org.opends.server.extensions.FairOperationScheduler.PendingOperation;
+import org.opends.server.monitors.FairWorkQueueMonitor;
+import org.opends.server.types.CancelRequest;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.Operation;
+
+/**
+ * This class defines a Directory Server work queue sharing the worker threads fairly between classes of operations
+ * and between client connections, so that a client running expensive operations does not delay the cheap operations
+ * of the other clients.
+ * <p>
+ * Operations are divided in weighted classes: binds, writes, base object reads, other searches and internal
+ * operations. When operations of several classes are waiting, the worker time is shared between the classes in
+ * proportion to their weights, then equally between the client connections within each class, using deficit round
+ * robin (see {@link FairOperationScheduler}). Searches which waited longer than their time limit are answered with a
+ * time limit exceeded result rather than processed, since the client has already given up on them.
+ */
+public class FairWorkQueue
+       extends WorkQueue<FairWorkQueueCfg>
+       implements ConfigurationChangeListener<FairWorkQueueCfg>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The classes of operations sharing the worker threads. */
+  public enum OperationClass
+  {
+    /** Bind operations, and extended operations such as StartTLS or password modify. */
+    BIND("bind"),
+    /** Add, delete, modify and modify DN operations. */
+    WRITE("write"),
+    /** Base object searches, compare, abandon and unbind operations. */
+    BASE_READ("baseRead"),
+    /** One level and subtree searches. */
+    SEARCH("search"),
+    /** Internal and replication operations. */
+    INTERNAL("internal");
+
+    private final String monitorName;
+
+    private OperationClass(String monitorName)
+    {
+      this.monitorName = monitorName;
+    }
+
+    /**
+     * Returns the prefix of the monitor attributes of this class.
+     *
+     * @return the prefix of the monitor attributes of this class
+     */
+    public String getMonitorName()
+    {
+      return monitorName;
+    }
+  }
+
+  /** The set of worker threads that will be used to process this work queue, guarded by the lock. */
+  private final ArrayList<FairWorkerThread> workerThreads = new ArrayList<>();
+
+  /** The number of operations that have been submitted to the work queue for processing. */
+  private final AtomicLong opsSubmitted = new AtomicLong();
+
+  /**
+   * The number of times that an attempt to submit a new request has been
+   * rejected because the work queue is already at its maximum capacity.
+   */
+  private final AtomicLong queueFullRejects = new AtomicLong();
+
+  /** The lock guarding the scheduler and the state of the work queue. */
+  private final ReentrantLock lock = new ReentrantLock();
+  /** Signaled when an operation is submitted, or when the worker threads should check whether to exit. */
+  private final Condition notEmpty = lock.newCondition();
+  /** Signaled when an operation is picked up, or when the submitting threads should check whether to give up. */
+  private final Condition notFull = lock.newCondition();
+
+  /** The scheduler holding the pending operations, guarded by the lock. */
+  private final FairOperationScheduler scheduler = new FairOperationScheduler();
+
+  /** Indicates whether one or more of the worker threads needs to be killed at the next convenient opportunity. */
+  private boolean killThreads;
+
+  /** Indicates whether the Directory Server is shutting down. */
+  private volatile boolean shutdownRequested;
+
+  /** The thread number used for the last worker thread that was created. */
+  private int lastThreadNumber;
+
+  /** The maximum number of pending requests, beyond which submitting threads are blocked. */
+  private int maxCapacity;
+
+  /**
+   * The number of worker threads that should be active (or will be shortly if a
+   * configuration change has not been completely applied).
+   */
+  private int numWorkerThreads;
+
+  /**
+   * Creates a new instance of this work queue. All initialization should be
+   * performed in the <CODE>initializeWorkQueue</CODE> method.
+   */
+  public FairWorkQueue()
+  {
+    // No implementation should be performed here.
+  }
+
+  @Override
+  public void initializeWorkQueue(FairWorkQueueCfg configuration)
+      throws ConfigException, InitializationException
+  {
+    lock.lock();
+    try
+    {
+      shutdownRequested = false;
+      killThreads = false;
+
+      // Register to be notified of any configuration changes.
+      configuration.addFairChangeListener(this);
+
+      // Get the necessary configuration from the provided entry.
+      numWorkerThreads = computeNumWorkerThreads(configuration.getNumWorkerThreads());
+      maxCapacity = configuration.getMaxWorkQueueCapacity();
+      setWeights(configuration);
+
+      // Create the set of worker threads that should be used to service the work queue.
+      for (lastThreadNumber = 0; lastThreadNumber < numWorkerThreads; lastThreadNumber++)
+      {
+        FairWorkerThread t = new FairWorkerThread(this, lastThreadNumber);
+        t.start();
+        workerThreads.add(t);
+      }
+    }
+    finally
+    {
+      lock.unlock();
+    }
+
+    // Create and register a monitor provider for the work queue.
+    try
+    {
+      FairWorkQueueMonitor monitor = new FairWorkQueueMonitor(this);
+      monitor.initializeMonitorProvider(null);
+      DirectoryServer.registerMonitorProvider(monitor);
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      logger.error(ERR_CONFIG_WORK_QUEUE_CANNOT_CREATE_MONITOR, FairWorkQueueMonitor.class, e);
+    }
+  }
+
+  private void setWeights(FairWorkQueueCfg configuration)
+  {
+    scheduler.setWeight(OperationClass.BIND, configuration.getBindWeight());
+    scheduler.setWeight(OperationClass.WRITE, configuration.getWriteWeight());
+    scheduler.setWeight(OperationClass.BASE_READ, configuration.getBaseReadWeight());
+    scheduler.setWeight(OperationClass.SEARCH, configuration.getSearchWeight());
+    scheduler.setWeight(OperationClass.INTERNAL, configuration.getInternalWeight());
+  }
+
+  @Override
+  public void finalizeWorkQueue(LocalizableMessage reason)
+  {
+    final List<Operation> pendingOperations;
+    final List<FairWorkerThread> threads;
+    lock.lock();
+    try
+    {
+      shutdownRequested = true;
+      pendingOperations = scheduler.clear();
+      threads = new ArrayList<>(workerThreads);
+      notEmpty.signalAll();
+      notFull.signalAll();
+    }
+    finally
+    {
+      lock.unlock();
+    }
+
+    // From now on no more operations can be enqueued or dequeued.
+
+    // Send responses to any operations in the pending queue to indicate that
+    // they won't be processed because the server is shutting down.
+    CancelRequest cancelRequest = new CancelRequest(true, reason);
+    for (Operation o : pendingOperations)
+    {
+      try
+      {
+        // The operation has no chance of responding to the cancel
+        // request so avoid waiting for a cancel response.
+        if (o.getCancelResult() == null)
+        {
+          o.abort(cancelRequest);
+        }
+      }
+      catch (Exception e)
+      {
+        logger.traceException(e);
+        logger.warn(WARN_QUEUE_UNABLE_TO_CANCEL, o, e);
+      }
+    }
+
+    // Notify all the worker threads of the shutdown.
+    for (FairWorkerThread t : threads)
+    {
+      try
+      {
+        t.shutDown();
+      }
+      catch (Exception e)
+      {
+        logger.traceException(e);
+        logger.warn(WARN_QUEUE_UNABLE_TO_NOTIFY_THREAD, t.getName(), e);
+      }
+    }
+  }
+
+  /**
+   * Indicates whether this work queue has received a request to shut down.
+   *
+   * @return <CODE>true</CODE> if the work queue has recieved a request to shut
+   *         down, or <CODE>false</CODE> if not.
+   */
+  public boolean shutdownRequested()
+  {
+    return shutdownRequested;
+  }
+
+  @Override
+  public void submitOperation(Operation operation) throws DirectoryException
+  {
+    submitOperation(operation, true);
+  }
+
+  @Override
+  public boolean trySubmitOperation(Operation operation) throws DirectoryException
+  {
+    try
+    {
+      submitOperation(operation, false);
+      return true;
+    }
+    catch (DirectoryException e)
+    {
+      if (ResultCode.BUSY == e.getResultCode())
+      {
+        return false;
+      }
+      throw e;
+    }
+  }
+
+  private void submitOperation(Operation operation, boolean blockEnqueuingWhenFull) throws DirectoryException
+  {
+    lock.lock();
+    try
+    {
+      while (true)
+      {
+        if (shutdownRequested)
+        {
+          LocalizableMessage message = WARN_OP_REJECTED_BY_SHUTDOWN.get();
+          throw new DirectoryException(ResultCode.UNAVAILABLE, message);
+        }
+        if (scheduler.size() < maxCapacity)
+        {
+          break;
+        }
+        if (!blockEnqueuingWhenFull)
+        {
+          queueFullRejects.incrementAndGet();
+          LocalizableMessage message = WARN_OP_REJECTED_BY_QUEUE_FULL.get(maxCapacity);
+          throw new DirectoryException(ResultCode.BUSY, message);
+        }
+        try
+        {
+          notFull.await();
+        }
+        catch (InterruptedException e)
+        {
+          // We cannot handle the interruption here. Reject the request and
+          // re-interrupt this thread.
+          Thread.currentThread().interrupt();
+
+          queueFullRejects.incrementAndGet();
+
+          LocalizableMessage message = WARN_OP_REJECTED_BY_QUEUE_INTERRUPT.get();
+          throw new DirectoryException(ResultCode.BUSY, message);
+        }
+      }
+
+      scheduler.add(operation, System.nanoTime());
+      opsSubmitted.incrementAndGet();
+      notEmpty.signal();
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves the next operation that should be processed by one of the worker
+   * threads, blocking if necessary until a new request arrives. This method
+   * should only be called by a worker thread associated with this work queue,
+   * which must call {@link #operationCompleted(PendingOperation)} once the
+   * operation has been processed.
+   *
+   * @param workerThread
+   *          The worker thread that is requesting the operation.
+   * @return The next operation that should be processed, or <CODE>null</CODE>
+   *         if the server is shutting down and no more operations will be
+   *         processed, or if the worker thread should exit.
+   */
+  PendingOperation nextOperation(FairWorkerThread workerThread)
+  {
+    while (true)
+    {
+      final PendingOperation pending;
+      lock.lock();
+      try
+      {
+        while (scheduler.size() == 0 || killThreads)
+        {
+          if (shutdownRequested)
+          {
+            return null;
+          }
+          if (killThreads && tryKillThisWorkerThread(workerThread))
+          {
+            return null;
+          }
+          if (scheduler.size() > 0)
+          {
+            break;
+          }
+          notEmpty.await();
+        }
+        if (shutdownRequested)
+        {
+          return null;
+        }
+        pending = scheduler.poll(System.nanoTime());
+        notFull.signal();
+      }
+      catch (InterruptedException ie)
+      {
+        // If this occurs, then the worker thread must have been interrupted for
+        // some reason. This could be because the Directory Server is shutting
+        // down, in which case we should return null.
+        if (shutdownRequested)
+        {
+          return null;
+        }
+
+        // If we've gotten here, then the worker thread was interrupted for some
+        // other reason. This should not happen, and we need to log a message.
+        logger.warn(WARN_WORKER_INTERRUPTED_WITHOUT_SHUTDOWN, Thread.currentThread().getName(), ie);
+        continue;
+      }
+      finally
+      {
+        lock.unlock();
+      }
+
+      if (!scheduler.isExpired(pending))
+      {
+        return pending;
+      }
+      dropExpiredOperation(pending);
+    }
+  }
+
+  /** Kills this worker thread if there are too many worker threads. Must be called while holding the lock. */
+  private boolean tryKillThisWorkerThread(FairWorkerThread workerThread)
+  {
+    if (workerThreads.size() <= numWorkerThreads)
+    {
+      killThreads = false;
+      return false;
+    }
+    workerThreads.remove(workerThread);
+    killThreads = workerThreads.size() > numWorkerThreads;
+    workerThread.setStoppedByReducedThreadNumber();
+    return true;
+  }
+
+  /** Answers a search which waited longer than its time limit, without processing it. */
+  private void dropExpiredOperation(PendingOperation pending)
+  {
+    final Operation operation = pending.getOperation();
+    try
+    {
+      operation.setResultCode(ResultCode.TIME_LIMIT_EXCEEDED);
+      operation.appendErrorMessage(ERR_SEARCH_TIME_LIMIT_EXCEEDED.get(((SearchOperation) operation).getTimeLimit()));
+      operation.getClientConnection().sendResponse(operation);
+      operation.operationCompleted();
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+    }
+    finally
+    {
+      lock.lock();
+      try
+      {
+        scheduler.dropped(pending);
+      }
+      finally
+      {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Indicates that an operation returned by {@link #nextOperation(FairWorkerThread)} has been processed, so that its
+   * processing time is charged to its class and connection.
+   *
+   * @param pending
+   *          the operation which has been processed
+   */
+  void operationCompleted(PendingOperation pending)
+  {
+    final long now = System.nanoTime();
+    lock.lock();
+    try
+    {
+      scheduler.completed(pending, now);
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves the total number of operations that have been successfully
+   * submitted to this work queue for processing since server startup. This does
+   * not include operations that have been rejected for some reason like the
+   * queue already at its maximum capacity.
+   *
+   * @return The total number of operations that have been successfully
+   *         submitted to this work queue since startup.
+   */
+  public long getOpsSubmitted()
+  {
+    return opsSubmitted.longValue();
+  }
+
+  /**
+   * Retrieves the total number of operations that have been rejected because
+   * the work queue was already at its maximum capacity.
+   *
+   * @return The total number of operations that have been rejected because the
+   *         work queue was already at its maximum capacity.
+   */
+  public long getOpsRejectedDueToQueueFull()
+  {
+    return queueFullRejects.longValue();
+  }
+
+  /**
+   * Retrieves the number of pending operations in the queue that have not yet
+   * been picked up for processing.
+   *
+   * @return The number of pending operations in the queue that have not yet
+   *         been picked up for processing.
+   */
+  public int size()
+  {
+    lock.lock();
+    try
+    {
+      return scheduler.size();
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves the number of pending operations of a class.
+   *
+   * @param operationClass
+   *          The class of operations.
+   * @return The number of pending operations of the class.
+   */
+  public int getBacklog(OperationClass operationClass)
+  {
+    lock.lock();
+    try
+    {
+      return scheduler.getBacklog(operationClass);
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves the number of operations of a class picked up by the worker
+   * threads since server startup, including the dropped ones.
+   *
+   * @param operationClass
+   *          The class of operations.
+   * @return The number of operations of the class picked up since startup.
+   */
+  public long getOpsDispatched(OperationClass operationClass)
+  {
+    lock.lock();
+    try
+    {
+      return scheduler.getOpsDispatched(operationClass);
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves the number of searches of a class answered without being
+   * processed because they waited longer than their time limit.
+   *
+   * @param operationClass
+   *          The class of operations.
+   * @return The number of dropped operations of the class since startup.
+   */
+  public long getOpsDropped(OperationClass operationClass)
+  {
+    lock.lock();
+    try
+    {
+      return scheduler.getOpsDropped(operationClass);
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves the average time waited in the queue by the operations of a class.
+   *
+   * @param operationClass
+   *          The class of operations.
+   * @return The average wait time in milliseconds.
+   */
+  public double getAverageWaitTime(OperationClass operationClass)
+  {
+    lock.lock();
+    try
+    {
+      final long opsDispatched = scheduler.getOpsDispatched(operationClass);
+      return opsDispatched > 0 ? scheduler.getTotalWaitTime(operationClass) / (opsDispatched * 1e6) : 0;
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves the longest time waited in the queue by an operation of a class.
+   *
+   * @param operationClass
+   *          The class of operations.
+   * @return The maximum wait time in milliseconds.
+   */
+  public long getMaxWaitTime(OperationClass operationClass)
+  {
+    lock.lock();
+    try
+    {
+      return TimeUnit.NANOSECONDS.toMillis(scheduler.getMaxWaitTime(operationClass));
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(
+      FairWorkQueueCfg configuration, List<LocalizableMessage> unacceptableReasons)
+  {
+    return true;
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(FairWorkQueueCfg configuration)
+  {
+    int newNumThreads = computeNumWorkerThreads(configuration.getNumWorkerThreads());
+
+    lock.lock();
+    try
+    {
+      // Apply a change to the number of worker threads if appropriate.
+      int currentThreads = workerThreads.size();
+      if (newNumThreads > currentThreads)
+      {
+        for (int i = currentThreads; i < newNumThreads; i++)
+        {
+          FairWorkerThread t = new FairWorkerThread(this, lastThreadNumber++);
+          workerThreads.add(t);
+          t.start();
+        }
+        killThreads = false;
+      }
+      else if (newNumThreads < currentThreads)
+      {
+        killThreads = true;
+        notEmpty.signalAll();
+      }
+      numWorkerThreads = newNumThreads;
+
+      // The capacity and weights apply to the operations already pending.
+      maxCapacity = configuration.getMaxWorkQueueCapacity();
+      notFull.signalAll();
+      setWeights(configuration);
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+    }
+    finally
+    {
+      lock.unlock();
+    }
+    return new ConfigChangeResult();
+  }
+
+  @Override
+  public boolean isIdle()
+  {
+    lock.lock();
+    try
+    {
+      if (scheduler.size() > 0)
+      {
+        return false;
+      }
+
+      for (FairWorkerThread t : workerThreads)
+      {
+        if (t.isActive())
+        {
+          return false;
+        }
+      }
+
+      return true;
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Return the number of worker threads used by this WorkQueue.
+   *
+   * @return the number of worker threads used by this WorkQueue
+   */
+  @Override
+  public int getNumWorkerThreads()
+  {
+    return this.numWorkerThreads;
+  }
+}
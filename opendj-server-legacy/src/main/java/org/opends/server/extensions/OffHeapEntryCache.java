@@ -0,0 +1,777 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.ExtensionMessages.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.server.config.server.EntryCacheCfg;
+import org.forgerock.opendj.server.config.server.OffHeapEntryCacheCfg;
+import org.forgerock.util.Utils;
+import org.opends.server.api.CompressedSchema;
+import org.opends.server.api.EntryCache;
+import org.opends.server.api.MonitorData;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.core.ServerContext;
+import org.opends.server.types.DirectoryException;
+import org.opends.server.types.Entry;
+import org.opends.server.types.EntryEncodeConfig;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.SearchFilter;
+import org.opends.server.util.ServerConstants;
+
+/**
+ * This class defines a Directory Server entry cache storing the entries in their encoded form outside of the Java
+ * heap, so that caching a large working set does not increase the garbage collection pauses.
+ * <p>
+ * Entries are encoded as in the database and appended to slabs, which are direct buffers of at most 16 MB allocated
+ * as the cache fills up. Only a small index mapping the DNs and the backend/entry IDs to the locations of the entries
+ * is kept in the heap. Entries are decoded each time they are read from the cache, without any locking other than the
+ * read lock of their slab.
+ * <p>
+ * The slabs are filled in turn. Once they are all full, the oldest slab is reused: the entries accessed since they
+ * were appended to it get a second chance and are moved to the front of the slab, the others are evicted. Replaced or
+ * removed entries keep using memory in their slab until it is reused.
+ */
+public class OffHeapEntryCache
+       extends EntryCache<OffHeapEntryCacheCfg>
+       implements ConfigurationChangeListener<OffHeapEntryCacheCfg>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** Maximum size of a slab, in bytes. */
+  private static final int MAX_SLAB_SIZE = 16 * 1024 * 1024;
+  /** Minimum number of slabs, so that reusing a slab does not evict a large part of the cache. */
+  private static final int MIN_NB_SLABS = 4;
+
+  /** The location of a cached entry in the slabs. */
+  private static final class Location
+  {
+    private final DN dn;
+    private final String backendID;
+    private final long entryID;
+    private final Slab slab;
+    /** The generation of the slab when the entry was appended to it. */
+    private final long generation;
+    private final int offset;
+    private final int length;
+    /** Whether the entry has been accessed since it was appended to its slab. */
+    private volatile boolean accessed;
+
+    private Location(DN dn, String backendID, long entryID, Slab slab, int offset, int length)
+    {
+      this.dn = dn;
+      this.backendID = backendID;
+      this.entryID = entryID;
+      this.slab = slab;
+      this.generation = slab.generation;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  /** A direct buffer to which encoded entries are appended. */
+  private static final class Slab
+  {
+    private final ByteBuffer buffer;
+    /** Held by the readers copying an entry out of the slab, and exclusively while the slab is reused. */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** Number of times the slab has been reused, only written while holding the write lock of the slab. */
+    private long generation;
+    /** Offset at which the next entry is appended, guarded by the cache lock. */
+    private int position;
+    /** The locations of the entries appended to the slab in offset order, guarded by the cache lock. */
+    private final List<Location> locations = new ArrayList<>();
+
+    private Slab(int size)
+    {
+      buffer = ByteBuffer.allocateDirect(size);
+    }
+  }
+
+  /** The mapping between DNs and entry locations. */
+  private final ConcurrentMap<DN, Location> dnMap = new ConcurrentHashMap<>();
+  /** The mapping between entry backends/IDs and entry locations. */
+  private final ConcurrentMap<String, ConcurrentMap<Long, Location>> idMap = new ConcurrentHashMap<>();
+
+  /** The lock guarding the changes to the cache content. */
+  private final Lock lock = new ReentrantLock();
+  /** The slabs, allocated as the cache fills up, guarded by the cache lock. */
+  private Slab[] slabs = new Slab[0];
+  /** The size of the slabs, guarded by the cache lock. */
+  private int slabSize;
+  /** The index of the slab to which entries are appended, guarded by the cache lock. */
+  private int current;
+
+  /** The maximum amount of memory in bytes used by the slabs. */
+  private volatile long maxMemorySize;
+  /** The amount of memory in bytes used by the cached entries, only written under the cache lock. */
+  private volatile long memorySize;
+  /** The number of entries evicted from the cache. */
+  private final AtomicLong cacheEvictions = new AtomicLong();
+
+  /** The configuration for encoding the cached entries. */
+  private EntryEncodeConfig encodeConfig;
+  /** Currently registered configuration object. */
+  private OffHeapEntryCacheCfg registeredConfiguration;
+
+  /** Creates a new instance of this off-heap entry cache. */
+  public OffHeapEntryCache()
+  {
+    super();
+    // All initialization should be performed in the initializeEntryCache.
+  }
+
+  @Override
+  public void initializeEntryCache(ServerContext serverContext, OffHeapEntryCacheCfg configuration)
+      throws ConfigException, InitializationException
+  {
+    registeredConfiguration = configuration;
+    configuration.addOffHeapChangeListener(this);
+    // Compress the attribute descriptions and object classes, as the backends do.
+    encodeConfig = new EntryEncodeConfig(false, true, true);
+
+    // Read configuration and apply changes.
+    List<LocalizableMessage> errorMessages = new ArrayList<>();
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+        EntryCacheCommon.getConfigErrorHandler(EntryCacheCommon.ConfigPhase.PHASE_INIT, null, errorMessages);
+    if (!processEntryCacheConfig(configuration, true, errorHandler))
+    {
+      String buffer = Utils.joinAsString(".  ", errorMessages);
+      throw new ConfigException(ERR_OFFHEAPCACHE_CANNOT_INITIALIZE.get(buffer));
+    }
+  }
+
+  @Override
+  public void finalizeEntryCache()
+  {
+    registeredConfiguration.removeOffHeapChangeListener(this);
+
+    // Release all memory currently in use by this cache.
+    lock.lock();
+    try
+    {
+      clear();
+      slabs = new Slab[slabs.length];
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean containsEntry(DN entryDN)
+  {
+    return entryDN != null && dnMap.containsKey(entryDN);
+  }
+
+  @Override
+  public Entry getEntry(DN entryDN)
+  {
+    return getEntry(entryDN != null ? dnMap.get(entryDN) : null);
+  }
+
+  @Override
+  public Entry getEntry(String backendID, long entryID)
+  {
+    final Map<Long, Location> backendMap = idMap.get(backendID);
+    return getEntry(backendMap != null ? backendMap.get(entryID) : null);
+  }
+
+  private Entry getEntry(Location location)
+  {
+    if (location != null)
+    {
+      Location l = location;
+      byte[] encodedEntry = read(l);
+      if (encodedEntry == null)
+      {
+        // The slab has been reused since the location was read, but the entry may have been moved
+        l = dnMap.get(location.dn);
+        encodedEntry = l != null && l != location ? read(l) : null;
+      }
+      if (encodedEntry != null)
+      {
+        try
+        {
+          final Entry entry = Entry.decodeLazily(ByteString.wrap(encodedEntry), getCompressedSchema());
+          if (!l.accessed)
+          {
+            l.accessed = true;
+          }
+          // Indicate cache hit.
+          cacheHits.getAndIncrement();
+          return entry;
+        }
+        catch (DirectoryException e)
+        {
+          logger.traceException(e);
+        }
+      }
+    }
+    // Indicate cache miss.
+    cacheMisses.getAndIncrement();
+    return null;
+  }
+
+  /** Copies an encoded entry out of its slab, returns {@code null} if the slab has been reused since. */
+  private byte[] read(Location location)
+  {
+    final Slab slab = location.slab;
+    final Lock readLock = slab.lock.readLock();
+    readLock.lock();
+    try
+    {
+      if (slab.generation != location.generation)
+      {
+        return null;
+      }
+      final byte[] encodedEntry = new byte[location.length];
+      final ByteBuffer buffer = slab.buffer.duplicate();
+      buffer.position(location.offset);
+      buffer.get(encodedEntry);
+      return encodedEntry;
+    }
+    finally
+    {
+      readLock.unlock();
+    }
+  }
+
+  private CompressedSchema getCompressedSchema()
+  {
+    return encodeConfig.getCompressedSchema();
+  }
+
+  @Override
+  public long getEntryID(DN entryDN)
+  {
+    final Location location = entryDN != null ? dnMap.get(entryDN) : null;
+    return location != null ? location.entryID : -1;
+  }
+
+  @Override
+  public DN getEntryDN(String backendID, long entryID)
+  {
+    final Map<Long, Location> backendMap = idMap.get(backendID);
+    if (backendMap != null)
+    {
+      final Location location = backendMap.get(entryID);
+      if (location != null)
+      {
+        return location.dn;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void putEntry(Entry entry, String backendID, long entryID)
+  {
+    final ByteStringBuilder encodedEntry = encode(entry);
+    lock.lock();
+    try
+    {
+      final Location location = encodedEntry != null ? append(entry.getName(), backendID, entryID, encodedEntry) : null;
+      if (location != null)
+      {
+        index(location);
+      }
+      else
+      {
+        // Do not keep the previous version of the entry
+        unindex(dnMap.get(entry.getName()));
+      }
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean putEntryIfAbsent(Entry entry, String backendID, long entryID)
+  {
+    if (dnMap.containsKey(entry.getName()))
+    {
+      return false;
+    }
+    final ByteStringBuilder encodedEntry = encode(entry);
+    lock.lock();
+    try
+    {
+      if (dnMap.containsKey(entry.getName()))
+      {
+        return false;
+      }
+      final Location location = encodedEntry != null ? append(entry.getName(), backendID, entryID, encodedEntry) : null;
+      if (location == null)
+      {
+        return false;
+      }
+      index(location);
+      return true;
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  private ByteStringBuilder encode(Entry entry)
+  {
+    try
+    {
+      final ByteStringBuilder encodedEntry = new ByteStringBuilder();
+      entry.encode(encodedEntry, encodeConfig);
+      return encodedEntry;
+    }
+    catch (DirectoryException e)
+    {
+      logger.traceException(e);
+      return null;
+    }
+  }
+
+  /**
+   * Appends an encoded entry to the current slab, reusing the oldest slab if needed. Must be called while holding the
+   * cache lock.
+   *
+   * @return the location of the entry, or {@code null} if it could not be cached
+   */
+  private Location append(DN dn, String backendID, long entryID, ByteStringBuilder encodedEntry)
+  {
+    final int length = encodedEntry.length();
+    if (length > slabSize)
+    {
+      return null;
+    }
+    // Reusing a slab may not free enough memory if most of its entries get a second chance
+    for (int i = 0; i <= 2 * slabs.length; i++)
+    {
+      final Slab slab = slabs.length > 0 ? slabs[current] : null;
+      if (slab != null && slab.position + length <= slabSize)
+      {
+        final ByteBuffer buffer = slab.buffer.duplicate();
+        buffer.position(slab.position);
+        encodedEntry.copyTo(buffer);
+        final Location location = new Location(dn, backendID, entryID, slab, slab.position, length);
+        slab.position += length;
+        slab.locations.add(location);
+        return location;
+      }
+      if (!nextSlab())
+      {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  /** Makes the next slab the current slab, allocating or reusing it. Must be called while holding the cache lock. */
+  private boolean nextSlab()
+  {
+    if (slabs.length == 0)
+    {
+      return false;
+    }
+    final int next = (current + 1) % slabs.length;
+    if (slabs[next] != null)
+    {
+      reuse(slabs[next], true);
+    }
+    else
+    {
+      try
+      {
+        slabs[next] = new Slab(slabSize);
+      }
+      catch (OutOfMemoryError e)
+      {
+        // Not enough direct memory: make do with the slabs already allocated
+        logger.traceException(e);
+        logger.warn(WARN_OFFHEAPCACHE_DIRECT_MEMORY_EXHAUSTED, (long) next * slabSize, maxMemorySize);
+        if (next == 0)
+        {
+          return false;
+        }
+        slabs = Arrays.copyOf(slabs, next);
+        current = slabs.length - 1;
+        return nextSlab();
+      }
+    }
+    current = next;
+    return true;
+  }
+
+  /**
+   * Reuses a slab, evicting its entries or moving them to the front of the slab. Must be called while holding the cache
+   * lock.
+   *
+   * @param slab
+   *          the slab to reuse
+   * @param secondChance
+   *          whether the entries accessed since they were appended to the slab are kept
+   */
+  private void reuse(Slab slab, boolean secondChance)
+  {
+    final List<Location> kept = new ArrayList<>();
+    int position = 0;
+    final Lock writeLock = slab.lock.writeLock();
+    writeLock.lock();
+    try
+    {
+      slab.generation++;
+      final ByteBuffer buffer = slab.buffer.duplicate();
+      for (Location location : slab.locations)
+      {
+        if (dnMap.get(location.dn) != location)
+        {
+          // The entry has been removed or replaced
+          continue;
+        }
+        if (secondChance && location.accessed)
+        {
+          final byte[] encodedEntry = new byte[location.length];
+          buffer.position(location.offset);
+          buffer.get(encodedEntry);
+          buffer.position(position);
+          buffer.put(encodedEntry);
+          final Location moved =
+              new Location(location.dn, location.backendID, location.entryID, slab, position, location.length);
+          dnMap.put(moved.dn, moved);
+          getBackendMap(moved.backendID).put(moved.entryID, moved);
+          kept.add(moved);
+          position += moved.length;
+        }
+        else
+        {
+          unindex(location);
+          cacheEvictions.getAndIncrement();
+        }
+      }
+      slab.locations.clear();
+      slab.locations.addAll(kept);
+      slab.position = position;
+    }
+    finally
+    {
+      writeLock.unlock();
+    }
+  }
+
+  /** Adds a location to the maps, replacing the previous location of the entry. Must be called with the cache lock. */
+  private void index(Location location)
+  {
+    final Location previous = dnMap.put(location.dn, location);
+    if (previous != null)
+    {
+      removeFromIDMap(previous);
+      memorySize -= previous.length;
+    }
+    final Location previousWithID = getBackendMap(location.backendID).put(location.entryID, location);
+    if (previousWithID != null && previousWithID != previous && dnMap.remove(previousWithID.dn, previousWithID))
+    {
+      // The entry was renamed
+      memorySize -= previousWithID.length;
+    }
+    memorySize += location.length;
+  }
+
+  /** Removes a location from the maps, if it is still current. Must be called while holding the cache lock. */
+  private void unindex(Location location)
+  {
+    if (location != null && dnMap.remove(location.dn, location))
+    {
+      removeFromIDMap(location);
+      memorySize -= location.length;
+    }
+  }
+
+  private ConcurrentMap<Long, Location> getBackendMap(String backendID)
+  {
+    ConcurrentMap<Long, Location> backendMap = idMap.get(backendID);
+    if (backendMap == null)
+    {
+      backendMap = new ConcurrentHashMap<>();
+      idMap.put(backendID, backendMap);
+    }
+    return backendMap;
+  }
+
+  private void removeFromIDMap(Location location)
+  {
+    final Map<Long, Location> backendMap = idMap.get(location.backendID);
+    if (backendMap != null)
+    {
+      backendMap.remove(location.entryID, location);
+    }
+  }
+
+  @Override
+  public void removeEntry(DN entryDN)
+  {
+    if (entryDN == null || !dnMap.containsKey(entryDN))
+    {
+      return;
+    }
+    lock.lock();
+    try
+    {
+      unindex(dnMap.get(entryDN));
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear()
+  {
+    lock.lock();
+    try
+    {
+      dnMap.clear();
+      idMap.clear();
+      for (Slab slab : slabs)
+      {
+        if (slab != null)
+        {
+          reuse(slab, false);
+        }
+      }
+      memorySize = 0;
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clearBackend(String backendID)
+  {
+    final Map<Long, Location> backendMap = idMap.get(backendID);
+    if (backendMap == null)
+    {
+      // No entries were in the cache for this backend.
+      return;
+    }
+
+    // Release the cache lock periodically so that this does not become a stop-the-world event for the writers.
+    final Iterator<Location> locations = backendMap.values().iterator();
+    while (locations.hasNext())
+    {
+      lock.lock();
+      try
+      {
+        for (int i = 0; i < 1000 && locations.hasNext(); i++)
+        {
+          unindex(locations.next());
+        }
+      }
+      finally
+      {
+        lock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public void handleLowMemory()
+  {
+    // The entries are not in the heap, but evicting the oldest ones releases their index.
+    lock.lock();
+    try
+    {
+      // If there are less than 1000 entries, then we'll dump all of them.
+      // Otherwise, we'll dump the oldest slab.
+      if (dnMap.size() < 1000)
+      {
+        clear();
+      }
+      else if (slabs.length > 1)
+      {
+        final Slab oldest = slabs[(current + 1) % slabs.length];
+        if (oldest != null)
+        {
+          reuse(oldest, false);
+        }
+      }
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean isConfigurationAcceptable(EntryCacheCfg configuration,
+                                           List<LocalizableMessage> unacceptableReasons)
+  {
+    OffHeapEntryCacheCfg config = (OffHeapEntryCacheCfg) configuration;
+    return isConfigurationChangeAcceptable(config, unacceptableReasons);
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(OffHeapEntryCacheCfg configuration,
+                                                 List<LocalizableMessage> unacceptableReasons)
+  {
+    EntryCacheCommon.ConfigErrorHandler errorHandler = EntryCacheCommon.getConfigErrorHandler(
+        EntryCacheCommon.ConfigPhase.PHASE_ACCEPTABLE, unacceptableReasons, null);
+    processEntryCacheConfig(configuration, false, errorHandler);
+    return errorHandler.getIsAcceptable();
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(OffHeapEntryCacheCfg configuration)
+  {
+    List<LocalizableMessage> errorMessages = new ArrayList<>();
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+        EntryCacheCommon.getConfigErrorHandler(EntryCacheCommon.ConfigPhase.PHASE_APPLY, null, errorMessages);
+
+    // Do not apply changes unless this cache is enabled.
+    if (configuration.isEnabled())
+    {
+      processEntryCacheConfig(configuration, true, errorHandler);
+    }
+
+    final ConfigChangeResult changeResult = new ConfigChangeResult();
+    changeResult.setResultCode(errorHandler.getResultCode());
+    changeResult.setAdminActionRequired(errorHandler.getIsAdminActionRequired());
+    changeResult.getMessages().addAll(errorHandler.getErrorMessages());
+    return changeResult;
+  }
+
+  /**
+   * Parses the provided configuration and configure the entry cache.
+   *
+   * @param configuration  The new configuration containing the changes.
+   * @param applyChanges   If true then take into account the new configuration.
+   * @param errorHandler   An handler used to report errors.
+   *
+   * @return  <CODE>true</CODE> if configuration is acceptable,
+   *          or <CODE>false</CODE> otherwise.
+   */
+  private boolean processEntryCacheConfig(OffHeapEntryCacheCfg configuration, boolean applyChanges,
+      EntryCacheCommon.ConfigErrorHandler errorHandler)
+  {
+    DN newConfigEntryDN = configuration.dn();
+    Set<SearchFilter> newIncludeFilters = EntryCacheCommon.getFilters(
+        configuration.getIncludeFilter(), ERR_CACHE_INVALID_INCLUDE_FILTER, errorHandler, newConfigEntryDN);
+    Set<SearchFilter> newExcludeFilters = EntryCacheCommon.getFilters(
+        configuration.getExcludeFilter(), ERR_CACHE_INVALID_EXCLUDE_FILTER, errorHandler, newConfigEntryDN);
+
+    if (applyChanges && errorHandler.getIsAcceptable())
+    {
+      setIncludeFilters(newIncludeFilters);
+      setExcludeFilters(newExcludeFilters);
+      registeredConfiguration = configuration;
+
+      final long newMaxMemorySize = configuration.getMaxMemorySize();
+      if (newMaxMemorySize != maxMemorySize)
+      {
+        // The entry locations depend on the slab size: start afresh
+        lock.lock();
+        try
+        {
+          clear();
+          slabSize = (int) Math.min(MAX_SLAB_SIZE, newMaxMemorySize / MIN_NB_SLABS);
+          slabs = new Slab[(int) Math.min(newMaxMemorySize / slabSize, Integer.MAX_VALUE)];
+          current = slabs.length - 1;
+          maxMemorySize = newMaxMemorySize;
+        }
+        finally
+        {
+          lock.unlock();
+        }
+      }
+    }
+
+    return errorHandler.getIsAcceptable();
+  }
+
+  @Override
+  public MonitorData getMonitorData()
+  {
+    try
+    {
+      return EntryCacheCommon.getGenericMonitorData(
+          cacheHits.longValue(),
+          // If cache misses is maintained by default cache
+          // get it from there and if not point to itself.
+          DirectoryServer.getEntryCache().getCacheMisses(),
+          memorySize,
+          maxMemorySize,
+          Long.valueOf(dnMap.size()),
+          null,
+          cacheEvictions.longValue());
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      return new MonitorData(0);
+    }
+  }
+
+  @Override
+  public Long getCacheCount()
+  {
+    return Long.valueOf(dnMap.size());
+  }
+
+  @Override
+  public String toVerboseString()
+  {
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<DN, Location> mapEntry : dnMap.entrySet())
+    {
+      final Location location = mapEntry.getValue();
+      sb.append(mapEntry.getKey());
+      sb.append(":");
+      sb.append(location.entryID);
+      sb.append(":");
+      sb.append(location.backendID);
+      sb.append(ServerConstants.EOL);
+    }
+
+    String verboseString = sb.toString();
+    return verboseString.length() > 0 ? verboseString : null;
+  }
+}
@@ -19,7 +19,9 @@ package org.opends.server.extensions;
 import static com.forgerock.opendj.util.StaticUtils.getBytes;
 
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -344,6 +346,7 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
       HashSet<CompactDn> newMemberDNs = new HashSet<>(memberDNs);
       newMemberDNs.add(new CompactDn(nestedGroupDN));
       memberDNs = newMemberDNs;
+      DirectoryServer.getGroupManager().updateMembershipIndex(this);
     }
     finally
     {
@@ -382,6 +385,7 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
       LinkedHashSet<CompactDn> newMemberDNs = new LinkedHashSet<>(memberDNs);
       newMemberDNs.remove(new CompactDn(nestedGroupDN));
       memberDNs = newMemberDNs;
+      DirectoryServer.getGroupManager().updateMembershipIndex(this);
     }
     finally
     {
@@ -535,6 +539,25 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
     }
   }
 
+  @Override
+  public Collection<ByteString> getNormalizedMemberDNs()
+  {
+    lock.readLock().lock();
+    try
+    {
+      final List<ByteString> normalizedMemberDNs = new ArrayList<>(memberDNs.size());
+      for (CompactDn memberDN : memberDNs)
+      {
+        normalizedMemberDNs.add(memberDN.toNormalizedByteString());
+      }
+      return normalizedMemberDNs;
+    }
+    finally
+    {
+      lock.readLock().unlock();
+    }
+  }
+
   @Override
   public boolean mayAlterMemberList()
   {
@@ -602,6 +625,7 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
           }
         }
       }
+      DirectoryServer.getGroupManager().updateMembershipIndex(this);
     }
     finally {
       lock.writeLock().unlock();
@@ -636,6 +660,7 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
       LinkedHashSet<CompactDn> newMemberDNs = new LinkedHashSet<CompactDn>(memberDNs);
       newMemberDNs.add(compactUserDN);
       memberDNs = newMemberDNs;
+      DirectoryServer.getGroupManager().updateMembershipIndex(this);
     }
     finally
     {
@@ -676,6 +701,7 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
         newNestedGroups.remove(userDN);
         nestedGroups = newNestedGroups;
       }
+      DirectoryServer.getGroupManager().updateMembershipIndex(this);
     }
     finally
     {
@@ -758,6 +784,16 @@ public class StaticGroup extends Group<StaticGroupImplementationCfg>
       return DN.valueOf(toString(), serverContext.getSchema());
     }
 
+    /**
+     * Returns the normalized byte string of the DN, as returned by {@link DN#toNormalizedByteString()}.
+     *
+     * @return the normalized byte string of the DN
+     */
+    ByteString toNormalizedByteString()
+    {
+      return ByteString.wrap(normalizedValue);
+    }
+
     @Override
     public int hashCode()
     {
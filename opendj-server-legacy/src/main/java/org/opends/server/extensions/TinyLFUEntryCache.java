@@ -0,0 +1,935 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.extensions;
+
+import static org.opends.messages.ExtensionMessages.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.forgerock.i18n.LocalizableMessage;
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.config.server.ConfigChangeResult;
+import org.forgerock.opendj.config.server.ConfigException;
+import org.forgerock.opendj.config.server.ConfigurationChangeListener;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.server.config.server.EntryCacheCfg;
+import org.forgerock.opendj.server.config.server.TinyLFUEntryCacheCfg;
+import org.forgerock.util.Utils;
+import org.opends.server.api.EntryCache;
+import org.opends.server.api.MonitorData;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.core.ServerContext;
+import org.opends.server.types.Attribute;
+import org.opends.server.types.CacheEntry;
+import org.opends.server.types.Entry;
+import org.opends.server.types.InitializationException;
+import org.opends.server.types.SearchFilter;
+import org.opends.server.util.ServerConstants;
+
+/**
+ * This class defines a Directory Server entry cache keeping the most frequently accessed entries within a bounded
+ * amount of memory, using the W-TinyLFU eviction policy.
+ * <p>
+ * Entries are looked up by DN or by backend and entry ID in concurrent maps, without any locking. Instead of
+ * reordering the eviction queues on each access, which would require a lock, the accessed entries are recorded in
+ * lossy read buffers striped by thread, which are drained in batch by whichever thread acquires the eviction lock. A
+ * lost access only makes the eviction policy slightly less accurate. Adding and removing entries only hold the
+ * eviction lock for updating the eviction queues.
+ * <p>
+ * The eviction policy is made of three queues in access order:
+ * <ul>
+ * <li>the window, which receives the new entries, and is allocated 1% of the memory,</li>
+ * <li>the probation segment, which receives the entries leaving the window,</li>
+ * <li>the protected segment, which receives the entries of the probation segment accessed again.</li>
+ * </ul>
+ * The access frequencies of the entries are recorded in a compact count-min sketch, whose counters are periodically
+ * halved so that old accesses are forgotten. An entry leaving the window is only admitted in the probation segment if
+ * it has been accessed more frequently than the entries it would evict, otherwise the entry itself is evicted. This
+ * protects the cache content from searches reading many entries only once.
+ * <p>
+ * The cache size is bounded by the estimated memory used by the cached entries, rather than by their number.
+ */
+public class TinyLFUEntryCache
+       extends EntryCache<TinyLFUEntryCacheCfg>
+       implements ConfigurationChangeListener<TinyLFUEntryCacheCfg>
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** Percentage of the maximum memory allocated to the window. */
+  private static final int WINDOW_PERCENT = 1;
+  /** Percentage of the memory of the main area (probation and protected segments) allocated to the protected one. */
+  private static final int PROTECTED_PERCENT = 80;
+
+  /** Estimated memory used by an entry and its cache structures, excluding its DN and attributes. */
+  private static final int ENTRY_OVERHEAD = 512;
+  /** Estimated memory used by an attribute, excluding its values. */
+  private static final int ATTRIBUTE_OVERHEAD = 96;
+  /** Estimated memory used by an attribute value, excluding its bytes. */
+  private static final int VALUE_OVERHEAD = 64;
+  /** Estimated memory used by an object class of an entry. */
+  private static final int OBJECT_CLASS_OVERHEAD = 32;
+  /** Typical memory used by a cached entry, used for sizing the frequency sketch before the cache fills up. */
+  private static final int TYPICAL_ENTRY_SIZE = 1024;
+
+  /** Number of read buffers, a power of two so that the buffer of a thread is computed with a mask. */
+  private static final int NB_READ_BUFFERS = 4 * Integer.highestOneBit(Runtime.getRuntime().availableProcessors());
+  /** Number of accesses a read buffer can hold, a power of two. */
+  private static final int READ_BUFFER_SIZE = 32;
+  /** Number of pending accesses in a read buffer triggering the draining of the read buffers. */
+  private static final int READ_BUFFER_DRAIN_THRESHOLD = READ_BUFFER_SIZE / 2;
+
+  /** An entry of the cache, along with its position in the eviction queues. */
+  private static final class Node
+  {
+    private final CacheEntry cacheEntry;
+    private final long weight;
+    private final int hash;
+    /** The queue containing this node, {@code null} if it is not linked yet or has been removed. */
+    private AccessOrderQueue queue;
+    /** Whether this node has been removed from the cache, possibly before being linked. */
+    private boolean removed;
+    private Node previous;
+    private Node next;
+
+    private Node(CacheEntry cacheEntry, long weight)
+    {
+      this.cacheEntry = cacheEntry;
+      this.weight = weight;
+      final int h = cacheEntry.getDN().hashCode();
+      this.hash = h ^ (h >>> 16);
+    }
+  }
+
+  /**
+   * A queue of nodes in access order, from the least recently accessed to the most recently accessed. Guarded by the
+   * eviction lock.
+   */
+  private static final class AccessOrderQueue
+  {
+    private Node first;
+    private Node last;
+    private long weight;
+
+    private Node peekFirst()
+    {
+      return first;
+    }
+
+    private void addLast(Node node)
+    {
+      node.previous = last;
+      node.next = null;
+      if (last == null)
+      {
+        first = node;
+      }
+      else
+      {
+        last.next = node;
+      }
+      last = node;
+      node.queue = this;
+      weight += node.weight;
+    }
+
+    private void remove(Node node)
+    {
+      if (node.previous == null)
+      {
+        first = node.next;
+      }
+      else
+      {
+        node.previous.next = node.next;
+      }
+      if (node.next == null)
+      {
+        last = node.previous;
+      }
+      else
+      {
+        node.next.previous = node.previous;
+      }
+      node.previous = null;
+      node.next = null;
+      node.queue = null;
+      weight -= node.weight;
+    }
+
+    private void moveToLast(Node node)
+    {
+      if (node != last)
+      {
+        remove(node);
+        addLast(node);
+      }
+    }
+
+    private void clear()
+    {
+      for (Node node = first; node != null;)
+      {
+        final Node next = node.next;
+        node.previous = null;
+        node.next = null;
+        node.queue = null;
+        node.removed = true;
+        node = next;
+      }
+      first = null;
+      last = null;
+      weight = 0;
+    }
+  }
+
+  /**
+   * A bounded buffer of accessed nodes, written concurrently by the reader threads and drained by the thread holding
+   * the eviction lock. Accesses are dropped when the buffer is full or contended.
+   */
+  private static final class ReadBuffer
+  {
+    private final AtomicReferenceArray<Node> nodes = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicLong writeCount = new AtomicLong();
+    /** Only written by the thread holding the eviction lock. */
+    private volatile long readCount;
+
+    /** Records an access, returning whether the read buffers should be drained. */
+    private boolean offer(Node node)
+    {
+      final long writes = writeCount.get();
+      final long pending = writes - readCount;
+      if (pending < READ_BUFFER_SIZE && writeCount.compareAndSet(writes, writes + 1))
+      {
+        nodes.lazySet((int) (writes & (READ_BUFFER_SIZE - 1)), node);
+        return pending + 1 >= READ_BUFFER_DRAIN_THRESHOLD;
+      }
+      return pending >= READ_BUFFER_DRAIN_THRESHOLD;
+    }
+
+    /** Drains the recorded accesses, must be called while holding the eviction lock. */
+    private void drainTo(TinyLFUEntryCache cache)
+    {
+      long reads = readCount;
+      final long writes = writeCount.get();
+      for (; reads < writes; reads++)
+      {
+        final int index = (int) (reads & (READ_BUFFER_SIZE - 1));
+        final Node node = nodes.get(index);
+        if (node == null)
+        {
+          // The access is not published yet: it will be drained next time
+          break;
+        }
+        nodes.lazySet(index, null);
+        cache.onAccess(node);
+      }
+      readCount = reads;
+    }
+  }
+
+  /**
+   * A count-min sketch recording the access frequencies of the entries with 4-bit counters, four counters per entry
+   * being packed in a single long. Counters are halved once the number of increments reaches ten times the capacity,
+   * so that the frequencies reflect the recent accesses. Guarded by the eviction lock.
+   */
+  private static final class FrequencySketch
+  {
+    private static final long[] SEEDS =
+        { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+    private static final int MIN_CAPACITY = 64;
+    private static final int MAX_CAPACITY = 1 << 22;
+
+    private long[] table = new long[MIN_CAPACITY];
+    private int sampleSize = 10 * MIN_CAPACITY;
+    private int size;
+
+    /**
+     * Grows the sketch so that it accurately records the frequencies of the provided number of entries. Growing the
+     * sketch forgets the recorded frequencies.
+     */
+    private void ensureCapacity(int nbEntries)
+    {
+      if (nbEntries > table.length && table.length < MAX_CAPACITY)
+      {
+        final int capacity = Math.min(Integer.highestOneBit(nbEntries - 1) << 1, MAX_CAPACITY);
+        table = new long[capacity];
+        sampleSize = 10 * capacity;
+        size = 0;
+      }
+    }
+
+    private int frequency(int hash)
+    {
+      final int start = (hash & 3) << 2;
+      int frequency = Integer.MAX_VALUE;
+      for (int i = 0; i < 4; i++)
+      {
+        final long counters = table[indexOf(hash, i)];
+        frequency = Math.min(frequency, (int) ((counters >>> ((start + i) << 2)) & 0xfL));
+      }
+      return frequency;
+    }
+
+    private void increment(int hash)
+    {
+      final int start = (hash & 3) << 2;
+      boolean added = false;
+      for (int i = 0; i < 4; i++)
+      {
+        added |= incrementAt(indexOf(hash, i), start + i);
+      }
+      if (added && ++size == sampleSize)
+      {
+        reset();
+      }
+    }
+
+    private boolean incrementAt(int index, int counter)
+    {
+      final int offset = counter << 2;
+      final long mask = 0xfL << offset;
+      if ((table[index] & mask) != mask)
+      {
+        table[index] += 1L << offset;
+        return true;
+      }
+      return false;
+    }
+
+    private void reset()
+    {
+      int nbOddCounters = 0;
+      for (int i = 0; i < table.length; i++)
+      {
+        nbOddCounters += Long.bitCount(table[i] & ONE_MASK);
+        table[i] = (table[i] >>> 1) & RESET_MASK;
+      }
+      size = (size >>> 1) - (nbOddCounters >>> 2);
+    }
+
+    private int indexOf(int hash, int i)
+    {
+      long h = (hash + SEEDS[i]) * SEEDS[i];
+      h += h >>> 32;
+      return (int) h & (table.length - 1);
+    }
+  }
+
+  /** The mapping between DNs and entries. */
+  private final ConcurrentMap<DN, Node> dnMap = new ConcurrentHashMap<>();
+  /** The mapping between entry backends/IDs and entries. */
+  private final ConcurrentMap<String, ConcurrentMap<Long, Node>> idMap = new ConcurrentHashMap<>();
+
+  /** The lock guarding the eviction queues and the frequency sketch. */
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final AccessOrderQueue window = new AccessOrderQueue();
+  private final AccessOrderQueue probation = new AccessOrderQueue();
+  private final AccessOrderQueue protectedSegment = new AccessOrderQueue();
+  private final FrequencySketch sketch = new FrequencySketch();
+  private final ReadBuffer[] readBuffers = new ReadBuffer[NB_READ_BUFFERS];
+
+  /** The maximum amount of memory in bytes used by the cached entries. */
+  private volatile long maxMemorySize;
+  /** The estimated amount of memory in bytes used by the cached entries, only written under the eviction lock. */
+  private volatile long memorySize;
+
+  /** Currently registered configuration object. */
+  private TinyLFUEntryCacheCfg registeredConfiguration;
+
+  /** Creates a new instance of this TinyLFU entry cache. */
+  public TinyLFUEntryCache()
+  {
+    super();
+    for (int i = 0; i < readBuffers.length; i++)
+    {
+      readBuffers[i] = new ReadBuffer();
+    }
+    // All initialization should be performed in the initializeEntryCache.
+  }
+
+  @Override
+  public void initializeEntryCache(ServerContext serverContext, TinyLFUEntryCacheCfg configuration)
+      throws ConfigException, InitializationException
+  {
+    registeredConfiguration = configuration;
+    configuration.addTinyLFUChangeListener(this);
+
+    // Read configuration and apply changes.
+    List<LocalizableMessage> errorMessages = new ArrayList<>();
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+        EntryCacheCommon.getConfigErrorHandler(EntryCacheCommon.ConfigPhase.PHASE_INIT, null, errorMessages);
+    if (!processEntryCacheConfig(configuration, true, errorHandler))
+    {
+      String buffer = Utils.joinAsString(".  ", errorMessages);
+      throw new ConfigException(ERR_TINYLFUCACHE_CANNOT_INITIALIZE.get(buffer));
+    }
+  }
+
+  @Override
+  public void finalizeEntryCache()
+  {
+    registeredConfiguration.removeTinyLFUChangeListener(this);
+
+    // Release all memory currently in use by this cache.
+    clear();
+  }
+
+  @Override
+  public boolean containsEntry(DN entryDN)
+  {
+    return entryDN != null && dnMap.containsKey(entryDN);
+  }
+
+  @Override
+  public Entry getEntry(DN entryDN)
+  {
+    return getEntry(entryDN != null ? dnMap.get(entryDN) : null);
+  }
+
+  @Override
+  public Entry getEntry(String backendID, long entryID)
+  {
+    final Map<Long, Node> backendMap = idMap.get(backendID);
+    return getEntry(backendMap != null ? backendMap.get(entryID) : null);
+  }
+
+  private Entry getEntry(Node node)
+  {
+    if (node == null)
+    {
+      // Indicate cache miss.
+      cacheMisses.getAndIncrement();
+      return null;
+    }
+    // Indicate cache hit.
+    cacheHits.getAndIncrement();
+    recordAccess(node);
+    return node.cacheEntry.getEntry();
+  }
+
+  @Override
+  public long getEntryID(DN entryDN)
+  {
+    final Node node = entryDN != null ? dnMap.get(entryDN) : null;
+    return node != null ? node.cacheEntry.getEntryID() : -1;
+  }
+
+  @Override
+  public DN getEntryDN(String backendID, long entryID)
+  {
+    final Map<Long, Node> backendMap = idMap.get(backendID);
+    if (backendMap != null)
+    {
+      final Node node = backendMap.get(entryID);
+      if (node != null)
+      {
+        return node.cacheEntry.getDN();
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void putEntry(Entry entry, String backendID, long entryID)
+  {
+    final Node node = new Node(new CacheEntry(entry, backendID, entryID), estimateMemorySize(entry));
+    final Node previous = dnMap.put(entry.getName(), node);
+    add(node, previous);
+  }
+
+  @Override
+  public boolean putEntryIfAbsent(Entry entry, String backendID, long entryID)
+  {
+    final Node node = new Node(new CacheEntry(entry, backendID, entryID), estimateMemorySize(entry));
+    if (dnMap.putIfAbsent(entry.getName(), node) != null)
+    {
+      return false;
+    }
+    add(node, null);
+    return true;
+  }
+
+  /** Completes the addition of a node which has just been put in the DN map. */
+  private void add(Node node, Node previous)
+  {
+    final CacheEntry cacheEntry = node.cacheEntry;
+    final Node previousWithID = getBackendMap(cacheEntry.getBackendID()).put(cacheEntry.getEntryID(), node);
+    if (previous != null && previous != previousWithID)
+    {
+      removeFromIDMap(previous);
+    }
+    if (previousWithID != null && previousWithID != previous)
+    {
+      // The entry was renamed
+      dnMap.remove(previousWithID.cacheEntry.getDN(), previousWithID);
+    }
+
+    evictionLock.lock();
+    try
+    {
+      drainReadBuffers();
+      if (previous != null)
+      {
+        unlink(previous);
+      }
+      if (previousWithID != null && previousWithID != previous)
+      {
+        unlink(previousWithID);
+      }
+      link(node);
+    }
+    finally
+    {
+      evictionLock.unlock();
+    }
+  }
+
+  private ConcurrentMap<Long, Node> getBackendMap(String backendID)
+  {
+    ConcurrentMap<Long, Node> backendMap = idMap.get(backendID);
+    if (backendMap == null)
+    {
+      backendMap = new ConcurrentHashMap<>();
+      final ConcurrentMap<Long, Node> existingMap = idMap.putIfAbsent(backendID, backendMap);
+      if (existingMap != null)
+      {
+        backendMap = existingMap;
+      }
+    }
+    return backendMap;
+  }
+
+  private void removeFromIDMap(Node node)
+  {
+    final Map<Long, Node> backendMap = idMap.get(node.cacheEntry.getBackendID());
+    if (backendMap != null)
+    {
+      backendMap.remove(node.cacheEntry.getEntryID(), node);
+    }
+  }
+
+  @Override
+  public void removeEntry(DN entryDN)
+  {
+    final Node node = dnMap.remove(entryDN);
+    if (node == null)
+    {
+      return;
+    }
+    removeFromIDMap(node);
+
+    evictionLock.lock();
+    try
+    {
+      unlink(node);
+    }
+    finally
+    {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void clear()
+  {
+    evictionLock.lock();
+    try
+    {
+      drainReadBuffers();
+      dnMap.clear();
+      idMap.clear();
+      window.clear();
+      probation.clear();
+      protectedSegment.clear();
+      memorySize = 0;
+    }
+    finally
+    {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void clearBackend(String backendID)
+  {
+    final Map<Long, Node> backendMap = idMap.remove(backendID);
+    if (backendMap == null)
+    {
+      // No entries were in the cache for this backend.
+      return;
+    }
+
+    // Release the eviction lock periodically so that this does not become a stop-the-world event for the writers.
+    final Iterator<Node> nodes = backendMap.values().iterator();
+    while (nodes.hasNext())
+    {
+      evictionLock.lock();
+      try
+      {
+        for (int i = 0; i < 1000 && nodes.hasNext(); i++)
+        {
+          final Node node = nodes.next();
+          dnMap.remove(node.cacheEntry.getDN(), node);
+          unlink(node);
+        }
+      }
+      finally
+      {
+        evictionLock.unlock();
+      }
+    }
+  }
+
+  @Override
+  public void handleLowMemory()
+  {
+    evictionLock.lock();
+    try
+    {
+      // If there are less than 1000 entries, then we'll dump all of them.
+      // Otherwise, we'll dump 10% of the memory, starting with the least valuable entries.
+      if (dnMap.size() < 1000)
+      {
+        clear();
+      }
+      else
+      {
+        evictUntil(memorySize - memorySize / 10);
+      }
+    }
+    finally
+    {
+      evictionLock.unlock();
+    }
+  }
+
+  /** Records an access to a node, draining the read buffers if they fill up. */
+  private void recordAccess(Node node)
+  {
+    final ReadBuffer readBuffer = readBuffers[(int) Thread.currentThread().getId() & (NB_READ_BUFFERS - 1)];
+    if (readBuffer.offer(node) && evictionLock.tryLock())
+    {
+      try
+      {
+        drainReadBuffers();
+      }
+      finally
+      {
+        evictionLock.unlock();
+      }
+    }
+  }
+
+  private void drainReadBuffers()
+  {
+    for (ReadBuffer readBuffer : readBuffers)
+    {
+      readBuffer.drainTo(this);
+    }
+  }
+
+  /** Applies an access to the eviction policy, must be called while holding the eviction lock. */
+  private void onAccess(Node node)
+  {
+    final AccessOrderQueue queue = node.queue;
+    if (queue == null)
+    {
+      // The node has been removed
+      return;
+    }
+    sketch.increment(node.hash);
+    if (queue == probation)
+    {
+      probation.remove(node);
+      protectedSegment.addLast(node);
+      final long maxProtectedSize = getMainMemorySize() * PROTECTED_PERCENT / 100;
+      while (protectedSegment.weight > maxProtectedSize)
+      {
+        final Node demoted = protectedSegment.peekFirst();
+        protectedSegment.remove(demoted);
+        probation.addLast(demoted);
+      }
+    }
+    else
+    {
+      queue.moveToLast(node);
+    }
+  }
+
+  /** Links a new node in the window, then evicts entries if needed. Must be called while holding the eviction lock. */
+  private void link(Node node)
+  {
+    if (node.removed || dnMap.get(node.cacheEntry.getDN()) != node || node.weight > getMainMemorySize())
+    {
+      // The node has been removed or replaced before being linked, or it is too large to be cached
+      dnMap.remove(node.cacheEntry.getDN(), node);
+      removeFromIDMap(node);
+      node.removed = true;
+      return;
+    }
+    sketch.ensureCapacity(dnMap.size());
+    sketch.increment(node.hash);
+    window.addLast(node);
+    memorySize += node.weight;
+
+    // Entries leaving the window compete with the least recently used entries of the probation segment
+    final long maxWindowSize = maxMemorySize * WINDOW_PERCENT / 100;
+    while (window.weight > maxWindowSize)
+    {
+      final Node candidate = window.peekFirst();
+      window.remove(candidate);
+      admit(candidate);
+    }
+    // The maximum memory size may have been lowered
+    evictUntil(maxMemorySize);
+  }
+
+  /** Admits a node in the probation segment if it is accessed more frequently than the entries it would evict. */
+  private void admit(Node candidate)
+  {
+    final int candidateFrequency = sketch.frequency(candidate.hash);
+    final long maxMainSize = getMainMemorySize();
+    while (probation.weight + protectedSegment.weight + candidate.weight > maxMainSize)
+    {
+      Node victim = probation.peekFirst();
+      if (victim == null)
+      {
+        victim = protectedSegment.peekFirst();
+      }
+      if (victim == null || candidateFrequency <= sketch.frequency(victim.hash))
+      {
+        evict(candidate);
+        return;
+      }
+      evict(victim);
+    }
+    probation.addLast(candidate);
+  }
+
+  private long getMainMemorySize()
+  {
+    return maxMemorySize - maxMemorySize * WINDOW_PERCENT / 100;
+  }
+
+  /** Evicts the least valuable entries until the cache uses at most the provided amount of memory. */
+  private void evictUntil(long targetMemorySize)
+  {
+    while (memorySize > targetMemorySize)
+    {
+      Node victim = probation.peekFirst();
+      if (victim == null)
+      {
+        victim = window.peekFirst();
+      }
+      if (victim == null)
+      {
+        victim = protectedSegment.peekFirst();
+      }
+      if (victim == null)
+      {
+        break;
+      }
+      evict(victim);
+    }
+  }
+
+  /** Evicts a linked or unlinked node from the cache, must be called while holding the eviction lock. */
+  private void evict(Node node)
+  {
+    dnMap.remove(node.cacheEntry.getDN(), node);
+    removeFromIDMap(node);
+    if (node.queue != null)
+    {
+      node.queue.remove(node);
+    }
+    if (!node.removed)
+    {
+      node.removed = true;
+      memorySize -= node.weight;
+    }
+  }
+
+  /** Unlinks a node removed from the maps, must be called while holding the eviction lock. */
+  private void unlink(Node node)
+  {
+    if (node.queue != null)
+    {
+      node.queue.remove(node);
+      memorySize -= node.weight;
+    }
+    node.removed = true;
+  }
+
+  /**
+   * Returns an estimate of the memory used by a cached entry.
+   *
+   * @param entry
+   *          the entry
+   * @return the estimated memory used by the entry, in bytes
+   */
+  static long estimateMemorySize(Entry entry)
+  {
+    long size = ENTRY_OVERHEAD + 2L * entry.getName().toString().length();
+    size += OBJECT_CLASS_OVERHEAD * entry.getObjectClasses().size();
+    for (Attribute attribute : entry.getAllAttributes())
+    {
+      size += ATTRIBUTE_OVERHEAD;
+      for (ByteString value : attribute)
+      {
+        size += VALUE_OVERHEAD + value.length();
+      }
+    }
+    return size;
+  }
+
+  @Override
+  public boolean isConfigurationAcceptable(EntryCacheCfg configuration,
+                                           List<LocalizableMessage> unacceptableReasons)
+  {
+    TinyLFUEntryCacheCfg config = (TinyLFUEntryCacheCfg) configuration;
+    return isConfigurationChangeAcceptable(config, unacceptableReasons);
+  }
+
+  @Override
+  public boolean isConfigurationChangeAcceptable(TinyLFUEntryCacheCfg configuration,
+                                                 List<LocalizableMessage> unacceptableReasons)
+  {
+    EntryCacheCommon.ConfigErrorHandler errorHandler = EntryCacheCommon.getConfigErrorHandler(
+        EntryCacheCommon.ConfigPhase.PHASE_ACCEPTABLE, unacceptableReasons, null);
+    processEntryCacheConfig(configuration, false, errorHandler);
+    return errorHandler.getIsAcceptable();
+  }
+
+  @Override
+  public ConfigChangeResult applyConfigurationChange(TinyLFUEntryCacheCfg configuration)
+  {
+    List<LocalizableMessage> errorMessages = new ArrayList<>();
+    EntryCacheCommon.ConfigErrorHandler errorHandler =
+        EntryCacheCommon.getConfigErrorHandler(EntryCacheCommon.ConfigPhase.PHASE_APPLY, null, errorMessages);
+
+    // Do not apply changes unless this cache is enabled.
+    if (configuration.isEnabled())
+    {
+      processEntryCacheConfig(configuration, true, errorHandler);
+    }
+
+    final ConfigChangeResult changeResult = new ConfigChangeResult();
+    changeResult.setResultCode(errorHandler.getResultCode());
+    changeResult.setAdminActionRequired(errorHandler.getIsAdminActionRequired());
+    changeResult.getMessages().addAll(errorHandler.getErrorMessages());
+    return changeResult;
+  }
+
+  /**
+   * Parses the provided configuration and configure the entry cache.
+   *
+   * @param configuration  The new configuration containing the changes.
+   * @param applyChanges   If true then take into account the new configuration.
+   * @param errorHandler   An handler used to report errors.
+   *
+   * @return  <CODE>true</CODE> if configuration is acceptable,
+   *          or <CODE>false</CODE> otherwise.
+   */
+  private boolean processEntryCacheConfig(TinyLFUEntryCacheCfg configuration, boolean applyChanges,
+      EntryCacheCommon.ConfigErrorHandler errorHandler)
+  {
+    DN newConfigEntryDN = configuration.dn();
+    Set<SearchFilter> newIncludeFilters = EntryCacheCommon.getFilters(
+        configuration.getIncludeFilter(), ERR_CACHE_INVALID_INCLUDE_FILTER, errorHandler, newConfigEntryDN);
+    Set<SearchFilter> newExcludeFilters = EntryCacheCommon.getFilters(
+        configuration.getExcludeFilter(), ERR_CACHE_INVALID_EXCLUDE_FILTER, errorHandler, newConfigEntryDN);
+
+    if (applyChanges && errorHandler.getIsAcceptable())
+    {
+      setIncludeFilters(newIncludeFilters);
+      setExcludeFilters(newExcludeFilters);
+      registeredConfiguration = configuration;
+
+      evictionLock.lock();
+      try
+      {
+        maxMemorySize = configuration.getMaxMemorySize();
+        sketch.ensureCapacity((int) Math.min(maxMemorySize / TYPICAL_ENTRY_SIZE, Integer.MAX_VALUE));
+        evictUntil(maxMemorySize);
+      }
+      finally
+      {
+        evictionLock.unlock();
+      }
+    }
+
+    return errorHandler.getIsAcceptable();
+  }
+
+  @Override
+  public MonitorData getMonitorData()
+  {
+    try
+    {
+      return EntryCacheCommon.getGenericMonitorData(
+          cacheHits.longValue(),
+          // If cache misses is maintained by default cache
+          // get it from there and if not point to itself.
+          DirectoryServer.getEntryCache().getCacheMisses(),
+          memorySize,
+          maxMemorySize,
+          Long.valueOf(dnMap.size()),
+          null);
+    }
+    catch (Exception e)
+    {
+      logger.traceException(e);
+      return new MonitorData(0);
+    }
+  }
+
+  @Override
+  public Long getCacheCount()
+  {
+    return Long.valueOf(dnMap.size());
+  }
+
+  @Override
+  public String toVerboseString()
+  {
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<DN, Node> mapEntry : dnMap.entrySet())
+    {
+      final CacheEntry cacheEntry = mapEntry.getValue().cacheEntry;
+      sb.append(mapEntry.getKey());
+      sb.append(":");
+      sb.append(cacheEntry.getEntryID());
+      sb.append(":");
+      sb.append(cacheEntry.getBackendID());
+      sb.append(ServerConstants.EOL);
+    }
+
+    String verboseString = sb.toString();
+    return verboseString.length() > 0 ? verboseString : null;
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.monitors;
+
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.opendj.config.server.ConfigException;
+import org.opends.server.api.MonitorData;
+import org.forgerock.opendj.server.config.server.MonitorProviderCfg;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.extensions.ElasticWorkQueue;
+import org.opends.server.types.InitializationException;
+
+/**
+ * This class defines a Directory Server monitor that can be used to provide
+ * information about the state of the elastic work queue, including the
+ * number of worker threads it started.
+ */
+public class ElasticWorkQueueMonitor
+       extends MonitorProvider<MonitorProviderCfg>
+       implements Runnable
+{
+  /** The name of the monitor attribute providing the number of operations being processed. */
+  public static final String ATTR_ACTIVE_OPERATIONS = "activeRequests";
+  /** The name of the monitor attribute providing the number of running worker threads. */
+  public static final String ATTR_WORKER_THREADS = "workerThreads";
+  /** The name of the monitor attribute providing the largest number of worker threads running at the same time. */
+  public static final String ATTR_MAX_WORKER_THREADS = "maxWorkerThreads";
+  /** The name of the monitor attribute providing the maximum number of operations processed at the same time. */
+  public static final String ATTR_MAX_CONCURRENT_OPERATIONS = "maxConcurrentRequests";
+
+
+  /** The maximum backlog observed by polling the queue. */
+  private int maxBacklog;
+  /** The total number of times the backlog has been polled. */
+  private long numPolls;
+  /** The total backlog observed from periodic polling. */
+  private long totalBacklog;
+  /** The fair work queue instance with which this monitor is associated. */
+  private ElasticWorkQueue workQueue;
+
+
+  /**
+   * Initializes this monitor provider.  Note that no initialization should be
+   * done here, since it should be performed in the
+   * <CODE>initializeMonitorProvider</CODE> class.
+   *
+   * @param  workQueue  The work queue with which this monitor is associated.
+   */
+  public ElasticWorkQueueMonitor(ElasticWorkQueue workQueue)
+  {
+    this.workQueue = workQueue;
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Override
+  public void initializeMonitorProvider(MonitorProviderCfg configuration)
+         throws ConfigException, InitializationException
+  {
+    maxBacklog   = 0;
+    totalBacklog = 0;
+    numPolls     = 0;
+    scheduleUpdate(this, 0, 10, TimeUnit.SECONDS);
+  }
+
+
+
+  /**
+   * Retrieves the name of this monitor provider.  It should be unique among all
+   * monitor providers, including all instances of the same monitor provider.
+   *
+   * @return  The name of this monitor provider.
+   */
+  @Override
+  public String getMonitorInstanceName()
+  {
+    return "Work Queue";
+  }
+
+  @Override
+  public void run()
+  {
+    int backlog = workQueue.size();
+    totalBacklog += backlog;
+    numPolls++;
+
+    if (backlog > maxBacklog)
+    {
+      maxBacklog = backlog;
+    }
+  }
+
+  @Override
+  public MonitorData getMonitorData()
+  {
+    int backlog = workQueue.size();
+    totalBacklog += backlog;
+    numPolls++;
+    if (backlog > maxBacklog)
+    {
+      maxBacklog = backlog;
+    }
+    long averageBacklog = (long) (1.0 * totalBacklog / numPolls);
+
+    final MonitorData monitorAttrs = new MonitorData(9);
+    monitorAttrs.add(TraditionalWorkQueueMonitor.ATTR_CURRENT_BACKLOG, backlog);
+    monitorAttrs.add(TraditionalWorkQueueMonitor.ATTR_AVERAGE_BACKLOG, averageBacklog);
+    monitorAttrs.add(TraditionalWorkQueueMonitor.ATTR_MAX_BACKLOG, maxBacklog);
+    monitorAttrs.add(TraditionalWorkQueueMonitor.ATTR_OPS_SUBMITTED, workQueue.getOpsSubmitted());
+    monitorAttrs.add(TraditionalWorkQueueMonitor.ATTR_OPS_REJECTED_QUEUE_FULL,
+        workQueue.getOpsRejectedDueToQueueFull());
+    monitorAttrs.add(ATTR_ACTIVE_OPERATIONS, workQueue.getNbActiveOperations());
+    monitorAttrs.add(ATTR_WORKER_THREADS, workQueue.getNbWorkerThreads());
+    monitorAttrs.add(ATTR_MAX_WORKER_THREADS, workQueue.getMaxNbWorkerThreads());
+    monitorAttrs.add(ATTR_MAX_CONCURRENT_OPERATIONS, workQueue.getNumWorkerThreads());
+    return monitorAttrs;
+  }
+}
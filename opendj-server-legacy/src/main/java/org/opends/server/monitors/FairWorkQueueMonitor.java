@@ -0,0 +1,141 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.monitors;
+
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.opendj.config.server.ConfigException;
+import org.opends.server.api.MonitorData;
+import org.forgerock.opendj.server.config.server.MonitorProviderCfg;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.extensions.FairWorkQueue;
+import org.opends.server.extensions.FairWorkQueue.OperationClass;
+import org.opends.server.types.InitializationException;
+
+/**
+ * This class defines a Directory Server monitor that can be used to provide
+ * information about the state of the fair work queue, including the wait
+ * times of each class of operations.
+ */
+public class FairWorkQueueMonitor
+       extends MonitorProvider<MonitorProviderCfg>
+       implements Runnable
+{
+  /** The suffix of the monitor attribute providing the current request backlog of a class. */
+  private static final String ATTR_CLASS_BACKLOG = "RequestBacklog";
+  /** The suffix of the monitor attribute providing the number of requests of a class picked up for processing. */
+  private static final String ATTR_CLASS_OPS_DISPATCHED = "RequestsDispatched";
+  /** The suffix of the monitor attribute providing the number of expired requests of a class which were dropped. */
+  private static final String ATTR_CLASS_OPS_DROPPED = "RequestsDroppedDueToTimeLimit";
+  /** The suffix of the monitor attribute providing the average wait time in milliseconds of a class. */
+  private static final String ATTR_CLASS_AVERAGE_WAIT_TIME = "AverageWaitTime";
+  /** The suffix of the monitor attribute providing the maximum wait time in milliseconds of a class. */
+  private static final String ATTR_CLASS_MAX_WAIT_TIME = "MaxWaitTime";
+
+
+  /** The maximum backlog observed by polling the queue. */
+  private int maxBacklog;
+  /** The total number of times the backlog has been polled. */
+  private long numPolls;
+  /** The total backlog observed from periodic polling. */
+  private long totalBacklog;
+  /** The fair work queue instance with which this monitor is associated. */
+  private FairWorkQueue workQueue;
+
+
+  /**
+   * Initializes this monitor provider.  Note that no initialization should be
+   * done here, since it should be performed in the
+   * <CODE>initializeMonitorProvider</CODE> class.
+   *
+   * @param  workQueue  The work queue with which this monitor is associated.
+   */
+  public FairWorkQueueMonitor(FairWorkQueue workQueue)
+  {
+    this.workQueue = workQueue;
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Override
+  public void initializeMonitorProvider(MonitorProviderCfg configuration)
+         throws ConfigException, InitializationException
+  {
+    maxBacklog   = 0;
+    totalBacklog = 0;
+    numPolls     = 0;
+    scheduleUpdate(this, 0, 10, TimeUnit.SECONDS);
+  }
+
+
+
+  /**
+   * Retrieves the name of this monitor provider.  It should be unique among all
+   * monitor providers, including all instances of the same monitor provider.
+   *
+   * @return  The name of this monitor provider.
+   */
+  @Override
+  public String getMonitorInstanceName()
+  {
+    return "Work Queue";
+  }
+
+  @Override
+  public void run()
+  {
+    int backlog = workQueue.size();
+    totalBacklog += backlog;
+    numPolls++;
+
+    if (backlog > maxBacklog)
+    {
+      maxBacklog = backlog;
+    }
+  }
+
+  @Override
+  public MonitorData getMonitorData()
+  {
+    int backlog = workQueue.size();
+    totalBacklog += backlog;
+    numPolls++;
+    if (backlog > maxBacklog)
+    {
+      maxBacklog = backlog;
+    }
+    long averageBacklog = (long) (1.0 * totalBacklog / numPolls);
+
+    final MonitorData monitorAttrs = new MonitorData(5 + 5 * OperationClass.values().length);
+    monitorAttrs.add(TraditionalWorkQueueMonitor.ATTR_CURRENT_BACKLOG, backlog);
+    monitorAttrs.add(TraditionalWorkQueueMonitor.ATTR_AVERAGE_BACKLOG, averageBacklog);
+    monitorAttrs.add(TraditionalWorkQueueMonitor.ATTR_MAX_BACKLOG, maxBacklog);
+    monitorAttrs.add(TraditionalWorkQueueMonitor.ATTR_OPS_SUBMITTED, workQueue.getOpsSubmitted());
+    monitorAttrs.add(TraditionalWorkQueueMonitor.ATTR_OPS_REJECTED_QUEUE_FULL,
+        workQueue.getOpsRejectedDueToQueueFull());
+    for (OperationClass operationClass : OperationClass.values())
+    {
+      final String prefix = operationClass.getMonitorName();
+      monitorAttrs.add(prefix + ATTR_CLASS_BACKLOG, workQueue.getBacklog(operationClass));
+      monitorAttrs.add(prefix + ATTR_CLASS_OPS_DISPATCHED, workQueue.getOpsDispatched(operationClass));
+      monitorAttrs.add(prefix + ATTR_CLASS_OPS_DROPPED, workQueue.getOpsDropped(operationClass));
+      monitorAttrs.add(prefix + ATTR_CLASS_AVERAGE_WAIT_TIME, workQueue.getAverageWaitTime(operationClass));
+      monitorAttrs.add(prefix + ATTR_CLASS_MAX_WAIT_TIME, workQueue.getMaxWaitTime(operationClass));
+    }
+    return monitorAttrs;
+  }
+}
@@ -0,0 +1,271 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.protocols.ldap;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.forgerock.i18n.slf4j.LocalizedLogger;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+
+/**
+ * Writes the encoded LDAP messages sent to a client, possibly coalescing them with the next messages in a single
+ * write.
+ * <p>
+ * Messages are only coalesced while they are sent in quick succession, as the entries of a bulk search, so that the
+ * entries of a slow search are not delayed. Coalesced messages are written once they reach
+ * {@link #MAX_COALESCED_MESSAGES_SIZE} bytes or have been waiting for the coalescing delay, even if no other message
+ * is sent, along with the next message which cannot be coalesced, such as the search result done message, or when
+ * they are explicitly flushed. A bulk search therefore writes its entries in a few large writes, and a few TLS
+ * records, rather than one per entry.
+ * <p>
+ * At most one delayed flush is pending for each writer. The scheduler only hands the delayed flush off to the flush
+ * executor, which performs the possibly blocking write to the client.
+ */
+class CoalescingMessageWriter
+{
+  private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
+
+  /** The size beyond which the coalesced messages are written to the client. */
+  static final int MAX_COALESCED_MESSAGES_SIZE = 32 * 1024;
+  /**
+   * The delay after which the coalesced messages are written to the client, even if no other message is sent.
+   * Messages are only coalesced if the previous one was sent less than this delay before.
+   */
+  static final long MAX_COALESCING_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+  private final WritableByteChannel channel;
+  private final ScheduledExecutorService scheduler;
+  private final Executor flushExecutor;
+  private final long maxCoalescingDelayNanos;
+
+  /** The messages waiting to be written to the client in a single write, along with the next message written. */
+  private final ByteStringBuilder coalescedMessages = new ByteStringBuilder(0);
+  /** The time at which the first coalesced message was sent, guarded by the lock. */
+  private long coalescingStartTime;
+  /** The time at which the last message which can be coalesced was sent, guarded by the lock. */
+  private long lastCoalescableMessageTime;
+  /** Whether a delayed flush is scheduled or running. */
+  private final AtomicBoolean delayedFlushPending = new AtomicBoolean();
+  /** The lock ensuring the coalesced messages are written before any other message. */
+  private final Lock lock = new ReentrantLock();
+
+  /** Writes the coalesced messages once they have been waiting for the coalescing delay. */
+  private final Runnable delayedFlush = new Runnable()
+  {
+    @Override
+    public void run()
+    {
+      try
+      {
+        delayedFlush();
+      }
+      catch (IOException e)
+      {
+        flushFailed(e);
+      }
+    }
+  };
+  /** Hands the delayed flush off to the flush executor, so that the scheduler never blocks. */
+  private final Runnable delayedFlushHandOff = new Runnable()
+  {
+    @Override
+    public void run()
+    {
+      try
+      {
+        flushExecutor.execute(delayedFlush);
+      }
+      catch (RuntimeException e)
+      {
+        // The connection handler is stopping, the next written message will schedule a new delayed flush.
+        logger.traceException(e);
+        delayedFlushPending.set(false);
+      }
+    }
+  };
+
+  /**
+   * Creates a new writer.
+   *
+   * @param channel
+   *          the channel to which messages are written
+   * @param scheduler
+   *          the executor scheduling the delayed flushes of the coalesced messages
+   * @param flushExecutor
+   *          the executor writing the coalesced messages once the coalescing delay elapsed
+   */
+  CoalescingMessageWriter(WritableByteChannel channel, ScheduledExecutorService scheduler, Executor flushExecutor)
+  {
+    this(channel, scheduler, flushExecutor, MAX_COALESCING_DELAY_NANOS);
+  }
+
+  /** For unit testing. */
+  CoalescingMessageWriter(WritableByteChannel channel, ScheduledExecutorService scheduler, Executor flushExecutor,
+      long maxCoalescingDelayNanos)
+  {
+    this.channel = channel;
+    this.scheduler = scheduler;
+    this.flushExecutor = flushExecutor;
+    this.maxCoalescingDelayNanos = maxCoalescingDelayNanos;
+    this.lastCoalescableMessageTime = System.nanoTime() - maxCoalescingDelayNanos;
+  }
+
+  /**
+   * Writes an encoded message to the client, after the coalesced messages.
+   *
+   * @param encodedMessage
+   *          the encoded message
+   * @param canBeCoalesced
+   *          whether the message can wait for the next messages to be written
+   * @throws IOException
+   *           if the messages could not be written to the client
+   */
+  void writeMessage(ByteStringBuilder encodedMessage, boolean canBeCoalesced) throws IOException
+  {
+    lock.lock();
+    try
+    {
+      final long now = System.nanoTime();
+      final boolean streaming = canBeCoalesced && now - lastCoalescableMessageTime < maxCoalescingDelayNanos;
+      // A message which cannot be coalesced ends the stream
+      lastCoalescableMessageTime = canBeCoalesced ? now : now - maxCoalescingDelayNanos;
+      if (coalescedMessages.length() == 0)
+      {
+        if (!streaming || encodedMessage.length() >= MAX_COALESCED_MESSAGES_SIZE)
+        {
+          encodedMessage.copyTo(channel);
+          return;
+        }
+        coalescingStartTime = now;
+        if (delayedFlushPending.compareAndSet(false, true))
+        {
+          scheduler.schedule(delayedFlushHandOff, maxCoalescingDelayNanos, TimeUnit.NANOSECONDS);
+        }
+      }
+
+      coalescedMessages.appendBytes(encodedMessage);
+      if (!canBeCoalesced)
+      {
+        writeCoalescedMessages(true);
+        return;
+      }
+      if (coalescedMessages.length() >= MAX_COALESCED_MESSAGES_SIZE
+          || now - coalescingStartTime >= maxCoalescingDelayNanos)
+      {
+        writeCoalescedMessages(false);
+      }
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Writes the coalesced messages to the client, for instance when the search which sent them completes without
+   * sending a search result done message.
+   *
+   * @throws IOException
+   *           if the messages could not be written to the client
+   */
+  void flush() throws IOException
+  {
+    lock.lock();
+    try
+    {
+      if (coalescedMessages.length() > 0)
+      {
+        writeCoalescedMessages(true);
+      }
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Writes the coalesced messages if they have been waiting for the coalescing delay. Otherwise, the delayed flush is
+   * scheduled again for the messages coalesced since the previous flush, if any.
+   */
+  private void delayedFlush() throws IOException
+  {
+    lock.lock();
+    try
+    {
+      if (coalescedMessages.length() == 0)
+      {
+        delayedFlushPending.set(false);
+        return;
+      }
+      final long remainingDelay = coalescingStartTime + maxCoalescingDelayNanos - System.nanoTime();
+      if (remainingDelay > 0)
+      {
+        scheduler.schedule(delayedFlushHandOff, remainingDelay, TimeUnit.NANOSECONDS);
+        return;
+      }
+      delayedFlushPending.set(false);
+      writeCoalescedMessages(true);
+    }
+    finally
+    {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Writes the coalesced messages to the client. Must be called with the lock.
+   *
+   * @param releaseBuffer
+   *          Whether no more messages are expected to be coalesced soon, so that the buffer can be released
+   */
+  private void writeCoalescedMessages(boolean releaseBuffer) throws IOException
+  {
+    try
+    {
+      coalescedMessages.copyTo(channel);
+    }
+    finally
+    {
+      if (releaseBuffer)
+      {
+        coalescedMessages.clearAndTruncate(0, 0);
+      }
+      else
+      {
+        coalescedMessages.clearAndTruncate(2 * MAX_COALESCED_MESSAGES_SIZE, MAX_COALESCED_MESSAGES_SIZE);
+      }
+    }
+  }
+
+  /**
+   * Invoked when the delayed flush could not write the coalesced messages to the client.
+   *
+   * @param e
+   *          the exception raised by the write
+   */
+  void flushFailed(IOException e)
+  {
+    logger.traceException(e);
+  }
+}
@@ -354,6 +354,9 @@ public final class LDAPClientConnection extends ClientConnection implements
     return holder;
   }
 
+  /** Writes the messages to the client, coalescing the search result messages sent in quick succession. */
+  private final CoalescingMessageWriter messageWriter;
+
   /** The time that the last operation was completed. */
   private final AtomicLong lastCompletionTime;
   /** The next operation ID that should be used for this connection. */
@@ -478,6 +481,19 @@ public final class LDAPClientConnection extends ClientConnection implements
 
     tlsChannel = RedirectingByteChannel.getRedirectingByteChannel(timeoutClientChannel);
     saslChannel = RedirectingByteChannel.getRedirectingByteChannel(tlsChannel);
+    messageWriter = new CoalescingMessageWriter(saslChannel,
+        DirectoryServer.getInstance().getServerContext().getCronExecutorService(),
+        connectionHandler.getCoalescedMessagesFlusher())
+    {
+      @Override
+      void flushFailed(IOException e)
+      {
+        if (connectionValid)
+        {
+          handleWriteError(e);
+        }
+      }
+    };
     this.asn1Reader = new ASN1ByteChannelReader(saslChannel, bufferSize, connectionHandler.getMaxRequestSize());
 
     if (connectionHandler.useSSL())
@@ -678,7 +694,8 @@ public final class LDAPClientConnection extends ClientConnection implements
     // if operation processing encounters a run-time exception after sending the
     // response: the worker thread exception handling code will attempt to send
     // an error result to the client indicating that a problem occurred.
-    if (removeOperationInProgress(operation.getMessageID()))
+    // The response is written along with the coalesced search result messages.
+    if (removeOperationInProgress(operation.getMessageID(), false))
     {
       LDAPMessage message = operationToResponseLDAPMessage(operation);
       if (message != null)
@@ -841,7 +858,7 @@ public final class LDAPClientConnection extends ClientConnection implements
         new SearchResultEntryProtocolOp(searchEntry, ldapVersion);
 
     sendLDAPMessage(new LDAPMessage(searchOperation.getMessageID(),
-        protocolOp, searchEntry.getControls()));
+        protocolOp, searchEntry.getControls()), canCoalesce(searchOperation));
   }
 
   /**
@@ -876,7 +893,7 @@ public final class LDAPClientConnection extends ClientConnection implements
         new SearchResultReferenceProtocolOp(searchReference);
 
     sendLDAPMessage(new LDAPMessage(searchOperation.getMessageID(),
-        protocolOp, searchReference.getControls()));
+        protocolOp, searchReference.getControls()), canCoalesce(searchOperation));
     return true;
   }
 
@@ -908,6 +925,17 @@ public final class LDAPClientConnection extends ClientConnection implements
     return connectionValid;
   }
 
+  /**
+   * Indicates whether the search result messages of a search operation can be
+   * coalesced, which is the case if the search result done message is sent
+   * once all of them have been sent. This excludes persistent searches, whose
+   * change notifications must be written immediately.
+   */
+  static boolean canCoalesce(SearchOperation searchOperation)
+  {
+    return searchOperation.isSendResponse();
+  }
+
   /**
    * Sends the provided LDAP message to the client.
    *
@@ -915,13 +943,28 @@ public final class LDAPClientConnection extends ClientConnection implements
    *          The LDAP message to send to the client.
    */
   private void sendLDAPMessage(LDAPMessage message)
+  {
+    sendLDAPMessage(message, false);
+  }
+
+  /**
+   * Sends the provided LDAP message to the client, possibly coalescing it with
+   * the next messages in a single write, as described in
+   * {@link CoalescingMessageWriter}.
+   *
+   * @param message
+   *          The LDAP message to send to the client.
+   * @param canBeCoalesced
+   *          Whether the message can wait for the next messages to be written
+   */
+  private void sendLDAPMessage(LDAPMessage message, boolean canBeCoalesced)
   {
     // Use a thread local writer.
     final ASN1WriterHolder holder = getASN1Writer();
     try
     {
       message.write(holder.writer);
-      holder.buffer.copyTo(saslChannel);
+      messageWriter.writeMessage(holder.buffer, canBeCoalesced);
 
       if (logger.isTraceEnabled())
       {
@@ -956,6 +999,38 @@ public final class LDAPClientConnection extends ClientConnection implements
     }
  }
 
+  /**
+   * Writes the coalesced messages to the client, for instance when the search
+   * which sent them completes without sending a search result done message.
+   */
+  private void flushCoalescedMessages()
+  {
+    try
+    {
+      messageWriter.flush();
+    }
+    catch (Exception e)
+    {
+      handleWriteError(e);
+    }
+  }
+
+  /** Disconnects the client after a message could not be written to it. */
+  private void handleWriteError(Exception e)
+  {
+    logger.traceException(e);
+    if (e instanceof ClosedChannelException)
+    {
+      disconnect(DisconnectReason.IO_ERROR, false,
+          ERR_IO_ERROR_ON_CLIENT_CONNECTION.get(getExceptionMessage(e)));
+    }
+    else
+    {
+      disconnect(DisconnectReason.SERVER_ERROR, false,
+          ERR_UNEXPECTED_EXCEPTION_ON_CLIENT_CONNECTION.get(getExceptionMessage(e)));
+    }
+  }
+
   /**
    * Closes the connection to the client, optionally sending it a
    * message indicating the reason for the closure. Note that the
@@ -1209,6 +1284,16 @@ public final class LDAPClientConnection extends ClientConnection implements
   @Override
   public boolean removeOperationInProgress(int messageID)
   {
+    return removeOperationInProgress(messageID, true);
+  }
+
+  private boolean removeOperationInProgress(int messageID, boolean flushCoalescedMessages)
+  {
+    if (flushCoalescedMessages)
+    {
+      flushCoalescedMessages();
+    }
+
     Operation operation = operationsInProgress.remove(messageID);
     if (operation == null)
     {
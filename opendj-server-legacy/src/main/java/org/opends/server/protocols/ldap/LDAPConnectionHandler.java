@@ -26,6 +26,8 @@ import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.nio.channels.*;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -208,6 +210,13 @@ public final class LDAPConnectionHandler extends
   private List<Runnable> connectionFinalizerActiveJobQueue;
   private List<Runnable> connectionFinalizerPendingJobQueue;
 
+  /**
+   * Writes the search result messages coalesced by the client connections
+   * once the coalescing delay elapsed. A cached thread pool is used since these
+   * writes may block on slow clients.
+   */
+  private ExecutorService coalescedMessagesFlusher;
+
   /**
    * Creates a new instance of this LDAP connection handler. It must be
    * initialized before it may be used.
@@ -376,6 +385,7 @@ public final class LDAPConnectionHandler extends
       r.run(); // Flush active queue.
       r.run(); // Flush pending queue.
     }
+    coalescedMessagesFlusher.shutdown();
   }
 
   /**
@@ -651,6 +661,9 @@ public final class LDAPConnectionHandler extends
     connectionFinalizer.scheduleWithFixedDelay(
         new ConnectionFinalizerRunnable(), 100, 100, TimeUnit.MILLISECONDS);
 
+    coalescedMessagesFlusher = Executors.newCachedThreadPool(new DirectoryThread.Factory(
+        "LDAP Coalesced Messages Flusher for connection handler " + toString()));
+
     // Create and start the request handlers.
     requestHandlers = new LDAPRequestHandler[numRequestHandlers];
     for (int i = 0; i < numRequestHandlers; i++)
@@ -1348,6 +1361,17 @@ public final class LDAPConnectionHandler extends
     }
   }
 
+  /**
+   * Returns the executor writing the search result messages coalesced by the
+   * client connections once the coalescing delay elapsed.
+   *
+   * @return The executor writing the coalesced search result messages.
+   */
+  Executor getCoalescedMessagesFlusher()
+  {
+    return coalescedMessagesFlusher;
+  }
+
   /**
    * Enqueue a connection finalizer which will be invoked after a short delay.
    *
@@ -0,0 +1,257 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.replication.plugin;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.forgerock.opendj.ldap.DN;
+import org.opends.server.replication.common.CSN;
+import org.opends.server.replication.protocol.AddMsg;
+import org.opends.server.replication.protocol.DeleteMsg;
+import org.opends.server.replication.protocol.LDAPUpdateMsg;
+import org.opends.server.replication.protocol.ModifyDNMsg;
+import org.opends.server.replication.protocol.ModifyMsg;
+
+/**
+ * Indexes the remote changes in progress by the DNs on which the next changes may depend, so that the dependencies of
+ * a change are found by looking up the DNs it depends on, rather than by scanning all the changes in progress.
+ * <p>
+ * A change depends on the changes in progress which are older than it and which:
+ * <ul>
+ * <li>for an add, delete the same DN, add a superior or the same DN, rename the same DN, or rename an entry to a
+ * superior or the same DN</li>
+ * <li>for a modify, add the same DN, or rename an entry to the same DN</li>
+ * <li>for a modify DN, delete the new DN, add the new superior or the same DN, or rename the new DN</li>
+ * <li>for a delete, delete a subordinate or the same DN, add the same DN, rename a subordinate or the same DN, or
+ * rename an entry to a superior or the same DN</li>
+ * </ul>
+ * The DNs of an update message may be modified by the conflict resolution while it is in progress, in which case its
+ * change must be indexed again.
+ */
+final class DependencyIndex
+{
+  /** The kinds of DN under which the changes in progress are indexed. */
+  private enum DNKind
+  {
+    /** The DN of an add. */
+    ADD,
+    /** The DN of a delete. */
+    DELETE,
+    /** The DN of a delete, and all its superiors. */
+    DELETE_SUPERIORS,
+    /** The DN of a modify DN. */
+    MODDN,
+    /** The DN of a modify DN, and all its superiors. */
+    MODDN_SUPERIORS,
+    /** The new DN of a modify DN. */
+    MODDN_NEW_DN
+  }
+
+  /** The changes in progress indexed by kind of DN, then by DN. */
+  private final Map<DNKind, Map<DN, SortedSet<PendingChange>>> changesByDN = new EnumMap<>(DNKind.class);
+  /** The DNs under which each change is indexed, keyed by kind of DN. */
+  private final Map<PendingChange, Map<DNKind, List<DN>>> indexedDNs = new HashMap<>();
+
+  DependencyIndex()
+  {
+    for (DNKind kind : DNKind.values())
+    {
+      changesByDN.put(kind, new HashMap<DN, SortedSet<PendingChange>>());
+    }
+  }
+
+  /**
+   * Indexes a change in progress, or indexes it again if the DNs of its update message were modified.
+   *
+   * @param change
+   *          the change in progress
+   */
+  synchronized void add(PendingChange change)
+  {
+    remove(change);
+
+    final Map<DNKind, List<DN>> dns = new EnumMap<>(DNKind.class);
+    final LDAPUpdateMsg msg = change.getLDAPUpdateMsg();
+    if (msg instanceof AddMsg)
+    {
+      addDN(dns, DNKind.ADD, msg.getDN());
+    }
+    else if (msg instanceof DeleteMsg)
+    {
+      addDN(dns, DNKind.DELETE, msg.getDN());
+      addSuperiorDNs(dns, DNKind.DELETE_SUPERIORS, msg.getDN());
+    }
+    else if (msg instanceof ModifyDNMsg)
+    {
+      addDN(dns, DNKind.MODDN, msg.getDN());
+      addSuperiorDNs(dns, DNKind.MODDN_SUPERIORS, msg.getDN());
+      addDN(dns, DNKind.MODDN_NEW_DN, ((ModifyDNMsg) msg).getNewDN());
+    }
+    if (dns.isEmpty())
+    {
+      // No change depends on a modify
+      return;
+    }
+
+    for (Map.Entry<DNKind, List<DN>> mapEntry : dns.entrySet())
+    {
+      final Map<DN, SortedSet<PendingChange>> changes = changesByDN.get(mapEntry.getKey());
+      for (DN dn : mapEntry.getValue())
+      {
+        SortedSet<PendingChange> dnChanges = changes.get(dn);
+        if (dnChanges == null)
+        {
+          dnChanges = new TreeSet<>();
+          changes.put(dn, dnChanges);
+        }
+        dnChanges.add(change);
+      }
+    }
+    indexedDNs.put(change, dns);
+  }
+
+  private static void addDN(Map<DNKind, List<DN>> dns, DNKind kind, DN dn)
+  {
+    if (dn != null)
+    {
+      List<DN> kindDNs = dns.get(kind);
+      if (kindDNs == null)
+      {
+        kindDNs = new ArrayList<>(1);
+        dns.put(kind, kindDNs);
+      }
+      kindDNs.add(dn);
+    }
+  }
+
+  private static void addSuperiorDNs(Map<DNKind, List<DN>> dns, DNKind kind, DN dn)
+  {
+    for (DN superiorDN = dn; superiorDN != null; superiorDN = superiorDN.parent())
+    {
+      addDN(dns, kind, superiorDN);
+    }
+  }
+
+  /**
+   * Removes a change from the index, once it is committed.
+   *
+   * @param change
+   *          the change
+   */
+  synchronized void remove(PendingChange change)
+  {
+    final Map<DNKind, List<DN>> dns = indexedDNs.remove(change);
+    if (dns == null)
+    {
+      return;
+    }
+    for (Map.Entry<DNKind, List<DN>> mapEntry : dns.entrySet())
+    {
+      final Map<DN, SortedSet<PendingChange>> changes = changesByDN.get(mapEntry.getKey());
+      for (DN dn : mapEntry.getValue())
+      {
+        final SortedSet<PendingChange> dnChanges = changes.get(dn);
+        dnChanges.remove(change);
+        if (dnChanges.isEmpty())
+        {
+          changes.remove(dn);
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns whether a change depends on an older change in progress.
+   *
+   * @param change
+   *          the change
+   * @return {@code true} if the change depends on an older change in progress
+   */
+  synchronized boolean hasDependencies(PendingChange change)
+  {
+    final CSN csn = change.getCSN();
+    final LDAPUpdateMsg msg = change.getLDAPUpdateMsg();
+    final DN targetDN = msg.getDN();
+    if (msg instanceof AddMsg)
+    {
+      return hasOlderChange(DNKind.DELETE, targetDN, csn)
+          || hasOlderChangeOnSuperior(DNKind.ADD, targetDN, csn)
+          || hasOlderChange(DNKind.MODDN, targetDN, csn)
+          || hasOlderChangeOnSuperior(DNKind.MODDN_NEW_DN, targetDN, csn);
+    }
+    else if (msg instanceof ModifyMsg)
+    {
+      return hasOlderChange(DNKind.ADD, targetDN, csn)
+          || hasOlderChange(DNKind.MODDN_NEW_DN, targetDN, csn);
+    }
+    else if (msg instanceof ModifyDNMsg)
+    {
+      final ModifyDNMsg modDNMsg = (ModifyDNMsg) msg;
+      final DN newDN = modDNMsg.getNewDN();
+      return hasOlderChange(DNKind.DELETE, newDN, csn)
+          || hasOlderChange(DNKind.ADD, modDNMsg.getNewSuperiorDN(), csn)
+          || hasOlderChange(DNKind.ADD, targetDN, csn)
+          || hasOlderChange(DNKind.MODDN, newDN, csn);
+    }
+    else if (msg instanceof DeleteMsg)
+    {
+      return hasOlderChange(DNKind.DELETE_SUPERIORS, targetDN, csn)
+          || hasOlderChange(DNKind.ADD, targetDN, csn)
+          || hasOlderChange(DNKind.MODDN_SUPERIORS, targetDN, csn)
+          || hasOlderChangeOnSuperior(DNKind.MODDN_NEW_DN, targetDN, csn);
+    }
+    // unknown type of operation ?!
+    return true;
+  }
+
+  private boolean hasOlderChange(DNKind kind, DN dn, CSN csn)
+  {
+    if (dn == null)
+    {
+      return false;
+    }
+    final SortedSet<PendingChange> dnChanges = changesByDN.get(kind).get(dn);
+    return dnChanges != null && dnChanges.first().getCSN().isOlderThan(csn);
+  }
+
+  private boolean hasOlderChangeOnSuperior(DNKind kind, DN dn, CSN csn)
+  {
+    for (DN superiorDN = dn; superiorDN != null; superiorDN = superiorDN.parent())
+    {
+      if (hasOlderChange(kind, superiorDN, csn))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the number of changes in the index.
+   *
+   * @return the number of changes in the index
+   */
+  synchronized int size()
+  {
+    return indexedDNs.size();
+  }
+}
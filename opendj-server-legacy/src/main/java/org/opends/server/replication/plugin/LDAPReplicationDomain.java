@@ -2265,15 +2265,6 @@ public final class LDAPReplicationDomain extends ReplicationDomain
     }
   }
 
-  /**
-   * Marks the specified message as the one currently processed by a replay thread.
-   * @param msg the message being processed
-   */
-  void markInProgress(LDAPUpdateMsg msg)
-  {
-    remotePendingChanges.markInProgress(msg);
-  }
-
   /**
    * Create and replay a synchronized Operation from an UpdateMsg.
    *
@@ -2394,6 +2385,8 @@ public final class LDAPReplicationDomain extends ReplicationDomain
             {
               replayDone = true; // unknown type of operation ?!
             }
+            // The conflict resolution may have modified the DNs of the update message.
+            remotePendingChanges.updateInProgress(msg);
 
             if (replayDone)
             {
@@ -4266,6 +4259,12 @@ private boolean solveNamingConflict(ModifyDNOperation op, LDAPUpdateMsg msg)
         }
         return true;
       }
+      /*
+       * Mark the update as in progress in the order it was received, so that
+       * the next updates can be checked for dependencies on it whichever
+       * replay thread replays them first.
+       */
+      remotePendingChanges.markInProgress(msg);
 
       // Put update message into the replay queue
       // (block until some place in the queue is available)
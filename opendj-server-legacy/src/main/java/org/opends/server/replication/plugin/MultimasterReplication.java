@@ -31,7 +31,6 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
@@ -301,10 +300,9 @@ public class MultimasterReplication
   {
     replayThreads.clear();
 
-    ReentrantLock switchQueueLock = new ReentrantLock();
     for (int i = 0; i < replayThreadNumber; i++)
     {
-      ReplayThread replayThread = new ReplayThread(updateToReplayQueue, switchQueueLock);
+      ReplayThread replayThread = new ReplayThread(updateToReplayQueue);
       replayThread.start();
       replayThreads.add(replayThread);
     }
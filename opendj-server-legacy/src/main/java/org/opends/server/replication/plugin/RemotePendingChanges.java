@@ -28,15 +28,12 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import net.jcip.annotations.GuardedBy;
 
-import org.forgerock.opendj.ldap.DN;
 import org.opends.server.core.AddOperation;
 import org.opends.server.core.DeleteOperation;
 import org.opends.server.core.ModifyDNOperationBasis;
 import org.opends.server.core.ModifyOperation;
 import org.opends.server.replication.common.CSN;
 import org.opends.server.replication.common.ServerState;
-import org.opends.server.replication.protocol.AddMsg;
-import org.opends.server.replication.protocol.DeleteMsg;
 import org.opends.server.replication.protocol.LDAPUpdateMsg;
 import org.opends.server.replication.protocol.ModifyDNMsg;
 import org.opends.server.replication.protocol.OperationContext;
@@ -70,6 +67,8 @@ final class RemotePendingChanges
    * on currently in progress changes.
    */
   private final ConcurrentSkipListSet<PendingChange> activeAndDependentChanges = new ConcurrentSkipListSet<>();
+  /** The changes of {@code activeAndDependentChanges} indexed by the DNs on which the next changes may depend. */
+  private final DependencyIndex dependencyIndex = new DependencyIndex();
 
   private final ReentrantReadWriteLock pendingChangesLock = new ReentrantReadWriteLock(true);
   private final ReentrantReadWriteLock.ReadLock pendingChangesReadLock = pendingChangesLock.readLock();
@@ -177,6 +176,7 @@ final class RemotePendingChanges
       }
       curChange.setCommitted(true);
       activeAndDependentChanges.remove(curChange);
+      dependencyIndex.remove(curChange);
 
       final Iterator<PendingChange> it = pendingChanges.values().iterator();
       while (it.hasNext())
@@ -199,18 +199,45 @@ final class RemotePendingChanges
     }
   }
 
+  /**
+   * Mark an update message as in progress, so that the dependencies of the
+   * next update messages on it are checked. The update messages of a domain
+   * must be marked in the order they are received.
+   *
+   * @param msg
+   *          The update message to mark as in progress.
+   */
   public void markInProgress(LDAPUpdateMsg msg)
   {
     pendingChangesReadLock.lock();
     try
     {
-      activeAndDependentChanges.add(pendingChanges.get(msg.getCSN()));
+      final PendingChange change = pendingChanges.get(msg.getCSN());
+      activeAndDependentChanges.add(change);
+      dependencyIndex.add(change);
     }
     finally
     {
       pendingChangesReadLock.unlock();
     }
   }
+
+  /**
+   * Indexes again an update message in progress whose DNs were modified by
+   * the conflict resolution, so that the dependencies of the next update
+   * messages are checked against its new DNs.
+   *
+   * @param msg
+   *          The update message modified by the conflict resolution.
+   */
+  public void updateInProgress(LDAPUpdateMsg msg)
+  {
+    final PendingChange change = getPendingChange(msg.getCSN());
+    if (change != null && activeAndDependentChanges.contains(change))
+    {
+      dependencyIndex.add(change);
+    }
+  }
   /**
    * Get the first update in the list that have some dependencies cleared.
    *
@@ -289,62 +316,7 @@ final class RemotePendingChanges
    */
   public boolean checkDependencies(AddOperation op)
   {
-    final CSN csn = OperationContext.getCSN(op);
-    final PendingChange change = getPendingChange(csn);
-    if (change == null)
-    {
-      return false;
-    }
-
-    boolean hasDependencies = false;
-    final DN targetDN = op.getEntryDN();
-    for (PendingChange pendingChange : activeAndDependentChanges)
-    {
-      if (pendingChange.getCSN().isNewerThanOrEqualTo(csn))
-      {
-        // From now on, the dependency should be for newer changes to be dependent on this one, so we can stop for now.
-        break;
-      }
-      final LDAPUpdateMsg pendingMsg = pendingChange.getLDAPUpdateMsg();
-      if (pendingMsg instanceof DeleteMsg)
-      {
-        if (pendingMsg.getDN().equals(targetDN))
-        {
-          // it is a deleteOperation on the same DN
-          hasDependencies = true;
-          addDependency(change);
-        }
-      }
-      else if (pendingMsg instanceof AddMsg)
-      {
-        if (pendingMsg.getDN().isSuperiorOrEqualTo(targetDN))
-        {
-          // it is an addOperation on a parent of the current AddOperation
-          hasDependencies = true;
-          addDependency(change);
-        }
-      }
-      else if (pendingMsg instanceof ModifyDNMsg)
-      {
-        // it is a ModifyDnOperation with the same target DN as the ADD DN
-        // or a ModifyDnOperation with new DN equals to the ADD DN parent?
-        if (pendingMsg.getDN().equals(targetDN))
-        {
-          hasDependencies = true;
-          addDependency(change);
-        }
-        else
-        {
-          final ModifyDNMsg pendingModDn = (ModifyDNMsg) pendingMsg;
-          if (pendingModDn.newDNIsParent(targetDN))
-          {
-            hasDependencies = true;
-            addDependency(change);
-          }
-        }
-      }
-    }
-    return hasDependencies;
+    return checkDependencies(OperationContext.getCSN(op));
   }
 
   /**
@@ -363,42 +335,7 @@ final class RemotePendingChanges
    */
   public boolean checkDependencies(ModifyOperation op)
   {
-    final CSN csn = OperationContext.getCSN(op);
-    final PendingChange change = getPendingChange(csn);
-    if (change == null)
-    {
-        return false;
-    }
-
-    boolean hasDependencies = false;
-    final DN targetDN = change.getLDAPUpdateMsg().getDN();
-    for (PendingChange pendingChange : activeAndDependentChanges)
-    {
-      if (pendingChange.getCSN().isNewerThanOrEqualTo(csn))
-      {
-        // From now on, the dependency should be for newer changes to be dependent on this one, so we can stop for now.
-        break;
-      }
-      final LDAPUpdateMsg pendingMsg = pendingChange.getLDAPUpdateMsg();
-      if (pendingMsg instanceof AddMsg)
-      {
-        if (pendingMsg.getDN().equals(targetDN))
-        {
-          // it is an addOperation on a same DN
-          hasDependencies = true;
-          addDependency(change);
-        }
-      }
-      else if (pendingMsg instanceof ModifyDNMsg)
-      {
-        if (((ModifyDNMsg) pendingMsg).newDNIsEqual(targetDN))
-        {
-          hasDependencies = true;
-          addDependency(change);
-        }
-      }
-    }
-    return hasDependencies;
+    return checkDependencies(OperationContext.getCSN(op));
   }
 
   /**
@@ -421,61 +358,7 @@ final class RemotePendingChanges
    */
   public boolean checkDependencies(ModifyDNMsg msg)
   {
-    final CSN csn = msg.getCSN();
-    final PendingChange change = getPendingChange(csn);
-    if (change == null)
-    {
-      return false;
-    }
-
-    boolean hasDependencies = false;
-    final DN targetDN = change.getLDAPUpdateMsg().getDN();
-    for (PendingChange pendingChange : activeAndDependentChanges)
-    {
-      if (pendingChange.getCSN().isNewerThanOrEqualTo(csn))
-      {
-        // From now on, the dependency should be for newer changes to be dependent on this one, so we can stop for now.
-        break;
-      }
-      final LDAPUpdateMsg pendingMsg = pendingChange.getLDAPUpdateMsg();
-      if (pendingMsg instanceof DeleteMsg)
-      {
-        // Check if the target of the Delete is the same
-        // as the new DN of this ModifyDN
-        if (msg.newDNIsEqual(pendingMsg.getDN()))
-        {
-          hasDependencies = true;
-          addDependency(change);
-        }
-      }
-      else if (pendingMsg instanceof AddMsg)
-      {
-        // Check if the Add Operation was done on the new parent of
-        // the MODDN  operation
-        if (msg.newParentIsEqual(pendingMsg.getDN()))
-        {
-          hasDependencies = true;
-          addDependency(change);
-        }
-        // Check if the AddOperation was done on the same DN as the
-        // target DN of the MODDN operation
-        if (pendingMsg.getDN().equals(targetDN))
-        {
-          hasDependencies = true;
-          addDependency(change);
-        }
-      }
-      else if (pendingMsg instanceof ModifyDNMsg)
-      {
-        if (msg.newDNIsEqual(pendingMsg.getDN()))
-        {
-          // the ModifyDNOperation was done from the new DN of the MODDN operation
-          hasDependencies = true;
-          addDependency(change);
-        }
-      }
-    }
-    return hasDependencies;
+    return checkDependencies(msg.getCSN());
   }
 
   /**
@@ -496,62 +379,32 @@ final class RemotePendingChanges
    */
   public boolean checkDependencies(DeleteOperation op)
   {
-    final CSN csn = OperationContext.getCSN(op);
+    return checkDependencies(OperationContext.getCSN(op));
+  }
+
+  /**
+   * Check if the change with the given CSN has some dependencies on any
+   * currently running previous change, using the dependency index.
+   * Mark the change as dependent if there are some dependencies.
+   *
+   * @param csn The CSN of the change to be checked.
+   *
+   * @return A boolean indicating if this change has some dependencies.
+   */
+  private boolean checkDependencies(CSN csn)
+  {
     final PendingChange change = getPendingChange(csn);
     if (change == null)
     {
       return false;
     }
 
-    boolean hasDependencies = false;
-    final DN targetDN = op.getEntryDN();
-    for (PendingChange pendingChange : activeAndDependentChanges)
+    if (dependencyIndex.hasDependencies(change))
     {
-      if (pendingChange.getCSN().isNewerThanOrEqualTo(csn))
-      {
-        // From now on, the dependency should be for newer changes to be dependent on this one, so we can stop for now.
-        break;
-      }
-      final LDAPUpdateMsg pendingMsg = pendingChange.getLDAPUpdateMsg();
-      if (pendingMsg instanceof DeleteMsg)
-      {
-          /*
-           * Check if the operation to be run is a deleteOperation on a
-           * children of the current DeleteOperation.
-           */
-        if (pendingMsg.getDN().isSubordinateOrEqualTo(targetDN))
-        {
-          hasDependencies = true;
-          addDependency(change);
-        }
-      }
-      else if (pendingMsg instanceof AddMsg)
-      {
-          /*
-           * Check if the operation to be run is an addOperation on a
-           * parent of the current DeleteOperation.
-           */
-        if (pendingMsg.getDN().equals(targetDN))
-        {
-          hasDependencies = true;
-          addDependency(change);
-        }
-      }
-      else if (pendingMsg instanceof ModifyDNMsg)
-      {
-        final ModifyDNMsg pendingModDn = (ModifyDNMsg) pendingMsg;
-          /*
-           * Check if the operation to be run is an ModifyDNOperation
-           * on a children of the current DeleteOperation
-           */
-        if (pendingMsg.getDN().isSubordinateOrEqualTo(targetDN) || pendingModDn.newDNIsParent(targetDN))
-        {
-          hasDependencies = true;
-          addDependency(change);
-        }
-      }
+      addDependency(change);
+      return true;
     }
-    return hasDependencies;
+    return false;
   }
 
   /**
@@ -22,7 +22,6 @@ import static org.opends.server.util.StaticUtils.*;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.opends.server.api.DirectoryThread;
 import org.forgerock.i18n.slf4j.LocalizedLogger;
@@ -33,14 +32,15 @@ import org.opends.server.replication.protocol.LDAPUpdateMsg;
  * in the updates queue) and replay them in the current server. A configurable
  * number of this thread is created for the whole MultimasterReplication object
  * (i.e: these threads are shared across the ReplicationDomain objects for
- * replaying the updates they receive)
+ * replaying the updates they receive). The threads replay the updates
+ * concurrently, the dependencies between the updates of a domain being
+ * checked by its RemotePendingChanges.
  */
 public class ReplayThread extends DirectoryThread
 {
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
   private final BlockingQueue<UpdateToReplay> updateToReplayQueue;
-  private final ReentrantLock switchQueueLock;
   private AtomicBoolean shutdown = new AtomicBoolean(false);
   private static int count;
 
@@ -48,13 +48,11 @@ public class ReplayThread extends DirectoryThread
    * Constructor for the ReplayThread.
    *
    * @param updateToReplayQueue The queue of update messages we have to replay
-   * @param switchQueueLock lock to ensure moving updates from one queue to another is atomic
    */
-  public ReplayThread(BlockingQueue<UpdateToReplay> updateToReplayQueue, ReentrantLock switchQueueLock)
+  public ReplayThread(BlockingQueue<UpdateToReplay> updateToReplayQueue)
   {
     super("Replica replay thread " + count++);
     this.updateToReplayQueue = updateToReplayQueue;
-    this.switchQueueLock = switchQueueLock;
   }
 
   /**
@@ -80,32 +78,15 @@ public class ReplayThread extends DirectoryThread
     {
       try
       {
-        if (switchQueueLock.tryLock(1L, TimeUnit.SECONDS))
+        UpdateToReplay updateToreplay = updateToReplayQueue.poll(1L, TimeUnit.SECONDS);
+        if (updateToreplay == null)
         {
-          LDAPReplicationDomain domain;
-          LDAPUpdateMsg updateMsg;
-          try
-          {
-            if (shutdown.get())
-            {
-              break;
-            }
-            UpdateToReplay updateToreplay = updateToReplayQueue.poll(1L, TimeUnit.SECONDS);
-            if (updateToreplay == null)
-            {
-              continue;
-            }
-            // Find replication domain for that update message and mark it as "in progress"
-            updateMsg = updateToreplay.getUpdateMessage();
-            domain = updateToreplay.getReplicationDomain();
-            domain.markInProgress(updateMsg);
-          }
-          finally
-          {
-            switchQueueLock.unlock();
-          }
-          domain.replay(updateMsg, shutdown);
+          continue;
         }
+        // The update was marked as "in progress" by its replication domain when received
+        LDAPUpdateMsg updateMsg = updateToreplay.getUpdateMessage();
+        LDAPReplicationDomain domain = updateToreplay.getReplicationDomain();
+        domain.replay(updateMsg, shutdown);
       }
       catch (Exception e)
       {
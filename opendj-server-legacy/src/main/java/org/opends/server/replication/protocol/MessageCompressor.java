@@ -0,0 +1,147 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.replication.protocol;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.forgerock.opendj.ldap.ByteSequenceReader;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+
+/**
+ * Compresses batches of encoded replication messages sent on a session, and decompresses the batches received.
+ * <p>
+ * The messages of a batch are written one after the other, each preceded by its length on 4 bytes. The batches sent
+ * on a session form a single Deflate stream, flushed at the end of each batch: each batch is compressed using the
+ * messages previously sent as a dictionary, which pays off for the highly redundant messages exchanged by replicas,
+ * such as updates of the same attributes or entries sent during a total update. Hence, the batches must be
+ * decompressed in the order they have been compressed, and each batch must be decompressed once.
+ * <p>
+ * Compression and decompression use separate streams: one thread can compress batches while another one decompresses
+ * batches. Neither method can be called concurrently with itself.
+ */
+final class MessageCompressor
+{
+  /**
+   * The maximum size of the messages of a batch, which ensures the length of a compressed batch fits in a session
+   * frame header. Larger messages must be sent uncompressed.
+   */
+  static final int MAX_UNCOMPRESSED_BATCH_SIZE = 64 * 1024 * 1024;
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+  private final Inflater inflater = new Inflater();
+  private final byte[] deflateBuffer = new byte[BUFFER_SIZE];
+  private final byte[] inflateBuffer = new byte[BUFFER_SIZE];
+
+  /**
+   * Compresses the provided batch of encoded messages.
+   *
+   * @param messages
+   *          the encoded messages, whose total size must not exceed {@link #MAX_UNCOMPRESSED_BATCH_SIZE}
+   * @return the compressed batch
+   */
+  byte[] compress(List<byte[]> messages)
+  {
+    final ByteStringBuilder batch = new ByteStringBuilder(getBatchSize(messages));
+    for (byte[] message : messages)
+    {
+      batch.appendInt(message.length);
+      batch.appendBytes(message);
+    }
+
+    deflater.setInput(batch.getBackingArray(), 0, batch.length());
+    final ByteStringBuilder compressed = new ByteStringBuilder(batch.length() / 2 + 64);
+    int length;
+    do
+    {
+      // A full buffer means there may be more output pending
+      length = deflater.deflate(deflateBuffer, 0, deflateBuffer.length, Deflater.SYNC_FLUSH);
+      compressed.appendBytes(deflateBuffer, 0, length);
+    }
+    while (length == deflateBuffer.length);
+    return compressed.toByteArray();
+  }
+
+  /**
+   * Returns the size of the provided messages once written in a batch.
+   *
+   * @param messages
+   *          the encoded messages
+   * @return the size of the batch before compression
+   */
+  static int getBatchSize(List<byte[]> messages)
+  {
+    int size = 0;
+    for (byte[] message : messages)
+    {
+      size += 4 + message.length;
+    }
+    return size;
+  }
+
+  /**
+   * Decompresses the provided batch of encoded messages.
+   *
+   * @param compressedBatch
+   *          the compressed batch
+   * @return the encoded messages of the batch
+   * @throws DataFormatException
+   *           if the batch is not a valid compressed batch, or if its messages exceed
+   *           {@link #MAX_UNCOMPRESSED_BATCH_SIZE}
+   */
+  List<byte[]> decompress(byte[] compressedBatch) throws DataFormatException
+  {
+    inflater.setInput(compressedBatch);
+    final ByteStringBuilder batch =
+        new ByteStringBuilder((int) Math.min(compressedBatch.length * 4L, MAX_UNCOMPRESSED_BATCH_SIZE));
+    while (true)
+    {
+      final int length = inflater.inflate(inflateBuffer);
+      if (batch.length() + length > MAX_UNCOMPRESSED_BATCH_SIZE)
+      {
+        throw new DataFormatException(
+            "The compressed replication messages exceed " + MAX_UNCOMPRESSED_BATCH_SIZE + " bytes once decompressed");
+      }
+      batch.appendBytes(inflateBuffer, 0, length);
+      if (length < inflateBuffer.length && inflater.needsInput())
+      {
+        break;
+      }
+      if (length == 0 && (inflater.finished() || inflater.needsDictionary()))
+      {
+        throw new DataFormatException("Unexpected end of the compressed replication messages stream");
+      }
+    }
+
+    final List<byte[]> messages = new ArrayList<>();
+    final ByteSequenceReader reader = batch.asReader();
+    while (reader.remaining() > 0)
+    {
+      final int length = reader.readInt();
+      if (length < 0 || length > reader.remaining())
+      {
+        throw new DataFormatException("Invalid length " + length + " of a compressed replication message");
+      }
+      messages.add(reader.readByteSequence(length).toByteArray());
+    }
+    return messages;
+  }
+}
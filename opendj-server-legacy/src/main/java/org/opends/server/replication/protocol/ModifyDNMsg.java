@@ -368,6 +368,40 @@ public class ModifyDNMsg extends ModifyCommonMsg
     return parentDn.child(RDN.valueOf(newRDN));
   }
 
+  /**
+   * Returns the new DN of the target entry.
+   *
+   * @return the new DN of the target entry, or {@code null} if it is not a valid DN
+   */
+  public DN getNewDN()
+  {
+    try
+    {
+      return computeNewDN();
+    }
+    catch (LocalizedIllegalArgumentException e)
+    {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the new parent of the target entry, the root DN if it is not moved.
+   *
+   * @return the new parent of the target entry, or {@code null} if it is not a valid DN
+   */
+  public DN getNewSuperiorDN()
+  {
+    try
+    {
+      return newSuperior != null ? DN.valueOf(newSuperior) : DN.rootDN();
+    }
+    catch (LocalizedIllegalArgumentException e)
+    {
+      return null;
+    }
+  }
+
   /**
    * Check if this MSG will change the DN of the target entry to be
    * the same as the dn given as a parameter.
@@ -94,10 +94,18 @@ public class ProtocolVersion
    */
   public static final short REPLICATION_PROTOCOL_V8 = 8;
 
+  /**
+   * The constant for the 9th version of the replication protocol.
+   * <ul>
+   * <li>Batches of messages can be sent in compressed frames, using a Deflate stream per session.</li>
+   * </ul>
+   */
+  public static final short REPLICATION_PROTOCOL_V9 = 9;
+
   /**
    * The replication protocol version used by the instance of RS/DS in this VM.
    */
-  private static final short CURRENT_VERSION = REPLICATION_PROTOCOL_V8;
+  private static final short CURRENT_VERSION = REPLICATION_PROTOCOL_V9;
 
   /**
    * Gets the current version of the replication protocol.
@@ -120,4 +128,15 @@ public class ProtocolVersion
   {
     return version < CURRENT_VERSION ? version : CURRENT_VERSION;
   }
+
+  /**
+   * Returns whether the provided negotiated version of the protocol allows sending compressed frames.
+   *
+   * @param version The version of the protocol negotiated with the peer.
+   * @return {@code true} if compressed frames can be sent to the peer, {@code false} otherwise.
+   */
+  public static boolean supportsCompression(short version)
+  {
+    return version >= REPLICATION_PROTOCOL_V9;
+  }
 }
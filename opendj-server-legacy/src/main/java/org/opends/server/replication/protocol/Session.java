@@ -26,6 +26,10 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -48,6 +52,16 @@ public final class Session extends DirectoryThread implements Closeable
 {
   private static final LocalizedLogger logger = LocalizedLogger.getLoggerForThisClass();
 
+  /**
+   * The first byte of the header of a compressed frame, in place of the first hexadecimal digit of the length of
+   * the frame.
+   */
+  private static final byte COMPRESSED_FRAME_MARKER = 'Z';
+  /** The minimum size of the messages sent together for compressing them. */
+  private static final int MIN_COMPRESSED_BATCH_SIZE = 128;
+  /** The size of the queued messages beyond which no more messages are added to a compressed batch. */
+  private static final int MAX_COMPRESSED_BATCH_SIZE = 256 * 1024;
+
   private final Socket plainSocket;
   private final SSLSocket secureSocket;
   private final InputStream plainInput;
@@ -84,6 +98,12 @@ public final class Session extends DirectoryThread implements Closeable
   private short protocolVersion = ProtocolVersion.getCurrentVersion();
   /** Initially encrypted. */
   private boolean isEncrypted = true;
+  /** Whether messages can be sent compressed, only once the peer is known to support it. */
+  private volatile boolean isCompressionEnabled;
+  /** Compresses the messages sent, guarded by publishLock, and decompresses the messages received. */
+  private final MessageCompressor compressor = new MessageCompressor();
+  /** The messages received in a compressed frame which have not been returned yet by {@link #receive()}. */
+  private final ArrayDeque<byte[]> receivedBuffers = new ArrayDeque<>();
 
   /**
    * Use a buffered input stream to avoid too many system calls.
@@ -346,18 +366,43 @@ public final class Session extends DirectoryThread implements Closeable
    */
   private void send(final byte[] buffer) throws IOException
   {
-    final String str = String.format("%08x", buffer.length);
-    final byte[] sendLengthBuf = str.getBytes();
+    send(Collections.singletonList(buffer));
+  }
 
+  /**
+   * Sends replication messages already encoded to the socket, in a single compressed frame when compression is
+   * enabled and the messages are large enough.
+   *
+   * @param buffers
+   *          the encoded buffers
+   * @throws IOException if the messages could not be sent
+   */
+  private void send(final List<byte[]> buffers) throws IOException
+  {
     publishLock.lock();
     try
     {
       /*
-       * The buffered output stream ensures that the message is usually sent as
-       * a single TCP packet.
+       * The buffered output stream ensures that the messages are usually sent
+       * in as few TCP packets as possible.
        */
-      output.write(sendLengthBuf);
-      output.write(buffer);
+      final int batchSize = MessageCompressor.getBatchSize(buffers);
+      if (isCompressionEnabled
+          && MIN_COMPRESSED_BATCH_SIZE <= batchSize && batchSize <= MessageCompressor.MAX_UNCOMPRESSED_BATCH_SIZE)
+      {
+        final byte[] compressedBatch = compressor.compress(buffers);
+        output.write(COMPRESSED_FRAME_MARKER);
+        output.write(String.format("%07x", compressedBatch.length).getBytes());
+        output.write(compressedBatch);
+      }
+      else
+      {
+        for (byte[] buffer : buffers)
+        {
+          output.write(String.format("%08x", buffer.length).getBytes());
+          output.write(buffer);
+        }
+      }
       output.flush();
     } catch (final IOException e) {
       setSessionError(e);
@@ -399,27 +444,29 @@ public final class Session extends DirectoryThread implements Closeable
        */
       lastReceiveTime = System.currentTimeMillis();
 
-      // Read the first 8 bytes containing the packet length.
-      read(rcvLengthBuf);
-      final int totalLength = Integer.parseInt(new String(rcvLengthBuf), 16);
-
-      try
-      {
-        final byte[] buffer = new byte[totalLength];
-        read(buffer);
-
-        /*
-         * We do not want the heartbeat to close the session when we are
-         * processing a message even a time consuming one.
-         */
-        lastReceiveTime = 0;
-        return ReplicationMsg.generateMsg(buffer, protocolVersion);
-      }
-      catch (final OutOfMemoryError e)
+      byte[] buffer = receivedBuffers.poll();
+      while (buffer == null)
       {
-        throw new IOException("Packet too large, can't allocate "
-            + totalLength + " bytes.");
+        // Read the first 8 bytes containing the packet length.
+        read(rcvLengthBuf);
+        if (rcvLengthBuf[0] == COMPRESSED_FRAME_MARKER)
+        {
+          final int totalLength = Integer.parseInt(new String(rcvLengthBuf, 1, rcvLengthBuf.length - 1), 16);
+          receivedBuffers.addAll(compressor.decompress(readFrame(totalLength)));
+          buffer = receivedBuffers.poll();
+        }
+        else
+        {
+          buffer = readFrame(Integer.parseInt(new String(rcvLengthBuf), 16));
+        }
       }
+
+      /*
+       * We do not want the heartbeat to close the session when we are
+       * processing a message even a time consuming one.
+       */
+      lastReceiveTime = 0;
+      return ReplicationMsg.generateMsg(buffer, protocolVersion);
     }
     catch (final IOException | DataFormatException | NotSupportedOldVersionPDUException | RuntimeException e)
     {
@@ -428,6 +475,21 @@ public final class Session extends DirectoryThread implements Closeable
     }
   }
 
+  private byte[] readFrame(final int totalLength) throws IOException
+  {
+    try
+    {
+      final byte[] buffer = new byte[totalLength];
+      read(buffer);
+      return buffer;
+    }
+    catch (final OutOfMemoryError e)
+    {
+      throw new IOException("Packet too large, can't allocate "
+          + totalLength + " bytes.");
+    }
+  }
+
   private void read(byte[] buffer) throws IOException
   {
     final int totalLength = buffer.length;
@@ -447,12 +509,16 @@ public final class Session extends DirectoryThread implements Closeable
   /**
    * This method is called at the establishment of the session and can
    * be used to record the version of the protocol that is currently used.
+   * <p>
+   * Messages are sent compressed from then on if the version of the protocol
+   * supports it. Compressed messages can always be received.
    *
    * @param version The version of the protocol that is currently used.
    */
   public void setProtocolVersion(final short version)
   {
     protocolVersion = version;
+    isCompressionEnabled = ProtocolVersion.supportsCompression(version);
   }
 
 
@@ -535,18 +601,29 @@ public final class Session extends DirectoryThread implements Closeable
     boolean needClosing = false;
     while (!closeInitiated)
     {
-      byte[] buffer;
+      final List<byte[]> buffers = new ArrayList<>();
       try
       {
-        buffer = sendQueue.take();
+        buffers.add(sendQueue.take());
       }
       catch (InterruptedException ie)
       {
         break;
       }
+      if (isCompressionEnabled)
+      {
+        // compress together the messages already queued
+        int batchSize = buffers.get(0).length;
+        byte[] buffer;
+        while (batchSize < MAX_COMPRESSED_BATCH_SIZE && (buffer = sendQueue.poll()) != null)
+        {
+          buffers.add(buffer);
+          batchSize += buffer.length;
+        }
+      }
       try
       {
-        send(buffer);
+        send(buffers);
       }
       catch (IOException e)
       {
@@ -824,6 +824,36 @@ public class ReplicationServer
     return this.config.getReplicationPurgeDelay() * 1000;
   }
 
+  /**
+   * Returns the maximum number of changes written in a single batch to the changelog.
+   *
+   * @return the maximum number of changes written in a single batch
+   */
+  public int getChangelogWriteBatchSize()
+  {
+    return config.getChangelogWriteBatchSize();
+  }
+
+  /**
+   * Returns the maximum time to wait for more changes before writing a batch to the changelog.
+   *
+   * @return the maximum batch delay in milliseconds
+   */
+  public long getChangelogWriteBatchDelay()
+  {
+    return config.getChangelogWriteBatchDelay();
+  }
+
+  /**
+   * Returns whether each batch of changes is synchronized to the file system once written to the changelog.
+   *
+   * @return whether each batch of changes is synchronized to the file system
+   */
+  public boolean isChangelogWriteSyncEnabled()
+  {
+    return config.isChangelogWriteSyncEnabled();
+  }
+
   /**
    * Check if the provided configuration is acceptable for add.
    *
@@ -888,6 +918,14 @@ public class ReplicationServer
       }
     }
 
+    if (config.getChangelogWriteBatchSize() != oldConfig.getChangelogWriteBatchSize()
+        || config.getChangelogWriteBatchDelay() != oldConfig.getChangelogWriteBatchDelay()
+        || config.isChangelogWriteSyncEnabled() != oldConfig.isChangelogWriteSyncEnabled())
+    {
+      this.changelogDB.setWriteBatchParameters(getChangelogWriteBatchSize(), getChangelogWriteBatchDelay(),
+          isChangelogWriteSyncEnabled());
+    }
+
     cryptoSuite.newParameters(config.getCipherTransformation(), config.getCipherKeyLength(),
         config.isConfidentialityEnabled());
 
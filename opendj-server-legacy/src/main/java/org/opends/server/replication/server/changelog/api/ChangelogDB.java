@@ -58,6 +58,21 @@ public interface ChangelogDB
   void setComputeChangeNumber(boolean computeChangeNumber)
       throws ChangelogException;
 
+  /**
+   * Sets how the replication database batches the changes written concurrently. Can be called while
+   * the database is running.
+   *
+   * @param maxBatchSize
+   *          the maximum number of changes written in a single batch
+   * @param maxBatchDelayInMillis
+   *          the maximum time in milliseconds to wait for more changes before writing a batch which is
+   *          not full, zero for no wait
+   * @param syncEnabled
+   *          whether each batch is synchronized to the file system before the changes it contains are
+   *          considered as written
+   */
+  void setWriteBatchParameters(int maxBatchSize, long maxBatchDelayInMillis, boolean syncEnabled);
+
   /**
    * Shutdown the replication database.
    *
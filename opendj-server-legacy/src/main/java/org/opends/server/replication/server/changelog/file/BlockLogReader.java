@@ -24,6 +24,7 @@ import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 
 import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.ByteStringBuilder;
@@ -44,6 +45,10 @@ import org.opends.server.util.StaticUtils;
  * <p>
  * The reader provides both sequential access, using the {@code readRecord()} method,
  * and reasonably fast random access, using the {@code seekToRecord(K, boolean)} method.
+ * <p>
+ * The log file is read by chunks into a buffer, so that reading a record does not cost
+ * several system calls. The binary searches use and fill a sparse index of the keys
+ * shared by all the readers of a log file, which narrows the range of the next searches.
  *
  * @param <K>
  *          Type of the key of a record, which must be comparable.
@@ -65,6 +70,9 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
    */
   static final int BLOCK_SIZE = 256;
 
+  /** Size of the chunks of the log file read at once. */
+  static final int READ_BUFFER_SIZE = 8192;
+
   private final int blockSize;
 
   private final RecordParser<K, V> parser;
@@ -73,6 +81,23 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
 
   private final File file;
 
+  private final SparseKeyIndex<K> keyIndex;
+
+  /** The last chunk of the log file read. */
+  private final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+
+  /** The position in the log file of the first byte of the read buffer. */
+  private long readBufferPosition;
+
+  /** The number of bytes of the log file in the read buffer. */
+  private int readBufferLength;
+
+  /** The position of this reader in the log file. */
+  private long position;
+
+  /** The last known length of the log file, which can only grow while it is read. */
+  private long fileLength;
+
   /**
    * Creates a reader for the provided file, file reader and parser.
    *
@@ -86,12 +111,14 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
    *          The random access reader on the log file.
    * @param parser
    *          The parser to decode the records read.
+   * @param keyIndex
+   *          The sparse index of the keys of the log file, shared by all its readers.
    * @return a new log reader
    */
-  static <K extends Comparable<K>, V> BlockLogReader<K, V> newReader(
-      final File file, final RandomAccessFile reader, final RecordParser<K, V> parser)
+  static <K extends Comparable<K>, V> BlockLogReader<K, V> newReader(final File file,
+      final RandomAccessFile reader, final RecordParser<K, V> parser, final SparseKeyIndex<K> keyIndex)
   {
-    return new BlockLogReader<>(file, reader, parser, BLOCK_SIZE);
+    return new BlockLogReader<>(file, reader, parser, BLOCK_SIZE, keyIndex);
   }
 
   /**
@@ -117,16 +144,45 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
   static <K extends Comparable<K>, V> BlockLogReader<K, V> newReaderForTests(
       final File file, final RandomAccessFile reader, final RecordParser<K, V> parser, int blockSize)
   {
-    return new BlockLogReader<>(file, reader, parser, blockSize);
+    return newReaderForTests(file, reader, parser, blockSize, new SparseKeyIndex<K>());
+  }
+
+  /**
+   * Creates a reader for the provided file, file reader, parser, block size and key index.
+   * <p>
+   * This method is intended for tests only, to allow tuning of the block size.
+   *
+   * @param <K>
+   *          Type of the key of a record, which must be comparable.
+   * @param <V>
+   *          Type of the value of a record.
+   * @param file
+   *          The log file to read.
+   * @param reader
+   *          The random access reader on the log file.
+   * @param parser
+   *          The parser to decode the records read.
+   * @param blockSize
+   *          The size of each block, or frequency at which the record offset is
+   *          present in the log file.
+   * @param keyIndex
+   *          The index of the keys found in the log file, shared by all its readers.
+   * @return a new log reader
+   */
+  static <K extends Comparable<K>, V> BlockLogReader<K, V> newReaderForTests(final File file,
+      final RandomAccessFile reader, final RecordParser<K, V> parser, int blockSize, SparseKeyIndex<K> keyIndex)
+  {
+    return new BlockLogReader<>(file, reader, parser, blockSize, keyIndex);
   }
 
-  private BlockLogReader(
-      final File file, final RandomAccessFile reader, final RecordParser<K, V> parser, final int blockSize)
+  private BlockLogReader(final File file, final RandomAccessFile reader, final RecordParser<K, V> parser,
+      final int blockSize, final SparseKeyIndex<K> keyIndex)
   {
     this.file = file;
     this.reader = reader;
     this.parser = parser;
     this.blockSize = blockSize;
+    this.keyIndex = keyIndex;
   }
 
   /**
@@ -173,14 +229,7 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
    */
   public void seekToPosition(final long filePosition) throws ChangelogException
   {
-    try
-    {
-      reader.seek(filePosition);
-    }
-    catch (IOException e)
-    {
-      throw new ChangelogException(ERR_CHANGELOG_UNABLE_TO_SEEK.get(filePosition, file.getPath()), e);
-    }
+    position = filePosition;
   }
 
   /**
@@ -204,15 +253,7 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
    */
   public long getFilePosition() throws ChangelogException
   {
-    try
-    {
-      return reader.getFilePointer();
-    }
-    catch (IOException e)
-    {
-      throw new ChangelogException(
-          ERR_CHANGELOG_UNABLE_TO_GET_CURSOR_READER_POSITION_LOG_FILE.get(file.getPath()), e);
-    }
+    return position;
   }
 
   /** {@inheritDoc} */
@@ -262,19 +303,69 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
    */
   private void positionToRecordFromBlockStart(final long blockStartPosition) throws IOException
   {
-    reader.seek(blockStartPosition);
+    position = blockStartPosition;
     if (blockStartPosition > 0)
     {
-      final byte[] offsetData = new byte[SIZE_OF_BLOCK_OFFSET];
-      reader.readFully(offsetData);
-      final int offsetToRecord = ByteString.wrap(offsetData).toInt();
+      final ByteStringBuilder offsetData = new ByteStringBuilder(SIZE_OF_BLOCK_OFFSET);
+      readBytes(offsetData, SIZE_OF_BLOCK_OFFSET);
+      final int offsetToRecord = offsetData.toByteString().toInt();
       if (offsetToRecord > 0)
       {
-        reader.seek(blockStartPosition - offsetToRecord);
+        position = blockStartPosition - offsetToRecord;
       } // if offset is zero, reader is already well positioned
     }
   }
 
+  /**
+   * Ensures the read buffer contains the byte at the current position, reading the chunk
+   * of the log file containing it if needed.
+   *
+   * @return the number of bytes available in the read buffer from the current position
+   * @throws EOFException
+   *           If the current position is at or after the end of the log file.
+   * @throws IOException
+   *           If an error occurs during read.
+   */
+  private int fillReadBuffer() throws IOException
+  {
+    long offset = position - readBufferPosition;
+    if (offset < 0 || offset >= readBufferLength)
+    {
+      // Records are mostly read forward, but reading from a block start first goes back to the record start
+      readBufferPosition = position - position % READ_BUFFER_SIZE;
+      readBufferLength = Math.max(0, reader.getChannel().read(ByteBuffer.wrap(readBuffer), readBufferPosition));
+      offset = position - readBufferPosition;
+      if (offset >= readBufferLength)
+      {
+        throw new EOFException();
+      }
+    }
+    return (int) (readBufferLength - offset);
+  }
+
+  /** Reads bytes from the current position, appending them to the provided builder. */
+  private void readBytes(final ByteStringBuilder builder, final int length) throws IOException
+  {
+    int remainingBytesToRead = length;
+    while (remainingBytesToRead > 0)
+    {
+      final int nbBytes = Math.min(fillReadBuffer(), remainingBytesToRead);
+      builder.appendBytes(readBuffer, (int) (position - readBufferPosition), nbBytes);
+      position += nbBytes;
+      remainingBytesToRead -= nbBytes;
+    }
+  }
+
+  private boolean isEndOfFile() throws IOException
+  {
+    if (position < fileLength)
+    {
+      return false;
+    }
+    fileLength = reader.length();
+    return position >= fileLength;
+  }
+
   /**
    * Reads the next record.
    *
@@ -284,11 +375,11 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
    */
   private ByteString readNextRecord() throws IOException
   {
+    final long filePosition = position;
     try
     {
       // read length of record if not already at EOF
-      final long filePosition = reader.getFilePointer();
-      if (reader.length() == filePosition)
+      if (isEndOfFile())
       {
         return null;
       }
@@ -296,7 +387,7 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
       final int recordLength = readRecordLength(distanceToBlockStart);
 
       // read the record
-      long currentPosition = reader.getFilePointer();
+      long currentPosition = position;
       distanceToBlockStart = getDistanceToNextBlockStart(currentPosition, blockSize);
       final ByteStringBuilder recordBytes =
           new ByteStringBuilder(getLengthOfStoredRecord(recordLength, distanceToBlockStart));
@@ -305,10 +396,10 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
       {
         if (distanceToBlockStart != 0)
         {
-          recordBytes.appendBytes(reader, distanceToBlockStart);
+          readBytes(recordBytes, distanceToBlockStart);
         }
         // skip the offset
-        reader.skipBytes(SIZE_OF_BLOCK_OFFSET);
+        position += SIZE_OF_BLOCK_OFFSET;
 
         // next step
         currentPosition += distanceToBlockStart + SIZE_OF_BLOCK_OFFSET;
@@ -318,13 +409,14 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
       if (remainingBytesToRead > 0)
       {
         // last bytes of the record
-        recordBytes.appendBytes(reader, remainingBytesToRead);
+        readBytes(recordBytes, remainingBytesToRead);
       }
       return recordBytes.toByteString();
     }
     catch (EOFException e)
     {
-      // end of stream, no record or uncomplete record
+      // end of stream, no record or uncomplete record: stay at the start of the record until it is complete
+      position = filePosition;
       return null;
     }
   }
@@ -357,19 +449,19 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
     final ByteStringBuilder lengthBytes = new ByteStringBuilder(SIZE_OF_RECORD_SIZE);
     if (distanceToBlockStart > 0 && distanceToBlockStart < SIZE_OF_RECORD_SIZE)
     {
-      lengthBytes.appendBytes(reader, distanceToBlockStart);
+      readBytes(lengthBytes, distanceToBlockStart);
       // skip the offset
-      reader.skipBytes(SIZE_OF_BLOCK_OFFSET);
-      lengthBytes.appendBytes(reader, SIZE_OF_RECORD_SIZE - distanceToBlockStart);
+      position += SIZE_OF_BLOCK_OFFSET;
+      readBytes(lengthBytes, SIZE_OF_RECORD_SIZE - distanceToBlockStart);
     }
     else
     {
       if (distanceToBlockStart == 0)
       {
         // skip the offset
-        reader.skipBytes(SIZE_OF_BLOCK_OFFSET);
+        position += SIZE_OF_BLOCK_OFFSET;
       }
-      lengthBytes.appendBytes(reader, SIZE_OF_RECORD_SIZE);
+      readBytes(lengthBytes, SIZE_OF_RECORD_SIZE);
     }
     return lengthBytes.toByteString().toInt();
   }
@@ -377,6 +469,9 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
   /**
    * Search the closest block start to the provided key, using binary search.
    * <p>
+   * The search starts from the closest block starts found in the sparse index of the keys,
+   * and indexes the keys of the records read.
+   * <p>
    * Note that position of reader is modified by this method.
    *
    * @param key
@@ -388,9 +483,17 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
    */
   long searchClosestBlockStartToKey(K key) throws ChangelogException
   {
+    final Long matchingBlockStart = keyIndex.getBlockStart(key);
+    if (matchingBlockStart != null)
+    {
+      return matchingBlockStart;
+    }
+    final Long lowerBlockStart = keyIndex.getBlockStartOfLowerKey(key);
+    final Long higherBlockStart = keyIndex.getBlockStartOfHigherKey(key);
+
     final long maxPos = getFileLength() - 1;
-    long lowPos = 0L;
-    long highPos = getClosestBlockStartStrictlyAfterPosition(maxPos);
+    long lowPos = lowerBlockStart != null ? lowerBlockStart : 0L;
+    long highPos = higherBlockStart != null ? higherBlockStart : getClosestBlockStartStrictlyAfterPosition(maxPos);
 
     while (lowPos <= highPos)
     {
@@ -401,6 +504,7 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
       {
         return -1;
       }
+      keyIndex.put(middleRecord.getKey(), middleBlockStartPos);
 
       final int keyComparison = middleRecord.getKey().compareTo(key);
       if (keyComparison < 0)
@@ -432,7 +536,8 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
   {
     try
     {
-      return reader.length();
+      fileLength = reader.length();
+      return fileLength;
     }
     catch (IOException e)
     {
@@ -606,7 +711,7 @@ class BlockLogReader<K extends Comparable<K>, V> implements Closeable
      long lastValidPosition = lastBlockStart;
      for (ByteString recordData = readNextRecord(); recordData != null; recordData = readNextRecord()) {
        parser.decodeRecord(recordData);
-       lastValidPosition = reader.getFilePointer();
+       lastValidPosition = position;
      }
 
      final boolean isFileValid = lastValidPosition == getFileLength();
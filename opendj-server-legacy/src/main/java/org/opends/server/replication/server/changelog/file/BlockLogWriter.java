@@ -19,8 +19,9 @@ import static org.opends.messages.ReplicationMessages.*;
 import static org.opends.server.replication.server.changelog.file.BlockLogReader.*;
 
 import java.io.Closeable;
-import java.io.IOException;
 import java.io.SyncFailedException;
+import java.util.Collections;
+import java.util.List;
 
 import org.forgerock.opendj.ldap.ByteString;
 import org.forgerock.opendj.ldap.ByteStringBuilder;
@@ -117,14 +118,35 @@ class BlockLogWriter<K extends Comparable<K>, V> implements Closeable
    *            If a problem occurs during write.
    */
   public void write(final Record<K, V> record) throws ChangelogException
+  {
+    write(Collections.singletonList(record));
+  }
+
+  /**
+   * Writes the provided records to the log file, in the provided order.
+   * <p>
+   * The records are encoded in a single buffer, which is written to the log file at once.
+   *
+   * @param records
+   *            The records to write.
+   * @throws ChangelogException
+   *            If a problem occurs during write.
+   */
+  public void write(final List<Record<K, V>> records) throws ChangelogException
   {
     try
     {
-      write(parser.encodeRecord(record));
+      final ByteStringBuilder data = new ByteStringBuilder();
+      for (Record<K, V> record : records)
+      {
+        appendRecord(data, parser.encodeRecord(record));
+      }
+      writer.write(data.toByteString());
       writer.flush();
     }
     catch (Exception e)
     {
+      final Record<K, V> record = records.get(0);
       throw new ChangelogException(ERR_CHANGELOG_UNABLE_TO_ADD_RECORD.get(record.toString(),
           writer.getFile().getPath()), e);
     }
@@ -159,25 +181,27 @@ class BlockLogWriter<K extends Comparable<K>, V> implements Closeable
   }
 
   /**
-   * Writes the provided byte string to the log file.
+   * Appends the provided encoded record to the data to write to the log file, along with the
+   * offsets of the blocks starting in the record.
    *
+   * @param data
+   *            The data to write after the bytes already written in the log file.
    * @param record
-   *            The value to write.
-   * @throws IOException
-   *            If an error occurs while writing
+   *            The encoded record.
    */
-  private void write(final ByteString record) throws IOException
+  private void appendRecord(final ByteStringBuilder data, final ByteString record)
   {
     // Add length of record before writing
-    ByteString data = new ByteStringBuilder(SIZE_OF_RECORD_SIZE + record.length()).
+    final ByteString recordData = new ByteStringBuilder(SIZE_OF_RECORD_SIZE + record.length()).
         appendInt(record.length()).
         appendBytes(record).
         toByteString();
 
-    int distanceToBlockStart = BlockLogReader.getDistanceToNextBlockStart(writer.getBytesWritten(), blockSize);
+    final long position = writer.getBytesWritten() + data.length();
+    int distanceToBlockStart = BlockLogReader.getDistanceToNextBlockStart(position, blockSize);
     int cumulatedDistanceToBeginning = distanceToBlockStart;
     int dataPosition = 0;
-    int dataRemaining = data.length();
+    int dataRemaining = recordData.length();
     final int dataSizeForOneBlock = blockSize - SIZE_OF_BLOCK_OFFSET;
 
     while (distanceToBlockStart < dataRemaining)
@@ -186,19 +210,19 @@ class BlockLogWriter<K extends Comparable<K>, V> implements Closeable
       {
         // append part of record
         final int dataEndPosition = dataPosition + distanceToBlockStart;
-        writer.write(data.subSequence(dataPosition, dataEndPosition));
+        data.appendBytes(recordData.subSequence(dataPosition, dataEndPosition));
         dataPosition = dataEndPosition;
         dataRemaining -= distanceToBlockStart;
       }
       // append the offset to the record
-      writer.write(ByteString.valueOfInt(cumulatedDistanceToBeginning));
+      data.appendInt(cumulatedDistanceToBeginning);
 
       // next step
       distanceToBlockStart = dataSizeForOneBlock;
       cumulatedDistanceToBeginning += blockSize;
     }
     // append the remaining bytes to finish the record
-    writer.write(data.subSequence(dataPosition, data.length()));
+    data.appendBytes(recordData.subSequence(dataPosition, recordData.length()));
   }
 
 }
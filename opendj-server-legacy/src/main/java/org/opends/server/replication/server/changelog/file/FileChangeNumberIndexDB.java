@@ -292,10 +292,11 @@ class FileChangeNumberIndexDB implements ChangeNumberIndexDB
       long lastCN = readChangeNumber(ChangeNumberType.LAST);
       long numberOfChanges = lastCN == NO_KEY ? 0 : lastCN - firstCN + 1;
 
-      final MonitorData attributes = new MonitorData(3);
+      final MonitorData attributes = new MonitorData(9);
       attributes.add(ChangeNumberType.FIRST.getAttributeName(), firstCN);
       attributes.add(ChangeNumberType.LAST.getAttributeName(), lastCN);
       attributes.add("count", numberOfChanges);
+      log.addWriteMonitorData(attributes);
       return attributes;
     }
 
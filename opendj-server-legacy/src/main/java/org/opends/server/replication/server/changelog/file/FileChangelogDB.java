@@ -290,6 +290,8 @@ public class FileChangelogDB implements ChangelogDB, ReplicationDomainDB
         startIndexer();
       }
       setPurgeDelay(replicationServer.getPurgeDelay());
+      setWriteBatchParameters(replicationServer.getChangelogWriteBatchSize(),
+          replicationServer.getChangelogWriteBatchDelay(), replicationServer.isChangelogWriteSyncEnabled());
     }
     catch (ChangelogException e)
     {
@@ -555,6 +557,12 @@ public class FileChangelogDB implements ChangelogDB, ReplicationDomainDB
     }
   }
 
+  @Override
+  public void setWriteBatchParameters(int maxBatchSize, long maxBatchDelayInMillis, boolean syncEnabled)
+  {
+    replicationEnv.setGroupCommitParameters(maxBatchSize, maxBatchDelayInMillis, syncEnabled);
+  }
+
   @Override
   public void setPurgeDelay(final long purgeDelayInMillis)
   {
@@ -252,7 +252,7 @@ class FileReplicaDB
     @Override
     public MonitorData getMonitorData()
     {
-      final MonitorData attributes = new MonitorData(4);
+      final MonitorData attributes = new MonitorData(10);
       attributes.add("replicationServer-database", serverId);
       attributes.add("domain-name", baseDN);
       final CSNLimits limits = csnLimits;
@@ -264,6 +264,7 @@ class FileReplicaDB
       {
         attributes.add("last-change", encode(limits.newestCSN));
       }
+      log.addWriteMonitorData(attributes);
       return attributes;
     }
 
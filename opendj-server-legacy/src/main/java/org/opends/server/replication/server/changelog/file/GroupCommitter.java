@@ -0,0 +1,300 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.replication.server.changelog.file;
+
+import static org.opends.messages.ReplicationMessages.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.opends.server.api.MonitorData;
+import org.opends.server.replication.server.changelog.api.ChangelogException;
+
+/**
+ * Appends the records of concurrent writers to the head log file of a {@code Log} in batches.
+ * <p>
+ * Appended records are queued, and the first writer finding no commit in progress becomes the leader: it writes all
+ * the queued records to the log file at once then, if sync is enabled, synchronizes the log file to the file system a
+ * single time for the whole batch. Each writer returns once its record has been written, and synced if sync is
+ * enabled. The records queued while the leader commits form the next batch. The leader can also wait for a short
+ * delay before writing, so that more records join the batch.
+ * <p>
+ * All the records are queued while holding the shared lock of the log, hence the head log file cannot be rotated
+ * while records are queued.
+ *
+ * @param <K>
+ *          Type of the key of a record, which must be comparable.
+ * @param <V>
+ *          Type of the value of a record.
+ */
+final class GroupCommitter<K extends Comparable<K>, V>
+{
+  /** Default maximum number of records written in a single batch. */
+  static final int DEFAULT_MAX_BATCH_SIZE = 256;
+
+  /** A record waiting to be appended, along with the outcome of its commit. */
+  private static final class PendingRecord<K extends Comparable<K>, V>
+  {
+    private final LogFile<K, V> logFile;
+    private final Record<K, V> record;
+    /** Whether the commit of the record completed, successfully or not. Only read by the leader. */
+    private boolean completed;
+    private ChangelogException failure;
+    /** Whether the waiting writer can return, guarded by the pending records. */
+    private boolean done;
+
+    private PendingRecord(LogFile<K, V> logFile, Record<K, V> record)
+    {
+      this.logFile = logFile;
+      this.record = record;
+    }
+  }
+
+  /** The records waiting for a leader, also used for guarding the state of the commits. */
+  private final ArrayDeque<PendingRecord<K, V>> pendingRecords = new ArrayDeque<>();
+  /** Whether a leader is committing a batch. */
+  private boolean commitInProgress;
+
+  private volatile int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+  private volatile long maxBatchDelayInMillis;
+  private volatile boolean syncEnabled;
+
+  private final AtomicLong nbBatches = new AtomicLong();
+  private final AtomicLong nbRecords = new AtomicLong();
+  private final AtomicLong largestBatchSize = new AtomicLong();
+  private final AtomicLong nbSyncs = new AtomicLong();
+  private final AtomicLong syncTimeInNanos = new AtomicLong();
+
+  /**
+   * Sets the parameters of the group commits. Can be called while records are appended.
+   *
+   * @param maxBatchSize
+   *          the maximum number of records written in a single batch
+   * @param maxBatchDelayInMillis
+   *          the maximum time a leader waits for more records before writing a batch which is not full, zero for no
+   *          wait
+   * @param syncEnabled
+   *          whether each batch is synchronized to the file system before its writers return
+   */
+  void setParameters(int maxBatchSize, long maxBatchDelayInMillis, boolean syncEnabled)
+  {
+    this.maxBatchSize = Math.max(1, maxBatchSize);
+    this.maxBatchDelayInMillis = Math.max(0, maxBatchDelayInMillis);
+    this.syncEnabled = syncEnabled;
+  }
+
+  /**
+   * Appends the provided record to the provided log file, possibly along with the records of concurrent writers. This
+   * method returns once the record has been written, and synced if sync is enabled.
+   * <p>
+   * The caller must hold the shared lock of the log, so that the provided log file remains the head log file until
+   * this method returns.
+   *
+   * @param logFile
+   *          the head log file
+   * @param record
+   *          the record to append
+   * @throws ChangelogException
+   *           if the record could not be written or synced
+   */
+  void append(final LogFile<K, V> logFile, final Record<K, V> record) throws ChangelogException
+  {
+    final PendingRecord<K, V> pending = new PendingRecord<>(logFile, record);
+    boolean interrupted = false;
+    try
+    {
+      synchronized (pendingRecords)
+      {
+        pendingRecords.add(pending);
+        if (pendingRecords.size() >= maxBatchSize)
+        {
+          // wake up a leader waiting for more records
+          pendingRecords.notifyAll();
+        }
+      }
+      while (true)
+      {
+        synchronized (pendingRecords)
+        {
+          while (!pending.done && commitInProgress)
+          {
+            try
+            {
+              pendingRecords.wait();
+            }
+            catch (InterruptedException e)
+            {
+              // The record may already be written: wait until its batch completes.
+              interrupted = true;
+            }
+          }
+          if (pending.done)
+          {
+            break;
+          }
+          commitInProgress = true;
+        }
+        List<PendingRecord<K, V>> batch = null;
+        try
+        {
+          interrupted |= waitForMoreRecords();
+          batch = pollBatch();
+          commit(batch);
+        }
+        finally
+        {
+          synchronized (pendingRecords)
+          {
+            if (batch != null)
+            {
+              for (PendingRecord<K, V> batchRecord : batch)
+              {
+                if (!batchRecord.completed)
+                {
+                  batchRecord.failure = new ChangelogException(ERR_CHANGELOG_UNABLE_TO_ADD_RECORD.get(
+                      batchRecord.record.toString(), batchRecord.logFile.getFile().getPath()));
+                }
+                batchRecord.done = true;
+              }
+            }
+            commitInProgress = false;
+            pendingRecords.notifyAll();
+          }
+        }
+      }
+    }
+    finally
+    {
+      if (interrupted)
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+    if (pending.failure != null)
+    {
+      throw pending.failure;
+    }
+  }
+
+  /** Waits until the batch is full or the maximum batch delay has elapsed, returns whether it was interrupted. */
+  private boolean waitForMoreRecords()
+  {
+    final long delayInMillis = maxBatchDelayInMillis;
+    if (delayInMillis == 0)
+    {
+      return false;
+    }
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayInMillis);
+    synchronized (pendingRecords)
+    {
+      long remainingNanos;
+      while (pendingRecords.size() < maxBatchSize && (remainingNanos = deadline - System.nanoTime()) > 0)
+      {
+        try
+        {
+          TimeUnit.NANOSECONDS.timedWait(pendingRecords, remainingNanos);
+        }
+        catch (InterruptedException e)
+        {
+          // write what has been queued so far
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private List<PendingRecord<K, V>> pollBatch()
+  {
+    synchronized (pendingRecords)
+    {
+      final int batchSize = Math.min(pendingRecords.size(), maxBatchSize);
+      final List<PendingRecord<K, V>> batch = new ArrayList<>(batchSize);
+      while (batch.size() < batchSize)
+      {
+        batch.add(pendingRecords.poll());
+      }
+      return batch;
+    }
+  }
+
+  private void commit(final List<PendingRecord<K, V>> batch)
+  {
+    final LogFile<K, V> logFile = batch.get(0).logFile;
+    final List<Record<K, V>> records = new ArrayList<>(batch.size());
+    for (PendingRecord<K, V> pending : batch)
+    {
+      records.add(pending.record);
+    }
+    try
+    {
+      logFile.append(records);
+      if (syncEnabled)
+      {
+        final long startTime = System.nanoTime();
+        logFile.syncToFileSystem();
+        syncTimeInNanos.addAndGet(System.nanoTime() - startTime);
+        nbSyncs.incrementAndGet();
+      }
+      updateStatistics(batch.size());
+    }
+    catch (ChangelogException e)
+    {
+      for (PendingRecord<K, V> pending : batch)
+      {
+        pending.failure = e;
+      }
+    }
+    for (PendingRecord<K, V> pending : batch)
+    {
+      pending.completed = true;
+    }
+  }
+
+  private void updateStatistics(final int batchSize)
+  {
+    nbBatches.incrementAndGet();
+    nbRecords.addAndGet(batchSize);
+    long largest = largestBatchSize.get();
+    while (batchSize > largest && !largestBatchSize.compareAndSet(largest, batchSize))
+    {
+      largest = largestBatchSize.get();
+    }
+  }
+
+  /**
+   * Adds the statistics of the group commits to the provided monitor data.
+   *
+   * @param attributes
+   *          the monitor data to fill
+   */
+  void addMonitorData(final MonitorData attributes)
+  {
+    final long batches = nbBatches.get();
+    final long records = nbRecords.get();
+    final long syncs = nbSyncs.get();
+    attributes.add("write-batch-count", batches);
+    attributes.add("write-record-count", records);
+    attributes.add("write-average-batch-size", batches != 0 ? records / batches : 0);
+    attributes.add("write-largest-batch-size", largestBatchSize.get());
+    attributes.add("write-sync-count", syncs);
+    attributes.add("write-average-sync-time-micros",
+        syncs != 0 ? TimeUnit.NANOSECONDS.toMicros(syncTimeInNanos.get()) / syncs : 0);
+  }
+}
@@ -43,6 +43,7 @@ import org.forgerock.util.Pair;
 import org.forgerock.util.Reject;
 import org.forgerock.util.Utils;
 import org.forgerock.util.time.TimeService;
+import org.opends.server.api.MonitorData;
 import org.opends.server.replication.server.changelog.api.AbortedChangelogCursorException;
 import org.opends.server.replication.server.changelog.api.ChangelogException;
 import org.opends.server.replication.server.changelog.api.DBCursor;
@@ -185,6 +186,9 @@ final class Log<K extends Comparable<K>, V> implements Closeable
    */
   private final ReplicationEnvironment replicationEnv;
 
+  /** Appends the records of concurrent writers to the head log file in batches. */
+  private final GroupCommitter<K, V> groupCommitter = new GroupCommitter<>();
+
   /**
    * Open a log with the provided log path, record parser and maximum size per
    * log file.
@@ -284,6 +288,32 @@ final class Log<K extends Comparable<K>, V> implements Closeable
     this.rotationIntervalInMillis = rotationIntervalInMillis;
   }
 
+  /**
+   * Sets the parameters of the group commits of the records appended to this log.
+   *
+   * @param maxBatchSize
+   *          the maximum number of records written in a single batch
+   * @param maxBatchDelayInMillis
+   *          the maximum time to wait for more records before writing a batch which is not full
+   * @param syncEnabled
+   *          whether each batch is synchronized to the file system before the append of its records returns
+   */
+  void setGroupCommitParameters(int maxBatchSize, long maxBatchDelayInMillis, boolean syncEnabled)
+  {
+    groupCommitter.setParameters(maxBatchSize, maxBatchDelayInMillis, syncEnabled);
+  }
+
+  /**
+   * Adds the statistics of the writes to this log to the provided monitor data.
+   *
+   * @param attributes
+   *          the monitor data to fill
+   */
+  void addWriteMonitorData(final MonitorData attributes)
+  {
+    groupCommitter.addMonitorData(attributes);
+  }
+
   /**
    * Release a reference to the log corresponding to provided path. The log is
    * closed if this is the last reference.
@@ -405,8 +435,9 @@ final class Log<K extends Comparable<K>, V> implements Closeable
    * of the last record added. If it is not the case, the record is not
    * appended.
    * <p>
-   * In order to ensure that record is written out of buffers and persisted
-   * to file system, it is necessary to explicitly call the
+   * The records appended concurrently are written to the head log file in batches. Unless
+   * sync is enabled in the group commit parameters, in order to ensure that record is written
+   * out of buffers and persisted to file system, it is necessary to explicitly call the
    * {@code syncToFileSystem()} method.
    *
    * @param record
@@ -427,7 +458,7 @@ final class Log<K extends Comparable<K>, V> implements Closeable
       LogFile<K, V> headLogFile = getHeadLogFile();
       if (!mustRotate(headLogFile))
       {
-        headLogFile.append(record);
+        groupCommitter.append(headLogFile, record);
         return;
       }
     }
@@ -457,7 +488,7 @@ final class Log<K extends Comparable<K>, V> implements Closeable
         rotateHeadLogFile();
         headLogFile = getHeadLogFile();
       }
-      headLogFile.append(record);
+      groupCommitter.append(headLogFile, record);
     }
     finally
     {
@@ -23,6 +23,9 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -213,7 +216,8 @@ final class LogFile<K extends Comparable<K>, V> implements Closeable
   private void ensureLogFileIsValid(final RecordParser<K, V> parser) throws ChangelogException
   {
     try (final RandomAccessFile readerWriter = new RandomAccessFile(logfile, "rws");
-         final BlockLogReader<K, V> reader = BlockLogReader.newReader(logfile, readerWriter, parser))
+         final BlockLogReader<K, V> reader =
+             BlockLogReader.newReader(logfile, readerWriter, parser, new SparseKeyIndex<K>()))
     {
       final long lastValidPosition = reader.checkLogIsValid();
       if (lastValidPosition != -1)
@@ -246,17 +250,45 @@ final class LogFile<K extends Comparable<K>, V> implements Closeable
    *           If the record can't be added to the log.
    */
   void append(final Record<K, V> record) throws ChangelogException
+  {
+    append(Collections.singletonList(record));
+  }
+
+  /**
+   * Add the provided records at the end of this log, in the provided order, using a single write.
+   * <p>
+   * Each record must have a key strictly higher than the key of the record added before it.
+   * The records for which it is not the case are not appended.
+   * <p>
+   * In order to ensure that records are written out of buffers and persisted to file system, it is
+   * necessary to explicitly call the {@link #syncToFileSystem()} method.
+   *
+   * @param records
+   *          The records to add.
+   * @throws ChangelogException
+   *           If the records can't be added to the log.
+   */
+  void append(final List<Record<K, V>> records) throws ChangelogException
   {
     checkLogIsEnabledForWrite();
     exclusiveLock.lock();
     try
     {
-      if (appendWouldBreakKeyOrdering(record))
+      final List<Record<K, V>> recordsToWrite = new ArrayList<>(records.size());
+      Record<K, V> newest = newestRecord;
+      for (Record<K, V> record : records)
+      {
+        if (!wouldBreakKeyOrdering(record, newest))
+        {
+          recordsToWrite.add(record);
+          newest = record;
+        }
+      }
+      if (!recordsToWrite.isEmpty())
       {
-        return;
+        writer.write(recordsToWrite);
+        newestRecord = newest;
       }
-      writer.write(record);
-      newestRecord = record;
     }
     finally
     {
@@ -267,11 +299,16 @@ final class LogFile<K extends Comparable<K>, V> implements Closeable
   /** Indicates if the provided record has a key that would break the key ordering if appended in this file log. */
   boolean appendWouldBreakKeyOrdering(final Record<K, V> record)
   {
-    boolean wouldBreakOrder = newestRecord != null && record.getKey().compareTo(newestRecord.getKey()) <= 0;
+    return wouldBreakKeyOrdering(record, newestRecord);
+  }
+
+  private boolean wouldBreakKeyOrdering(final Record<K, V> record, final Record<K, V> newest)
+  {
+    boolean wouldBreakOrder = newest != null && record.getKey().compareTo(newest.getKey()) <= 0;
     if (wouldBreakOrder)
     {
       logger.debug(
-          INFO_CHANGELOG_FILTER_OUT_RECORD_BREAKING_ORDER.get(logfile.getPath(), record, newestRecord.getKey()));
+          INFO_CHANGELOG_FILTER_OUT_RECORD_BREAKING_ORDER.get(logfile.getPath(), record, newest.getKey()));
     }
     return wouldBreakOrder;
   }
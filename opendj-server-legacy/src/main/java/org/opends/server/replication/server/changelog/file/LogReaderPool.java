@@ -40,6 +40,9 @@ class LogReaderPool<K extends Comparable<K>, V>
 
   private final RecordParser<K, V> parser;
 
+  /** The sparse index of the keys of the file, shared by all the readers. */
+  private final SparseKeyIndex<K> keyIndex = new SparseKeyIndex<>();
+
   /**
    * Creates a pool of readers for provided file.
    *
@@ -88,7 +91,7 @@ class LogReaderPool<K extends Comparable<K>, V>
   {
     try
     {
-      return BlockLogReader.newReader(file, new RandomAccessFile(file, "r"), parser) ;
+      return BlockLogReader.newReader(file, new RandomAccessFile(file, "r"), parser, keyIndex);
     }
     catch (Exception e)
     {
@@ -249,6 +249,15 @@ class ReplicationEnvironment implements ChangelogStateProvider
    * It is persisted to file each time it changes and read at server start. */
   private long cnIndexDBLastRotationTime;
 
+  /** The maximum number of records written in a single batch to a log. */
+  private volatile int maxWriteBatchSize = GroupCommitter.DEFAULT_MAX_BATCH_SIZE;
+
+  /** The maximum time to wait for more records before writing a batch which is not full. */
+  private volatile long maxWriteBatchDelayInMillis;
+
+  /** Whether each batch of records is synchronized to the file system before the append of its records returns. */
+  private volatile boolean writeSyncEnabled;
+
   /**
    * Creates the replication environment.
    *
@@ -286,6 +295,31 @@ class ReplicationEnvironment implements ChangelogStateProvider
     }
   }
 
+  /**
+   * Sets the parameters of the group commits of the records appended to the logs.
+   *
+   * @param maxBatchSize
+   *          the maximum number of records written in a single batch
+   * @param maxBatchDelayInMillis
+   *          the maximum time to wait for more records before writing a batch which is not full
+   * @param syncEnabled
+   *          whether each batch is synchronized to the file system before the append of its records returns
+   */
+  void setGroupCommitParameters(int maxBatchSize, long maxBatchDelayInMillis, boolean syncEnabled)
+  {
+    maxWriteBatchSize = maxBatchSize;
+    maxWriteBatchDelayInMillis = maxBatchDelayInMillis;
+    writeSyncEnabled = syncEnabled;
+    for (Log<CSN, UpdateMsg> log : logsReplicaDB)
+    {
+      log.setGroupCommitParameters(maxBatchSize, maxBatchDelayInMillis, syncEnabled);
+    }
+    for (Log<Long, ChangeNumberIndexRecord> log : logsCNIndexDB)
+    {
+      log.setGroupCommitParameters(maxBatchSize, maxBatchDelayInMillis, syncEnabled);
+    }
+  }
+
   /**
    * Returns the state of the replication changelog.
    *
@@ -752,6 +786,7 @@ class ReplicationEnvironment implements ChangelogStateProvider
     checkShutDownBeforeOpening(serverIdPath);
 
     final Log<K, V> log = Log.openLog(this, serverIdPath, parser, rotationParams);
+    log.setGroupCommitParameters(maxWriteBatchSize, maxWriteBatchDelayInMillis, writeSyncEnabled);
 
     checkShutDownAfterOpening(serverIdPath, log);
 
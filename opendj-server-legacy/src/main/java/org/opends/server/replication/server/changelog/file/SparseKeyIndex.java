@@ -0,0 +1,141 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.replication.server.changelog.file;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A sparse index of the keys of a log file, mapping the key of the record read from a block start to the position of
+ * this block start.
+ * <p>
+ * The index is filled by the binary searches of all the readers of a log file, so that the next searches start from
+ * the closest known block starts, and do not read the log file at all when the key has already been found. The record
+ * read from a block start never changes because log files are only appended to, so the index is valid for the whole
+ * life of the log file. The number of indexed keys is bounded to limit the memory used for large log files: once the
+ * bound is reached, every other key is evicted so that the next searches keep filling the index.
+ *
+ * @param <K>
+ *          Type of the key of a record, which must be comparable.
+ */
+final class SparseKeyIndex<K extends Comparable<K>>
+{
+  /** Maximum number of keys indexed for a log file. */
+  static final int MAX_NB_KEYS = 4096;
+
+  private final ConcurrentSkipListMap<K, Long> blockStartsByKey = new ConcurrentSkipListMap<>();
+  /** Number of keys in the index, since computing the size of a skip list map is not a constant-time operation. */
+  private final AtomicInteger nbKeys = new AtomicInteger();
+
+  /**
+   * Indexes the key of the record read from a block start.
+   *
+   * @param key
+   *          the key of the record read from the block start
+   * @param blockStartPosition
+   *          the position of the block start in the log file
+   */
+  void put(K key, long blockStartPosition)
+  {
+    if (nbKeys.get() >= MAX_NB_KEYS)
+    {
+      thin();
+    }
+    if (blockStartsByKey.putIfAbsent(key, blockStartPosition) == null)
+    {
+      nbKeys.incrementAndGet();
+    }
+  }
+
+  /**
+   * Evicts every other key once the index is full. Since the keys are appended in order to the log file, the remaining
+   * keys are still spread over the whole log file.
+   */
+  private synchronized void thin()
+  {
+    if (nbKeys.get() < MAX_NB_KEYS)
+    {
+      // Another thread thinned the index
+      return;
+    }
+    boolean evict = false;
+    for (Iterator<K> it = blockStartsByKey.keySet().iterator(); it.hasNext();)
+    {
+      it.next();
+      if (evict)
+      {
+        it.remove();
+        nbKeys.decrementAndGet();
+      }
+      evict = !evict;
+    }
+  }
+
+  /** For unit testing. */
+  int getNbKeys()
+  {
+    return nbKeys.get();
+  }
+
+  /**
+   * Returns the position of a block start from which the record with the provided key is read.
+   *
+   * @param key
+   *          the key of the record
+   * @return the position of the block start, or {@code null} if the key is not indexed
+   */
+  Long getBlockStart(K key)
+  {
+    return blockStartsByKey.get(key);
+  }
+
+  /**
+   * Returns the position of the closest indexed block start from which a record with a lower key is read.
+   *
+   * @param key
+   *          the key of the record
+   * @return the position of the block start, or {@code null} if no lower key is indexed
+   */
+  Long getBlockStartOfLowerKey(K key)
+  {
+    return getValue(blockStartsByKey.lowerEntry(key));
+  }
+
+  /**
+   * Returns the position of the closest indexed block start from which a record with a higher key is read.
+   *
+   * @param key
+   *          the key of the record
+   * @return the position of the block start, or {@code null} if no higher key is indexed
+   */
+  Long getBlockStartOfHigherKey(K key)
+  {
+    return getValue(blockStartsByKey.higherEntry(key));
+  }
+
+  private static Long getValue(Map.Entry<?, Long> entry)
+  {
+    return entry != null ? entry.getValue() : null;
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "(nbKeys=" + nbKeys + ")";
+  }
+}
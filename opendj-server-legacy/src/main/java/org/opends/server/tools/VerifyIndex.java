@@ -45,6 +45,7 @@ import org.opends.server.util.BuildVersion;
 import com.forgerock.opendj.cli.ArgumentException;
 import com.forgerock.opendj.cli.ArgumentParser;
 import com.forgerock.opendj.cli.BooleanArgument;
+import com.forgerock.opendj.cli.IntegerArgument;
 import com.forgerock.opendj.cli.StringArgument;
 
 /**
@@ -92,6 +93,9 @@ public class VerifyIndex
     StringArgument  indexList               = null;
     BooleanArgument cleanMode               = null;
     BooleanArgument countErrors             = null;
+    IntegerArgument threadCount             = null;
+    IntegerArgument maxRecordsPerSecond     = null;
+    StringArgument  checkpointFile          = null;
     BooleanArgument displayUsage            = null;
 
 
@@ -137,6 +141,25 @@ public class VerifyIndex
               BooleanArgument.builder("countErrors")
                       .description(INFO_VERIFYINDEX_DESCRIPTION_COUNT_ERRORS.get())
                       .buildAndAddToParser(argParser);
+      threadCount =
+              IntegerArgument.builder("threadCount")
+                      .description(INFO_VERIFYINDEX_DESCRIPTION_THREAD_COUNT.get())
+                      .lowerBound(0)
+                      .defaultValue(0)
+                      .valuePlaceholder(INFO_LDIFIMPORT_THREAD_COUNT_PLACEHOLDER.get())
+                      .buildAndAddToParser(argParser);
+      maxRecordsPerSecond =
+              IntegerArgument.builder("maxRecordsPerSecond")
+                      .description(INFO_VERIFYINDEX_DESCRIPTION_MAX_RECORDS_PER_SECOND.get())
+                      .lowerBound(0)
+                      .defaultValue(0)
+                      .valuePlaceholder(INFO_VERIFYINDEX_RATE_PLACEHOLDER.get())
+                      .buildAndAddToParser(argParser);
+      checkpointFile =
+              StringArgument.builder("checkpointFile")
+                      .description(INFO_VERIFYINDEX_DESCRIPTION_CHECKPOINT_FILE.get())
+                      .valuePlaceholder(INFO_FILE_PLACEHOLDER.get())
+                      .buildAndAddToParser(argParser);
 
       displayUsage = showUsageArgument();
       argParser.addArgument(displayUsage);
@@ -253,6 +276,20 @@ public class VerifyIndex
     // Initialize the verify configuration.
     VerifyConfig verifyConfig = new VerifyConfig();
     verifyConfig.setBaseDN(verifyBaseDN);
+    try
+    {
+      verifyConfig.setThreadCount(threadCount.getIntValue());
+      verifyConfig.setMaxRecordsPerSecond(maxRecordsPerSecond.getIntValue());
+    }
+    catch (ArgumentException ae)
+    {
+      argParser.displayMessageAndUsageReference(err, ERR_ERROR_PARSING_ARGS.get(ae.getMessage()));
+      return 1;
+    }
+    if (checkpointFile.isPresent())
+    {
+      verifyConfig.setCheckpointFile(checkpointFile.getValue());
+    }
     if (cleanMode.isPresent())
     {
       for (String s : indexList.getValues())
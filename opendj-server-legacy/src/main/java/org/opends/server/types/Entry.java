@@ -3342,6 +3342,43 @@ public class Entry
   public static Entry decode(ByteSequenceReader entryBuffer,
                              CompressedSchema compressedSchema)
          throws DirectoryException
+  {
+    return decode(entryBuffer, compressedSchema, null);
+  }
+
+  /**
+   * Decodes the provided byte string as an entry, without decoding the
+   * values of its attributes. The values of each attribute are kept in
+   * their encoded form and only decoded when the attribute is first
+   * matched against an assertion or a value. This is much cheaper when
+   * only a few attributes of the entry are read.
+   *
+   * @param  encodedEntry      The byte string containing the data to be
+   *                           decoded. The decoded entry refers to it,
+   *                           hence it must not be modified afterwards.
+   * @param  compressedSchema  The compressed schema manager to use
+   *                           when decoding tokenized schema
+   *                           elements.
+   *
+   * @return  The decoded entry.
+   *
+   * @throws  DirectoryException  If the provided byte string cannot be
+   *                              decoded as an entry.
+   */
+  public static Entry decodeLazily(ByteString encodedEntry,
+                                   CompressedSchema compressedSchema)
+         throws DirectoryException
+  {
+    return decode(encodedEntry.asReader(), compressedSchema, encodedEntry);
+  }
+
+  /**
+   * Decodes an entry, lazily decoding the attribute values from the
+   * provided encoded entry if not null.
+   */
+  private static Entry decode(ByteSequenceReader entryBuffer,
+      CompressedSchema compressedSchema, ByteString encodedEntry)
+      throws DirectoryException
   {
     try
     {
@@ -3400,9 +3437,9 @@ public class Entry
       // Now, we should iterate through the user and operational attributes and
       // decode each one.
       Map<AttributeType, List<Attribute>> userAttributes =
-          decodeAttributes(version, entryBuffer, config);
+          decodeAttributes(version, entryBuffer, config, encodedEntry);
       Map<AttributeType, List<Attribute>> operationalAttributes =
-          decodeAttributes(version, entryBuffer, config);
+          decodeAttributes(version, entryBuffer, config, encodedEntry);
 
 
       // We've got everything that we need, so create and return the entry.
@@ -3523,6 +3560,10 @@ public class Entry
    *                     entry.
    * @param  config  The configuration that may be used to control how
    *                 the entry is encoded.
+   * @param  encodedEntry  The encoded entry read by entryBuffer, from
+   *                       which the attribute values are lazily
+   *                       decoded, or {@code null} for decoding them
+   *                       now.
    *
    * @return  A map of the decoded object classes.
    * @throws  DirectoryException  If a problem occurs while attempting
@@ -3530,7 +3571,8 @@ public class Entry
    */
   private static Map<AttributeType, List<Attribute>>
   decodeAttributes(Byte ver, ByteSequenceReader entryBuffer,
-                   EntryEncodeConfig config) throws DirectoryException
+                   EntryEncodeConfig config, ByteString encodedEntry)
+      throws DirectoryException
   {
     // Next is the total number of attributes.  It may be a
     // single byte or multiple bytes.
@@ -3549,7 +3591,22 @@ public class Entry
           entryBuffer.readBERLength();
         }
         // Decode the attribute.
-        Attribute a = config.getCompressedSchema().decodeAttribute(entryBuffer);
+        Attribute a;
+        if (encodedEntry != null)
+        {
+          AttributeDescription ad = config.getCompressedSchema().decodeAttributeDescription(entryBuffer);
+          // Same attribute description as the one built by CompressedSchema.decodeAttribute()
+          AttributeDescription attrDesc = AttributeDescription.create(ad.getAttributeType());
+          for (String option : ad.getOptions())
+          {
+            attrDesc = attrDesc.withOption(option);
+          }
+          a = readLazyAttribute(attrDesc, entryBuffer, encodedEntry);
+        }
+        else
+        {
+          a = config.getCompressedSchema().decodeAttribute(entryBuffer);
+        }
         AttributeType attrType = a.getAttributeDescription().getAttributeType();
         List<Attribute> attrList = attributes.get(attrType);
         if (attrList == null)
@@ -3575,21 +3632,29 @@ public class Entry
         String name = entryBuffer.readStringUtf8(endPos - startPos);
         entryBuffer.skip(1);
 
-        final AttributeBuilder builder = new AttributeBuilder(name);
+        Attribute a;
+        if (encodedEntry != null)
+        {
+          a = readLazyAttribute(AttributeDescription.valueOf(name), entryBuffer, encodedEntry);
+        }
+        else
+        {
+          final AttributeBuilder builder = new AttributeBuilder(name);
 
-        // Next, we have the number of values.
-        int numValues = entryBuffer.readBERLength();
+          // Next, we have the number of values.
+          int numValues = entryBuffer.readBERLength();
 
-        // Next, we have the sequence of length-value pairs.
-        for (int j=0; j < numValues; j++)
-        {
-          int valueLength = entryBuffer.readBERLength();
-          builder.add(entryBuffer.readByteSequence(valueLength).toByteString());
+          // Next, we have the sequence of length-value pairs.
+          for (int j=0; j < numValues; j++)
+          {
+            int valueLength = entryBuffer.readBERLength();
+            builder.add(entryBuffer.readByteSequence(valueLength).toByteString());
+          }
+          a = builder.toAttribute();
         }
 
 
-        // Create the attribute and add it to the set of attributes.
-        Attribute a = builder.toAttribute();
+        // Add the attribute to the set of attributes.
         AttributeType attributeType = a.getAttributeDescription().getAttributeType();
         List<Attribute> attrList = attributes.get(attributeType);
         if (attrList == null)
@@ -3604,6 +3669,30 @@ public class Entry
     return attributes;
   }
 
+  /**
+   * Reads the number of values and the values of an attribute, keeping
+   * the values in their encoded form.
+   *
+   * @param  attrDesc  The description of the attribute.
+   * @param  entryBuffer  The byte sequence containing the encoded entry,
+   *                      positioned on the number of values.
+   * @param  encodedEntry  The encoded entry read by entryBuffer.
+   *
+   * @return  The lazily decoded attribute.
+   */
+  private static Attribute readLazyAttribute(AttributeDescription attrDesc,
+      ByteSequenceReader entryBuffer, ByteString encodedEntry)
+  {
+    int numValues = entryBuffer.readBERLength();
+    int startPos = entryBuffer.position();
+    for (int j = 0; j < numValues; j++)
+    {
+      entryBuffer.skip(entryBuffer.readBERLength());
+    }
+    return new LazyAttribute(attrDesc, numValues,
+        encodedEntry.subSequence(startPos, entryBuffer.position()));
+  }
+
   /**
    * Retrieves a list of the lines for this entry in LDIF form.  Long
    * lines will not be wrapped automatically.
@@ -3679,6 +3768,34 @@ public class Entry
    */
   public boolean toLDIF(LDIFExportConfig exportConfig)
          throws IOException, LDIFException
+  {
+    return toLDIF(exportConfig, null);
+  }
+
+
+  /**
+   * Writes this entry in LDIF form to the provided writer according
+   * to the provided configuration. This allows formatting entries
+   * in parallel before writing them to the export writer.
+   *
+   * @param  exportConfig  The configuration that specifies how the
+   *                       entry should be written.
+   * @param  writer        The writer to which the entry should be
+   *                       written, or {@code null} for the writer of
+   *                       the export configuration.
+   *
+   * @return  {@code true} if the entry is actually written, or
+   *          {@code false} if it is not for some reason.
+   *
+   * @throws  IOException  If a problem occurs while writing the
+   *                       information.
+   *
+   * @throws  LDIFException  If a problem occurs while trying to
+   *                         determine whether to write the entry.
+   */
+  public boolean toLDIF(LDIFExportConfig exportConfig,
+                        BufferedWriter writer)
+         throws IOException, LDIFException
   {
     // See if this entry should be included in the export at all.
     try
@@ -3712,7 +3829,10 @@ public class Entry
 
 
     // Get the information necessary to write the LDIF.
-    BufferedWriter writer     = exportConfig.getWriter();
+    if (writer == null)
+    {
+      writer = exportConfig.getWriter();
+    }
     int            wrapColumn = exportConfig.getWrapColumn();
     boolean        wrapLines  = wrapColumn > 1;
 
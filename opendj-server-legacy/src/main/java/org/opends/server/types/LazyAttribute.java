@@ -0,0 +1,172 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.types;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.forgerock.opendj.ldap.AttributeDescription;
+import org.forgerock.opendj.ldap.ByteSequenceReader;
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ConditionResult;
+
+/**
+ * A real attribute decoded from the encoding of an entry whose values are kept in their encoded form.
+ * <p>
+ * Iterating over the values only reads them from the encoded form. The attribute is only fully decoded, which
+ * requires normalizing each value, when it is first matched against an assertion or a value. This makes decoding an
+ * entry cheap when only some of its attributes are read, for instance by a search filter or a list of requested
+ * attributes.
+ * <p>
+ * The encoded values are a sequence of BER lengths each followed by a value, as written by
+ * {@link Entry#encode(org.forgerock.opendj.ldap.ByteStringBuilder, EntryEncodeConfig)}. The encoded values are
+ * unique, so the number of values is known without decoding them.
+ */
+final class LazyAttribute extends AbstractAttribute
+{
+  private final AttributeDescription attributeDescription;
+  private final int nbValues;
+  private final ByteString encodedValues;
+  /** The fully decoded attribute, {@code null} until needed. */
+  private volatile Attribute attribute;
+
+  /**
+   * Creates a new lazily decoded attribute.
+   *
+   * @param attributeDescription
+   *          the attribute description
+   * @param nbValues
+   *          the number of encoded values
+   * @param encodedValues
+   *          the encoded values, which must not be modified afterwards
+   */
+  LazyAttribute(AttributeDescription attributeDescription, int nbValues, ByteString encodedValues)
+  {
+    this.attributeDescription = attributeDescription;
+    this.nbValues = nbValues;
+    this.encodedValues = encodedValues;
+  }
+
+  private Attribute decode()
+  {
+    Attribute a = attribute;
+    if (a == null)
+    {
+      final AttributeBuilder builder = new AttributeBuilder(attributeDescription);
+      for (ByteString value : this)
+      {
+        builder.add(value);
+      }
+      a = builder.toAttribute();
+      attribute = a;
+    }
+    return a;
+  }
+
+  @Override
+  public ConditionResult approximatelyEqualTo(ByteString assertionValue)
+  {
+    return decode().approximatelyEqualTo(assertionValue);
+  }
+
+  @Override
+  public boolean contains(ByteString value)
+  {
+    return decode().contains(value);
+  }
+
+  @Override
+  public ConditionResult matchesEqualityAssertion(ByteString assertionValue)
+  {
+    return decode().matchesEqualityAssertion(assertionValue);
+  }
+
+  @Override
+  public AttributeDescription getAttributeDescription()
+  {
+    return attributeDescription;
+  }
+
+  @Override
+  public ConditionResult greaterThanOrEqualTo(ByteString assertionValue)
+  {
+    return decode().greaterThanOrEqualTo(assertionValue);
+  }
+
+  @Override
+  public boolean isVirtual()
+  {
+    return false;
+  }
+
+  @Override
+  public Iterator<ByteString> iterator()
+  {
+    return new Iterator<ByteString>()
+    {
+      private final ByteSequenceReader reader = encodedValues.asReader();
+      private int remaining = nbValues;
+
+      @Override
+      public boolean hasNext()
+      {
+        return remaining > 0;
+      }
+
+      @Override
+      public ByteString next()
+      {
+        if (remaining == 0)
+        {
+          throw new NoSuchElementException();
+        }
+        remaining--;
+        return reader.readByteSequence(reader.readBERLength()).toByteString();
+      }
+
+      @Override
+      public void remove()
+      {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  @Override
+  public ConditionResult lessThanOrEqualTo(ByteString assertionValue)
+  {
+    return decode().lessThanOrEqualTo(assertionValue);
+  }
+
+  @Override
+  public ConditionResult matchesSubstring(ByteString subInitial, List<ByteString> subAny, ByteString subFinal)
+  {
+    return decode().matchesSubstring(subInitial, subAny, subFinal);
+  }
+
+  @Override
+  public int size()
+  {
+    return nbValues;
+  }
+
+  @Override
+  public void toString(StringBuilder buffer)
+  {
+    decode().toString(buffer);
+  }
+}
@@ -193,7 +193,7 @@ public class LocalBackendAddOperation
         @Override
         public void run()
         {
-          for (PersistentSearch psearch : backend.getPersistentSearches())
+          for (PersistentSearch psearch : backend.getPersistentSearchesToNotify(entry))
           {
             psearch.processAdd(entry);
           }
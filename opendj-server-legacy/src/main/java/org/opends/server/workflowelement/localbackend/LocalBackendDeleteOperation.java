@@ -166,7 +166,7 @@ public class LocalBackendDeleteOperation
         @Override
         public void run()
         {
-          for (PersistentSearch psearch : backend.getPersistentSearches())
+          for (PersistentSearch psearch : backend.getPersistentSearchesToNotify(entry))
           {
             psearch.processDelete(entry);
           }
@@ -206,7 +206,7 @@ public class LocalBackendModifyDNOperation
         @Override
         public void run()
         {
-          for (PersistentSearch psearch : backend.getPersistentSearches())
+          for (PersistentSearch psearch : backend.getPersistentSearchesToNotify(newEntry, currentEntry))
           {
             psearch.processModifyDN(newEntry, currentEntry.getName());
           }
@@ -300,7 +300,7 @@ public class LocalBackendModifyOperation
         @Override
         public void run()
         {
-          for (PersistentSearch psearch : backend.getPersistentSearches())
+          for (PersistentSearch psearch : backend.getPersistentSearchesToNotify(modifiedEntry, currentEntry))
           {
             psearch.processModify(modifiedEntry, currentEntry);
           }
@@ -0,0 +1,118 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.authorization.dseecompat;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.DN;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.types.DirectoryException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class AciSearchCacheTest extends DirectoryServerTestCase
+{
+  private static final DN BASE_DN = DN.valueOf("dc=example,dc=com");
+  private static final DN PEOPLE_DN = DN.valueOf("ou=people,dc=example,dc=com");
+  private static final DN USER_DN = DN.valueOf("uid=user.0,ou=people,dc=example,dc=com");
+
+  @BeforeClass
+  public void setUp() throws Exception
+  {
+    TestCaseUtils.startFakeServer();
+  }
+
+  @AfterClass
+  public void tearDown() throws DirectoryException
+  {
+    TestCaseUtils.shutdownFakeServer();
+  }
+
+  @Test
+  public void testTargetedAcis() throws Exception
+  {
+    final Aci globalAci = aci(DN.rootDN(), "global");
+    final Aci baseAci = aci(BASE_DN, "base");
+    final Aci childrenAci = aci(PEOPLE_DN, "(targetscope=\"onelevel\")", "children");
+    final Aci otherAci = aci(BASE_DN, "(target=\"ldap:///ou=groups,dc=example,dc=com\")", "other");
+    final AciList aciList = newAciList(globalAci, baseAci, childrenAci, otherAci);
+    final AciSearchCache cache = new AciSearchCache();
+
+    assertThat(cache.getTargetedAcis(aciList.getSnapshot(), USER_DN)).containsExactly(childrenAci, baseAci, globalAci);
+    assertThat(cache.getTargetedAcis(aciList.getSnapshot(), PEOPLE_DN)).containsExactly(baseAci, globalAci);
+    assertThat(cache.getTargetedAcis(aciList.getSnapshot(), DN.rootDN())).containsExactly(globalAci);
+    assertThat(aciList.getCandidateAcis(USER_DN)).containsExactly(childrenAci, otherAci, baseAci, globalAci);
+  }
+
+  @Test
+  public void testTargetedAcisAreMemoizedUntilAcisAreModified() throws Exception
+  {
+    final Aci baseAci = aci(BASE_DN, "base");
+    final AciList aciList = newAciList(baseAci);
+    final AciSearchCache cache = new AciSearchCache();
+
+    final AciList.Snapshot snapshot = aciList.getSnapshot();
+    assertThat(cache.getTargetedAcis(snapshot, USER_DN)).isSameAs(cache.getTargetedAcis(snapshot, USER_DN));
+
+    final Aci peopleAci = aci(PEOPLE_DN, "people");
+    aciList.addAci(PEOPLE_DN, new TreeSet<>(Collections.singleton(peopleAci)));
+    assertThat(aciList.getSnapshot()).isNotSameAs(snapshot);
+    assertThat(cache.getTargetedAcis(aciList.getSnapshot(), USER_DN)).containsExactly(peopleAci, baseAci);
+  }
+
+  private static AciList newAciList(Aci... acis)
+  {
+    final Map<DN, SortedSet<Aci>> acisByDN = new HashMap<>();
+    for (Aci aci : acis)
+    {
+      SortedSet<Aci> entryAcis = acisByDN.get(aci.getDN());
+      if (entryAcis == null)
+      {
+        entryAcis = new TreeSet<>();
+        acisByDN.put(aci.getDN(), entryAcis);
+      }
+      entryAcis.add(aci);
+    }
+
+    final AciList aciList = new AciList(DN.valueOf("cn=Access Control Handler,cn=config"));
+    for (Map.Entry<DN, SortedSet<Aci>> mapEntry : acisByDN.entrySet())
+    {
+      aciList.addAci(mapEntry.getKey(), mapEntry.getValue());
+    }
+    return aciList;
+  }
+
+  private static Aci aci(DN dn, String name) throws AciException
+  {
+    return aci(dn, "", name);
+  }
+
+  private static Aci aci(DN dn, String targets, String name) throws AciException
+  {
+    return Aci.decode(ByteString.valueOfUtf8(
+        targets + "(version 3.0; acl \"" + name + "\"; allow(read,search) userdn=\"ldap:///anyone\";)"), dn);
+  }
+}
@@ -0,0 +1,557 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.lsm;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.forgerock.opendj.config.ConfigurationMock.*;
+import static org.forgerock.opendj.ldap.ByteString.*;
+import static org.mockito.Mockito.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.server.config.server.LSMBackendCfg;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.backends.pluggable.spi.AccessMode;
+import org.opends.server.backends.pluggable.spi.Cursor;
+import org.opends.server.backends.pluggable.spi.Importer;
+import org.opends.server.backends.pluggable.spi.ReadOnlyStorageException;
+import org.opends.server.backends.pluggable.spi.ReadOperation;
+import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.SequentialCursor;
+import org.opends.server.backends.pluggable.spi.TreeName;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.opends.server.core.MemoryQuota;
+import org.opends.server.core.ServerContext;
+import org.opends.server.extensions.DiskSpaceMonitor;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential = true)
+public class LSMStorageTest extends DirectoryServerTestCase
+{
+  private static final int NB_RECORDS = 5000;
+  private final TreeName treeName = new TreeName("dc=test", "test");
+  private LSMBackendCfg backendCfg;
+  private ServerContext serverContext;
+  private LSMStorage storage;
+
+  @BeforeClass
+  public static void startServer() throws Exception
+  {
+    TestCaseUtils.startServer();
+  }
+
+  @BeforeMethod
+  public void setUp() throws Exception
+  {
+    serverContext = mock(ServerContext.class);
+    when(serverContext.getMemoryQuota()).thenReturn(new MemoryQuota());
+    when(serverContext.getDiskSpaceMonitor()).thenReturn(mock(DiskSpaceMonitor.class));
+    backendCfg = createBackendCfg();
+
+    storage = new LSMStorage(backendCfg, serverContext);
+    storage.removeStorageFiles();
+    storage.open(AccessMode.READ_WRITE);
+  }
+
+  @AfterMethod
+  public void tearDown()
+  {
+    storage.close();
+    storage.removeStorageFiles();
+  }
+
+  @Test
+  public void testReadWriteAndCursor() throws Exception
+  {
+    putRecords(0, NB_RECORDS);
+    deleteRecords(0, NB_RECORDS, 2);
+
+    assertThat(read(key(1))).isEqualTo(value(1));
+    assertThat(read(key(2))).isNull();
+    assertThat(readKeys()).hasSize(NB_RECORDS / 2).startsWith(key(1), key(3)).endsWith(key(NB_RECORDS - 1));
+    assertThat(storage.listTrees()).containsOnly(treeName);
+  }
+
+  @Test
+  public void testMultiRead() throws Exception
+  {
+    putRecords(0, 100);
+    deleteRecords(0, 100, 2);
+
+    storage.read(new ReadOperation<Void>()
+    {
+      @Override
+      public Void run(ReadableTransaction txn) throws Exception
+      {
+        assertThat(txn.multiRead(treeName, Arrays.asList(key(1), key(2), key(99), key(100))))
+            .containsExactly(value(1), null, value(99), null);
+        assertThat(txn.multiRead(new TreeName("dc=test", "missing"), Arrays.asList(key(1)))).containsExactly(
+            (ByteString) null);
+        return null;
+      }
+    });
+  }
+
+  @Test
+  public void testCursorPositioning() throws Exception
+  {
+    putRecords(0, 100);
+    deleteRecords(0, 100, 2);
+
+    storage.read(new ReadOperation<Void>()
+    {
+      @Override
+      public Void run(ReadableTransaction txn) throws Exception
+      {
+        try (Cursor<ByteString, ByteString> cursor = txn.openCursor(treeName))
+        {
+          assertThat(cursor.positionToKey(key(10))).isFalse();
+          assertThat(cursor.positionToKeyOrNext(key(10))).isTrue();
+          assertThat(cursor.getKey()).isEqualTo(key(11));
+          assertThat(cursor.next()).isTrue();
+          assertThat(cursor.getKey()).isEqualTo(key(13));
+          assertThat(cursor.positionToLastKey()).isTrue();
+          assertThat(cursor.getKey()).isEqualTo(key(99));
+          assertThat(cursor.next()).isFalse();
+          assertThat(cursor.positionToIndex(2)).isTrue();
+          assertThat(cursor.getKey()).isEqualTo(key(5));
+        }
+        return null;
+      }
+    });
+  }
+
+  @Test
+  public void testUncommittedWritesAreVisibleToTheirTransactionOnly() throws Exception
+  {
+    putRecords(0, 10);
+
+    try
+    {
+      storage.write(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          txn.put(treeName, key(10), value(10));
+          txn.delete(treeName, key(0));
+          assertThat(txn.read(treeName, key(10))).isEqualTo(value(10));
+          assertThat(txn.read(treeName, key(0))).isNull();
+          assertThat(txn.getRecordCount(treeName)).isEqualTo(10);
+          throw new IllegalStateException("rollback");
+        }
+      });
+      failBecauseExceptionWasNotThrown(IllegalStateException.class);
+    }
+    catch (IllegalStateException expected)
+    {
+      assertThat(expected).hasMessage("rollback");
+    }
+
+    assertThat(read(key(10))).isNull();
+    assertThat(read(key(0))).isEqualTo(value(0));
+  }
+
+  @Test
+  public void testRecordsAreRecoveredAfterAbruptShutdown() throws Exception
+  {
+    final LogStructuredStore.RecordFilter keepAll = new LogStructuredStore.RecordFilter()
+    {
+      @Override
+      public boolean isObsolete(ByteString key)
+      {
+        return false;
+      }
+    };
+    final File directory = Files.createTempDirectory("LSMStorageTest").toFile();
+    final File crashDirectory = Files.createTempDirectory("LSMStorageTest-crash").toFile();
+    final LogStructuredStore store = new LogStructuredStore(directory, 16 * 1024, 3, false, 1024 * 1024, keepAll);
+    try
+    {
+      store.open();
+      for (int i = 0; i < NB_RECORDS; i++)
+      {
+        final TreeMap<ByteString, ByteString> records = new TreeMap<>();
+        records.put(key(i), value(i));
+        records.put(key(i - 1), LogStructuredStore.TOMBSTONE);
+        store.commit(records);
+      }
+
+      // Copy the files of the running store, as they would be found after a crash
+      for (File file : store.suspendMaintenance())
+      {
+        Files.copy(file.toPath(), new File(crashDirectory, file.getName()).toPath());
+      }
+      store.resumeMaintenance();
+
+      final LogStructuredStore recovered =
+          new LogStructuredStore(crashDirectory, 16 * 1024, 3, false, 1024 * 1024, keepAll);
+      assertThat(recovered.open()).isGreaterThan(0);
+      try (LogStructuredStore.ReadView view = recovered.openView())
+      {
+        assertThat(view.get(key(NB_RECORDS - 1), null)).isEqualTo(value(NB_RECORDS - 1));
+        assertThat(view.get(key(NB_RECORDS - 2), null)).isNull();
+        assertThat(view.ceiling(key(0), true, null).getKey()).isEqualTo(key(NB_RECORDS - 1));
+      }
+      finally
+      {
+        recovered.close();
+      }
+    }
+    finally
+    {
+      store.close();
+      TestCaseUtils.deleteDirectory(directory);
+      TestCaseUtils.deleteDirectory(crashDirectory);
+    }
+  }
+
+  @Test
+  public void testReadTransactionsSeeWholeCommits() throws Exception
+  {
+    final int nbKeys = 20;
+    putSameValue(nbKeys, value(0));
+
+    final AtomicBoolean writesDone = new AtomicBoolean();
+    final ExecutorService readers = Executors.newFixedThreadPool(4);
+    try
+    {
+      final List<Future<Integer>> results = new ArrayList<>();
+      for (int i = 0; i < 4; i++)
+      {
+        results.add(readers.submit(new Callable<Integer>()
+        {
+          @Override
+          public Integer call() throws Exception
+          {
+            int nbReads = 0;
+            do
+            {
+              assertThat(readValues(nbKeys)).hasSize(1);
+              nbReads++;
+            }
+            while (!writesDone.get());
+            return nbReads;
+          }
+        }));
+      }
+
+      // The memtables are small, so the records are also read while memtables are flushed and segments merged
+      for (int i = 1; i <= NB_RECORDS / 2; i++)
+      {
+        putSameValue(nbKeys, value(i));
+      }
+      writesDone.set(true);
+      for (Future<Integer> result : results)
+      {
+        assertThat(result.get()).isPositive();
+      }
+    }
+    finally
+    {
+      writesDone.set(true);
+      readers.shutdownNow();
+    }
+    assertThat(readValues(nbKeys)).containsOnly(value(NB_RECORDS / 2));
+  }
+
+  @Test
+  public void testReadOnlySnapshot() throws Exception
+  {
+    putRecords(0, NB_RECORDS);
+
+    final LSMStorage readOnly = new LSMStorage(backendCfg, serverContext);
+    readOnly.open(AccessMode.READ_ONLY);
+    try
+    {
+      assertThat(readKeys(readOnly)).isEqualTo(readKeys());
+
+      // The snapshot only contains the records committed when it was opened
+      putRecords(NB_RECORDS, NB_RECORDS + 10);
+      assertThat(readKeys(readOnly)).hasSize(NB_RECORDS);
+
+      try
+      {
+        readOnly.write(new WriteOperation()
+        {
+          @Override
+          public void run(WriteableTransaction txn) throws Exception
+          {
+            txn.put(treeName, key(0), value(0));
+          }
+        });
+        failBecauseExceptionWasNotThrown(ReadOnlyStorageException.class);
+      }
+      catch (ReadOnlyStorageException expected)
+      {
+        // Nothing to do
+      }
+    }
+    finally
+    {
+      readOnly.close();
+    }
+  }
+
+  @Test
+  public void testRecordsArePersistedOnClose() throws Exception
+  {
+    putRecords(0, NB_RECORDS);
+    final List<ByteString> expectedKeys = readKeys();
+
+    storage.close();
+    storage = new LSMStorage(backendCfg, serverContext);
+    storage.open(AccessMode.READ_WRITE);
+
+    assertThat(readKeys()).isEqualTo(expectedKeys);
+  }
+
+  @Test
+  public void testDeletedTreeIsEmptyOnceRecreated() throws Exception
+  {
+    putRecords(0, NB_RECORDS);
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        txn.deleteTree(treeName);
+      }
+    });
+    assertThat(storage.listTrees()).isEmpty();
+    assertThat(read(key(1))).isNull();
+
+    putRecords(NB_RECORDS, NB_RECORDS + 10);
+    assertThat(readKeys()).hasSize(10).startsWith(key(NB_RECORDS));
+  }
+
+  @Test
+  public void testImport() throws Exception
+  {
+    storage.close();
+    storage = new LSMStorage(backendCfg, serverContext);
+    final Importer importer = storage.startImport();
+    importer.clearTree(treeName);
+    for (int i = 0; i < NB_RECORDS; i++)
+    {
+      importer.put(treeName, key(i), value(i));
+    }
+    assertThat(importer.read(treeName, key(1))).isEqualTo(value(1));
+    try (SequentialCursor<ByteString, ByteString> cursor = importer.openCursor(treeName))
+    {
+      int count = 0;
+      while (cursor.next())
+      {
+        count++;
+      }
+      assertThat(count).isEqualTo(NB_RECORDS);
+    }
+    importer.close();
+
+    storage = new LSMStorage(backendCfg, serverContext);
+    storage.open(AccessMode.READ_WRITE);
+    assertThat(readKeys()).hasSize(NB_RECORDS);
+  }
+
+  @Test
+  public void testImportIntoExistingTrees() throws Exception
+  {
+    putRecords(0, 100);
+    storage.close();
+
+    storage = new LSMStorage(backendCfg, serverContext);
+    final Importer importer = storage.startImport();
+    importer.clearTree(treeName);
+    for (int i = 100; i < 110; i++)
+    {
+      importer.put(treeName, key(i), value(i));
+    }
+    assertThat(importer.read(treeName, key(1))).isNull();
+    assertThat(importer.read(treeName, key(100))).isEqualTo(value(100));
+    importer.close();
+
+    storage = new LSMStorage(backendCfg, serverContext);
+    storage.open(AccessMode.READ_WRITE);
+    assertThat(storage.listTrees()).containsOnly(treeName);
+    assertThat(readKeys()).hasSize(10).startsWith(key(100)).endsWith(key(109));
+  }
+
+  /** Writes the same value to all the keys in a single transaction. */
+  private void putSameValue(final int nbKeys, final ByteString value) throws Exception
+  {
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        txn.openTree(treeName, true);
+        for (int i = 0; i < nbKeys; i++)
+        {
+          txn.put(treeName, key(i), value);
+        }
+      }
+    });
+  }
+
+  /** Reads the values of all the keys, one by one then with a cursor, and returns the distinct values read. */
+  private Set<ByteString> readValues(final int nbKeys) throws Exception
+  {
+    return storage.read(new ReadOperation<Set<ByteString>>()
+    {
+      @Override
+      public Set<ByteString> run(ReadableTransaction txn) throws Exception
+      {
+        final Set<ByteString> values = new HashSet<>();
+        for (int i = 0; i < nbKeys; i++)
+        {
+          values.add(txn.read(treeName, key(i)));
+        }
+        try (Cursor<ByteString, ByteString> cursor = txn.openCursor(treeName))
+        {
+          int nbRecords = 0;
+          while (cursor.next())
+          {
+            values.add(cursor.getValue());
+            nbRecords++;
+          }
+          assertThat(nbRecords).isEqualTo(nbKeys);
+        }
+        return values;
+      }
+    });
+  }
+
+  /** Overwrites the records of the keys from 0, with one commit per record. */
+  private void putRecords(final int from, final int to) throws Exception
+  {
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        txn.openTree(treeName, true);
+      }
+    });
+    for (int i = from; i < to; i++)
+    {
+      final int index = i;
+      storage.write(new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          txn.put(treeName, key(index), value(index));
+        }
+      });
+    }
+  }
+
+  private void deleteRecords(final int from, final int to, final int step) throws Exception
+  {
+    storage.write(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        for (int i = from; i < to; i += step)
+        {
+          assertThat(txn.delete(treeName, key(i))).isTrue();
+        }
+      }
+    });
+  }
+
+  private ByteString read(final ByteString key) throws Exception
+  {
+    return storage.read(new ReadOperation<ByteString>()
+    {
+      @Override
+      public ByteString run(ReadableTransaction txn) throws Exception
+      {
+        return txn.read(treeName, key);
+      }
+    });
+  }
+
+  private List<ByteString> readKeys() throws Exception
+  {
+    return readKeys(storage);
+  }
+
+  private List<ByteString> readKeys(LSMStorage storage) throws Exception
+  {
+    return storage.read(new ReadOperation<List<ByteString>>()
+    {
+      @Override
+      public List<ByteString> run(ReadableTransaction txn) throws Exception
+      {
+        final List<ByteString> keys = new ArrayList<>();
+        try (Cursor<ByteString, ByteString> cursor = txn.openCursor(treeName))
+        {
+          while (cursor.next())
+          {
+            keys.add(cursor.getKey());
+          }
+        }
+        return keys;
+      }
+    });
+  }
+
+  private static ByteString key(int i)
+  {
+    return valueOfUtf8(String.format("key%08d", i));
+  }
+
+  private static ByteString value(int i)
+  {
+    return valueOfUtf8("value" + i);
+  }
+
+  private LSMBackendCfg createBackendCfg()
+  {
+    LSMBackendCfg backendCfg = mockCfg(LSMBackendCfg.class);
+    when(backendCfg.getBackendId()).thenReturn("LSMStorageTest");
+    when(backendCfg.getDBDirectory()).thenReturn("LSMStorageTest");
+    when(backendCfg.getDBDirectoryPermissions()).thenReturn("755");
+    when(backendCfg.getDBCacheSize()).thenReturn(0L);
+    when(backendCfg.getDBCachePercent()).thenReturn(20);
+    when(backendCfg.isDBTxnNoSync()).thenReturn(true);
+    // Small memtables, so that records are flushed to segments then merged
+    when(backendCfg.getDBMemtableSize()).thenReturn(16L * 1024);
+    when(backendCfg.getDBCompactionSegmentCount()).thenReturn(3);
+    return backendCfg;
+  }
+}
@@ -42,6 +42,7 @@ import org.forgerock.opendj.server.config.meta.BackendVLVIndexCfgDefn.Scope;
 import org.forgerock.opendj.server.config.server.BackendVLVIndexCfg;
 import org.forgerock.opendj.server.config.server.PDBBackendCfg;
 import org.opends.server.backends.pdb.PDBBackend;
+import org.opends.server.controls.PagedResultsControl;
 import org.opends.server.controls.ServerSideSortRequestControl;
 import org.opends.server.controls.ServerSideSortResponseControl;
 import org.opends.server.controls.VLVRequestControl;
@@ -409,6 +410,69 @@ public class ControlsTestCase extends DirectoryServerTestCase
     assertThat(sortResponse.getResultCode()).isEqualTo(LDAPResultCode.SUCCESS);
   }
 
+  @Test
+  public void serverSideSortControlShouldNotSortUnboundedUnindexedSearch() throws Exception
+  {
+    final SearchRequest request =
+        newSearchRequest(BACKEND_BASE_DN, SearchScope.WHOLE_SUBTREE, VLV_FILTER)
+        .addControl(new ServerSideSortRequestControl(mangleSortOrder(SORT_ORDER_3)));
+    final InternalSearchOperation internalSearch = getRootConnection().processSearch(request);
+
+    assertThat(internalSearch.getResultCode()).isEqualTo(ResultCode.SUCCESS);
+    assertThat(internalSearch.getSearchEntries()).hasSize(CONTENT_COUNT);
+    final ServerSideSortResponseControl sortResponse =
+        getServerSideSortResponseControl(internalSearch.getResponseControls());
+    assertThat(sortResponse.getResultCode()).isEqualTo(LDAPResultCode.UNWILLING_TO_PERFORM);
+  }
+
+  @Test
+  public void criticalServerSideSortControlShouldRejectUnboundedUnindexedSearch() throws Exception
+  {
+    final SearchRequest request =
+        newSearchRequest(BACKEND_BASE_DN, SearchScope.WHOLE_SUBTREE, VLV_FILTER)
+        .addControl(new ServerSideSortRequestControl(true, mangleSortOrder(SORT_ORDER_3)));
+    final InternalSearchOperation internalSearch = getRootConnection().processSearch(request);
+
+    assertThat(internalSearch.getResultCode()).isEqualTo(ResultCode.UNAVAILABLE_CRITICAL_EXTENSION);
+    assertThat(internalSearch.getSearchEntries()).isEmpty();
+  }
+
+  @Test
+  public void serverSideSortControlShouldHonorSizeLimit() throws Exception
+  {
+    final SearchRequest request =
+        newSearchRequest(BACKEND_BASE_DN, SearchScope.WHOLE_SUBTREE, VLV_FILTER)
+        .setSizeLimit(3)
+        .addControl(new ServerSideSortRequestControl(mangleSortOrder(SORT_ORDER_3)));
+    final InternalSearchOperation internalSearch = getRootConnection().processSearch(request);
+
+    assertThat(internalSearch.getResultCode()).isEqualTo(ResultCode.SIZE_LIMIT_EXCEEDED);
+    assertThat(getDNs(internalSearch.getSearchEntries())).isEqualTo(getDNs(USERS_BY_SORT_ORDER_3.subList(0, 3)));
+  }
+
+  @Test
+  public void serverSideSortControlShouldReturnSortedPages() throws Exception
+  {
+    final List<DN> dns = new ArrayList<>();
+    ByteString cookie = ByteString.empty();
+    do
+    {
+      final SearchRequest request =
+          newSearchRequest(BACKEND_BASE_DN, SearchScope.WHOLE_SUBTREE, VLV_FILTER)
+          .addControl(new ServerSideSortRequestControl(mangleSortOrder(SORT_ORDER_3)))
+          .addControl(new PagedResultsControl(true, 4, cookie));
+      final InternalSearchOperation internalSearch = getRootConnection().processSearch(request);
+
+      assertThat(internalSearch.getResultCode()).isEqualTo(ResultCode.SUCCESS);
+      assertThat(internalSearch.getSearchEntries().size()).isLessThanOrEqualTo(4);
+      dns.addAll(getDNs(internalSearch.getSearchEntries()));
+      cookie = getPagedResultsControl(internalSearch.getResponseControls()).getCookie();
+    }
+    while (cookie.length() != 0);
+
+    assertThat(dns).isEqualTo(getDNs(USERS_BY_SORT_ORDER_3));
+  }
+
   @DataProvider
   private Object[][] unindexedVlvByAssertionDataProvider()
   {
@@ -657,6 +721,23 @@ public class ControlsTestCase extends DirectoryServerTestCase
     return null;
   }
 
+  private PagedResultsControl getPagedResultsControl(final List<Control> responseControls) throws DirectoryException
+  {
+    for (final Control c : responseControls)
+    {
+      if (c.getOID().equals(OID_PAGED_RESULTS_CONTROL))
+      {
+        if (c instanceof LDAPControl)
+        {
+          return PagedResultsControl.DECODER.decode(c.isCritical(), ((LDAPControl) c).getValue());
+        }
+        return (PagedResultsControl) c;
+      }
+    }
+    fail("Expected to find PagedResultsControl");
+    return null;
+  }
+
   private VLVResponseControl getVLVResponseControl(final Control c) throws DirectoryException
   {
     if (c instanceof LDAPControl)
@@ -23,9 +23,12 @@ import static org.opends.server.backends.pluggable.EntryIDSet.*;
 import static org.opends.server.backends.pluggable.State.IndexFlag.*;
 import static org.opends.server.backends.pluggable.Utils.assertIdsEquals;
 
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
@@ -33,13 +36,17 @@ import java.util.TreeMap;
 
 import org.forgerock.opendj.ldap.ByteSequence;
 import org.forgerock.opendj.ldap.ByteString;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.opends.server.DirectoryServerTestCase;
 import org.opends.server.backends.pluggable.State.IndexFlag;
 import org.opends.server.backends.pluggable.spi.Cursor;
 import org.opends.server.backends.pluggable.spi.ReadableTransaction;
+import org.opends.server.backends.pluggable.spi.Storage;
 import org.opends.server.backends.pluggable.spi.StorageRuntimeException;
 import org.opends.server.backends.pluggable.spi.TreeName;
 import org.opends.server.backends.pluggable.spi.UpdateFunction;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
 import org.opends.server.backends.pluggable.spi.WriteableTransaction;
 import org.opends.server.crypto.CryptoSuite;
 import org.testng.annotations.BeforeMethod;
@@ -50,7 +57,7 @@ import org.testng.annotations.Test;
 public class DefaultIndexTest extends DirectoryServerTestCase
 {
   private DefaultIndex index;
-  private WriteableTransaction txn;
+  private DummyWriteableTransaction txn;
 
   @BeforeMethod
   public void setUp() {
@@ -98,6 +105,192 @@ public class DefaultIndexTest extends DirectoryServerTestCase
     assertThat(txn.read(index.getName(), valueOfUtf8("key"))).isNull();
   }
 
+  @Test
+  public void testStatisticsAreMaintained() {
+    update(newDefinedSet(), newDefinedSet(1, 2, 3, 4));
+    index.update(txn, valueOfUtf8("key2"), newDefinedSet(), newDefinedSet(5, 6));
+
+    assertThat(index.getEntryIDCount()).isEqualTo(6);
+    assertThat(index.getAverageEntryIDCountPerKey()).isEqualTo(3);
+
+    update(newDefinedSet(1, 2, 3, 4), newDefinedSet());
+
+    assertThat(index.getEntryIDCount()).isEqualTo(2);
+    assertThat(index.getAverageEntryIDCountPerKey()).isEqualTo(2);
+  }
+
+  @Test
+  public void testStatisticsOnlyCountCommittedTransactions() throws Exception {
+    final Storage storage = mock(Storage.class);
+    doAnswer(new Answer<Void>()
+    {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable
+      {
+        // The first attempt is rolled back and retried by the storage
+        final Map<TreeName, TreeMap<ByteString, ByteString>> committed = txn.copyStorage();
+        ((WriteOperation) invocation.getArguments()[0]).run(txn);
+        txn.restoreStorage(committed);
+        ((WriteOperation) invocation.getArguments()[0]).run(txn);
+        return null;
+      }
+    }).when(storage).write(any(WriteOperation.class));
+
+    DefaultIndex.write(storage, new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        update(newDefinedSet(), newDefinedSet(1, 2, 3, 4));
+      }
+    });
+
+    assertThat(index.getEntryIDCount()).isEqualTo(4);
+    assertThat(index.getAverageEntryIDCountPerKey()).isEqualTo(4);
+
+    doAnswer(new Answer<Void>()
+    {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable
+      {
+        final Map<TreeName, TreeMap<ByteString, ByteString>> committed = txn.copyStorage();
+        ((WriteOperation) invocation.getArguments()[0]).run(txn);
+        txn.restoreStorage(committed);
+        throw new StorageRuntimeException("rolled back");
+      }
+    }).when(storage).write(any(WriteOperation.class));
+    try
+    {
+      DefaultIndex.write(storage, new WriteOperation()
+      {
+        @Override
+        public void run(WriteableTransaction txn) throws Exception
+        {
+          update(newDefinedSet(1, 2, 3, 4), newDefinedSet());
+        }
+      });
+      failBecauseExceptionWasNotThrown(StorageRuntimeException.class);
+    }
+    catch (StorageRuntimeException expected)
+    {
+      assertThat(index.getEntryIDCount()).isEqualTo(4);
+    }
+  }
+
+  @Test
+  public void testStatisticsIgnoreUndefinedKeys() {
+    update(newDefinedSet(), newDefinedSet(1, 2));
+    index.update(txn, valueOfUtf8("key2"), newDefinedSet(), newDefinedSet(1, 2, 3));
+    update(newDefinedSet(), newDefinedSet(3, 4, 5, 6));
+
+    assertThat(get().isDefined()).isFalse();
+    assertThat(index.getEntryIDCount()).isEqualTo(3);
+    assertThat(index.getAverageEntryIDCountPerKey()).isEqualTo(3);
+  }
+
+  @Test
+  public void testLargeKeyIsUpdatedWithDeltas() {
+    index = newIndex("large", 0, EnumSet.of(TRUSTED, COMPACTED));
+    index.open(txn, true);
+    final long[] ids = newLargeIDs();
+    put(newDefinedSet(ids));
+    update(newDefinedSet(), newDefinedSet(1));
+
+    final ByteString largeValue = getFromDb();
+    update(newDefinedSet(ids[0]), newDefinedSet(2));
+    update(newDefinedSet(2), newDefinedSet(3));
+
+    assertThat(getFromDb()).isEqualTo(largeValue);
+    assertThat(txn.getRecordCount(getDeltasTreeName())).isEqualTo(2);
+    final EntryIDSet entryIDSet = index.get(txn, valueOfUtf8("key"));
+    assertThat(entryIDSet.size()).isEqualTo(ids.length + 1);
+    assertThat(entryIDSet.contains(new EntryID(3))).isTrue();
+    assertThat(entryIDSet.contains(new EntryID(ids[0]))).isFalse();
+
+    index.mergeDeltas(txn, valueOfUtf8("key"));
+
+    assertThat(txn.getRecordCount(getDeltasTreeName())).isEqualTo(0);
+    assertThat(get().size()).isEqualTo(ids.length + 1);
+    assertThat(index.get(txn, valueOfUtf8("key")).size()).isEqualTo(ids.length + 1);
+  }
+
+  @Test
+  public void testDeltasEnforceIndexEntryLimit() {
+    final long[] ids = newLargeIDs();
+    index = newIndex("large", ids.length + 2, EnumSet.of(TRUSTED, COMPACTED));
+    index.open(txn, true);
+    put(newDefinedSet(ids));
+    update(newDefinedSet(), newDefinedSet(1));
+    update(newDefinedSet(), newDefinedSet(2, 3));
+
+    assertThat(index.get(txn, valueOfUtf8("key")).isDefined()).isFalse();
+
+    index.mergeDeltas(txn, valueOfUtf8("key"));
+
+    assertThat(txn.getRecordCount(getDeltasTreeName())).isEqualTo(0);
+    assertThat(get().isDefined()).isFalse();
+  }
+
+  @Test
+  public void testCursorReturnsKeysReAddedAfterMergeRemovedThem() {
+    index = newIndex("large", 0, EnumSet.of(TRUSTED, COMPACTED));
+    index.open(txn, true);
+    final long[] ids = newLargeIDs();
+    put(newDefinedSet(ids));
+    index.update(txn, valueOfUtf8("a"), newDefinedSet(), newDefinedSet(1));
+    index.update(txn, valueOfUtf8("z"), newDefinedSet(), newDefinedSet(2));
+    update(newDefinedSet(), newDefinedSet(3));
+    update(newDefinedSet(ids), newDefinedSet());
+    update(newDefinedSet(3), newDefinedSet());
+    index.mergeDeltas(txn, valueOfUtf8("key"));
+
+    assertThat(getFromDb()).isNull();
+    assertThat(index.get(txn, valueOfUtf8("key")).size()).isEqualTo(0);
+    assertThat(readCursor().keySet()).containsExactly(valueOfUtf8("a"), valueOfUtf8("z"));
+
+    update(newDefinedSet(), newDefinedSet(4, 5));
+
+    assertThat(getFromDb()).isNull();
+    assertIdsEquals(index.get(txn, valueOfUtf8("key")), 4, 5);
+    final Map<ByteString, EntryIDSet> records = readCursor();
+    assertThat(records.keySet()).containsExactly(valueOfUtf8("a"), valueOfUtf8("key"), valueOfUtf8("z"));
+    assertIdsEquals(records.get(valueOfUtf8("key")), 4, 5);
+    try (Cursor<ByteString, EntryIDSet> cursor = index.openCursor(txn)) {
+      assertThat(cursor.positionToKeyOrNext(valueOfUtf8("b"))).isTrue();
+      assertThat(cursor.getKey()).isEqualTo(valueOfUtf8("key"));
+      assertThat(cursor.next()).isTrue();
+      assertThat(cursor.getKey()).isEqualTo(valueOfUtf8("z"));
+      assertThat(cursor.next()).isFalse();
+    }
+
+    index.mergeDeltas(txn, valueOfUtf8("key"));
+
+    assertIdsEquals(get(), 4, 5);
+    assertThat(readCursor().keySet()).containsExactly(valueOfUtf8("a"), valueOfUtf8("key"), valueOfUtf8("z"));
+  }
+
+  private Map<ByteString, EntryIDSet> readCursor() {
+    final Map<ByteString, EntryIDSet> records = new LinkedHashMap<>();
+    try (Cursor<ByteString, EntryIDSet> cursor = index.openCursor(txn)) {
+      while (cursor.next()) {
+        records.put(cursor.getKey(), cursor.getValue());
+      }
+    }
+    return records;
+  }
+
+  private static long[] newLargeIDs() {
+    final long[] ids = new long[DefaultIndex.DELTA_THRESHOLD];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = 1000 + i * 1000;
+    }
+    return ids;
+  }
+
+  private TreeName getDeltasTreeName() {
+    return new TreeName(index.getName().getBaseDN(), "deltas." + index.getName().getIndexId());
+  }
+
   private void update(EntryIDSet deletedIDSet, EntryIDSet addedIDSet) {
     index.update(txn, valueOfUtf8("key"), deletedIDSet, addedIDSet);
   }
@@ -129,12 +322,39 @@ public class DefaultIndexTest extends DirectoryServerTestCase
 
     private final Map<TreeName, TreeMap<ByteString, ByteString>> storage = new HashMap<>();
 
+    Map<TreeName, TreeMap<ByteString, ByteString>> copyStorage()
+    {
+      final Map<TreeName, TreeMap<ByteString, ByteString>> copy = new HashMap<>();
+      for (Entry<TreeName, TreeMap<ByteString, ByteString>> tree : storage.entrySet())
+      {
+        copy.put(tree.getKey(), new TreeMap<>(tree.getValue()));
+      }
+      return copy;
+    }
+
+    void restoreStorage(Map<TreeName, TreeMap<ByteString, ByteString>> copy)
+    {
+      storage.clear();
+      storage.putAll(copy);
+    }
+
     @Override
     public ByteString read(TreeName treeName, ByteSequence key)
     {
       return getTree(treeName).get(key);
     }
 
+    @Override
+    public List<ByteString> multiRead(TreeName treeName, List<? extends ByteSequence> keys)
+    {
+      final List<ByteString> values = new ArrayList<>(keys.size());
+      for (ByteSequence key : keys)
+      {
+        values.add(read(treeName, key));
+      }
+      return values;
+    }
+
     private TreeMap<ByteString, ByteString> getTree(TreeName treeName) {
       final TreeMap<ByteString, ByteString> tree = storage.get(treeName);
       if ( tree == null ) {
@@ -210,7 +430,7 @@ public class DefaultIndexTest extends DirectoryServerTestCase
 
           it = tree.tailMap(key.toByteString()).entrySet().iterator();
           if( it.hasNext() ) {
-            it.next();
+            current = it.next();
             return true;
           }
           return false;
@@ -290,9 +290,144 @@ public class EntryIDSetTest extends DirectoryServerTestCase
     assertIdsEquals(retained, 1, 3, 5, 7, 9);
   }
 
+  @Test
+  public void testBitmapCodecEncodesLargeSetsAsBitmap()
+  {
+    final long[] ids = range(1, 20000, 3);
+    final ByteString encoded = CODEC_V4.encode(newDefinedSet(ids));
+    assertThat(encoded.byteAt(0)).isEqualTo((byte) 0xFE);
+    assertThat(encoded.length()).isLessThan(CODEC_V2.encode(newDefinedSet(ids)).length());
+    assertIdsEquals(CODEC_V4.decode(KEY, encoded), ids);
+  }
+
+  @Test
+  public void testBitmapCodecEncodesSetsBelowDefaultIndexEntryLimit()
+  {
+    final long[] ids = range(1, 2000, 1);
+    assertThat(CODEC_V4.encode(newDefinedSet(ids)).byteAt(0)).isEqualTo((byte) 0xFE);
+    assertThat(CODEC_V4.encode(newDefinedSet(1, 2, 3)).byteAt(0)).isNotEqualTo((byte) 0xFE);
+  }
+
+  @Test
+  public void testBitmapCodecDecodesCompactedValues()
+  {
+    final long[] ids = range(100000, 110000, 1);
+    assertIdsEquals(CODEC_V4.decode(KEY, CODEC_V2.encode(newDefinedSet(ids))), ids);
+    assertIdsEquals(CODEC_V4.decode(KEY, CODEC_V2.encode(newDefinedSet(4, 6, 8))), 4, 6, 8);
+  }
+
+  @Test
+  public void testBitmapSetAddRemove()
+  {
+    final EntryIDSet set = newBitmapSet(range(1, 10000, 2));
+    assertThat(set.add(id(2))).isTrue();
+    assertThat(set.add(id(3))).isFalse();
+    assertThat(set.remove(id(5))).isTrue();
+    assertThat(set.remove(id(5))).isFalse();
+    assertThat(set.contains(id(2))).isTrue();
+    assertThat(set.contains(id(5))).isFalse();
+    assertThat(set.size()).isEqualTo(5000);
+  }
+
+  @Test
+  public void testBitmapSetRetainAll()
+  {
+    EntryIDSet retained = newBitmapSet(range(1, 100000, 2));
+    retained.retainAll(newDefinedSet(2, 3, 4, 99999, 100001));
+    assertIdsEquals(retained, 3, 99999);
+
+    retained = newDefinedSet(2, 3, 4, 99999, 100001);
+    retained.retainAll(newBitmapSet(range(1, 100000, 2)));
+    assertIdsEquals(retained, 3, 99999);
+
+    retained = newBitmapSet(range(1, 100000, 2));
+    retained.retainAll(newBitmapSet(range(0, 100000, 3)));
+    assertIdsEquals(retained, range(3, 100000, 6));
+
+    retained = newUndefinedSet();
+    retained.retainAll(newBitmapSet(range(0, 10000, 1)));
+    assertIdsEquals(retained, range(0, 10000, 1));
+  }
+
+  @Test
+  public void testBitmapSetAddAllAndRemoveAll()
+  {
+    final EntryIDSet set = newDefinedSet(1, 200000);
+    set.addAll(newBitmapSet(range(0, 100000, 2)));
+    assertThat(set.size()).isEqualTo(50002);
+    assertThat(set.contains(id(1))).isTrue();
+    assertThat(set.contains(id(200000))).isTrue();
+
+    set.removeAll(newBitmapSet(range(0, 100000, 4)));
+    set.removeAll(newDefinedSet(1, 200000));
+    assertIdsEquals(set, range(2, 100000, 4));
+  }
+
+  @Test
+  public void testBitmapSetUnion()
+  {
+    final EntryIDSet union = newSetFromUnion(
+        Arrays.asList(newBitmapSet(range(0, 10000, 2)), newDefinedSet(1, 3), newBitmapSet(range(5, 10000, 2))));
+    assertIdsEquals(union, range(0, 10000, 1));
+  }
+
+  @Test
+  public void testIteratorFromEntryID()
+  {
+    final EntryIDSet set = newDefinedSet(2, 4, 6, 8);
+    assertThat(set.iterator(id(4))).containsExactly(ids(4, 6, 8));
+    assertThat(set.iterator(id(5))).containsExactly(ids(6, 8));
+    assertThat(set.iterator(id(1))).containsExactly(ids(2, 4, 6, 8));
+    assertThat(set.iterator(id(9)).hasNext()).isFalse();
+    assertThat(newUndefinedSet().iterator(id(1)).hasNext()).isFalse();
+  }
+
+  @Test
+  public void testBitmapSetIteratorFromEntryID()
+  {
+    final EntryIDSet dense = newBitmapSet(range(0, 200000, 3));
+    assertThat(dense.iterator(id(65536))).containsExactly(ids(range(65538, 200000, 3)));
+
+    final EntryIDSet sparse = newBitmapSet(range(0, 500000, 100));
+    assertThat(sparse.iterator(id(65537))).containsExactly(ids(range(65600, 500000, 100)));
+    assertThat(sparse.iterator(id(600000)).hasNext()).isFalse();
+
+    final EntryIDSet withGap = newBitmapSet(range(0, 5000, 1));
+    withGap.add(id(300000));
+    assertThat(withGap.iterator(id(4999))).containsExactly(ids(4999, 300000));
+    assertThat(withGap.iterator(id(100000))).containsExactly(ids(300000));
+  }
+
+  private static EntryID[] ids(long... ids)
+  {
+    final EntryID[] entryIDs = new EntryID[ids.length];
+    for (int i = 0; i < ids.length; i++)
+    {
+      entryIDs[i] = id(ids[i]);
+    }
+    return entryIDs;
+  }
+
+  private static EntryIDSet newBitmapSet(long... ids)
+  {
+    final ByteString encoded = CODEC_V4.encode(newDefinedSet(ids));
+    assertThat(encoded.byteAt(0)).isEqualTo((byte) 0xFE);
+    return CODEC_V4.decode(KEY, encoded);
+  }
+
+  private static long[] range(long from, long to, int step)
+  {
+    final long[] ids = new long[(int) ((to - from + step - 1) / step)];
+    for (int i = 0; i < ids.length; i++)
+    {
+      ids[i] = from + i * step;
+    }
+    return ids;
+  }
+
   @DataProvider(name = "codecs")
   public static Object[][] codecs() {
-     return new Object[][] { { CODEC_V1 }, { CODEC_V2 } };
+     return new Object[][] { { CODEC_V1 }, { CODEC_V2 }, { CODEC_V4 } };
   }
 
 }
@@ -0,0 +1,189 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.backends.pluggable.spi.Storage;
+import org.opends.server.backends.pluggable.spi.WriteOperation;
+import org.opends.server.backends.pluggable.spi.WriteableTransaction;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential = true)
+public class GroupCommitWriterTest extends DirectoryServerTestCase
+{
+  private final AtomicInteger nbTransactions = new AtomicInteger();
+  private GroupCommitWriter writer;
+
+  @BeforeMethod
+  public void setUp() throws Exception
+  {
+    final Storage storage = mock(Storage.class);
+    final WriteableTransaction txn = mock(WriteableTransaction.class);
+    doAnswer(new Answer<Void>()
+    {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable
+      {
+        synchronized (nbTransactions)
+        {
+          nbTransactions.incrementAndGet();
+          ((WriteOperation) invocation.getArguments()[0]).run(txn);
+          return null;
+        }
+      }
+    }).when(storage).write(any(WriteOperation.class));
+    nbTransactions.set(0);
+    writer = new GroupCommitWriter(storage);
+  }
+
+  @Test
+  public void testConcurrentWritesAreAllCommitted() throws Exception
+  {
+    final int nbThreads = 8;
+    final int nbWritesPerThread = 100;
+    final AtomicInteger nbWrites = new AtomicInteger();
+    final ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+    try
+    {
+      final Future<?>[] futures = new Future<?>[nbThreads];
+      for (int i = 0; i < nbThreads; i++)
+      {
+        futures[i] = executor.submit(new Callable<Void>()
+        {
+          @Override
+          public Void call() throws Exception
+          {
+            for (int j = 0; j < nbWritesPerThread; j++)
+            {
+              writer.write(new WriteOperation()
+              {
+                @Override
+                public void run(WriteableTransaction txn) throws Exception
+                {
+                  nbWrites.incrementAndGet();
+                }
+              }, new IndexBuffer(), true);
+            }
+            return null;
+          }
+        });
+      }
+      for (Future<?> future : futures)
+      {
+        future.get();
+      }
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+
+    assertThat(nbWrites.get()).isEqualTo(nbThreads * nbWritesPerThread);
+    assertThat(nbTransactions.get()).isLessThanOrEqualTo(nbWrites.get());
+  }
+
+  @Test
+  public void testFailureOnlyAffectsFaultyWrite() throws Exception
+  {
+    final CountDownLatch blockFirstWrite = new CountDownLatch(1);
+    final AtomicInteger nbGoodWrites = new AtomicInteger();
+    final Thread first = startWrite(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        blockFirstWrite.await();
+      }
+    }, new Exception[1]);
+    waitUntilWaiting(first);
+
+    final Exception[] goodWriteFailure = new Exception[1];
+    final Thread good = startWrite(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        nbGoodWrites.incrementAndGet();
+      }
+    }, goodWriteFailure);
+    final Exception[] faultyWriteFailure = new Exception[1];
+    final Thread faulty = startWrite(new WriteOperation()
+    {
+      @Override
+      public void run(WriteableTransaction txn) throws Exception
+      {
+        throw new Exception("faulty write");
+      }
+    }, faultyWriteFailure);
+    waitUntilWaiting(good);
+    waitUntilWaiting(faulty);
+
+    // Both writes are committed in the same batch, which is rolled back then committed again write by write.
+    blockFirstWrite.countDown();
+    first.join();
+    good.join();
+    faulty.join();
+
+    assertThat(goodWriteFailure[0]).isNull();
+    assertThat(faultyWriteFailure[0]).hasMessage("faulty write");
+    assertThat(nbGoodWrites.get()).isEqualTo(2);
+    assertThat(nbTransactions.get()).isEqualTo(4);
+  }
+
+  private Thread startWrite(final WriteOperation operation, final Exception[] failure)
+  {
+    final Thread thread = new Thread()
+    {
+      @Override
+      public void run()
+      {
+        try
+        {
+          writer.write(operation, new IndexBuffer(), true);
+        }
+        catch (Exception e)
+        {
+          failure[0] = e;
+        }
+      }
+    };
+    thread.start();
+    return thread;
+  }
+
+  private static void waitUntilWaiting(Thread thread) throws InterruptedException
+  {
+    while (thread.getState() != Thread.State.WAITING)
+    {
+      Thread.sleep(10);
+    }
+  }
+}
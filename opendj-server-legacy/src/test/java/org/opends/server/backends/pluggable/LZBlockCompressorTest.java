@@ -0,0 +1,157 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.backends.pluggable;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.forgerock.opendj.ldap.DecodeException;
+import org.opends.server.DirectoryServerTestCase;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+@Test(groups = { "precommit", "pluggablebackend", "unit" }, sequential=true)
+public class LZBlockCompressorTest extends DirectoryServerTestCase
+{
+  private static final byte[] NO_DICTIONARY = new byte[0];
+
+  @DataProvider
+  public Object[][] data()
+  {
+    final Random random = new Random(0);
+    final byte[] incompressible = new byte[5000];
+    random.nextBytes(incompressible);
+    final StringBuilder repetitive = new StringBuilder();
+    for (int i = 0; i < 300; i++)
+    {
+      repetitive.append("uid=user.").append(i).append(",ou=People,dc=example,dc=com\n");
+    }
+    final byte[] longRun = new byte[70000];
+    Arrays.fill(longRun, (byte) 'a');
+
+    return new Object[][] {
+      { new byte[0] },
+      { "short".getBytes() },
+      { "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa".getBytes() },
+      { incompressible },
+      { repetitive.toString().getBytes() },
+      { longRun },
+    };
+  }
+
+  @Test(dataProvider = "data")
+  public void testCompressDecompress(byte[] data) throws Exception
+  {
+    assertThat(decompress(compress(data, NO_DICTIONARY), NO_DICTIONARY, data.length)).isEqualTo(data);
+  }
+
+  @Test(dataProvider = "data")
+  public void testCompressDecompressWithDictionary(byte[] data) throws Exception
+  {
+    final byte[] dictionary = "objectClass: inetOrgPerson,ou=People,dc=example,dc=com\n".getBytes();
+    assertThat(decompress(compress(data, dictionary), dictionary, data.length)).isEqualTo(data);
+  }
+
+  @Test
+  public void testDictionaryImprovesCompression() throws Exception
+  {
+    final byte[] dictionary = "cn=Aaccf Amar,ou=People,dc=example,dc=com;objectClass=inetOrgPerson".getBytes();
+    final byte[] data = "cn=Aaron Atp,ou=People,dc=example,dc=com;objectClass=inetOrgPerson".getBytes();
+
+    final ByteString withDictionary = compress(data, dictionary);
+    assertThat(withDictionary.length()).isLessThan(compress(data, NO_DICTIONARY).length());
+    assertThat(decompress(withDictionary, dictionary, data.length)).isEqualTo(data);
+  }
+
+  @Test(expectedExceptions = DecodeException.class)
+  public void testDecompressWithoutDictionaryFails() throws Exception
+  {
+    final byte[] dictionary = "cn=Aaccf Amar,ou=People,dc=example,dc=com".getBytes();
+    final byte[] data = "cn=Aaccf Amar,ou=People,dc=example,dc=com".getBytes();
+
+    decompress(compress(data, dictionary), NO_DICTIONARY, data.length);
+  }
+
+  @Test(expectedExceptions = DecodeException.class)
+  public void testDecompressTruncatedDataFails() throws Exception
+  {
+    final byte[] data = "uid=user.1,ou=People,dc=example,dc=com uid=user.2,ou=People,dc=example,dc=com".getBytes();
+    final ByteString compressed = compress(data, NO_DICTIONARY);
+
+    decompress(compressed.subSequence(0, compressed.length() - 10), NO_DICTIONARY, data.length);
+  }
+
+  @Test
+  public void testTrainedDictionaryContainsCommonContent() throws Exception
+  {
+    final byte[] dictionary = CompressionDictionaries.train(Arrays.asList(
+        "uid=user.1,ou=People,dc=example,dc=com".getBytes(),
+        "uid=user.2,ou=People,dc=example,dc=com".getBytes(),
+        "something completely different".getBytes()), CompressionDictionaries.DICTIONARY_SIZE);
+
+    assertThat(new String(dictionary)).contains(",ou=People,dc=example,dc=com");
+  }
+
+  @Test
+  public void testDictionaryIsTrainedAgainAfterFailedStore() throws Exception
+  {
+    final int[] nbStores = new int[1];
+    final CompressionDictionaries dictionaries = new CompressionDictionaries(true)
+    {
+      @Override
+      boolean storeDictionary(int dictionaryId, byte[] dictionary)
+      {
+        return ++nbStores[0] > 1;
+      }
+    };
+    final ByteString entry = ByteString.valueOfUtf8("objectClass: inetOrgPerson,ou=People,dc=example,dc=com");
+
+    addSamples(dictionaries, entry);
+    assertThat(nbStores[0]).isEqualTo(1);
+    assertThat(dictionaries.getCurrentDictionaryId()).isEqualTo(CompressionDictionaries.NO_DICTIONARY);
+
+    addSamples(dictionaries, entry);
+    assertThat(nbStores[0]).isEqualTo(2);
+    assertThat(dictionaries.getCurrentDictionaryId()).isNotEqualTo(CompressionDictionaries.NO_DICTIONARY);
+  }
+
+  private static void addSamples(CompressionDictionaries dictionaries, ByteString entry)
+  {
+    for (int size = 0; size < CompressionDictionaries.SAMPLES_SIZE; size += entry.length())
+    {
+      dictionaries.addSample(entry);
+    }
+  }
+
+  private static ByteString compress(byte[] data, byte[] dictionary)
+  {
+    final ByteStringBuilder output = new ByteStringBuilder();
+    LZBlockCompressor.INSTANCE.compress(ByteString.wrap(data), dictionary, output);
+    return output.toByteString();
+  }
+
+  private static byte[] decompress(ByteString compressed, byte[] dictionary, int length) throws DecodeException
+  {
+    final ByteStringBuilder output = new ByteStringBuilder();
+    LZBlockCompressor.INSTANCE.decompress(compressed, dictionary, length, output);
+    return output.toByteArray();
+  }
+}
@@ -27,6 +27,9 @@ import static org.testng.Assert.*;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -34,6 +37,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 
 import org.forgerock.opendj.ldap.ByteString;
@@ -925,6 +929,35 @@ public abstract class PluggableBackendImplTestCase<C extends PluggableBackendCfg
     }
   }
 
+  @Test
+  public void testParallelExportLDIFWritesAllEntriesInOrder() throws Exception
+  {
+    final long rangeSize = 2;
+    assertThat(backend.getEntryCount()).isGreaterThan(3 * rangeSize);
+
+    final List<DN> exportedDNs = exportLDIF(4, rangeSize);
+
+    assertThat(exportedDNs).hasSize((int) backend.getEntryCount());
+    // A single thread reads all the entries in entry ID order within a single transaction
+    assertThat(exportedDNs).containsExactlyElementsOf(exportLDIF(1, rangeSize));
+    assertThat(exportedDNs.get(0)).isEqualTo(testBaseDN);
+  }
+
+  private List<DN> exportLDIF(int threadCount, long rangeSize) throws Exception
+  {
+    final ByteArrayOutputStream ldifOutputContent = new ByteArrayOutputStream();
+    try (final LDIFExportConfig exportConfig = new LDIFExportConfig(ldifOutputContent))
+    {
+      new ExportJob(exportConfig, threadCount, rangeSize).exportLDIF(backend.getRootContainer());
+    }
+    final List<DN> dns = new ArrayList<>();
+    for (Entry entry : TestCaseUtils.entriesFromLdifString(ldifOutputContent.toString()))
+    {
+      dns.add(entry.getName());
+    }
+    return dns;
+  }
+
   @Test
   public void testExportLDIFAndImportLDIF() throws Exception
   {
@@ -1138,6 +1171,42 @@ public abstract class PluggableBackendImplTestCase<C extends PluggableBackendCfg
     assertThat(backend.verifyBackend(config)).isEqualTo(1);
   }
 
+  @Test
+  public void testVerifyResumesFromCheckpoint() throws Exception
+  {
+    final File checkpointFile = File.createTempFile("verify", ".checkpoint");
+    final VerifyConfig config = new VerifyConfig();
+    config.setBaseDN(testBaseDN);
+    config.addCompleteIndex("dn2id");
+    config.setThreadCount(2);
+    config.setMaxRecordsPerSecond(10000);
+    config.setCheckpointFile(checkpointFile.getPath());
+
+    // Checkpoint written by the verification of other indexes: verify all the entries
+    writeVerifyCheckpoint(checkpointFile, "[sn]", 3);
+    assertThat(backend.verifyBackend(config)).isEqualTo(0);
+    assertThat(checkpointFile).doesNotExist();
+
+    // Checkpoint written once all the entries have been verified: only restore the counters
+    writeVerifyCheckpoint(checkpointFile, "[dn2id]", 3);
+    assertThat(backend.verifyBackend(config)).isEqualTo(3);
+    assertThat(checkpointFile).doesNotExist();
+  }
+
+  private void writeVerifyCheckpoint(File checkpointFile, String indexes, long errorCount) throws Exception
+  {
+    final Properties checkpoint = new Properties();
+    checkpoint.setProperty("baseDN", testBaseDN.toNormalizedUrlSafeString());
+    checkpoint.setProperty("indexes", indexes);
+    checkpoint.setProperty("lastEntryID", Long.toString(Integer.MAX_VALUE));
+    checkpoint.setProperty("keyCount", Long.toString(backend.getEntryCount()));
+    checkpoint.setProperty("errorCount", Long.toString(errorCount));
+    try (OutputStream out = new FileOutputStream(checkpointFile))
+    {
+      checkpoint.store(out, null);
+    }
+  }
+
   @Test
   public void testBackupAndRestore() throws Exception
   {
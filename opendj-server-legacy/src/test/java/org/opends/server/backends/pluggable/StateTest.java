@@ -52,7 +52,7 @@ import org.testng.annotations.Test;
 @Test(groups = { "precommit", "pluggablebackend" }, sequential = true)
 public class StateTest extends DirectoryServerTestCase
 {
-  private static final IndexFlag DEFAULT_FLAG = COMPACTED;
+  private static final IndexFlag[] DEFAULT_FLAGS = { COMPACTED, BITMAP };
 
   private final TreeName stateTreeName = new TreeName("base-dn", "index-id");
   private TreeName indexTreeName;
@@ -96,21 +96,21 @@ public class StateTest extends DirectoryServerTestCase
   @Test
   public void testDefaultValuesForNotExistingEntries() throws Exception
   {
-    assertThat(getFlags()).containsExactly(DEFAULT_FLAG);
+    assertThat(getFlags()).containsExactly(DEFAULT_FLAGS);
   }
 
   @Test
   public void testCreateNewFlagHasDefaultValue() throws Exception
   {
     addFlags();
-    assertThat(getFlags()).containsExactly(DEFAULT_FLAG);
+    assertThat(getFlags()).containsExactly(DEFAULT_FLAGS);
   }
 
   @Test
   public void testCreateStateTrustedIsAlsoCompacted() throws Exception
   {
     addFlags(TRUSTED);
-    assertThat(getFlags()).containsExactly(TRUSTED, DEFAULT_FLAG);
+    assertThat(getFlags()).containsExactly(TRUSTED, COMPACTED, BITMAP);
   }
 
   @Test
@@ -120,6 +120,15 @@ public class StateTest extends DirectoryServerTestCase
     assertThat(getFlags()).containsExactly(TRUSTED, COMPACTED);
   }
 
+  @Test
+  public void testCompactedIndexIsNotUpgradedToBitmap() throws Exception
+  {
+    createFlagWith(COMPACTED);
+
+    addFlags(TRUSTED);
+    assertThat(getFlags()).containsExactly(TRUSTED, COMPACTED);
+  }
+
   @Test
   public void testUpdateNotSetDefault() throws Exception
   {
@@ -165,7 +174,7 @@ public class StateTest extends DirectoryServerTestCase
       }
     });
 
-    assertThat(getFlags()).containsExactly(COMPACTED);
+    assertThat(getFlags()).containsExactly(DEFAULT_FLAGS);
   }
 
   private PDBBackendCfg createBackendCfg() throws ConfigException, DirectoryException
@@ -22,6 +22,7 @@ import static org.opends.server.util.StaticUtils.*;
 import static org.testng.Assert.*;
 
 import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.forgerock.opendj.ldap.ByteString;
@@ -371,6 +372,38 @@ public class TestDnKeyFormat extends DirectoryServerTestCase {
     }
   }
 
+  @Test
+  public void testEntryToAndFromDatabaseWithLZBlockCompressor() throws Exception {
+    ensureServerIsUpAndRunning();
+
+    final List<Entry> entries = TestCaseUtils.entriesFromLdifString(ldifString);
+    final CompressionDictionaries dictionaries = new CompressionDictionaries(false);
+    final DataConfig dataConfig = new DataConfig.Builder().compress(true).compressor(LZBlockCompressor.INSTANCE)
+        .compressionDictionaries(dictionaries).encode(false).build();
+    final ID2Entry id2entry = new ID2Entry(new TreeName("o=test", "id2entry"), dataConfig);
+
+    final List<byte[]> samples = new ArrayList<>();
+    int sizeWithoutDictionary = 0;
+    for (Entry entry : entries) {
+      final ByteString bytes = id2entry.entryToDatabase(entry, dataConfig);
+      assertThat(bytes.byteAt(0)).isEqualTo((byte) 0x03);
+      assertEquals(id2entry.entryFromDatabase(bytes, DirectoryServer.getDefaultCompressedSchema()), entry);
+      sizeWithoutDictionary += bytes.length();
+      samples.add(StaticUtils.getBytes(entry.toLDIFString()));
+    }
+
+    dictionaries.registerDictionary(1, CompressionDictionaries.train(samples, CompressionDictionaries.DICTIONARY_SIZE));
+    assertThat(dictionaries.getCurrentDictionaryId()).isEqualTo(1);
+
+    int sizeWithDictionary = 0;
+    for (Entry entry : entries) {
+      final ByteString bytes = id2entry.entryToDatabase(entry, dataConfig);
+      assertEquals(id2entry.entryFromDatabase(bytes, DirectoryServer.getDefaultCompressedSchema()), entry);
+      sizeWithDictionary += bytes.length();
+    }
+    assertThat(sizeWithDictionary).isLessThan(sizeWithoutDictionary);
+  }
+
   /**
    * Tests the entry encoding and decoding process the version 1 encoding.
    *
@@ -478,6 +511,40 @@ public class TestDnKeyFormat extends DirectoryServerTestCase {
     }
   }
 
+  @Test(dataProvider = "encodeConfigs")
+  public void testEntryToAndFromDatabaseLazily(EntryEncodeConfig config) throws Exception
+  {
+    ensureServerIsUpAndRunning();
+
+    byte[] originalLDIFBytes = StaticUtils.getBytes(ldifString);
+
+    try (final LDIFReader reader = new LDIFReader(new LDIFImportConfig(new ByteArrayInputStream(originalLDIFBytes))))
+    {
+      Entry entryBefore;
+      while ((entryBefore = reader.readEntry(false)) != null)
+      {
+        ByteStringBuilder bsb = new ByteStringBuilder();
+        entryBefore.encode(bsb, config);
+        Entry entryAfter = Entry.decodeLazily(bsb.toByteString(), DirectoryServer.getDefaultCompressedSchema());
+        if (config.excludeDN())
+        {
+          entryAfter.setDN(entryBefore.getName());
+        }
+        for (Attribute attrAfter : entryAfter.getAllAttributes())
+        {
+          Attribute attrBefore = entryBefore.getAttribute(attrAfter.getAttributeDescription());
+          assertThat(attrAfter).containsExactlyElementsOf(attrBefore);
+          assertThat(attrAfter.contains(attrBefore.iterator().next())).isTrue();
+        }
+        assertEquals(entryBefore, entryAfter);
+
+        ByteStringBuilder reencoded = new ByteStringBuilder();
+        entryAfter.encode(reencoded, config);
+        assertEquals(reencoded.toByteString(), bsb.toByteString());
+      }
+    }
+  }
+
   @DataProvider
   private Object[][] findDnKeyParentData()
   {
@@ -0,0 +1,126 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.core;
+
+import static java.util.Arrays.*;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.forgerock.opendj.ldap.ByteString;
+import org.forgerock.opendj.ldap.DN;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.api.Group;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class GroupMembershipIndexTest extends DirectoryServerTestCase
+{
+  private static final ByteString USER = normalize("uid=user,o=test");
+
+  @Test
+  public void testGetGroupsResolvesNestedGroups()
+  {
+    final Group<?> group1 = newGroup("cn=group1,o=test");
+    final Group<?> group2 = newGroup("cn=group2,o=test");
+    final Group<?> group3 = newGroup("cn=group3,o=test");
+    final GroupMembershipIndex index = new GroupMembershipIndex();
+    index.addGroup(group1, members("uid=user,o=test"));
+    index.addGroup(group2, members("cn=group1,o=test", "uid=other,o=test"));
+    index.addGroup(group3, members("uid=other,o=test"));
+
+    assertThat(index.getGroups(USER, noGroups())).containsOnly(group1, group2);
+    assertThat(index.getGroups(normalize("uid=other,o=test"), noGroups())).containsOnly(group2, group3);
+  }
+
+  @Test
+  public void testGetGroupsStopsOnCircularNesting()
+  {
+    final Group<?> group1 = newGroup("cn=group1,o=test");
+    final Group<?> group2 = newGroup("cn=group2,o=test");
+    final GroupMembershipIndex index = new GroupMembershipIndex();
+    index.addGroup(group1, members("uid=user,o=test", "cn=group2,o=test"));
+    index.addGroup(group2, members("cn=group1,o=test"));
+
+    assertThat(index.getGroups(USER, noGroups())).containsOnly(group1, group2);
+  }
+
+  @Test
+  public void testUnindexedGroups()
+  {
+    final Group<?> dynamicGroup = newGroup("cn=dynamic,o=test");
+    final Group<?> staticGroup = newGroup("cn=static,o=test");
+    final GroupMembershipIndex index = new GroupMembershipIndex();
+    index.addGroup(dynamicGroup, null);
+    index.addGroup(staticGroup, members("cn=dynamic,o=test"));
+
+    assertThat(index.getUnindexedGroups()).containsOnly(dynamicGroup);
+    assertThat(index.getGroups(USER, noGroups())).isEmpty();
+    final List<Group<?>> matchingGroups = Collections.<Group<?>> singletonList(dynamicGroup);
+    assertThat(index.getGroups(USER, matchingGroups)).containsOnly(dynamicGroup, staticGroup);
+  }
+
+  @Test
+  public void testUpdateAndRemoveGroup()
+  {
+    final Group<?> group = newGroup("cn=group,o=test");
+    final GroupMembershipIndex index = new GroupMembershipIndex();
+
+    // Groups which are not in the index are not added when their members change.
+    index.updateGroup(group, members("uid=user,o=test"));
+    assertThat(index.getGroups(USER, noGroups())).isEmpty();
+
+    index.addGroup(group, members("uid=other,o=test"));
+    index.updateGroup(group, members("uid=user,o=test"));
+    assertThat(index.getGroups(USER, noGroups())).containsOnly(group);
+    assertThat(index.getGroups(normalize("uid=other,o=test"), noGroups())).isEmpty();
+
+    index.removeGroup(group);
+    assertThat(index.getGroups(USER, noGroups())).isEmpty();
+  }
+
+  private static Group<?> newGroup(String groupDN)
+  {
+    final Group<?> group = mock(Group.class);
+    when(group.getGroupDN()).thenReturn(DN.valueOf(groupDN));
+    return group;
+  }
+
+  private static Collection<ByteString> members(String... memberDNs)
+  {
+    final List<ByteString> normalizedMemberDNs = new ArrayList<>();
+    for (String memberDN : asList(memberDNs))
+    {
+      normalizedMemberDNs.add(normalize(memberDN));
+    }
+    return normalizedMemberDNs;
+  }
+
+  private static List<Group<?>> noGroups()
+  {
+    return Collections.emptyList();
+  }
+
+  private static ByteString normalize(String dn)
+  {
+    return DN.valueOf(dn).toNormalizedByteString();
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.core;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.EnumSet;
+
+import org.forgerock.opendj.ldap.DN;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.controls.PersistentSearchChangeType;
+import org.opends.server.types.Entry;
+import org.opends.server.types.SearchFilter;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class PersistentSearchIndexTest extends DirectoryServerTestCase
+{
+  private Entry user1;
+  private Entry user2;
+
+  @BeforeClass
+  public void setUp() throws Exception
+  {
+    TestCaseUtils.startServer();
+    user1 = TestCaseUtils.makeEntry(
+        "dn: uid=user.1,ou=people,o=test",
+        "objectClass: top",
+        "objectClass: person",
+        "objectClass: organizationalPerson",
+        "objectClass: inetOrgPerson",
+        "uid: user.1",
+        "cn: User 1",
+        "sn: 1");
+    user2 = TestCaseUtils.makeEntry(
+        "dn: uid=user.2,ou=people,o=test",
+        "objectClass: top",
+        "objectClass: person",
+        "objectClass: organizationalPerson",
+        "objectClass: inetOrgPerson",
+        "uid: user.2",
+        "cn: User 2",
+        "sn: 2");
+  }
+
+  @Test
+  public void testCandidatesIndexedByBaseDN() throws Exception
+  {
+    final PersistentSearch subtree = newPersistentSearch("o=test", "(cn=User*)");
+    final PersistentSearch people = newPersistentSearch("ou=people,o=test", "(|(sn=1)(sn=3))");
+    final PersistentSearch other = newPersistentSearch("o=other", "(objectClass=*)");
+    final PersistentSearchIndex index = new PersistentSearchIndex();
+    index.add(subtree);
+    index.add(people);
+    index.add(other);
+
+    assertThat(index.getCandidates(user1)).containsOnly(subtree, people);
+
+    index.remove(people);
+    assertThat(index.getCandidates(user1)).containsOnly(subtree);
+  }
+
+  @Test
+  public void testCandidatesIndexedByEqualityAssertion() throws Exception
+  {
+    final PersistentSearch byUid = newPersistentSearch("o=test", "(UID=USER.1)");
+    final PersistentSearch byObjectClass = newPersistentSearch("o=test", "(&(objectClass=person)(sn>=1))");
+    final PersistentSearch byUidAndObjectClass = newPersistentSearch("o=test", "(&(objectClass=person)(uid=user.2))");
+    final PersistentSearch byGroupClass = newPersistentSearch("o=test", "(objectClass=groupOfNames)");
+    final PersistentSearchIndex index = new PersistentSearchIndex();
+    index.add(byUid);
+    index.add(byObjectClass);
+    index.add(byUidAndObjectClass);
+    index.add(byGroupClass);
+
+    assertThat(index.getCandidates(user1)).containsOnly(byUid, byObjectClass);
+    assertThat(index.getCandidates(user2)).containsOnly(byObjectClass, byUidAndObjectClass);
+    assertThat(index.getCandidates(user1, user2)).containsOnly(byUid, byObjectClass, byUidAndObjectClass);
+
+    index.clear();
+    assertThat(index.getCandidates(user1)).isEmpty();
+  }
+
+  private static PersistentSearch newPersistentSearch(String baseDN, String filter) throws Exception
+  {
+    final SearchOperation searchOperation = mock(SearchOperation.class);
+    when(searchOperation.getBaseDN()).thenReturn(DN.valueOf(baseDN));
+    when(searchOperation.getFilter()).thenReturn(SearchFilter.createFilterFromString(filter));
+    return new PersistentSearch(searchOperation, EnumSet.allOf(PersistentSearchChangeType.class), true, false);
+  }
+}
@@ -0,0 +1,168 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.core;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+import static org.opends.server.core.PersistentSearchNotifier.*;
+
+import java.util.EnumSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.ResultCode;
+import org.forgerock.opendj.ldap.SearchScope;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opends.server.DirectoryServerTestCase;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.controls.PersistentSearchChangeType;
+import org.opends.server.protocols.internal.InternalClientConnection;
+import org.opends.server.types.AuthenticationInfo;
+import org.opends.server.types.Control;
+import org.opends.server.types.Entry;
+import org.opends.server.types.SearchFilter;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class PersistentSearchNotifierTest extends DirectoryServerTestCase
+{
+  private static final int NB_CHANGES = MAX_PENDING_NOTIFICATIONS + 10;
+
+  private Entry user;
+
+  @BeforeClass
+  public void setUp() throws Exception
+  {
+    TestCaseUtils.startServer();
+    user = TestCaseUtils.makeEntry(
+        "dn: uid=user.1,ou=people,o=test",
+        "objectClass: top",
+        "objectClass: person",
+        "objectClass: organizationalPerson",
+        "objectClass: inetOrgPerson",
+        "uid: user.1",
+        "cn: User 1",
+        "sn: 1");
+  }
+
+  @Test(timeOut = 60000)
+  public void testSlowPersistentSearchIsCancelledWhenItsNotificationsOverflow() throws Exception
+  {
+    // The slow client does not read its first notification until the changes are all notified
+    final CountDownLatch slowClientReads = new CountDownLatch(1);
+    final AtomicInteger slowClientEntries = new AtomicInteger();
+    final SearchOperation slowSearchOperation = newSearchOperation(new Answer<Boolean>()
+    {
+      @Override
+      public Boolean answer(InvocationOnMock invocation) throws Throwable
+      {
+        slowClientReads.await();
+        slowClientEntries.incrementAndGet();
+        return true;
+      }
+    });
+    final CountDownLatch slowSearchDone = new CountDownLatch(1);
+    doAnswer(new Answer<Void>()
+    {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable
+      {
+        slowSearchDone.countDown();
+        return null;
+      }
+    }).when(slowSearchOperation).sendSearchResultDone();
+
+    final CountDownLatch fastClientEntries = new CountDownLatch(NB_CHANGES);
+    final SearchOperation fastSearchOperation = newSearchOperation(new Answer<Boolean>()
+    {
+      @Override
+      public Boolean answer(InvocationOnMock invocation) throws Throwable
+      {
+        fastClientEntries.countDown();
+        return true;
+      }
+    });
+
+    final PersistentSearch slowSearch = newPersistentSearch(slowSearchOperation);
+    final PersistentSearch fastSearch = newPersistentSearch(fastSearchOperation);
+    try
+    {
+      for (int i = 0; i < NB_CHANGES; i++)
+      {
+        slowSearch.processAdd(user);
+        fastSearch.processAdd(user);
+      }
+
+      // The other persistent searches are not affected by the slow client
+      assertThat(fastClientEntries.await(30, TimeUnit.SECONDS)).isTrue();
+      verify(fastSearchOperation, never()).sendSearchResultDone();
+
+      // The notifications queued before the overflow are sent, then the slow persistent search is cancelled
+      slowClientReads.countDown();
+      assertThat(slowSearchDone.await(30, TimeUnit.SECONDS)).isTrue();
+      verify(slowSearchOperation).setResultCode(ResultCode.ADMIN_LIMIT_EXCEEDED);
+      assertThat(slowClientEntries.get()).isGreaterThanOrEqualTo(MAX_PENDING_NOTIFICATIONS).isLessThan(NB_CHANGES);
+      assertThat(slowSearchOperation.getClientConnection().getPersistentSearches()).isEmpty();
+      assertThat(fastSearchOperation.getClientConnection().getPersistentSearches()).containsExactly(fastSearch);
+
+      // The cancelled persistent search is no longer notified, unlike the other ones
+      final CountDownLatch nextFastClientEntry = new CountDownLatch(1);
+      when(fastSearchOperation.returnEntry(any(Entry.class), anyListOf(Control.class))).thenAnswer(new Answer<Boolean>()
+      {
+        @Override
+        public Boolean answer(InvocationOnMock invocation) throws Throwable
+        {
+          nextFastClientEntry.countDown();
+          return true;
+        }
+      });
+      slowSearch.processAdd(user);
+      fastSearch.processAdd(user);
+      assertThat(nextFastClientEntry.await(30, TimeUnit.SECONDS)).isTrue();
+      assertThat(slowClientEntries.get()).isLessThan(NB_CHANGES);
+    }
+    finally
+    {
+      slowClientReads.countDown();
+      slowSearch.cancel();
+      fastSearch.cancel();
+    }
+  }
+
+  private static SearchOperation newSearchOperation(Answer<Boolean> returnEntry) throws Exception
+  {
+    final SearchOperation searchOperation = mock(SearchOperation.class);
+    when(searchOperation.getClientConnection()).thenReturn(new InternalClientConnection(new AuthenticationInfo()));
+    when(searchOperation.getBaseDN()).thenReturn(DN.valueOf("o=test"));
+    when(searchOperation.getScope()).thenReturn(SearchScope.WHOLE_SUBTREE);
+    when(searchOperation.getFilter()).thenReturn(SearchFilter.createFilterFromString("(objectClass=person)"));
+    when(searchOperation.returnEntry(any(Entry.class), anyListOf(Control.class))).thenAnswer(returnEntry);
+    return searchOperation;
+  }
+
+  private static PersistentSearch newPersistentSearch(SearchOperation searchOperation)
+  {
+    final PersistentSearch persistentSearch =
+        new PersistentSearch(searchOperation, EnumSet.allOf(PersistentSearchChangeType.class), true, false);
+    persistentSearch.enable();
+    return persistentSearch;
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.extensions;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.opendj.server.config.server.ElasticWorkQueueCfg;
+import org.forgerock.opendj.server.config.server.MonitorProviderCfg;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.opends.server.TestCaseUtils;
+import org.opends.server.api.MonitorProvider;
+import org.opends.server.core.DirectoryServer;
+import org.opends.server.types.Operation;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/** A set of test cases for the elastic work queue. */
+@SuppressWarnings("javadoc")
+@Test(sequential = true)
+public class ElasticWorkQueueTestCase extends ExtensionsTestCase
+{
+  private static final String MONITOR_NAME = "work queue";
+
+  /** The monitor of the work queue of the server, which is replaced by the monitor of the tested work queue. */
+  private MonitorProvider<? extends MonitorProviderCfg> serverWorkQueueMonitor;
+  private ElasticWorkQueue workQueue;
+
+  @BeforeClass
+  public void startServer() throws Exception
+  {
+    TestCaseUtils.startServer();
+  }
+
+  @BeforeMethod
+  public void saveServerWorkQueueMonitor()
+  {
+    serverWorkQueueMonitor = DirectoryServer.getMonitorProviders().get(MONITOR_NAME);
+  }
+
+  @AfterMethod
+  public void finalizeWorkQueue()
+  {
+    if (workQueue != null)
+    {
+      workQueue.finalizeWorkQueue(null);
+      workQueue = null;
+    }
+    DirectoryServer.getMonitorProviders().put(MONITOR_NAME, serverWorkQueueMonitor);
+  }
+
+  @Test
+  public void testBlockedOperationsDoNotDelayOtherOperations() throws Exception
+  {
+    workQueue = newWorkQueue(1, 4);
+    final CountDownLatch unblock = new CountDownLatch(1);
+    workQueue.submitOperation(operation(unblock, null));
+    workQueue.submitOperation(operation(unblock, null));
+
+    final CountDownLatch done = new CountDownLatch(1);
+    workQueue.submitOperation(operation(null, done));
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertTrue(workQueue.getNbActiveOperations() >= 2);
+    unblock.countDown();
+  }
+
+  @Test
+  public void testConcurrentOperationsAreLimited() throws Exception
+  {
+    workQueue = newWorkQueue(1, 2);
+    final CountDownLatch unblock = new CountDownLatch(1);
+    workQueue.submitOperation(operation(unblock, null));
+    workQueue.submitOperation(operation(unblock, null));
+    final CountDownLatch done = new CountDownLatch(1);
+    workQueue.submitOperation(operation(null, done));
+
+    assertFalse(done.await(200, TimeUnit.MILLISECONDS));
+    assertEquals(workQueue.size(), 1);
+    assertEquals(workQueue.getNbWorkerThreads(), 2);
+    assertEquals(workQueue.getNumWorkerThreads(), 2);
+
+    unblock.countDown();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(workQueue.getMaxNbWorkerThreads(), 2);
+  }
+
+  @Test
+  public void testRaisingConcurrencyLimitStartsWorkerThreads() throws Exception
+  {
+    workQueue = newWorkQueue(1, 1);
+    final CountDownLatch unblock = new CountDownLatch(1);
+    workQueue.submitOperation(operation(unblock, null));
+    final CountDownLatch done = new CountDownLatch(1);
+    workQueue.submitOperation(operation(null, done));
+    assertFalse(done.await(200, TimeUnit.MILLISECONDS));
+
+    workQueue.applyConfigurationChange(configuration(1, 2));
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    unblock.countDown();
+  }
+
+  private ElasticWorkQueue newWorkQueue(int numWorkerThreads, int maxConcurrentOperations) throws Exception
+  {
+    final ElasticWorkQueue queue = new ElasticWorkQueue();
+    queue.initializeWorkQueue(configuration(numWorkerThreads, maxConcurrentOperations));
+    return queue;
+  }
+
+  private static ElasticWorkQueueCfg configuration(int numWorkerThreads, int maxConcurrentOperations)
+  {
+    final ElasticWorkQueueCfg configuration = mock(ElasticWorkQueueCfg.class);
+    when(configuration.getNumWorkerThreads()).thenReturn(numWorkerThreads);
+    when(configuration.getMaxConcurrentOperations()).thenReturn(maxConcurrentOperations);
+    when(configuration.getMaxWorkQueueCapacity()).thenReturn(100);
+    return configuration;
+  }
+
+  /** Returns an operation which waits for the first latch when run, then counts down the second one. */
+  private static Operation operation(final CountDownLatch unblock, final CountDownLatch done)
+  {
+    final Operation operation = mock(Operation.class);
+    doAnswer(new Answer<Void>()
+    {
+      @Override
+      public Void answer(InvocationOnMock invocation) throws Throwable
+      {
+        if (unblock != null)
+        {
+          unblock.await();
+        }
+        if (done != null)
+        {
+          done.countDown();
+        }
+        return null;
+      }
+    }).when(operation).run();
+    return operation;
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.extensions;
+
+import static org.mockito.Mockito.*;
+import static org.testng.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.opendj.ldap.SearchScope;
+import org.opends.server.core.SearchOperation;
+import org.opends.server.extensions.FairOperationScheduler.PendingOperation;
+import org.opends.server.extensions.FairWorkQueue.OperationClass;
+import org.opends.server.types.Operation;
+import org.opends.server.types.OperationType;
+import org.testng.annotations.Test;
+
+/** A set of test cases for the scheduling of the fair work queue. */
+@SuppressWarnings("javadoc")
+public class FairOperationSchedulerTestCase extends ExtensionsTestCase
+{
+  private static final long ONE_MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  @Test
+  public void testConnectionsAreServedInTurn()
+  {
+    final FairOperationScheduler scheduler = new FairOperationScheduler();
+    for (int i = 0; i < 3; i++)
+    {
+      scheduler.add(search(1, SearchScope.WHOLE_SUBTREE, 0), 0);
+      scheduler.add(search(2, SearchScope.WHOLE_SUBTREE, 0), 0);
+    }
+
+    long now = 0;
+    final StringBuilder order = new StringBuilder();
+    while (scheduler.size() > 0)
+    {
+      final PendingOperation pending = scheduler.poll(now);
+      now += ONE_MS;
+      scheduler.completed(pending, now);
+      order.append(pending.getOperation().getConnectionID());
+    }
+    assertEquals(order.toString(), "121212");
+    assertNull(scheduler.poll(now));
+  }
+
+  @Test
+  public void testExpensiveConnectionDoesNotDelayOtherConnections()
+  {
+    final FairOperationScheduler scheduler = new FairOperationScheduler();
+    scheduler.add(search(1, SearchScope.WHOLE_SUBTREE, 0), 0);
+    scheduler.add(search(1, SearchScope.WHOLE_SUBTREE, 0), 0);
+    for (int i = 0; i < 5; i++)
+    {
+      scheduler.add(search(2, SearchScope.WHOLE_SUBTREE, 0), 0);
+    }
+
+    final PendingOperation expensive = scheduler.poll(0);
+    assertEquals(expensive.getOperation().getConnectionID(), 1);
+    scheduler.completed(expensive, 10 * ONE_MS);
+
+    final StringBuilder order = new StringBuilder();
+    while (scheduler.size() > 0)
+    {
+      order.append(scheduler.poll(10 * ONE_MS).getOperation().getConnectionID());
+    }
+    assertEquals(order.toString(), "222221");
+  }
+
+  @Test
+  public void testClassesShareWorkersAccordingToTheirWeights()
+  {
+    final FairOperationScheduler scheduler = new FairOperationScheduler();
+    scheduler.setWeight(OperationClass.WRITE, 4);
+    for (int i = 0; i < 50; i++)
+    {
+      scheduler.add(operation(OperationType.MODIFY, 1), 0);
+      scheduler.add(search(2, SearchScope.WHOLE_SUBTREE, 0), 0);
+    }
+
+    long now = 0;
+    int nbWrites = 0;
+    for (int i = 0; i < 50; i++)
+    {
+      final PendingOperation pending = scheduler.poll(now);
+      now += ONE_MS;
+      scheduler.completed(pending, now);
+      if (pending.getOperation().getOperationType() == OperationType.MODIFY)
+      {
+        nbWrites++;
+      }
+    }
+    assertEquals(nbWrites, 40);
+    assertEquals(scheduler.getBacklog(OperationClass.WRITE), 10);
+    assertEquals(scheduler.getBacklog(OperationClass.SEARCH), 40);
+    assertEquals(scheduler.getOpsDispatched(OperationClass.WRITE), 40);
+    assertEquals(scheduler.getMaxWaitTime(OperationClass.SEARCH), 46 * ONE_MS);
+  }
+
+  @Test
+  public void testSearchesWaitingLongerThanTheirTimeLimitExpire()
+  {
+    final FairOperationScheduler scheduler = new FairOperationScheduler();
+    scheduler.add(search(1, SearchScope.WHOLE_SUBTREE, 1), 0);
+    scheduler.add(search(1, SearchScope.WHOLE_SUBTREE, 0), 0);
+    scheduler.add(search(1, SearchScope.WHOLE_SUBTREE, 5), 0);
+
+    final long now = TimeUnit.SECONDS.toNanos(2);
+    final PendingOperation limited = scheduler.poll(now);
+    assertTrue(scheduler.isExpired(limited));
+    scheduler.dropped(limited);
+    final PendingOperation unlimited = scheduler.poll(now);
+    assertFalse(scheduler.isExpired(unlimited));
+    scheduler.completed(unlimited, now);
+    final PendingOperation notExpired = scheduler.poll(now);
+    assertFalse(scheduler.isExpired(notExpired));
+    scheduler.completed(notExpired, now);
+
+    assertEquals(scheduler.getOpsDispatched(OperationClass.SEARCH), 3);
+    assertEquals(scheduler.getOpsDropped(OperationClass.SEARCH), 1);
+  }
+
+  @Test
+  public void testClassify()
+  {
+    assertEquals(FairOperationScheduler.classify(operation(OperationType.BIND, 1)), OperationClass.BIND);
+    assertEquals(FairOperationScheduler.classify(operation(OperationType.EXTENDED, 1)), OperationClass.BIND);
+    assertEquals(FairOperationScheduler.classify(operation(OperationType.ADD, 1)), OperationClass.WRITE);
+    assertEquals(FairOperationScheduler.classify(operation(OperationType.MODIFY_DN, 1)), OperationClass.WRITE);
+    assertEquals(FairOperationScheduler.classify(operation(OperationType.COMPARE, 1)), OperationClass.BASE_READ);
+    assertEquals(FairOperationScheduler.classify(search(1, SearchScope.BASE_OBJECT, 0)), OperationClass.BASE_READ);
+    assertEquals(FairOperationScheduler.classify(search(1, SearchScope.SINGLE_LEVEL, 0)), OperationClass.SEARCH);
+
+    final Operation replicated = operation(OperationType.MODIFY, 1);
+    when(replicated.isSynchronizationOperation()).thenReturn(true);
+    assertEquals(FairOperationScheduler.classify(replicated), OperationClass.INTERNAL);
+  }
+
+  @Test
+  public void testClear()
+  {
+    final FairOperationScheduler scheduler = new FairOperationScheduler();
+    scheduler.add(operation(OperationType.BIND, 1), 0);
+    scheduler.add(search(2, SearchScope.WHOLE_SUBTREE, 0), 0);
+
+    assertEquals(scheduler.clear().size(), 2);
+    assertEquals(scheduler.size(), 0);
+    assertNull(scheduler.poll(0));
+  }
+
+  private static Operation operation(OperationType operationType, long connectionID)
+  {
+    final Operation operation = mock(Operation.class);
+    when(operation.getOperationType()).thenReturn(operationType);
+    when(operation.getConnectionID()).thenReturn(connectionID);
+    return operation;
+  }
+
+  private static SearchOperation search(long connectionID, SearchScope scope, int timeLimit)
+  {
+    final SearchOperation operation = mock(SearchOperation.class);
+    when(operation.getOperationType()).thenReturn(OperationType.SEARCH);
+    when(operation.getConnectionID()).thenReturn(connectionID);
+    when(operation.getScope()).thenReturn(scope);
+    when(operation.getTimeLimit()).thenReturn(timeLimit);
+    return operation;
+  }
+}
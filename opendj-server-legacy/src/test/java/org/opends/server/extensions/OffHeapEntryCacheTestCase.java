@@ -0,0 +1,449 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.extensions;
+
+import java.util.ArrayList;
+
+import org.opends.server.TestCaseUtils;
+import org.opends.server.api.MonitorData;
+import org.testng.annotations.BeforeClass;
+import org.forgerock.opendj.server.config.meta.*;
+import org.forgerock.opendj.server.config.server.OffHeapEntryCacheCfg;
+import org.forgerock.opendj.ldap.DN;
+import org.opends.server.types.Attribute;
+import org.opends.server.types.Entry;
+import org.opends.server.util.ServerConstants;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterGroups;
+import org.testng.annotations.BeforeGroups;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * A set of test cases for off-heap entry cache implementation.
+ */
+@Test(groups = "entrycache", sequential=true)
+public class OffHeapEntryCacheTestCase
+       extends CommonEntryCacheTestCase<OffHeapEntryCacheCfg>
+{
+  /**
+   * Initialize the entry cache test.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @BeforeClass
+  public void entryCacheTestInit()
+         throws Exception
+  {
+    // Ensure that the server is running.
+    TestCaseUtils.startServer();
+
+    // Configure this entry cache.
+    Entry cacheConfigEntry = TestCaseUtils.makeEntry(
+      "dn: cn=Off-Heap,cn=Entry Caches,cn=config",
+      "objectClass: ds-cfg-off-heap-entry-cache",
+      "objectClass: ds-cfg-entry-cache",
+      "objectClass: top",
+      "cn: Off-Heap",
+      "ds-cfg-cache-level: 1",
+      "ds-cfg-java-class: org.opends.server.extensions.OffHeapEntryCache",
+      "ds-cfg-enabled: true",
+      "ds-cfg-max-memory-size: 10 MB");
+    super.configuration = InitializationUtils.getConfiguration(
+      OffHeapEntryCacheCfgDefn.getInstance(), cacheConfigEntry);
+
+    // Force GC to make sure we have enough memory for
+    // the cache capping constraints to work properly.
+    System.gc();
+
+    // Initialize the cache.
+    super.cache = new OffHeapEntryCache();
+    super.cache.initializeEntryCache(TestCaseUtils.getServerContext(), configuration);
+
+    // Make some dummy test entries.
+    super.testEntriesList = new ArrayList<>(super.NUMTESTENTRIES);
+    for(int i = 0; i < super.NUMTESTENTRIES; i++ ) {
+      super.testEntriesList.add(TestCaseUtils.makeEntry(
+        "dn: uid=test" + i + ".user" + i + ",ou=test" + i + ",o=test",
+        "objectClass: person",
+        "objectClass: inetorgperson",
+        "objectClass: top",
+        "objectClass: organizationalperson",
+        "postalAddress: somewhere in Testville" + i,
+        "street: Under Construction Street" + i,
+        "l: Testcounty" + i,
+        "st: Teststate" + i,
+        "telephoneNumber: +878 8378 8378" + i,
+        "mobile: +878 8378 8378" + i,
+        "homePhone: +878 8378 8378" + i,
+        "pager: +878 8378 8378" + i,
+        "mail: test" + i + ".user" + i + "@testdomain.net",
+        "postalCode: 8378" + i,
+        "userPassword: testpassword" + i,
+        "description: description for Test" + i + "User" + i,
+        "cn: Test" + i + "User" + i,
+        "sn: User" + i,
+        "givenName: Test" + i,
+        "initials: TST" + i,
+        "employeeNumber: 8378" + i,
+        "uid: test" + i + ".user" + i)
+      );
+    }
+  }
+
+
+
+  /**
+   * Finalize the entry cache test.
+   *
+   * @throws  Exception  If an unexpected problem occurs.
+   */
+  @AfterClass
+  public void entryCacheTestFini()
+         throws Exception
+  {
+    super.cache.finalizeEntryCache();
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Test
+  @Override
+  public void testContainsEntry()
+         throws Exception
+  {
+    super.testContainsEntry();
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Test
+  @Override
+  public void testGetEntry1()
+         throws Exception
+  {
+    super.testGetEntry1();
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Test
+  @Override
+  public void testGetEntry2()
+         throws Exception
+  {
+    super.testGetEntry2();
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Test
+  @Override
+  public void testGetEntry3()
+         throws Exception
+  {
+    super.testGetEntry3();
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Test
+  @Override
+  public void testGetEntryID()
+         throws Exception
+  {
+    super.testGetEntryID();
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Test
+  @Override
+  public void testPutEntry()
+         throws Exception
+  {
+    super.testPutEntry();
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Test
+  @Override
+  public void testPutEntryIfAbsent()
+         throws Exception
+  {
+    super.testPutEntryIfAbsent();
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Test
+  @Override
+  public void testRemoveEntry()
+         throws Exception
+  {
+    super.testRemoveEntry();
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Test
+  @Override
+  public void testClear()
+         throws Exception
+  {
+    super.testClear();
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Test
+  @Override
+  public void testClearBackend()
+         throws Exception
+  {
+    super.testClearBackend();
+  }
+
+  /** {@inheritDoc} */
+  @Test
+  @Override
+  public void testHandleLowMemory()
+         throws Exception
+  {
+    assertNull(cache.toVerboseString(),
+      "Expected empty cache.  " + "Cache contents:" + ServerConstants.EOL +
+      cache.toVerboseString());
+
+    String b = TestCaseUtils.getServerContext().getBackendConfigManager()
+        .findLocalBackendForEntry(DN.valueOf("o=test")).getBackendID();
+
+    for(int i = 0; i < super.NUMTESTENTRIES; i++ ) {
+      super.cache.putEntry(super.testEntriesList.get(i), b, i);
+    }
+
+    super.cache.handleLowMemory();
+
+    // Make sure that the entries put previously on the
+    // cache are no longer there after handleLowMemory.
+    for(int i = 0; i < super.NUMTESTENTRIES; i++ ) {
+      assertFalse(super.cache.containsEntry(
+        super.testEntriesList.get(i).getName()), "Not expected to find " +
+        super.testEntriesList.get(i).getName() + " in the " +
+        "cache.  Cache contents:" + ServerConstants.EOL +
+        cache.toVerboseString());
+    }
+
+    // Clear the cache so that other tests can start from scratch.
+    super.cache.clear();
+  }
+
+
+
+  @BeforeGroups(groups = "testOffHeapCacheConcurrency")
+  public void cacheConcurrencySetup()
+         throws Exception
+  {
+    assertNull(cache.toVerboseString(),
+      "Expected empty cache.  " + "Cache contents:" + ServerConstants.EOL +
+      cache.toVerboseString());
+  }
+
+
+
+  @AfterGroups(groups = "testOffHeapCacheConcurrency")
+  public void cacheConcurrencyCleanup()
+         throws Exception
+  {
+    // Clear the cache so that other tests can start from scratch.
+    super.cache.clear();
+  }
+
+
+
+  /** {@inheritDoc} */
+  @Test(groups = { "slow", "testOffHeapCacheConcurrency" },
+        threadPoolSize = 10,
+        invocationCount = 10,
+        timeOut = 60000)
+  @Override
+  public void testCacheConcurrency()
+         throws Exception
+  {
+    super.testCacheConcurrency();
+  }
+
+
+
+  /** Tests that the entries read from the cache are decoded as they were cached. */
+  @Test
+  public void testGetDecodedEntry()
+         throws Exception
+  {
+    assertNull(cache.toVerboseString(),
+      "Expected empty cache.  " + "Cache contents:" + ServerConstants.EOL +
+      cache.toVerboseString());
+
+    String b = TestCaseUtils.getServerContext().getBackendConfigManager()
+        .findLocalBackendForEntry(DN.valueOf("o=test")).getBackendID();
+
+    for (int i = 0; i < super.NUMTESTENTRIES; i++) {
+      super.cache.putEntry(super.testEntriesList.get(i), b, i);
+    }
+    for (int i = 0; i < super.NUMTESTENTRIES; i++) {
+      Entry entry = super.testEntriesList.get(i);
+      assertEquals(super.cache.getEntry(entry.getName()), entry);
+      assertEquals(super.cache.getEntry(b, i), entry);
+    }
+
+    // Clear the cache so that other tests can start from scratch.
+    super.cache.clear();
+  }
+
+
+
+  /**
+   * Tests that the oldest entries are evicted once the cache memory is used up,
+   * except the entries accessed since they were cached.
+   */
+  @Test
+  public void testRecentlyAccessedEntriesSurviveScan()
+         throws Exception
+  {
+    Entry cacheConfigEntry = TestCaseUtils.makeEntry(
+      "dn: cn=Off-Heap,cn=Entry Caches,cn=config",
+      "objectClass: ds-cfg-off-heap-entry-cache",
+      "objectClass: ds-cfg-entry-cache",
+      "objectClass: top",
+      "cn: Off-Heap",
+      "ds-cfg-cache-level: 1",
+      "ds-cfg-java-class: org.opends.server.extensions.OffHeapEntryCache",
+      "ds-cfg-enabled: true",
+      "ds-cfg-max-memory-size: 1 MB");
+    OffHeapEntryCache smallCache = new OffHeapEntryCache();
+    smallCache.initializeEntryCache(TestCaseUtils.getServerContext(),
+        InitializationUtils.getConfiguration(OffHeapEntryCacheCfgDefn.getInstance(), cacheConfigEntry));
+    try
+    {
+      String b = TestCaseUtils.getServerContext().getBackendConfigManager()
+          .findLocalBackendForEntry(DN.valueOf("o=test")).getBackendID();
+
+      for (int i = 0; i < super.NUMTESTENTRIES; i++) {
+        smallCache.putEntry(super.testEntriesList.get(i), b, i);
+      }
+
+      // Scan many more entries than the cache can hold, while still reading the test entries.
+      for (int i = 0; i < 2000; i++) {
+        Entry entry = TestCaseUtils.makeEntry(
+          "dn: uid=scan" + i + ",ou=scan,o=test",
+          "objectClass: person",
+          "objectClass: top",
+          "cn: Scan " + i,
+          "sn: Scan",
+          "description: " + new String(new char[1000]).replace('\0', 'x'),
+          "uid: scan" + i);
+        smallCache.putEntry(entry, b, super.NUMTESTENTRIES + i);
+        if (i % 100 == 0) {
+          for (int j = 0; j < super.NUMTESTENTRIES; j++) {
+            assertNotNull(smallCache.getEntry(b, j),
+              "Expected to find entry " + j + " in the cache.  Cache contents:" +
+              ServerConstants.EOL + smallCache.toVerboseString());
+          }
+        }
+      }
+      assertFalse(smallCache.containsEntry(DN.valueOf("uid=scan0,ou=scan,o=test")),
+        "Expected the oldest entry to be evicted.  Cache contents:" +
+        ServerConstants.EOL + smallCache.toVerboseString());
+      assertTrue(smallCache.containsEntry(DN.valueOf("uid=scan1999,ou=scan,o=test")),
+        "Expected the newest entry to be cached.  Cache contents:" +
+        ServerConstants.EOL + smallCache.toVerboseString());
+      assertTrue(getMonitorValue(smallCache.getMonitorData(), "entryCacheEvictions") > 0);
+      assertTrue(getMonitorValue(smallCache.getMonitorData(), "currentEntryCacheSize") <= 1024 * 1024);
+    }
+    finally
+    {
+      smallCache.finalizeEntryCache();
+    }
+  }
+
+  /** Tests that an entry larger than a slab is not reported as cached. */
+  @Test
+  public void testPutEntryIfAbsentTooLargeEntry()
+         throws Exception
+  {
+    Entry cacheConfigEntry = TestCaseUtils.makeEntry(
+      "dn: cn=Off-Heap,cn=Entry Caches,cn=config",
+      "objectClass: ds-cfg-off-heap-entry-cache",
+      "objectClass: ds-cfg-entry-cache",
+      "objectClass: top",
+      "cn: Off-Heap",
+      "ds-cfg-cache-level: 1",
+      "ds-cfg-java-class: org.opends.server.extensions.OffHeapEntryCache",
+      "ds-cfg-enabled: true",
+      "ds-cfg-max-memory-size: 1 MB");
+    OffHeapEntryCache smallCache = new OffHeapEntryCache();
+    smallCache.initializeEntryCache(TestCaseUtils.getServerContext(),
+        InitializationUtils.getConfiguration(OffHeapEntryCacheCfgDefn.getInstance(), cacheConfigEntry));
+    try
+    {
+      String b = TestCaseUtils.getServerContext().getBackendConfigManager()
+          .findLocalBackendForEntry(DN.valueOf("o=test")).getBackendID();
+
+      // The slabs of a 1 MB cache hold 256 KB
+      Entry entry = TestCaseUtils.makeEntry(
+        "dn: uid=large,ou=test,o=test",
+        "objectClass: person",
+        "objectClass: top",
+        "cn: Large",
+        "sn: Large",
+        "description: " + new String(new char[512 * 1024]).replace('\0', 'x'),
+        "uid: large");
+      assertFalse(smallCache.putEntryIfAbsent(entry, b, 1));
+      assertFalse(smallCache.containsEntry(entry.getName()));
+
+      assertTrue(smallCache.putEntryIfAbsent(super.testEntriesList.get(0), b, 0));
+      assertFalse(smallCache.putEntryIfAbsent(super.testEntriesList.get(0), b, 0));
+    }
+    finally
+    {
+      smallCache.finalizeEntryCache();
+    }
+  }
+
+  private long getMonitorValue(MonitorData monitorData, String name)
+  {
+    for (Attribute attribute : monitorData)
+    {
+      if (attribute.getAttributeDescription().getNameOrOID().equals(name))
+      {
+        return Long.parseLong(attribute.iterator().next().toString());
+      }
+    }
+    fail("Expected monitor attribute " + name);
+    return -1;
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.protocols.ldap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.forgerock.opendj.ldap.ByteStringBuilder;
+import org.mockito.ArgumentCaptor;
+import org.opends.server.core.SearchOperation;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/** Tests the coalescing of the messages written to a client. */
+@SuppressWarnings("javadoc")
+public class CoalescingMessageWriterTestCase extends LdapTestCase
+{
+  private static final long LONG_DELAY_NANOS = TimeUnit.HOURS.toNanos(1);
+  private static final long SHORT_DELAY_MILLIS = 50;
+
+  private static final Executor DIRECT_EXECUTOR = new Executor()
+  {
+    @Override
+    public void execute(Runnable command)
+    {
+      command.run();
+    }
+  };
+
+  private ByteArrayOutputStream output;
+  private ScheduledExecutorService scheduler;
+
+  @BeforeMethod
+  public void setUp()
+  {
+    output = new ByteArrayOutputStream();
+    scheduler = mock(ScheduledExecutorService.class);
+  }
+
+  @Test
+  public void testSearchResultDoneIsWrittenAfterCoalescedEntries() throws Exception
+  {
+    CoalescingMessageWriter writer = newWriter(LONG_DELAY_NANOS);
+
+    writer.writeMessage(message("entry1"), true);
+    assertThat(written()).isEqualTo("entry1");
+
+    writer.writeMessage(message("entry2"), true);
+    writer.writeMessage(message("entry3"), true);
+    assertThat(written()).isEqualTo("entry1");
+
+    writer.writeMessage(message("done"), false);
+    assertThat(written()).isEqualTo("entry1entry2entry3done");
+
+    // The next message is not part of the stream of entries, and is written immediately
+    writer.writeMessage(message("entry4"), true);
+    assertThat(written()).isEqualTo("entry1entry2entry3doneentry4");
+  }
+
+  @Test
+  public void testOnlyOneDelayedFlushIsPending() throws Exception
+  {
+    CoalescingMessageWriter writer = newWriter(LONG_DELAY_NANOS);
+
+    writer.writeMessage(message("entry1"), true);
+    writer.writeMessage(message("entry2"), true);
+    writer.flush();
+    writer.writeMessage(message("entry3"), true);
+    writer.writeMessage(message("entry4"), true);
+    assertThat(written()).isEqualTo("entry1entry2");
+
+    verify(scheduler, times(1)).schedule(any(Runnable.class), eq(LONG_DELAY_NANOS), eq(TimeUnit.NANOSECONDS));
+  }
+
+  @Test
+  public void testDelayedFlushOfSlowSearch() throws Exception
+  {
+    CoalescingMessageWriter writer = newWriter(TimeUnit.MILLISECONDS.toNanos(SHORT_DELAY_MILLIS));
+
+    writer.writeMessage(message("entry1"), true);
+    writer.writeMessage(message("entry2"), true);
+    assertThat(written()).isEqualTo("entry1");
+    Runnable delayedFlush = scheduledFlush(1);
+
+    // The search takes a long time to find its next entry: the coalesced entry is written after the delay
+    Thread.sleep(SHORT_DELAY_MILLIS);
+    delayedFlush.run();
+    assertThat(written()).isEqualTo("entry1entry2");
+
+    // The next entry is not coalesced with the previous ones since it is sent after the delay
+    Thread.sleep(SHORT_DELAY_MILLIS);
+    writer.writeMessage(message("entry3"), true);
+    assertThat(written()).isEqualTo("entry1entry2entry3");
+  }
+
+  @Test
+  public void testDelayedFlushIsScheduledAgainBeforeTheDelayElapsed() throws Exception
+  {
+    CoalescingMessageWriter writer = newWriter(LONG_DELAY_NANOS);
+
+    writer.writeMessage(message("entry1"), true);
+    writer.writeMessage(message("entry2"), true);
+    scheduledFlush(1).run();
+    assertThat(written()).isEqualTo("entry1");
+
+    verify(scheduler, times(2)).schedule(any(Runnable.class), anyLong(), eq(TimeUnit.NANOSECONDS));
+  }
+
+  @Test
+  public void testPersistentSearchResultsAreNeverCoalesced() throws Exception
+  {
+    SearchOperation persistentSearch = mock(SearchOperation.class);
+    when(persistentSearch.isSendResponse()).thenReturn(false);
+    SearchOperation search = mock(SearchOperation.class);
+    when(search.isSendResponse()).thenReturn(true);
+    assertThat(LDAPClientConnection.canCoalesce(persistentSearch)).isFalse();
+    assertThat(LDAPClientConnection.canCoalesce(search)).isTrue();
+
+    CoalescingMessageWriter writer = newWriter(LONG_DELAY_NANOS);
+    boolean canBeCoalesced = LDAPClientConnection.canCoalesce(persistentSearch);
+    writer.writeMessage(message("change1"), canBeCoalesced);
+    writer.writeMessage(message("change2"), canBeCoalesced);
+    writer.writeMessage(message("change3"), canBeCoalesced);
+    assertThat(written()).isEqualTo("change1change2change3");
+
+    verify(scheduler, never()).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+  }
+
+  private CoalescingMessageWriter newWriter(long maxCoalescingDelayNanos)
+  {
+    return new CoalescingMessageWriter(
+        Channels.newChannel(output), scheduler, DIRECT_EXECUTOR, maxCoalescingDelayNanos);
+  }
+
+  private Runnable scheduledFlush(int nbScheduled)
+  {
+    ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+    verify(scheduler, times(nbScheduled)).schedule(captor.capture(), anyLong(), eq(TimeUnit.NANOSECONDS));
+    return captor.getValue();
+  }
+
+  private static ByteStringBuilder message(String content)
+  {
+    return new ByteStringBuilder().appendUtf8(content);
+  }
+
+  private String written() throws Exception
+  {
+    return output.toString("UTF-8");
+  }
+}
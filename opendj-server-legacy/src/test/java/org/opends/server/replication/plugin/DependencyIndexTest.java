@@ -0,0 +1,142 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.replication.plugin;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.forgerock.opendj.ldap.DN;
+import org.forgerock.opendj.ldap.schema.AttributeType;
+import org.forgerock.opendj.ldap.schema.ObjectClass;
+import org.opends.server.replication.ReplicationTestCase;
+import org.opends.server.replication.common.CSN;
+import org.opends.server.replication.protocol.AddMsg;
+import org.opends.server.replication.protocol.DeleteMsg;
+import org.opends.server.replication.protocol.LDAPUpdateMsg;
+import org.opends.server.replication.protocol.ModifyDNMsg;
+import org.opends.server.replication.protocol.ModifyMsg;
+import org.opends.server.types.Attribute;
+import org.opends.server.types.Modification;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class DependencyIndexTest extends ReplicationTestCase
+{
+  private static final DN PEOPLE_DN = DN.valueOf("ou=people,dc=example,dc=com");
+  private static final DN USER_DN = DN.valueOf("uid=user.0,ou=people,dc=example,dc=com");
+  private static final DN RENAMED_USER_DN = DN.valueOf("uid=user.1,ou=people,dc=example,dc=com");
+
+  private int seqNum;
+
+  @Test
+  public void testAddDependsOnAddOfSuperior()
+  {
+    final DependencyIndex index = new DependencyIndex();
+    final PendingChange addPeople = change(add(PEOPLE_DN));
+    index.add(addPeople);
+
+    assertThat(index.hasDependencies(change(add(USER_DN)))).isTrue();
+    assertThat(index.hasDependencies(change(modify(USER_DN)))).isFalse();
+
+    index.remove(addPeople);
+    assertThat(index.hasDependencies(change(add(USER_DN)))).isFalse();
+    assertThat(index.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testOnlyOlderChangesAreDependencies()
+  {
+    final DependencyIndex index = new DependencyIndex();
+    final PendingChange addUser = change(add(USER_DN));
+    final PendingChange modifyUser = change(modify(USER_DN));
+    index.add(modifyUser);
+    index.add(addUser);
+
+    assertThat(index.hasDependencies(modifyUser)).isTrue();
+    assertThat(index.hasDependencies(addUser)).isFalse();
+  }
+
+  @Test
+  public void testDeleteDependsOnDeleteOfSubordinate()
+  {
+    final DependencyIndex index = new DependencyIndex();
+    index.add(change(delete(USER_DN)));
+
+    assertThat(index.hasDependencies(change(delete(PEOPLE_DN)))).isTrue();
+    assertThat(index.hasDependencies(change(delete(RENAMED_USER_DN)))).isFalse();
+  }
+
+  @Test
+  public void testModifyDependsOnRenameToSameDN()
+  {
+    final DependencyIndex index = new DependencyIndex();
+    index.add(change(modifyDN(USER_DN, "uid=user.1")));
+
+    assertThat(index.hasDependencies(change(modify(RENAMED_USER_DN)))).isTrue();
+    assertThat(index.hasDependencies(change(modify(USER_DN)))).isFalse();
+    assertThat(index.hasDependencies(change(delete(PEOPLE_DN)))).isTrue();
+  }
+
+  @Test
+  public void testChangeIsIndexedAgainWhenItsDNIsModified()
+  {
+    final DependencyIndex index = new DependencyIndex();
+    final AddMsg addMsg = add(USER_DN);
+    final PendingChange addUser = change(addMsg);
+    index.add(addUser);
+
+    addMsg.setDN(RENAMED_USER_DN);
+    index.add(addUser);
+
+    assertThat(index.hasDependencies(change(modify(RENAMED_USER_DN)))).isTrue();
+    assertThat(index.hasDependencies(change(modify(USER_DN)))).isFalse();
+    assertThat(index.size()).isEqualTo(1);
+  }
+
+  private PendingChange change(LDAPUpdateMsg msg)
+  {
+    return new PendingChange(msg.getCSN(), null, msg);
+  }
+
+  private CSN nextCSN()
+  {
+    return new CSN(1000L, seqNum++, 1);
+  }
+
+  private AddMsg add(DN dn)
+  {
+    return new AddMsg(nextCSN(), dn, "uuid", "parentUuid", new HashMap<ObjectClass, String>(),
+        new HashMap<AttributeType, List<Attribute>>(), new HashMap<AttributeType, List<Attribute>>());
+  }
+
+  private DeleteMsg delete(DN dn)
+  {
+    return new DeleteMsg(dn, nextCSN(), "uuid");
+  }
+
+  private ModifyMsg modify(DN dn)
+  {
+    return new ModifyMsg(nextCSN(), dn, Collections.<Modification> emptyList(), "uuid");
+  }
+
+  private ModifyDNMsg modifyDN(DN dn, String newRDN)
+  {
+    return new ModifyDNMsg(dn, nextCSN(), "uuid", null, true, null, newRDN);
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.replication.protocol;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+
+import org.opends.server.DirectoryServerTestCase;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class MessageCompressorTest extends DirectoryServerTestCase
+{
+  @Test
+  public void testDecompressReturnsCompressedMessages() throws Exception
+  {
+    final MessageCompressor sender = new MessageCompressor();
+    final MessageCompressor receiver = new MessageCompressor();
+
+    final List<byte[]> messages = Arrays.asList(message(0, 10), new byte[0], message(1, 100000), message(2, 1));
+    assertMessagesEqual(receiver.decompress(sender.compress(messages)), messages);
+  }
+
+  @Test
+  public void testBatchesAreCompressedUsingPreviousBatches() throws Exception
+  {
+    final MessageCompressor sender = new MessageCompressor();
+    final MessageCompressor receiver = new MessageCompressor();
+    final List<byte[]> batch = Collections.singletonList(message(0, 2000));
+
+    final byte[] firstBatch = sender.compress(batch);
+    final byte[] secondBatch = sender.compress(batch);
+    assertThat(secondBatch.length).isLessThan(firstBatch.length);
+
+    // batches must be decompressed in order
+    assertMessagesEqual(receiver.decompress(firstBatch), batch);
+    assertMessagesEqual(receiver.decompress(secondBatch), batch);
+  }
+
+  @Test
+  public void testRedundantMessagesAreCompressed() throws Exception
+  {
+    final MessageCompressor sender = new MessageCompressor();
+    final MessageCompressor receiver = new MessageCompressor();
+    final List<byte[]> batch = new ArrayList<>();
+    int size = 0;
+    for (int i = 0; i < 100; i++)
+    {
+      final byte[] message = ("modify cn=user." + i + ",ou=people,dc=example,dc=com"
+          + " replace description: a description shared by all the users").getBytes();
+      batch.add(message);
+      size += message.length;
+    }
+
+    final byte[] compressedBatch = sender.compress(batch);
+    assertThat(compressedBatch.length).isLessThan(size / 4);
+    assertMessagesEqual(receiver.decompress(compressedBatch), batch);
+  }
+
+  @Test(expectedExceptions = DataFormatException.class)
+  public void testDecompressInvalidBatch() throws Exception
+  {
+    new MessageCompressor().decompress(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+  }
+
+  @Test(expectedExceptions = DataFormatException.class)
+  public void testDecompressBatchExceedingMaxSize() throws Exception
+  {
+    final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    final ByteArrayOutputStream compressedBatch = new ByteArrayOutputStream();
+    final byte[] zeros = new byte[1024 * 1024];
+    final byte[] buffer = new byte[8192];
+    for (int size = 0; size <= MessageCompressor.MAX_UNCOMPRESSED_BATCH_SIZE; size += zeros.length)
+    {
+      deflater.setInput(zeros);
+      int length;
+      do
+      {
+        length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+        compressedBatch.write(buffer, 0, length);
+      }
+      while (length == buffer.length);
+    }
+    deflater.end();
+
+    new MessageCompressor().decompress(compressedBatch.toByteArray());
+  }
+
+  /** Returns a message of the provided length, whose content depends on the provided seed. */
+  private static byte[] message(int seed, int length)
+  {
+    final byte[] message = new byte[length];
+    for (int i = 0; i < length; i++)
+    {
+      message[i] = (byte) ((seed + i * 31) % 251);
+    }
+    return message;
+  }
+
+  private static void assertMessagesEqual(List<byte[]> actual, List<byte[]> expected)
+  {
+    assertThat(actual).hasSameSizeAs(expected);
+    for (int i = 0; i < expected.size(); i++)
+    {
+      assertThat(actual.get(i)).as("message " + i).isEqualTo(expected.get(i));
+    }
+  }
+}
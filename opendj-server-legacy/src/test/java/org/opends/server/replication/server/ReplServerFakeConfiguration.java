@@ -272,6 +272,24 @@ public class ReplServerFakeConfiguration implements ReplicationServerCfg
     this.computeChangenumber = computeChangenumber;
   }
 
+  @Override
+  public int getChangelogWriteBatchSize()
+  {
+    return 256;
+  }
+
+  @Override
+  public long getChangelogWriteBatchDelay()
+  {
+    return 0;
+  }
+
+  @Override
+  public boolean isChangelogWriteSyncEnabled()
+  {
+    return false;
+  }
+
   public void setConfidentialityEnabled(boolean confidentialityEnabled)
   {
     this.confidentialityEnabled = confidentialityEnabled;
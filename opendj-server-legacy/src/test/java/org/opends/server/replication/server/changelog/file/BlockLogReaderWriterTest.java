@@ -251,6 +251,54 @@ public class BlockLogReaderWriterTest extends DirectoryServerTestCase
     }
   }
 
+  @Test(dataProvider = "recordsForSeek")
+  public void testSeekToRecordWithSharedKeyIndex(int blockSize, List<Record<Integer, Integer>> records, int key,
+      KeyMatchingStrategy matchingStrategy, PositionStrategy positionStrategy, Record<Integer, Integer> expectedRecord,
+      boolean shouldBeFound) throws Exception
+  {
+    writeRecords(blockSize, records);
+    final SparseKeyIndex<Integer> keyIndex = new SparseKeyIndex<>();
+
+    // fill the shared index with the keys found by the seeks of another reader
+    try (BlockLogReader<Integer, Integer> reader = newReader(blockSize, keyIndex))
+    {
+      for (int i = 0; i <= records.size() + 1; i++)
+      {
+        reader.seekToRecord(i, GREATER_THAN_OR_EQUAL_TO_KEY, ON_MATCHING_KEY);
+      }
+    }
+
+    try (BlockLogReader<Integer, Integer> reader = newReader(blockSize, keyIndex))
+    {
+      Pair<Boolean, Record<Integer, Integer>> result = reader.seekToRecord(key, matchingStrategy, positionStrategy);
+
+      final SoftAssertions softly = new SoftAssertions();
+      softly.assertThat(result.getFirst()).isEqualTo(shouldBeFound);
+      softly.assertThat(result.getSecond()).isEqualTo(expectedRecord);
+      softly.assertAll();
+    }
+  }
+
+  @Test
+  public void testReadRecordsAppendedAfterEndOfFile() throws Exception
+  {
+    int blockSize = 10;
+    writeRecords(blockSize, records(1, 2));
+
+    try (BlockLogReader<Integer, Integer> reader = newReader(blockSize))
+    {
+      assertThat(reader.readRecord()).isEqualTo(record(1));
+      assertThat(reader.readRecord()).isEqualTo(record(2));
+      assertThat(reader.readRecord()).isNull();
+
+      writeRecords(blockSize, records(3, 4));
+
+      assertThat(reader.readRecord()).isEqualTo(record(3));
+      assertThat(reader.readRecord()).isEqualTo(record(4));
+      assertThat(reader.readRecord()).isNull();
+    }
+  }
+
   @Test
   public void testGetClosestBlockStartBeforeOrAtPosition() throws Exception
   {
@@ -518,6 +566,13 @@ public class BlockLogReaderWriterTest extends DirectoryServerTestCase
         RECORD_PARSER, blockSize);
   }
 
+  private BlockLogReader<Integer, Integer> newReader(int blockSize, SparseKeyIndex<Integer> keyIndex)
+      throws FileNotFoundException
+  {
+    return BlockLogReader.newReaderForTests(TEST_FILE, new RandomAccessFile(TEST_FILE, "r"),
+        RECORD_PARSER, blockSize, keyIndex);
+  }
+
   private BlockLogReader<Integer, Integer> newReaderWithNullFile(int blockSize) throws FileNotFoundException
   {
     return BlockLogReader.newReaderForTests(null, null, RECORD_PARSER, blockSize);
@@ -18,6 +18,7 @@ package org.opends.server.replication.server.changelog.file;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.Arrays;
 
 import org.forgerock.i18n.LocalizableMessage;
 import org.forgerock.opendj.ldap.ByteSequenceReader;
@@ -278,6 +279,26 @@ public class LogFileTest extends DirectoryServerTestCase
     }
   }
 
+  @Test
+  public void testAppendingBatchSkipsRecordsBreakingOrder() throws Exception
+  {
+    try (LogFile<String, String> writeLog = getLogFile(RECORD_PARSER))
+    {
+      writeLog.append(Arrays.asList(
+          Record.from("key11", "value11"),
+          Record.from("key05", "value5"),
+          Record.from("key12", "value12"),
+          Record.from("key12", "value12bis")));
+      assertThat(writeLog.getNewestRecord()).isEqualTo(Record.from("key12", "value12"));
+    }
+
+    try (LogFile<String, String> log = getLogFile(RECORD_PARSER);
+        DBCursor<Record<String, String>> cursor = log.getCursor())
+    {
+      assertThatCursorCanBeFullyRead(cursor, 1, 12);
+    }
+  }
+
   /**
    * Read the cursor until exhaustion, ensuring that its first value is fromIndex and its last value
    * endIndex, using (keyN, valueN) where N is the index.
@@ -22,9 +22,17 @@ import static org.opends.server.replication.server.changelog.api.DBCursor.Positi
 import static org.opends.server.replication.server.changelog.file.LogFileTest.*;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.opends.server.DirectoryServerTestCase;
 import org.opends.server.TestCaseUtils;
+import org.opends.server.api.MonitorData;
 import org.opends.server.replication.server.changelog.api.AbortedChangelogCursorException;
 import org.opends.server.replication.server.changelog.api.ChangelogException;
 import org.opends.server.replication.server.changelog.api.DBCursor;
@@ -33,6 +41,7 @@ import org.opends.server.replication.server.changelog.api.DBCursor.PositionStrat
 import org.opends.server.replication.server.changelog.file.Log.LogRotationParameters;
 import org.opends.server.replication.server.changelog.file.LogFileTest.FailingStringRecordParser;
 import org.opends.server.replication.server.changelog.file.Record.Mapper;
+import org.opends.server.types.Attribute;
 import org.opends.server.util.StaticUtils;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
@@ -499,6 +508,101 @@ public class LogTest extends DirectoryServerTestCase
     }
   }
 
+  @Test
+  public void testAppendWithSyncEnabled() throws Exception
+  {
+    try (Log<String, String> log = openLog(LogFileTest.RECORD_PARSER))
+    {
+      log.setGroupCommitParameters(16, 0, true);
+      for (int i = 11; i <= 20; i++)
+      {
+        log.append(Record.from(String.format("key%03d", i), "value" + i));
+      }
+
+      final MonitorData monitorData = new MonitorData();
+      log.addWriteMonitorData(monitorData);
+      assertThat(getMonitorValue(monitorData, "write-record-count")).isEqualTo(10);
+      assertThat(getMonitorValue(monitorData, "write-sync-count")).isEqualTo(10);
+      try (DBCursor<Record<String, String>> cursor = log.getCursor())
+      {
+        assertThatCursorCanBeFullyReadFromStart(cursor, 1, 20);
+      }
+    }
+  }
+
+  @Test
+  public void testConcurrentAppendsAreWrittenInBatches() throws Exception
+  {
+    final int nbThreads = 8;
+    final int nbRecordsPerThread = 50;
+    try (final Log<String, String> log = openLog(LogFileTest.RECORD_PARSER))
+    {
+      log.setGroupCommitParameters(16, 1, true);
+      final AtomicInteger nextKey = new AtomicInteger(10);
+      final ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+      try
+      {
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < nbThreads; i++)
+        {
+          futures.add(executor.submit(new Callable<Void>()
+          {
+            @Override
+            public Void call() throws Exception
+            {
+              for (int j = 0; j < nbRecordsPerThread; j++)
+              {
+                final int key = nextKey.incrementAndGet();
+                log.append(Record.from(String.format("key%03d", key), "value" + key));
+              }
+              return null;
+            }
+          }));
+        }
+        for (Future<?> future : futures)
+        {
+          future.get();
+        }
+      }
+      finally
+      {
+        executor.shutdown();
+      }
+
+      final MonitorData monitorData = new MonitorData();
+      log.addWriteMonitorData(monitorData);
+      final long nbBatches = getMonitorValue(monitorData, "write-batch-count");
+      assertThat(getMonitorValue(monitorData, "write-record-count")).isEqualTo(nbThreads * nbRecordsPerThread);
+      assertThat(getMonitorValue(monitorData, "write-sync-count")).isEqualTo(nbBatches);
+
+      // records whose key is lower than the key of a record written before them are skipped
+      try (DBCursor<Record<String, String>> cursor = log.getCursor())
+      {
+        String previousKey = null;
+        while (cursor.next())
+        {
+          final String key = cursor.getRecord().getKey();
+          assertThat(previousKey == null || key.compareTo(previousKey) > 0).as("key " + key).isTrue();
+          previousKey = key;
+        }
+        assertThat(previousKey).isNotNull();
+      }
+    }
+  }
+
+  private long getMonitorValue(MonitorData monitorData, String name)
+  {
+    for (Attribute attribute : monitorData)
+    {
+      if (attribute.getAttributeDescription().getNameOrOID().equals(name))
+      {
+        return Long.parseLong(attribute.iterator().next().toString());
+      }
+    }
+    fail("Expected monitor attribute " + name);
+    return -1;
+  }
+
   private void advanceCursorUpTo(DBCursor<Record<String, String>> cursor, int fromIndex, int endIndex)
       throws Exception
   {
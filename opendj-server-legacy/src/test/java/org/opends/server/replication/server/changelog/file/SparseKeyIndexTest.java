@@ -0,0 +1,46 @@
+/*
+ * The contents of this file are subject to the terms of the Common Development and
+ * Distribution License (the License). You may not use this file except in compliance with the
+ * License.
+ *
+ * You can obtain a copy of the License at legal/CDDLv1.0.txt. See the License for the
+ * specific language governing permission and limitations under the License.
+ *
+ * When distributing Covered Software, include this CDDL Header Notice in each file and include
+ * the License file at legal/CDDLv1.0.txt. If applicable, add the following below the CDDL
+ * Header, with the fields enclosed by brackets [] replaced by your own identifying
+ * information: "Portions Copyright [year] [name of copyright owner]".
+ *
+ * Copyright 2026 ForgeRock AS.
+ */
+package org.opends.server.replication.server.changelog.file;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.opends.server.replication.server.changelog.file.SparseKeyIndex.*;
+
+import org.opends.server.DirectoryServerTestCase;
+import org.testng.annotations.Test;
+
+@SuppressWarnings("javadoc")
+public class SparseKeyIndexTest extends DirectoryServerTestCase
+{
+  @Test
+  public void testKeysAreStillIndexedOnceTheIndexIsFull()
+  {
+    final SparseKeyIndex<Integer> index = new SparseKeyIndex<>();
+    for (int i = 0; i < MAX_NB_KEYS; i++)
+    {
+      index.put(i, i * 100L);
+    }
+    assertThat(index.getNbKeys()).isEqualTo(MAX_NB_KEYS);
+
+    // Every other key is evicted to make room for the new key
+    index.put(MAX_NB_KEYS, MAX_NB_KEYS * 100L);
+    assertThat(index.getNbKeys()).isEqualTo(MAX_NB_KEYS / 2 + 1);
+    assertThat(index.getBlockStart(MAX_NB_KEYS)).isEqualTo(MAX_NB_KEYS * 100L);
+    assertThat(index.getBlockStart(0)).isEqualTo(0L);
+    assertThat(index.getBlockStart(1)).isNull();
+    assertThat(index.getBlockStartOfLowerKey(3)).isEqualTo(200L);
+    assertThat(index.getBlockStartOfHigherKey(MAX_NB_KEYS - 1)).isEqualTo(MAX_NB_KEYS * 100L);
+  }
+}